@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmarks {
+    private static final List<Sort> BY_ID = ImmutableList.of(new Sort("id"));
+    private static final List<Sort> BY_STATUS = ImmutableList.of(new Sort("status"), new Sort("id"));
+    private static final Map<String, String> FIRST_PAGE = ImmutableMap.of("start", "0", "limit", "51");
+    private static final Map<String, String> BY_KEY = ImmutableMap.of("key", Dataset.propertyKey(3), "start", "0",
+            "limit", "51");
+    private static final List<Tag> WIDE_TAG = ImmutableList.of(tag(0, 0));
+    private static final List<Tag> NARROW_TAGS = ImmutableList.of(tag(0, 1), tag(9, 1));
+
+    private static Tag tag(int k, int group) {
+        final Tag t = new Tag();
+        t.setKey(Dataset.tagKey(k));
+        t.setValue(Dataset.tagValue(group, k));
+        return t;
+    }
+
+    @Benchmark
+    public List<Property> propertyFirstPage(SeededDatabase db) {
+        return db.propertyDao.filter(FIRST_PAGE, BY_ID, null);
+    }
+
+    @Benchmark
+    public List<Property> propertyFilterByKey(SeededDatabase db) {
+        return db.propertyDao.filter(BY_KEY, BY_ID, null);
+    }
+
+    @Benchmark
+    public int propertyFilterCountByKey(SeededDatabase db) {
+        return db.propertyDao.filterCount(BY_KEY);
+    }
+
+    @Benchmark
+    public List<PropertyGroup> propertyGroupFilterWithWideTag(SeededDatabase db) {
+        return db.propertyGroupDao.filterWithTags(FIRST_PAGE, BY_STATUS, WIDE_TAG, null);
+    }
+
+    @Benchmark
+    public List<PropertyGroup> propertyGroupFilterWithNarrowTags(SeededDatabase db) {
+        return db.propertyGroupDao.filterWithTags(FIRST_PAGE, BY_STATUS, NARROW_TAGS, null);
+    }
+
+    @Benchmark
+    public int propertyGroupFilterWithTagsCount(SeededDatabase db) {
+        return db.propertyGroupDao.filterWithTagsCount(FIRST_PAGE, WIDE_TAG);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+
+/**
+ * Deterministic data shared by the benchmarks, written like the API does with one tag row per association. Tag key
+ * {@code KEYn} takes {@code n + 2} distinct values so searches range from half of all groups down to a handful.
+ */
+public class Dataset {
+    private final int groups;
+    private final int propertiesPerGroup;
+    private final int tagKeys;
+
+    public Dataset(int groups, int propertiesPerGroup, int tagKeys) {
+        this.groups = groups;
+        this.propertiesPerGroup = propertiesPerGroup;
+        this.tagKeys = tagKeys;
+    }
+
+    public static String tagKey(int k) {
+        return "KEY" + k;
+    }
+
+    public static String tagValue(int group, int k) {
+        return "v" + (group % (k + 2));
+    }
+
+    public static String propertyKey(int p) {
+        return "key-" + p;
+    }
+
+    public List<Long> seed(PropertyGroupDao pgDao, PropertyDao propDao, TagDao tagDao) {
+        final Set<String> domain = new HashSet<>(tagDao.getTagDomain());
+        for (int k = 0; k < tagKeys; k++) {
+            if (!domain.contains(tagKey(k))) {
+                tagDao.createTagDomain(tagKey(k));
+            }
+        }
+
+        final List<Long> ids = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            final PropertyGroup pg = new PropertyGroup();
+            pg.setName("group-" + g);
+            pg.setVersion("1.0." + (g % 10));
+            pg.setStatus(0 == g % 4 ? Status.INACTIVE : Status.ACTIVE);
+            final long pgId = pgDao.createPropertyGroup(pg);
+            ids.add(pgId);
+
+            final List<Property> props = new ArrayList<>(propertiesPerGroup);
+            for (int p = 0; p < propertiesPerGroup; p++) {
+                final Property prop = new Property();
+                prop.setKey(propertyKey(p));
+                prop.setValue("value-" + g + "-" + p);
+                prop.setDescription(0 == p % 3 ? null : "description of " + propertyKey(p));
+                prop.setPropertyGroupId(pgId);
+                props.add(prop);
+            }
+            propDao.createProperties(props);
+
+            for (int k = 0; k < tagKeys; k++) {
+                tagDao.associateTag(tagDao.addTag(tagKey(k), tagValue(g, k)), pgId);
+            }
+        }
+
+        return ids;
+    }
+}
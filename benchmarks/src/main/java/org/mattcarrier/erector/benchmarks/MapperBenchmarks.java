@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.mattcarrier.erector.dao.mapper.PropertyGroupMapper;
+import org.mattcarrier.erector.dao.mapper.PropertyMapper;
+import org.mattcarrier.erector.dao.mapper.TagMapper;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps a single in-memory row over and over so only the mapper and its by-name column lookups are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmarks {
+    private final TagMapper tagMapper = new TagMapper();
+    private final PropertyMapper propertyMapper = new PropertyMapper();
+    private final PropertyGroupMapper propertyGroupMapper = new PropertyGroupMapper();
+
+    private SimpleResultSet tagRow;
+    private SimpleResultSet propertyRow;
+    private SimpleResultSet propertyGroupRow;
+
+    @Setup
+    public void rows() throws SQLException {
+        tagRow = new SimpleResultSet();
+        tagRow.addColumn("ID", Types.BIGINT, 19, 0);
+        tagRow.addColumn("KEY", Types.VARCHAR, 255, 0);
+        tagRow.addColumn("VALUE", Types.VARCHAR, 255, 0);
+        tagRow.addRow(42L, "ENVIRONMENT", "production");
+        tagRow.next();
+
+        propertyRow = new SimpleResultSet();
+        propertyRow.addColumn("ID", Types.BIGINT, 19, 0);
+        propertyRow.addColumn("KEY", Types.VARCHAR, 255, 0);
+        propertyRow.addColumn("VALUE", Types.VARCHAR, 255, 0);
+        propertyRow.addColumn("DESCRIPTION", Types.VARCHAR, 255, 0);
+        propertyRow.addColumn("PROPERTYGROUPID", Types.BIGINT, 19, 0);
+        propertyRow.addRow(42L, "jdbc.url", "jdbc:h2:mem:erector", "connection url of the primary database", 7L);
+        propertyRow.next();
+
+        propertyGroupRow = new SimpleResultSet();
+        propertyGroupRow.addColumn("ID", Types.BIGINT, 19, 0);
+        propertyGroupRow.addColumn("NAME", Types.VARCHAR, 255, 0);
+        propertyGroupRow.addColumn("STATUS", Types.VARCHAR, 255, 0);
+        propertyGroupRow.addColumn("VERSION", Types.VARCHAR, 255, 0);
+        propertyGroupRow.addRow(7L, "billing", "ACTIVE", "1.0.3");
+        propertyGroupRow.next();
+    }
+
+    @Benchmark
+    public Tag tag() throws SQLException {
+        return tagMapper.map(0, tagRow, null);
+    }
+
+    @Benchmark
+    public Property property() throws SQLException {
+        return propertyMapper.map(0, propertyRow, null);
+    }
+
+    @Benchmark
+    public PropertyGroup propertyGroup() throws SQLException {
+        return propertyGroupMapper.map(0, propertyGroupRow, null);
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import org.mattcarrier.erector.ErectorApplication;
+import org.mattcarrier.erector.ErectorConfiguration;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+import io.dropwizard.jetty.HttpConnectorFactory;
+import io.dropwizard.logging.DefaultLoggingFactory;
+import io.dropwizard.request.logging.LogbackAccessRequestLogFactory;
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.testing.DropwizardTestSupport;
+
+/**
+ * Drives the full stack, Jetty, Jersey, the caches and H2, of an {@link ErectorApplication} started in-process on
+ * ephemeral ports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceBenchmarks {
+    @Param("1000")
+    public int groups;
+
+    @Param("20")
+    public int propertiesPerGroup;
+
+    @Param("20")
+    public int tagKeys;
+
+    private DropwizardTestSupport<ErectorConfiguration> app;
+    private Client client;
+    private WebTarget api;
+    private long propertyId;
+    private long propertyGroupId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        final ErectorConfiguration config = new ErectorConfiguration();
+        final DefaultServerFactory server = (DefaultServerFactory) config.getServerFactory();
+        ((HttpConnectorFactory) server.getApplicationConnectors().get(0)).setPort(0);
+        ((HttpConnectorFactory) server.getAdminConnectors().get(0)).setPort(0);
+        ((DefaultLoggingFactory) config.getLoggingFactory()).setLevel(ch.qos.logback.classic.Level.WARN);
+        ((LogbackAccessRequestLogFactory) server.getRequestLogFactory()).setAppenders(ImmutableList.of());
+
+        app = new DropwizardTestSupport<>(ErectorApplication.class, config);
+        app.before();
+        client = ClientBuilder.newClient();
+        api = client.target("http://localhost:" + app.getLocalPort() + "/erector/api/v1");
+
+        // the tag domain is served from a snapshot, going through the API refreshes it
+        for (int k = 0; k < tagKeys; k++) {
+            api.path("tags/domain").path(Dataset.tagKey(k)).request().post(Entity.json("")).close();
+        }
+
+        final PersistenceFactory persistence = app.getConfiguration().getPersistence();
+        final List<Long> ids = new Dataset(groups, propertiesPerGroup, tagKeys).seed(
+                persistence.propertyGroupDao(), persistence.propertyDao(), persistence.tagDao());
+        propertyGroupId = ids.get(ids.size() / 2);
+        propertyId = persistence.propertyDao().byPropertyGroupId(propertyGroupId).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        client.close();
+        app.after();
+    }
+
+    private static String read(WebTarget target) {
+        final Response r = target.request().get();
+        try {
+            return r.readEntity(String.class);
+        } finally {
+            r.close();
+        }
+    }
+
+    @Benchmark
+    public String propertyById() {
+        return read(api.path("properties").path(String.valueOf(propertyId)));
+    }
+
+    @Benchmark
+    public String propertyFilterByKey() {
+        return read(api.path("properties").queryParam("key", Dataset.propertyKey(3)).queryParam("count", "none"));
+    }
+
+    @Benchmark
+    public String propertyGroupTagSearch() {
+        return read(api.path("propertygroups").queryParam(Dataset.tagKey(3), Dataset.tagValue(1, 3)));
+    }
+
+    @Benchmark
+    public String propertyGroupConfig() {
+        return read(api.path("propertygroups").path(String.valueOf(propertyGroupId)).path("config"));
+    }
+}
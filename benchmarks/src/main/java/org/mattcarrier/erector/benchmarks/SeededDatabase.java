@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.skife.jdbi.v2.DBI;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jdbi.DBIFactory;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.setup.Environment;
+
+/**
+ * An embedded H2 migrated and seeded with a {@link Dataset}, reached through the uncached JDBI DAOs.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    @Param("1000")
+    public int groups;
+
+    @Param("20")
+    public int propertiesPerGroup;
+
+    @Param("20")
+    public int tagKeys;
+
+    public PropertyGroupDao propertyGroupDao;
+    public PropertyDao propertyDao;
+    public TagDao tagDao;
+    public List<Long> propertyGroupIds;
+
+    private String url;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        final DataSourceFactory h2Config = new DataSourceFactory();
+        url = "jdbc:h2:mem:benchmarks-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        h2Config.setUrl(url);
+        h2Config.setUser("sa");
+        h2Config.setDriverClass("org.h2.Driver");
+        h2Config.setValidationQuery("SELECT 1");
+
+        final Environment env = new Environment("benchmarks", Jackson.newObjectMapper(), Validators.newValidator(),
+                new MetricRegistry(), getClass().getClassLoader());
+        final DBI dbi = new DBIFactory().build(env, h2Config, "h2");
+
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(h2Config.build(env.metrics(), "flyway"));
+        flyway.migrate();
+
+        propertyGroupDao = dbi.onDemand(PropertyGroupDao.class);
+        propertyDao = dbi.onDemand(PropertyDao.class);
+        tagDao = dbi.onDemand(TagDao.class);
+        propertyGroupIds = new Dataset(groups, propertiesPerGroup, tagKeys).seed(propertyGroupDao, propertyDao,
+                tagDao);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() throws SQLException {
+        try (Connection c = DriverManager.getConnection(url, "sa", ""); Statement s = c.createStatement()) {
+            s.execute("SHUTDOWN");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mattcarrier.erector.api.PagedResponse;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.dropwizard.jackson.Jackson;
+
+/**
+ * Serializes search pages with the same {@link ObjectMapper} configuration Dropwizard hands to Jersey.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmarks {
+    @Param({ "50", "500" })
+    public int pageSize;
+
+    private final ObjectMapper mapper = Jackson.newObjectMapper();
+    private PagedResponse<Property> properties;
+    private PagedResponse<PropertyGroup> propertyGroups;
+
+    @Setup
+    public void pages() {
+        final List<Property> props = new ArrayList<>(pageSize);
+        final List<PropertyGroup> pgs = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            final Property p = new Property();
+            p.setId((long) i);
+            p.setKey(Dataset.propertyKey(i));
+            p.setValue("value-" + i);
+            p.setDescription("description of " + Dataset.propertyKey(i));
+            p.setPropertyGroupId((long) i / 20);
+            props.add(p);
+
+            final PropertyGroup pg = new PropertyGroup();
+            pg.setId((long) i);
+            pg.setName("group-" + i);
+            pg.setVersion("1.0." + (i % 10));
+            pg.setStatus(Status.ACTIVE);
+            pgs.add(pg);
+        }
+
+        properties = new PagedResponse<>(props, 0, pageSize, 10 * pageSize, true, "bmV4dA");
+        propertyGroups = new PagedResponse<>(pgs, 0, pageSize, 10 * pageSize, true, "bmV4dA");
+    }
+
+    @Benchmark
+    public byte[] properties() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(properties);
+    }
+
+    @Benchmark
+    public byte[] propertyGroups() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(propertyGroups);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+
+import org.HdrHistogram.Histogram;
+import org.mattcarrier.erector.ErectorApplication;
+import org.mattcarrier.erector.ErectorConfiguration;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.generate.DatasetGenerator;
+import org.mattcarrier.erector.generate.Distribution;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.google.common.collect.ImmutableList;
+
+import ch.qos.logback.classic.Level;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.jackson.JacksonMessageBodyProvider;
+import io.dropwizard.jetty.HttpConnectorFactory;
+import io.dropwizard.logging.DefaultLoggingFactory;
+import io.dropwizard.request.logging.LogbackAccessRequestLogFactory;
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.testing.DropwizardTestSupport;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Starts {@link ErectorApplication} in-process on H2, generates a dataset and drives it with an
+ * {@link OpenModelDriver}, e.g. {@code java -jar loadtest/target/loadtest.jar --rate 500 --duration 60}.
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        final ArgumentParser parser = ArgumentParsers.newArgumentParser("loadtest").defaultHelp(true)
+                .description("Drives an in-process erector at a fixed request rate and reports latency percentiles");
+        parser.addArgument("--rate").type(Double.class).setDefault(200.0).help("requests per second");
+        parser.addArgument("--warmup").type(Long.class).setDefault(10L).help("seconds issued before measuring");
+        parser.addArgument("--duration").type(Long.class).setDefault(30L).help("seconds measured");
+        parser.addArgument("--threads").type(Integer.class).setDefault(32).help("concurrent requests at most");
+        parser.addArgument("--mix").setDefault("BY_ID=50,FILTER=20,TAG_SEARCH=20,WRITE=10")
+                .help("weights of the operations");
+        parser.addArgument("--groups").type(Integer.class).setDefault(1000).help("number of property groups");
+        parser.addArgument("--properties").type(Integer.class).setDefault(20).help("properties per property group");
+        parser.addArgument("--tag-keys").dest("tagKeys").type(Integer.class).setDefault(20)
+                .help("size of the tag domain");
+        parser.addArgument("--tags").type(Integer.class).setDefault(5).help("tags per property group");
+        parser.addArgument("--cardinality").type(Integer.class).setDefault(10).help("distinct values per tag key");
+        parser.addArgument("--distribution").type(Distribution.class).setDefault(Distribution.ZIPF)
+                .help("how tag values are drawn, UNIFORM or ZIPF");
+        final Namespace ns = parser.parseArgsOrFail(args);
+
+        final DatasetGenerator dataset = new DatasetGenerator();
+        dataset.setGroups(ns.getInt("groups"));
+        dataset.setPropertiesPerGroup(ns.getInt("properties"));
+        dataset.setTagKeys(ns.getInt("tagKeys"));
+        dataset.setTagsPerGroup(ns.getInt("tags"));
+        dataset.setCardinality(ns.getInt("cardinality"));
+        dataset.setDistribution(ns.get("distribution"));
+        final Mix mix = new Mix(ns.getString("mix"));
+        final int threads = ns.getInt("threads");
+
+        // the default HttpURLConnection connector keeps only this many idle connections per host
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+
+        final ErectorConfiguration config = new ErectorConfiguration();
+        final DefaultServerFactory server = (DefaultServerFactory) config.getServerFactory();
+        ((HttpConnectorFactory) server.getApplicationConnectors().get(0)).setPort(0);
+        ((HttpConnectorFactory) server.getAdminConnectors().get(0)).setPort(0);
+        ((DefaultLoggingFactory) config.getLoggingFactory()).setLevel(Level.WARN);
+        ((LogbackAccessRequestLogFactory) server.getRequestLogFactory()).setAppenders(ImmutableList.of());
+
+        final DropwizardTestSupport<ErectorConfiguration> app = new DropwizardTestSupport<>(ErectorApplication.class,
+                config);
+        app.before();
+        final Client client = ClientBuilder.newClient()
+                .register(new JacksonMessageBodyProvider(Jackson.newObjectMapper()));
+        try {
+            final WebTarget api = client.target("http://localhost:" + app.getLocalPort() + "/erector/api/v1");
+
+            // the tag domain is served from a snapshot, going through the API refreshes it
+            for (int k = 0; k < dataset.getTagKeys(); k++) {
+                api.path("tags/domain").path(DatasetGenerator.tagKey(k)).request().post(Entity.json("")).close();
+            }
+
+            final PersistenceFactory persistence = app.getConfiguration().getPersistence();
+            System.out.printf("generating %d property groups%n", dataset.getGroups());
+            dataset.generate(persistence.propertyGroupDao(), persistence.propertyDao(), persistence.tagDao());
+
+            final List<Property> properties = new ArrayList<>();
+            try (ResultIterator<Property> it = persistence.propertyDao().iterateAll(1000)) {
+                it.forEachRemaining(properties::add);
+            }
+
+            final double rate = ns.getDouble("rate");
+            final long duration = ns.getLong("duration");
+            System.out.printf("issuing %.0f requests per second for %ds after a %ds warmup%n", rate, duration,
+                    ns.getLong("warmup"));
+            final Map<Operation, OpenModelDriver.Stats> stats = new OpenModelDriver(
+                    new Workload(api, properties, dataset), mix, threads)
+                            .run(rate, ns.getLong("warmup"), duration, TimeUnit.SECONDS);
+            report(stats, duration);
+        } finally {
+            client.close();
+            app.after();
+        }
+    }
+
+    private static void report(Map<Operation, OpenModelDriver.Stats> stats, long seconds) {
+        final Histogram all = new Histogram(3);
+        long errors = 0;
+        System.out.printf("%-12s %10s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "errors", "req/s",
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Entry<Operation, OpenModelDriver.Stats> e : stats.entrySet()) {
+            final Histogram h = e.getValue().getLatencies();
+            if (0 == h.getTotalCount()) {
+                continue;
+            }
+
+            all.add(h);
+            errors += e.getValue().getErrors();
+            row(e.getKey().name(), h, e.getValue().getErrors(), seconds);
+        }
+
+        row("TOTAL", all, errors, seconds);
+    }
+
+    private static void row(String name, Histogram h, long errors, long seconds) {
+        System.out.printf("%-12s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, h.getTotalCount(), errors,
+                (double) h.getTotalCount() / seconds, millis(h.getValueAtPercentile(50)),
+                millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.loadtest;
+
+import java.util.Random;
+
+/**
+ * Weighted choice of the {@link Operation}s to issue, parsed from e.g. {@code BY_ID=50,FILTER=20,TAG_SEARCH=20,WRITE=10}.
+ */
+public class Mix {
+    private final Operation[] operations;
+    private final int[] cumulative;
+
+    public Mix(String spec) {
+        final String[] parts = spec.split(",");
+        operations = new Operation[parts.length];
+        cumulative = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            final String[] kv = parts[i].trim().split("=");
+            if (2 != kv.length) {
+                throw new IllegalArgumentException("Expected OPERATION=weight but got " + parts[i]);
+            }
+
+            operations[i] = Operation.valueOf(kv[0].trim().toUpperCase());
+            total += Integer.parseInt(kv[1].trim());
+            cumulative[i] = total;
+        }
+
+        if (0 >= total) {
+            throw new IllegalArgumentException("The weights of " + spec + " have to add up to more than 0");
+        }
+    }
+
+    public Operation next(Random random) {
+        final int r = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return operations[i];
+            }
+        }
+
+        return operations[operations.length - 1];
+    }
+}
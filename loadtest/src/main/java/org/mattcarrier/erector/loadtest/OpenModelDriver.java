@@ -0,0 +1,122 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Issues requests at a fixed rate no matter how quickly earlier ones complete. Latency is measured from the moment a
+ * request was due rather than from when a worker got to it, so a stalled server shows up as queueing in the
+ * percentiles instead of as a lower request rate.
+ */
+public class OpenModelDriver {
+    public static class Stats {
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * Latencies in microseconds.
+         */
+        public Histogram getLatencies() {
+            return latencies;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+
+    private final Workload workload;
+    private final Mix mix;
+    private final int threads;
+
+    public OpenModelDriver(Workload workload, Mix mix, int threads) {
+        this.workload = workload;
+        this.mix = mix;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the stats of every operation issued after the warmup.
+     */
+    public Map<Operation, Stats> run(double rate, long warmup, long duration, TimeUnit unit)
+            throws InterruptedException {
+        final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            stats.put(op, new Stats());
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        final Random random = new Random(0);
+        final double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long start = System.nanoTime();
+        final long measured = start + unit.toNanos(warmup);
+        final long end = measured + unit.toNanos(duration);
+        try {
+            for (long i = 0;; i++) {
+                final long due = start + (long) (i * interval);
+                if (due >= end) {
+                    break;
+                }
+
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                final Operation op = mix.next(random);
+                workers.execute(() -> {
+                    boolean ok;
+                    try {
+                        ok = workload.call(op, ThreadLocalRandom.current());
+                    } catch (RuntimeException e) {
+                        ok = false;
+                    }
+
+                    if (due >= measured) {
+                        final Stats s = stats.get(op);
+                        s.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                        if (!ok) {
+                            s.errors.increment();
+                        }
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        return stats;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.loadtest;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.generate.DatasetGenerator;
+import org.mattcarrier.erector.generate.Distribution;
+
+/**
+ * Issues single requests against the generated dataset, tag searches draw their values from the same distribution
+ * the dataset was generated with.
+ */
+public class Workload {
+    private final WebTarget api;
+    private final List<Property> properties;
+    private final DatasetGenerator dataset;
+    private final double[] cdf;
+    private final AtomicLong writes = new AtomicLong();
+
+    public Workload(WebTarget api, List<Property> properties, DatasetGenerator dataset) {
+        this.api = api;
+        this.properties = properties;
+        this.dataset = dataset;
+        this.cdf = dataset.getDistribution().cumulative(dataset.getCardinality(), dataset.getSkew());
+    }
+
+    /**
+     * Returns whether the request succeeded.
+     */
+    public boolean call(Operation op, Random random) {
+        final Response r;
+        switch (op) {
+        case BY_ID:
+            r = api.path("properties").path(String.valueOf(property(random).getId())).request().get();
+            break;
+        case FILTER:
+            r = api.path("properties").queryParam("key", "property-" + random.nextInt(dataset.getPropertiesPerGroup()))
+                    .queryParam("count", "none").request().get();
+            break;
+        case TAG_SEARCH:
+            r = api.path("propertygroups")
+                    .queryParam(DatasetGenerator.tagKey(random.nextInt(dataset.getTagKeys())),
+                            "v" + Distribution.sample(cdf, random))
+                    .queryParam("count", "none").request().get();
+            break;
+        case WRITE:
+            final Property existing = property(random);
+            final Property p = new Property();
+            p.setId(existing.getId());
+            p.setKey(existing.getKey());
+            p.setValue("written-" + writes.incrementAndGet());
+            p.setDescription(existing.getDescription());
+            p.setPropertyGroupId(existing.getPropertyGroupId());
+            r = api.path("properties").path(String.valueOf(p.getId())).request().put(Entity.json(p));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown operation " + op);
+        }
+
+        try {
+            r.bufferEntity();
+            return r.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL;
+        } finally {
+            r.close();
+        }
+    }
+
+    private Property property(Random random) {
+        return properties.get(random.nextInt(properties.size()));
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+/**
+ * Moves every tag key column of the wide Tag table into TagKey rows and the tag values into Tag(tagKeyId, value).
+ * The key columns only exist at runtime, so they are read from the table metadata rather than a SQL migration.
+ */
+public class V4__Narrow_Tag_Storage implements JdbcMigration {
+    private static final String TRIGGER = "AFTER INSERT, UPDATE, DELETE ON %s FOR EACH ROW CALL \"org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger\"";
+
+    @Override
+    public void migrate(Connection conn) throws Exception {
+        try (Statement s = conn.createStatement()) {
+            // as wide as the column names the keys come from
+            s.execute("CREATE TABLE TagKey (id BIGINT PRIMARY KEY AUTO_INCREMENT, name varchar NOT NULL, "
+                    + "CONSTRAINT uq_tagKey UNIQUE (name))");
+            // moving the values is not a change to log
+            s.execute("DROP TRIGGER changeLogTag");
+            s.execute("ALTER TABLE Tag ADD COLUMN tagKeyId BIGINT");
+            s.execute("ALTER TABLE Tag ADD COLUMN value varchar(128)");
+
+            for (String key : keyColumns(conn)) {
+                final long tagKeyId;
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TagKey(name) VALUES(?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, key);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        rs.next();
+                        tagKeyId = rs.getLong(1);
+                    }
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE Tag SET tagKeyId = ?, value = \"" + key + "\" WHERE \"" + key + "\" IS NOT NULL")) {
+                    ps.setLong(1, tagKeyId);
+                    ps.executeUpdate();
+                }
+
+                s.execute("DROP INDEX IF EXISTS \"INDEXTAG" + key + "\"");
+                s.execute("ALTER TABLE Tag DROP COLUMN \"" + key + "\"");
+            }
+
+            // the doNotDelete placeholder row and tags whose key column was dropped have no key
+            s.execute("DELETE FROM TagPropertyGroupXref WHERE tagId IN (SELECT id FROM Tag WHERE tagKeyId IS NULL)");
+            s.execute("DELETE FROM Tag WHERE tagKeyId IS NULL");
+            s.execute("ALTER TABLE Tag DROP COLUMN doNotDelete");
+            s.execute("ALTER TABLE Tag ALTER COLUMN tagKeyId SET NOT NULL");
+            s.execute("ALTER TABLE Tag ADD CONSTRAINT fk_Tag_TagKey FOREIGN KEY (tagKeyId) REFERENCES TagKey(id) "
+                    + "ON DELETE CASCADE");
+            s.execute("CREATE INDEX indexTagKeyValue ON Tag(tagKeyId, value)");
+
+            s.execute("ALTER TABLE TagPropertyGroupXref DROP CONSTRAINT fk_TagPropertyGroupXref_Tag");
+            s.execute("ALTER TABLE TagPropertyGroupXref ADD CONSTRAINT fk_TagPropertyGroupXref_Tag "
+                    + "FOREIGN KEY (tagId) REFERENCES Tag(id) ON DELETE CASCADE");
+
+            s.execute("CREATE TRIGGER changeLogTag " + String.format(TRIGGER, "Tag"));
+            s.execute("CREATE TRIGGER changeLogTagKey " + String.format(TRIGGER, "TagKey"));
+        }
+    }
+
+    private static List<String> keyColumns(Connection conn) throws SQLException {
+        final List<String> keys = new ArrayList<>();
+        try (ResultSet rs = conn.getMetaData().getColumns(null, conn.getSchema(), "TAG", null)) {
+            while (rs.next()) {
+                final String column = rs.getString("COLUMN_NAME");
+                if (!"ID".equals(column) && !"DONOTDELETE".equals(column) && !"TAGKEYID".equals(column)
+                        && !"VALUE".equals(column)) {
+                    keys.add(column);
+                }
+            }
+        }
+
+        return keys;
+    }
+}
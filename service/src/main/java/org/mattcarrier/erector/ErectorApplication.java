@@ -26,10 +26,28 @@ import javax.sql.DataSource;
 
 import org.flywaydb.core.Flyway;
 import org.h2.tools.Server;
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.generate.GenerateCommand;
+import org.mattcarrier.erector.hierarchy.PropertyGroupHierarchy;
+import org.mattcarrier.erector.index.IndexingTagDao;
+import org.mattcarrier.erector.index.TagDomain;
+import org.mattcarrier.erector.index.TagIndex;
 import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.mattcarrier.erector.persistence.cache.CoalescingPropertyDao;
+import org.mattcarrier.erector.persistence.cache.CoalescingPropertyGroupDao;
+import org.mattcarrier.erector.persistence.cache.CountCache;
+import org.mattcarrier.erector.persistence.cache.SingleFlight;
+import org.mattcarrier.erector.resource.ChangeLogResource;
+import org.mattcarrier.erector.resource.ExportResource;
 import org.mattcarrier.erector.resource.PropertyGroupResource;
 import org.mattcarrier.erector.resource.PropertyResource;
 import org.mattcarrier.erector.resource.TagResource;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
 
@@ -46,6 +64,8 @@ import io.federecio.dropwizard.swagger.SwaggerBundle;
 import io.federecio.dropwizard.swagger.SwaggerBundleConfiguration;
 
 public class ErectorApplication extends Application<ErectorConfiguration> {
+    private static final Logger LOG = LoggerFactory.getLogger(ErectorApplication.class);
+
     public static void main(String[] args) throws Exception {
         new ErectorApplication().run(args);
     }
@@ -57,6 +77,7 @@ public class ErectorApplication extends Application<ErectorConfiguration> {
 
     @Override
     public void initialize(Bootstrap<ErectorConfiguration> bootstrap) {
+        bootstrap.addCommand(new GenerateCommand(this));
         bootstrap.addBundle(new SwaggerBundle<ErectorConfiguration>() {
             @Override
             protected SwaggerBundleConfiguration getSwaggerBundleConfiguration(ErectorConfiguration configuration) {
@@ -83,20 +104,46 @@ public class ErectorApplication extends Application<ErectorConfiguration> {
 
         final Optional<FlywayFactory> flywayFactory = flywayFactory(configuration);
         final Optional<DataSourceFactory> dsFactory = dsFactory(configuration);
-        System.out.println(dsFactory.get().getUrl());
-        Server.createWebServer("-web").start();
         if (flywayFactory.isPresent() && dsFactory.isPresent()) {
+            Server.createWebServer("-web", "-webDaemon").start();
             final DataSource ds = dsFactory.get().build(env.metrics(), "flyway");
             final Flyway flyway = flywayFactory.get().build(ds);
             flyway.migrate();
             ds.getConnection().close();
         }
 
-        configuration.getPersistence().initialize(env);
-        env.jersey().register(new PropertyGroupResource(configuration.getPersistence().propertyGroupDao(),
-                configuration.getPersistence().tagDao()));
-        env.jersey().register(new PropertyResource(configuration.getPersistence().propertyDao()));
-        env.jersey().register(new TagResource(configuration.getPersistence().tagDao()));
+        final PersistenceFactory persistence = configuration.getPersistence();
+        persistence.initialize(env);
+        PropertyGroupDao pgDao = persistence.propertyGroupDao();
+        PropertyDao propDao = persistence.propertyDao();
+        if (configuration.getSingleFlight().isEnabled()) {
+            final SingleFlight flight = configuration.getSingleFlight().build(env.metrics(), persistence.readScope());
+            pgDao = new CoalescingPropertyGroupDao(pgDao, flight);
+            propDao = new CoalescingPropertyDao(propDao, flight);
+        }
+        final PropertyGroupHierarchy hierarchy = configuration.getHierarchy().build(env, pgDao, propDao,
+                persistence.changeLogDao());
+        final PropertyGroupWatcher watcher = configuration.getWatch().build(env, pgDao, persistence.changeLogDao());
+        configuration.getChangeLog().build(env, persistence.changeLogDao());
+        final TagIndex tagIndex = configuration.getTagIndex().build(env, persistence.tagDao(),
+                persistence.changeLogDao());
+        final TagDao tagDao = new IndexingTagDao(persistence.tagDao(), tagIndex);
+        final TagDomain tagDomain = configuration.getTagDomain().build(env, tagDao, persistence.changeLogDao());
+        final CountCache counts = new CountCache(configuration.getCountCache(), env.metrics());
+        if (dsFactory.isPresent() && configuration.getBulkheads().getThreads() > dsFactory.get().getMaxSize()) {
+            LOG.warn("The bulkheads run {} threads but the connection pool holds at most {} connections",
+                    configuration.getBulkheads().getThreads(), dsFactory.get().getMaxSize());
+        }
+        final Bulkheads bulkheads = configuration.getBulkheads().build(env);
+        env.jersey().register(new PropertyGroupResource(pgDao, propDao, tagDao, persistence.revisionDao(),
+                persistence.readScope(), hierarchy, watcher, counts, tagIndex, bulkheads));
+        env.jersey().register(new PropertyResource(propDao, pgDao, persistence.revisionDao(),
+                persistence.readScope(), hierarchy, watcher, counts, configuration.getBulkImport().build(env, propDao), bulkheads));
+        env.jersey().register(new TagResource(tagDao, pgDao, watcher, tagDomain, bulkheads));
+        env.jersey().register(new ChangeLogResource(persistence.changeLogDao(), pgDao, propDao, tagDao,
+                configuration.getChangeLog().getMaximumLimit()));
+        env.jersey().register(new ExportResource(persistence::snapshot, env.getObjectMapper(),
+                configuration.getExport().getFetchSize()));
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
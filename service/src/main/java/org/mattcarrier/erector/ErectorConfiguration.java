@@ -25,8 +25,18 @@ package org.mattcarrier.erector;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
+import org.mattcarrier.erector.bulk.ImportFactory;
+import org.mattcarrier.erector.bulkhead.BulkheadsFactory;
+import org.mattcarrier.erector.changelog.ChangeLogFactory;
+import org.mattcarrier.erector.export.ExportFactory;
+import org.mattcarrier.erector.hierarchy.HierarchyFactory;
+import org.mattcarrier.erector.index.TagDomainFactory;
+import org.mattcarrier.erector.index.TagIndexFactory;
 import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.mattcarrier.erector.persistence.cache.EntityCacheFactory;
+import org.mattcarrier.erector.persistence.cache.SingleFlightFactory;
 import org.mattcarrier.erector.persistence.jdbi.JDBIPersistenceFactory;
+import org.mattcarrier.erector.watch.WatchFactory;
 
 import io.dropwizard.Configuration;
 
@@ -35,10 +45,50 @@ public class ErectorConfiguration extends Configuration {
     @NotNull
     private PersistenceFactory persistence = new JDBIPersistenceFactory();
 
+    @Valid
+    @NotNull
+    private EntityCacheFactory countCache = new EntityCacheFactory();
+
+    @Valid
+    @NotNull
+    private SingleFlightFactory singleFlight = new SingleFlightFactory();
+
     @Valid
     @NotNull
     private ErectorSwaggerBundleConfiguration swagger = new ErectorSwaggerBundleConfiguration();
 
+    @Valid
+    @NotNull
+    private WatchFactory watch = new WatchFactory();
+
+    @Valid
+    @NotNull
+    private ChangeLogFactory changeLog = new ChangeLogFactory();
+
+    @Valid
+    @NotNull
+    private ExportFactory export = new ExportFactory();
+
+    @Valid
+    @NotNull
+    private ImportFactory bulkImport = new ImportFactory();
+
+    @Valid
+    @NotNull
+    private TagDomainFactory tagDomain = new TagDomainFactory();
+
+    @Valid
+    @NotNull
+    private TagIndexFactory tagIndex = new TagIndexFactory();
+
+    @Valid
+    @NotNull
+    private HierarchyFactory hierarchy = new HierarchyFactory();
+
+    @Valid
+    @NotNull
+    private BulkheadsFactory bulkheads = new BulkheadsFactory();
+
     public PersistenceFactory getPersistence() {
         return persistence;
     }
@@ -47,6 +97,70 @@ public class ErectorConfiguration extends Configuration {
         this.persistence = persistence;
     }
 
+    public WatchFactory getWatch() {
+        return watch;
+    }
+
+    public void setWatch(WatchFactory watch) {
+        this.watch = watch;
+    }
+
+    public ChangeLogFactory getChangeLog() {
+        return changeLog;
+    }
+
+    public void setChangeLog(ChangeLogFactory changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    public ExportFactory getExport() {
+        return export;
+    }
+
+    public void setExport(ExportFactory export) {
+        this.export = export;
+    }
+
+    public ImportFactory getBulkImport() {
+        return bulkImport;
+    }
+
+    public void setBulkImport(ImportFactory bulkImport) {
+        this.bulkImport = bulkImport;
+    }
+
+    public TagDomainFactory getTagDomain() {
+        return tagDomain;
+    }
+
+    public void setTagDomain(TagDomainFactory tagDomain) {
+        this.tagDomain = tagDomain;
+    }
+
+    public TagIndexFactory getTagIndex() {
+        return tagIndex;
+    }
+
+    public void setTagIndex(TagIndexFactory tagIndex) {
+        this.tagIndex = tagIndex;
+    }
+
+    public HierarchyFactory getHierarchy() {
+        return hierarchy;
+    }
+
+    public void setHierarchy(HierarchyFactory hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    public EntityCacheFactory getCountCache() {
+        return countCache;
+    }
+
+    public void setCountCache(EntityCacheFactory countCache) {
+        this.countCache = countCache;
+    }
+
     public ErectorSwaggerBundleConfiguration getSwagger() {
         return swagger;
     }
@@ -54,4 +168,20 @@ public class ErectorConfiguration extends Configuration {
     public void setSwagger(ErectorSwaggerBundleConfiguration swagger) {
         this.swagger = swagger;
     }
+
+    public BulkheadsFactory getBulkheads() {
+        return bulkheads;
+    }
+
+    public void setBulkheads(BulkheadsFactory bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    public SingleFlightFactory getSingleFlight() {
+        return singleFlight;
+    }
+
+    public void setSingleFlight(SingleFlightFactory singleFlight) {
+        this.singleFlight = singleFlight;
+    }
 }
@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+public class BulkResult {
+    private final List<Row> rows = new ArrayList<>();
+    private final Set<Long> propertyGroupIds = new LinkedHashSet<>();
+    private int created;
+    private int failed;
+
+    public void created(int index, Long propertyGroupId) {
+        rows.add(new Row(index, true, null));
+        propertyGroupIds.add(propertyGroupId);
+        created++;
+    }
+
+    public void failed(int index, String error) {
+        rows.add(new Row(index, false, error));
+        failed++;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    /**
+     * PropertyGroups which received at least one Property.
+     */
+    @JsonIgnore
+    public Set<Long> getPropertyGroupIds() {
+        return propertyGroupIds;
+    }
+
+    public static class Row {
+        private final int index;
+        private final boolean created;
+        private final String error;
+
+        public Row(int index, boolean created, String error) {
+            this.index = index;
+            this.created = created;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isCreated() {
+            return created;
+        }
+
+        @JsonInclude(Include.NON_NULL)
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.api;
+
+import java.util.List;
+
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+
+import jersey.repackaged.com.google.common.collect.ImmutableList;
+
+public class ChangeSet {
+    private final long since;
+    private final long revision;
+    private final boolean hasMore;
+    private final List<ChangeLogEntry> changes;
+
+    public ChangeSet(long since, long revision, boolean hasMore, List<ChangeLogEntry> changes) {
+        this.since = since;
+        this.revision = revision;
+        this.hasMore = hasMore;
+        this.changes = null == changes ? ImmutableList.of() : changes;
+    }
+
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * Revision to pass as since on the next request.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public List<ChangeLogEntry> getChanges() {
+        return changes;
+    }
+}
@@ -24,19 +24,31 @@ package org.mattcarrier.erector.api;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import jersey.repackaged.com.google.common.collect.ImmutableList;
 
 public class PagedResponse<T> {
     private final List<T> result;
     private final int pageNumber;
     private final int pageSize;
-    private final int totalResults;
+    private final Integer totalResults;
+    private final boolean hasMore;
+    private final String next;
 
     public PagedResponse(List<T> results, int pageNumber, int pageSize, int totalResults) {
+        this(results, pageNumber, pageSize, totalResults, (pageNumber + 1) * pageSize < totalResults, null);
+    }
+
+    public PagedResponse(List<T> results, int pageNumber, int pageSize, Integer totalResults, boolean hasMore,
+            String next) {
         this.result = null == results ? ImmutableList.of() : results;
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
         this.totalResults = totalResults;
+        this.hasMore = hasMore;
+        this.next = next;
     }
 
     public List<T> getResult() {
@@ -51,7 +63,22 @@ public class PagedResponse<T> {
         return pageSize;
     }
 
-    public int getTotalResults() {
+    /**
+     * Total number of matches, absent when the search was made with count=none.
+     */
+    @JsonInclude(Include.NON_NULL)
+    public Integer getTotalResults() {
         return totalResults;
     }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Opaque cursor for the page after this one, null on the last page.
+     */
+    public String getNext() {
+        return next;
+    }
 }
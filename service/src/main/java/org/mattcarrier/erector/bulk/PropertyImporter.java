@@ -0,0 +1,171 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.mattcarrier.erector.api.BulkResult;
+import org.mattcarrier.erector.api.BulkResult.Row;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.domain.Property;
+import org.skife.jdbi.v2.exceptions.DBIException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates Properties read incrementally from a JSON array or newline delimited JSON documents. Rows are inserted in
+ * chunks with a single batch statement, a chunk which fails is retried row by row so that only the offending rows are
+ * rejected.
+ */
+public class PropertyImporter {
+    private final PropertyDao propDao;
+    private final ObjectMapper mapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public PropertyImporter(PropertyDao propDao, ObjectMapper mapper, Validator validator, int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.propDao = checkNotNull(propDao);
+        this.mapper = checkNotNull(mapper);
+        this.validator = checkNotNull(validator);
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkResult importFrom(InputStream in) throws IOException {
+        final BulkResult result = new BulkResult();
+        final List<Property> chunk = new ArrayList<>(chunkSize);
+        final List<Integer> indexes = new ArrayList<>(chunkSize);
+
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            final boolean array = JsonToken.START_ARRAY == token;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            int index = 0;
+            try {
+                while (null != token && !(array && JsonToken.END_ARRAY == token)) {
+                    final JsonNode node = mapper.readTree(parser);
+                    final Property p = read(node, index, result);
+                    if (null != p) {
+                        chunk.add(p);
+                        indexes.add(index);
+                        if (chunk.size() == chunkSize) {
+                            flush(chunk, indexes, result);
+                        }
+                    }
+
+                    index++;
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                // the remainder of the stream can not be located after a syntax error
+                result.failed(index, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        flush(chunk, indexes, result);
+        result.getRows().sort(Comparator.comparingInt(Row::getIndex));
+        return result;
+    }
+
+    private Property read(JsonNode node, int index, BulkResult result) {
+        final Property p;
+        try {
+            p = mapper.treeToValue(node, Property.class);
+        } catch (JsonProcessingException e) {
+            result.failed(index, "Invalid Property: " + e.getOriginalMessage());
+            return null;
+        }
+
+        if (null != p.getId()) {
+            result.failed(index, "Property already exists.");
+            return null;
+        }
+
+        final Set<ConstraintViolation<Property>> violations = validator.validate(p);
+        if (!violations.isEmpty()) {
+            final ConstraintViolation<Property> v = violations.iterator().next();
+            result.failed(index, v.getPropertyPath() + " " + v.getMessage());
+            return null;
+        }
+
+        return p;
+    }
+
+    private void flush(List<Property> chunk, List<Integer> indexes, BulkResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            propDao.createProperties(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                result.created(indexes.get(i), chunk.get(i).getPropertyGroupId());
+            }
+        } catch (DBIException e) {
+            // the batch was rolled back, fall back to single inserts to find the offending rows
+            for (int i = 0; i < chunk.size(); i++) {
+                final Property p = chunk.get(i);
+                try {
+                    propDao.createProperty(p);
+                    result.created(indexes.get(i), p.getPropertyGroupId());
+                } catch (DBIException rowException) {
+                    result.failed(indexes.get(i), describe(rowException));
+                }
+            }
+        }
+
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private static String describe(DBIException e) {
+        final String state = e.getCause() instanceof SQLException ? ((SQLException) e.getCause()).getSQLState() : null;
+        if ("23505".equals(state)) {
+            return "Property already exists for PropertyGroup.";
+        }
+        if ("23506".equals(state)) {
+            return "PropertyGroup not found.";
+        }
+
+        return "Property could not be created.";
+    }
+}
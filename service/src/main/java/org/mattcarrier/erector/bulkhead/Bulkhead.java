@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulkhead;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+
+import io.dropwizard.util.Duration;
+
+/**
+ * A bounded pool that runs the database work of suspended requests, answering 503 once its queue is full so one kind
+ * of traffic can not take every connection from the others. A request still waiting for its answer after the timeout
+ * is answered 503 as well, and work whose request already timed out is skipped when it reaches a thread.
+ */
+public class Bulkhead {
+    private final Executor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final Duration timeout;
+    private final Meter rejected;
+    private final Meter timeouts;
+
+    public Bulkhead(Executor executor, BlockingQueue<Runnable> queue, Duration timeout, Meter rejected,
+            Meter timeouts) {
+        this.executor = checkNotNull(executor);
+        this.queue = checkNotNull(queue);
+        this.timeout = checkNotNull(timeout);
+        this.rejected = checkNotNull(rejected);
+        this.timeouts = checkNotNull(timeouts);
+    }
+
+    /**
+     * Resumes the response with the result of the work, or with whatever it threw.
+     */
+    public void execute(AsyncResponse response, Callable<?> work) {
+        response.setTimeoutHandler(r -> {
+            timeouts.mark();
+            r.resume(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, 1L).build());
+        });
+        response.setTimeout(timeout.toNanoseconds(), TimeUnit.NANOSECONDS);
+        try {
+            executor.execute(() -> {
+                if (response.isDone()) {
+                    return;
+                }
+
+                try {
+                    response.resume(work.call());
+                } catch (Throwable t) {
+                    response.resume(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            response.resume(new ServiceUnavailableException(1L));
+        }
+    }
+
+    public Gauge<Integer> queueDepthGauge() {
+        return queue::size;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulkhead;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+public class BulkheadFactory {
+    @Min(1)
+    private int threads = 8;
+
+    @Min(1)
+    private int queueSize = 256;
+
+    @NotNull
+    private Duration timeout = Duration.seconds(10);
+
+    public BulkheadFactory() {
+    }
+
+    public BulkheadFactory(int threads, int queueSize) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Bulkhead build(Environment env, String name) {
+        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueSize);
+        final Bulkhead bulkhead = new Bulkhead(
+                env.lifecycle().executorService("bulkhead-" + name + "-%d").minThreads(threads).maxThreads(threads)
+                        .workQueue(queue).build(),
+                queue, timeout, env.metrics().meter(MetricRegistry.name("bulkhead", name, "rejected")),
+                env.metrics().meter(MetricRegistry.name("bulkhead", name, "timeouts")));
+        env.metrics().register(MetricRegistry.name("bulkhead", name, "queue-depth"), bulkhead.queueDepthGauge());
+        return bulkhead;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulkhead;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import io.dropwizard.setup.Environment;
+
+public class BulkheadsFactory {
+    @Valid
+    @NotNull
+    private BulkheadFactory config = new BulkheadFactory(16, 1024);
+
+    @Valid
+    @NotNull
+    private BulkheadFactory search = new BulkheadFactory(8, 128);
+
+    @Valid
+    @NotNull
+    private BulkheadFactory admin = new BulkheadFactory(8, 256);
+
+    public BulkheadFactory getConfig() {
+        return config;
+    }
+
+    public void setConfig(BulkheadFactory config) {
+        this.config = config;
+    }
+
+    public BulkheadFactory getSearch() {
+        return search;
+    }
+
+    public void setSearch(BulkheadFactory search) {
+        this.search = search;
+    }
+
+    public BulkheadFactory getAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(BulkheadFactory admin) {
+        this.admin = admin;
+    }
+
+    /**
+     * Threads of every bulkhead, each holding at most one connection at a time.
+     */
+    public int getThreads() {
+        return config.getThreads() + search.getThreads() + admin.getThreads();
+    }
+
+    public Bulkheads build(Environment env) {
+        return new Bulkheads(config.build(env, "config"), search.build(env, "search"), admin.build(env, "admin"));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.changelog;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Keeps the ChangeLog small by dropping every entry that a later entry for the same entity supersedes and by purging
+ * deletes once they are older than the tombstone retention. Purging a delete raises the change log floor so readers
+ * that are further behind are told to resync instead of silently missing the delete.
+ */
+public class ChangeLogCompactor implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogCompactor.class);
+
+    private final ChangeLogDao changeLogDao;
+    private final ScheduledExecutorService executor;
+    private final Duration interval;
+    private final Duration tombstoneRetention;
+    private final Meter compacted;
+    private final Meter purged;
+
+    public ChangeLogCompactor(ChangeLogDao changeLogDao, ScheduledExecutorService executor, Duration interval,
+            Duration tombstoneRetention, MetricRegistry metrics) {
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.executor = checkNotNull(executor);
+        this.interval = checkNotNull(interval);
+        this.tombstoneRetention = checkNotNull(tombstoneRetention);
+        this.compacted = metrics.meter(MetricRegistry.name(ChangeLogCompactor.class, "compacted"));
+        this.purged = metrics.meter(MetricRegistry.name(ChangeLogCompactor.class, "purged"));
+    }
+
+    @Override
+    public void start() throws Exception {
+        executor.scheduleWithFixedDelay(this::runSafely, interval.toMilliseconds(), interval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    public void run() {
+        compacted.mark(changeLogDao.compact());
+        changeLogDao.raiseFloor(new Timestamp(System.currentTimeMillis() - tombstoneRetention.toMilliseconds()));
+        purged.mark(changeLogDao.purgeTombstones());
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to compact the change log", e);
+        }
+    }
+}
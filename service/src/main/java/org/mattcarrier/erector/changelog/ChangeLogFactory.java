@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.changelog;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+public class ChangeLogFactory {
+    @NotNull
+    private Duration compactionInterval = Duration.minutes(1);
+
+    @NotNull
+    private Duration tombstoneRetention = Duration.days(7);
+
+    @Min(1)
+    @Max(10000)
+    private int maximumLimit = 1000;
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public Duration getTombstoneRetention() {
+        return tombstoneRetention;
+    }
+
+    public void setTombstoneRetention(Duration tombstoneRetention) {
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    public int getMaximumLimit() {
+        return maximumLimit;
+    }
+
+    public void setMaximumLimit(int maximumLimit) {
+        this.maximumLimit = maximumLimit;
+    }
+
+    public ChangeLogCompactor build(Environment env, ChangeLogDao changeLogDao) {
+        final ChangeLogCompactor compactor = new ChangeLogCompactor(changeLogDao,
+                env.lifecycle().scheduledExecutorService("change-log-compactor").threads(1).build(),
+                compactionInterval, tombstoneRetention, env.metrics());
+        env.lifecycle().manage(compactor);
+        return compactor;
+    }
+}
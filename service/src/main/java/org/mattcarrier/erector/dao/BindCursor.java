@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizer;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizerFactory;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+
+/**
+ * Defines {@code seek} as the keyset predicate of a {@link Cursor} argument and binds its values, a null cursor
+ * defines an empty predicate. The annotation value is the alias to qualify the sort columns with.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(BindCursor.Factory.class)
+public @interface BindCursor {
+    String value() default "";
+
+    public static class Factory implements SqlStatementCustomizerFactory {
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForMethod(Annotation annotation, Class sqlObjectType, Method method) {
+            throw new UnsupportedOperationException("@BindCursor is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForType(Annotation annotation, Class sqlObjectType) {
+            throw new UnsupportedOperationException("@BindCursor is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForParameter(Annotation annotation, Class sqlObjectType, Method method,
+                Object arg) {
+            final String alias = ((BindCursor) annotation).value();
+            final Cursor cursor = (Cursor) arg;
+            return q -> {
+                if (null == cursor) {
+                    q.define("seek", "");
+                    return;
+                }
+
+                q.define("seek", cursor.predicate(alias));
+                cursor.bind(q);
+            };
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizer;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizerFactory;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+
+/**
+ * Defines {@code filter} as one equality predicate per entry of a {@code Map<String, String>} argument whose key is
+ * one of the whitelisted columns and binds its value, other entries are ignored. Only the supplied filters reach the
+ * WHERE clause so the optimizer can pick an index for them, and the predicates begin with {@code AND} so they follow
+ * a {@code WHERE TRUE}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(BindFilter.Factory.class)
+public @interface BindFilter {
+    /**
+     * Columns that may be filtered on.
+     */
+    String[] value();
+
+    /**
+     * Alias to qualify the columns with.
+     */
+    String alias() default "";
+
+    public static class Factory implements SqlStatementCustomizerFactory {
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForMethod(Annotation annotation, Class sqlObjectType, Method method) {
+            throw new UnsupportedOperationException("@BindFilter is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForType(Annotation annotation, Class sqlObjectType) {
+            throw new UnsupportedOperationException("@BindFilter is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public SqlStatementCustomizer createForParameter(Annotation annotation, Class sqlObjectType, Method method,
+                Object arg) {
+            final BindFilter filter = (BindFilter) annotation;
+            final String prefix = filter.alias().isEmpty() ? "" : filter.alias() + ".";
+            final Map<String, String> bindings = (Map<String, String>) arg;
+            return q -> {
+                final StringBuilder sql = new StringBuilder();
+                for (String column : filter.value()) {
+                    final String value = bindings.get(column);
+                    if (null != value) {
+                        sql.append(" AND ").append(prefix).append(column).append(" = :filter_").append(column);
+                        q.bind("filter_" + column, value);
+                    }
+                }
+
+                q.define("filter", sql.toString());
+            };
+        }
+    }
+}
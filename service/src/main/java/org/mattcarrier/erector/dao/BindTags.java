@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizer;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizerFactory;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+
+/**
+ * Defines {@code tagged} as a predicate requiring the PropertyGroup to carry every one of the {@link Tag} arguments
+ * and binds their keys and values. The annotation value is the alias of the PropertyGroup table.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(BindTags.Factory.class)
+public @interface BindTags {
+    String value();
+
+    public static class Factory implements SqlStatementCustomizerFactory {
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForMethod(Annotation annotation, Class sqlObjectType, Method method) {
+            throw new UnsupportedOperationException("@BindTags is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public SqlStatementCustomizer createForType(Annotation annotation, Class sqlObjectType) {
+            throw new UnsupportedOperationException("@BindTags is only supported on parameters");
+        }
+
+        @Override
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public SqlStatementCustomizer createForParameter(Annotation annotation, Class sqlObjectType, Method method,
+                Object arg) {
+            final String alias = ((BindTags) annotation).value();
+            final Collection<Tag> tags = (Collection<Tag>) arg;
+            return q -> {
+                final StringBuilder sql = new StringBuilder();
+                int i = 0;
+                for (Tag t : tags) {
+                    sql.append(" AND EXISTS (SELECT 1 FROM TagPropertyGroupXref x INNER JOIN Tag t ON x.tagId = t.id ")
+                            .append("INNER JOIN TagKey k ON t.tagKeyId = k.id WHERE x.propertyGroupId = ")
+                            .append(alias).append(".id AND k.name = UPPER(:tagKey").append(i)
+                            .append(") AND t.value = :tagValue").append(i).append(")");
+                    q.bind("tagKey" + i, t.getKey());
+                    q.bind("tagValue" + i, t.getValue());
+                    i++;
+                }
+
+                q.define("tagged", sql.toString());
+            };
+        }
+    }
+}
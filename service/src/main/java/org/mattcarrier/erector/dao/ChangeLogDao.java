@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.mattcarrier.erector.dao.mapper.ChangeLogEntryMapper;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+
+/**
+ * Reads and compacts the ChangeLog table. Rows are appended by triggers in the same transaction as the write they
+ * describe, see {@link org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger}.
+ */
+@RegisterMapper(ChangeLogEntryMapper.class)
+public interface ChangeLogDao {
+    @SqlQuery("SELECT * FROM ChangeLog WHERE revision > :since ORDER BY revision LIMIT :limit")
+    public List<ChangeLogEntry> since(@Bind("since") long since, @Bind("limit") int limit);
+
+    @SqlQuery("SELECT COALESCE(MAX(revision), 0) FROM ChangeLog")
+    public long latest();
+
+    @SqlQuery("SELECT COALESCE(MAX(revision), 0) FROM ChangeLog WHERE entityType = :entityType")
+    public long latestOf(@Bind("entityType") String entityType);
+
+    /**
+     * Revision below which deletes may have been purged, a reader that has not caught up to it has to resync.
+     */
+    @SqlQuery("SELECT revision FROM ChangeLogFloor WHERE id = 1")
+    public long floor();
+
+    /**
+     * Keeps the latest entry of each entity per PropertyGroup, a row that moved keeps one for the group it left.
+     */
+//@formatter:off
+    @SqlUpdate("DELETE FROM " +
+                 "ChangeLog c " +
+               "WHERE " +
+                 "EXISTS (" +
+                   "SELECT 1 FROM ChangeLog n " +
+                   "WHERE " +
+                     "n.entityType = c.entityType AND " +
+                     "((c.entityId IS NOT NULL AND n.entityId = c.entityId) OR (c.entityId IS NULL AND n.tagKey = c.tagKey)) AND " +
+                     "(n.propertyGroupId = c.propertyGroupId OR (n.propertyGroupId IS NULL AND c.propertyGroupId IS NULL)) AND " +
+                     "n.revision > c.revision)")
+//@formatter:on
+    public int compact();
+
+//@formatter:off
+    @SqlUpdate("UPDATE " +
+                 "ChangeLogFloor " +
+               "SET " +
+                 "revision = GREATEST(revision, COALESCE((SELECT MAX(revision) FROM ChangeLog WHERE operation = 'DELETE' AND changedAt < :cutoff), 0)) " +
+               "WHERE " +
+                 "id = 1")
+//@formatter:on
+    public int raiseFloor(@Bind("cutoff") Timestamp cutoff);
+
+    @SqlUpdate("DELETE FROM ChangeLog WHERE operation = 'DELETE' AND revision <= (SELECT revision FROM ChangeLogFloor WHERE id = 1)")
+    public int purgeTombstones();
+}
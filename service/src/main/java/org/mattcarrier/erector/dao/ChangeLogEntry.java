@@ -0,0 +1,159 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.util.Date;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.common.base.MoreObjects;
+
+@JsonInclude(Include.NON_NULL)
+public class ChangeLogEntry {
+    public enum EntityType {
+        PROPERTY_GROUP, PROPERTY_GROUP_DEPENDENCY, PROPERTY, TAG, TAG_ASSOCIATION, TAG_DOMAIN
+    }
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private long revision;
+    private EntityType entityType;
+    private Long entityId;
+    private Operation operation;
+    private Long propertyGroupId;
+    private Long relatedId;
+    private String tagKey;
+    private Date changedAt;
+    private Object entity;
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(EntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * The PropertyGroup the change belongs to, the dependent group for {@link EntityType#PROPERTY_GROUP_DEPENDENCY}.
+     */
+    public Long getPropertyGroupId() {
+        return propertyGroupId;
+    }
+
+    public void setPropertyGroupId(Long propertyGroupId) {
+        this.propertyGroupId = propertyGroupId;
+    }
+
+    /**
+     * The tag id of a {@link EntityType#TAG_ASSOCIATION} or the parent group id of a
+     * {@link EntityType#PROPERTY_GROUP_DEPENDENCY}.
+     */
+    public Long getRelatedId() {
+        return relatedId;
+    }
+
+    public void setRelatedId(Long relatedId) {
+        this.relatedId = relatedId;
+    }
+
+    public String getTagKey() {
+        return tagKey;
+    }
+
+    public void setTagKey(String tagKey) {
+        this.tagKey = tagKey;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Date changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * The current state of the changed entity, absent for deletes and for entities without a payload.
+     */
+    public Object getEntity() {
+        return entity;
+    }
+
+    public void setEntity(Object entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(revision, entityType, entityId, operation, propertyGroupId, relatedId, tagKey);
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof ChangeLogEntry)) {
+            return false;
+        }
+
+        final ChangeLogEntry that = (ChangeLogEntry) obj;
+        return this.revision == that.revision && Objects.equals(this.entityType, that.entityType)
+                && Objects.equals(this.entityId, that.entityId) && Objects.equals(this.operation, that.operation)
+                && Objects.equals(this.propertyGroupId, that.propertyGroupId)
+                && Objects.equals(this.relatedId, that.relatedId) && Objects.equals(this.tagKey, that.tagKey);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).omitNullValues().add("revision", revision)
+                .add("entityType", entityType).add("entityId", entityId).add("operation", operation)
+                .add("propertyGroupId", propertyGroupId).add("relatedId", relatedId).add("tagKey", tagKey)
+                .toString();
+    }
+}
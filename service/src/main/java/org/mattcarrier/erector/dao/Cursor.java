@@ -0,0 +1,222 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+import org.mattcarrier.erector.dao.Sort.Direction;
+import org.skife.jdbi.v2.SQLStatement;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keyset pagination position: the sort spec of a query together with the sort values of the last row returned.
+ * <p/>
+ * The next page is read by seeking past that row with a predicate on the (sort columns, id) tuple instead of an
+ * OFFSET, so reading page N costs the same as reading page 1 when the sort columns are indexed. NULLs are treated
+ * as lower than every value, which is how H2 orders them by default. The cursor travels to clients as an opaque URL
+ * safe token that also carries the sort spec, so a continuation can never be applied to a differently sorted query.
+ */
+public final class Cursor {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, List<String>>> TOKEN = new TypeReference<Map<String, List<String>>>() {
+    };
+
+    private final List<Sort> sorts;
+    private final List<String> values;
+
+    private Cursor(List<Sort> sorts, List<String> values) {
+        checkArgument(sorts.size() == values.size(), "Cursor needs one value per sort");
+        this.sorts = Collections.unmodifiableList(sorts);
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Appends {@code id} as the final sort unless it is already present, dropping any sorts after it since the id is
+     * unique. Keyset pagination needs a total order to never skip or repeat a row.
+     */
+    public static List<Sort> withTiebreaker(List<Sort> sorts) {
+        final List<Sort> total = new ArrayList<>();
+        for (Sort s : sorts) {
+            total.add(s);
+            if ("id".equalsIgnoreCase(s.getField())) {
+                return total;
+            }
+        }
+
+        total.add(new Sort("id"));
+        return total;
+    }
+
+    /**
+     * Builds the cursor positioned after {@code last}, reading each sort field of the row through {@code column}.
+     */
+    public static <T> Cursor after(List<Sort> sorts, T last, BiFunction<T, String, Object> column) {
+        final List<Sort> total = withTiebreaker(sorts);
+        final List<String> values = new ArrayList<>();
+        for (Sort s : total) {
+            final Object value = column.apply(last, s.getField());
+            values.add(null == value ? null : value.toString());
+        }
+
+        return new Cursor(total, values);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the token was not produced by {@link #encode()}
+     */
+    public static Cursor decode(String token) {
+        checkNotNull(token);
+        try {
+            final Map<String, List<String>> decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(token), TOKEN);
+            final List<Sort> sorts = new ArrayList<>();
+            for (String s : decoded.get("s")) {
+                sorts.add(new Sort(s));
+            }
+
+            return new Cursor(sorts, decoded.get("v"));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        final Map<String, List<String>> token = new LinkedHashMap<>();
+        final List<String> s = new ArrayList<>();
+        for (Sort sort : sorts) {
+            s.add(sort.toString());
+        }
+        token.put("s", s);
+        token.put("v", values);
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(token));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<Sort> getSorts() {
+        return sorts;
+    }
+
+    /**
+     * SQL fragment, starting with {@code AND}, that only admits rows ordered after this cursor. Columns are qualified
+     * with {@code alias} when it is not empty.
+     */
+    public String predicate(String alias) {
+        final String prefix = alias.isEmpty() ? "" : alias + ".";
+        final StringBuilder sql = new StringBuilder(" AND (");
+        for (int i = 0; i < sorts.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+
+            sql.append("(");
+            for (int j = 0; j < i; j++) {
+                final String column = prefix + sorts.get(j).getField();
+                sql.append(null == values.get(j) ? column + " IS NULL" : column + " = :cursor" + j).append(" AND ");
+            }
+
+            final String column = prefix + sorts.get(i).getField();
+            final boolean nullValue = null == values.get(i);
+            if (Direction.ASC == sorts.get(i).getDirection()) {
+                sql.append(nullValue ? column + " IS NOT NULL" : column + " > :cursor" + i);
+            } else {
+                sql.append(nullValue ? "1 = 0" : "(" + column + " < :cursor" + i + " OR " + column + " IS NULL)");
+            }
+            sql.append(")");
+        }
+
+        return sql.append(")").toString();
+    }
+
+    /**
+     * In memory counterpart of {@link #predicate(String)}, true when {@code row} is ordered after this cursor. Each
+     * sort field is read through {@code column} and compared as a number when the column value is one.
+     */
+    public <T> boolean admits(T row, BiFunction<T, String, Object> column) {
+        for (int i = 0; i < sorts.size(); i++) {
+            final int c = compare(column.apply(row, sorts.get(i).getField()), values.get(i));
+            if (0 != c) {
+                return Direction.ASC == sorts.get(i).getDirection() ? c > 0 : c < 0;
+            }
+        }
+
+        return false;
+    }
+
+    private static int compare(Object column, String value) {
+        if (null == column || null == value) {
+            return null == column ? (null == value ? 0 : -1) : 1;
+        }
+
+        if (column instanceof Number) {
+            return Long.compare(((Number) column).longValue(), Long.parseLong(value));
+        }
+
+        return column.toString().compareTo(value);
+    }
+
+    void bind(SQLStatement<?> q) {
+        for (int i = 0; i < values.size(); i++) {
+            if (null != values.get(i)) {
+                q.bind("cursor" + i, values.get(i));
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sorts, values);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Cursor)) {
+            return false;
+        }
+
+        final Cursor that = (Cursor) obj;
+        return Objects.equals(this.sorts, that.sorts) && Objects.equals(this.values, that.values);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
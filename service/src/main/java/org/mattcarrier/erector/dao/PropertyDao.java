@@ -22,29 +22,40 @@
  */
 package org.mattcarrier.erector.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.mattcarrier.erector.dao.mapper.PropertyMapper;
+import org.mattcarrier.erector.dao.mapper.RevisionedPropertyMapper;
 import org.mattcarrier.erector.domain.Property;
+import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.BindMap;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
-import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.FetchSize;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @UseStringTemplate3StatementLocator
-@RegisterMapper(PropertyMapper.class)
+@RegisterMapper({ PropertyMapper.class, RevisionedPropertyMapper.class })
 public interface PropertyDao {
-    @SqlUpdate("INSERT INTO Property(key, value, description, propertyGroupId) VALUES(:key, :value, :description, :propertyGroupId)")
+    @SqlUpdate("INSERT INTO Property(key, value, description, propertyGroupId, revision) VALUES(:key, :value, :description, :propertyGroupId, NEXT VALUE FOR revisionSeq)")
     @GetGeneratedKeys
     public long createProperty(@BindBean Property p);
 
-    @SqlUpdate("UPDATE Property SET key = :key, value = :value, description = :description, propertyGroupId = :propertyGroupId WHERE id = :id")
+    /**
+     * Inserts every Property in a single transaction, JDBI does not return generated keys from batches.
+     */
+    @SqlBatch("INSERT INTO Property(key, value, description, propertyGroupId, revision) VALUES(:key, :value, :description, :propertyGroupId, NEXT VALUE FOR revisionSeq)")
+    public int[] createProperties(@BindBean Iterable<Property> props);
+
+    @SqlUpdate("UPDATE Property SET key = :key, value = :value, description = :description, propertyGroupId = :propertyGroupId, revision = NEXT VALUE FOR revisionSeq WHERE id = :id")
     public int updateProperty(@BindBean Property p);
 
     @SqlUpdate("DELETE Property WHERE id = :id")
@@ -53,39 +64,43 @@ public interface PropertyDao {
     @SqlQuery("SELECT id, key, value, description, propertyGroupId FROM Property WHERE id = :id")
     public Property byId(@Bind("id") Long id);
 
+    @SqlQuery("SELECT id, key, value, description, propertyGroupId FROM Property WHERE id IN (<ids>)")
+    public List<Property> byIds(@BindIn("ids") Collection<Long> ids);
+
+    /**
+     * Streams every Property ordered by id, the caller has to close the iterator to release its connection.
+     */
+    @SqlQuery("SELECT id, key, value, description, propertyGroupId FROM Property ORDER BY id")
+    public ResultIterator<Property> iterateAll(@FetchSize int fetchSize);
+
+    @SqlQuery("SELECT revision FROM Property WHERE id = :id")
+    public Long revision(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, key, value, description, propertyGroupId, revision FROM Property WHERE id = :id")
+    public RevisionedProperty revisionedById(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, key, value, description, propertyGroupId FROM Property WHERE propertyGroupId = :propertyGroupId ORDER BY key")
+    public List<Property> byPropertyGroupId(@Bind("propertyGroupId") Long propertyGroupId);
+
 //@formatter:off
     @SqlQuery("SELECT " +
                 "id, key, value, description, propertyGroupId " +
               "FROM " +
                 "Property " +
               "WHERE " +
-                "(id = :id OR NULL IS :id) AND " +
-                "(key = :key OR NULL IS :key) AND " +
-                "(value = :value OR NULL IS :value) AND " +
-                "(description = :description OR NULL IS :description) AND " +
-                "(propertyGroupId = :propertyGroupId OR NULL IS :propertyGroupId) " +
+                "TRUE<filter><seek> " +
               "ORDER BY " +
-                "<sorts; separator=\",\"> " +
+                "<sorts> " +
               "OFFSET :start " +
               "LIMIT :limit")
 //@formatter:on
     public List<Property> filter(
-            @BindMap({ "id", "id", "key", "key", "value", "value", "description", "description", "propertyGroupId",
-                    "propertyGroupId", "start", "limit" }) Map<String, String> bindings,
-            @Define("sorts") List<Sort> sorts);
+            @BindMap({ "start", "limit" }) @BindFilter({ "id", "key", "value", "description",
+                    "propertyGroupId" }) Map<String, String> bindings,
+            @DefineSorts({ "id", "key", "value", "description", "propertyGroupId" }) List<Sort> sorts,
+            @BindCursor Cursor cursor);
 
-//@formatter:off
-    @SqlQuery("SELECT " +
-                "COUNT(1) " +
-              "FROM " +
-                "Property " +
-              "WHERE " +
-                "(id = :id OR NULL IS :id) AND " +
-                "(key = :key OR NULL IS :key) AND " +
-                "(value = :value OR NULL IS :value) AND " +
-                "(description = :description OR NULL IS :description) AND " +
-                "(propertyGroupId = :propertyGroupId OR NULL IS :propertyGroupId)")
-//@formatter:on
-    public int filterCount(@BindMap({ "id", "id", "key", "key", "value", "value", "description",
-            "description", "propertyGroupId", "propertyGroupId", "start", "limit" }) Map<String, String> bindings);
+    @SqlQuery("SELECT COUNT(1) FROM Property WHERE TRUE<filter>")
+    public int filterCount(
+            @BindFilter({ "id", "key", "value", "description", "propertyGroupId" }) Map<String, String> bindings);
 }
@@ -26,27 +26,31 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.mattcarrier.erector.dao.mapper.PropertyGroupDependencyMapper;
 import org.mattcarrier.erector.dao.mapper.PropertyGroupMapper;
+import org.mattcarrier.erector.dao.mapper.RevisionedPropertyGroupMapper;
 import org.mattcarrier.erector.domain.PropertyGroup;
 import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.BindMap;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
-import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.FetchSize;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @UseStringTemplate3StatementLocator
-@RegisterMapper(PropertyGroupMapper.class)
+@RegisterMapper({ PropertyGroupMapper.class, PropertyGroupDependencyMapper.class, RevisionedPropertyGroupMapper.class })
 public interface PropertyGroupDao {
-    @SqlUpdate("INSERT INTO PropertyGroup(name, status, version) VALUES(:name, :status, :version)")
+    @SqlUpdate("INSERT INTO PropertyGroup(name, status, version, revision) VALUES(:name, :status, :version, NEXT VALUE FOR revisionSeq)")
     @GetGeneratedKeys
     public long createPropertyGroup(@BindBean PropertyGroup pg);
 
-    @SqlUpdate("UPDATE PropertyGroup SET name = :name, status = :status, version = :version WHERE id = :id")
+    @SqlUpdate("UPDATE PropertyGroup SET name = :name, status = :status, version = :version, revision = NEXT VALUE FOR revisionSeq WHERE id = :id")
     public int updatePropertyGroup(@BindBean PropertyGroup pg);
 
     @SqlUpdate("DELETE PropertyGroup WHERE id = :id")
@@ -55,75 +59,134 @@ public interface PropertyGroupDao {
     @SqlQuery("SELECT id, name, status, version FROM PropertyGroup WHERE id = :id")
     public PropertyGroup byId(@Bind("id") Long id);
 
+    @SqlQuery("SELECT id, name, status, version FROM PropertyGroup WHERE id IN (<ids>)")
+    public List<PropertyGroup> byIds(@BindIn("ids") Collection<Long> ids);
+
+    /**
+     * Streams every PropertyGroup ordered by id, the caller has to close the iterator to release its connection.
+     */
+    @SqlQuery("SELECT id, name, status, version FROM PropertyGroup ORDER BY id")
+    public ResultIterator<PropertyGroup> iterateAll(@FetchSize int fetchSize);
+
+    @SqlQuery("SELECT revision FROM PropertyGroup WHERE id = :id")
+    public Long revision(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, name, status, version, revision FROM PropertyGroup WHERE id = :id")
+    public RevisionedPropertyGroup revisionedById(@Bind("id") Long id);
+
+    @SqlQuery("SELECT id, name, status, version, revision FROM PropertyGroup WHERE id IN (<ids>)")
+    public List<RevisionedPropertyGroup> revisionedByIds(@BindIn("ids") Collection<Long> ids);
+
+    @SqlUpdate("UPDATE PropertyGroup SET revision = NEXT VALUE FOR revisionSeq WHERE id = :id")
+    public int touch(@Bind("id") Long id);
+
+//@formatter:off
+    @SqlUpdate("UPDATE " +
+                 "PropertyGroup " +
+               "SET " +
+                 "revision = NEXT VALUE FOR revisionSeq " +
+               "WHERE " +
+                 "id IN (SELECT propertyGroupId FROM TagPropertyGroupXref WHERE tagId = :tagId)")
+//@formatter:on
+    public int touchByTagId(@Bind("tagId") Long tagId);
+
+//@formatter:off
+    @SqlUpdate("UPDATE " +
+                 "PropertyGroup " +
+               "SET " +
+                 "revision = NEXT VALUE FOR revisionSeq " +
+               "WHERE " +
+                 "id IN (SELECT x.propertyGroupId FROM TagPropertyGroupXref x INNER JOIN Tag t ON x.tagId = t.id INNER JOIN TagKey k ON t.tagKeyId = k.id WHERE k.name = UPPER(:key))")
+//@formatter:on
+    public int touchByTagKey(@Bind("key") String key);
+
+    @SqlUpdate("INSERT INTO PropertyGroupXref(parentId, dependentId) VALUES(:parentId, :dependentId)")
+    @GetGeneratedKeys
+    public long addDependency(@Bind("parentId") Long parentId, @Bind("dependentId") Long dependentId);
+
+    @SqlUpdate("DELETE FROM PropertyGroupXref WHERE parentId = :parentId AND dependentId = :dependentId")
+    public int removeDependency(@Bind("parentId") Long parentId, @Bind("dependentId") Long dependentId);
+
+    @SqlQuery("SELECT parentId, dependentId FROM PropertyGroupXref ORDER BY id")
+    public List<PropertyGroupDependency> dependencies();
+
 //@formatter:off
     @SqlQuery("SELECT " +
                 "p.id, p.name, p.status, p.version " +
               "FROM " +
                 "PropertyGroup p " +
               "WHERE " +
-                "(p.id = :id OR NULL IS :id) AND " +
-                "(p.name = :name OR NULL IS :name) AND " +
-                "(p.version = :version OR NULL IS :version) AND " +
-                "(p.status = :status OR NULL IS :status) " +
+                "TRUE<filter><seek> " +
               "ORDER BY " +
-                "p.<sorts; separator=\", p.\"> " +
+                "<sorts> " +
               "OFFSET :start " +
               "LIMIT :limit")
 //@formatter:on
-    public List<PropertyGroup> filterNoTags(@BindMap({ "id", "id", "name", "name", "version", "version", "status",
-            "status", "start", "limit" }) Map<String, String> bindings, @Define("sorts") List<Sort> sorts);
+    public List<PropertyGroup> filterNoTags(
+            @BindMap({ "start", "limit" }) @BindFilter(value = { "id", "name", "version",
+                    "status" }, alias = "p") Map<String, String> bindings,
+            @DefineSorts(value = { "id", "name", "version", "status" }, alias = "p") List<Sort> sorts,
+            @BindCursor("p") Cursor cursor);
 
-//@formatter:off
-    @SqlQuery("SELECT " +
-                "COUNT(1) " +
-              "FROM " +
-                "PropertyGroup p " +
-              "WHERE " +
-                "(p.id = :id OR NULL IS :id) AND " +
-                "(p.name = :name OR NULL IS :name) AND " +
-                "(p.version = :version OR NULL IS :version) AND " +
-                "(p.status = :status OR NULL IS :status)")
-//@formatter:on
-    public int filterNoTagsCount(@BindMap({ "id", "id", "name", "name", "version", "version", "status",
-            "status" }) Map<String, String> bindings);
+    @SqlQuery("SELECT COUNT(1) FROM PropertyGroup p WHERE TRUE<filter>")
+    public int filterNoTagsCount(
+            @BindFilter(value = { "id", "name", "version", "status" }, alias = "p") Map<String, String> bindings);
 
+    /**
+     * Like {@link #filterNoTags(Map, List, Cursor)} restricted to the given ids, which are bound as a single array.
+     */
 //@formatter:off
     @SqlQuery("SELECT " +
                 "p.id, p.name, p.status, p.version " +
               "FROM " +
                 "PropertyGroup p INNER JOIN " +
-                "TagPropertyGroupXref x ON p.id = x.propertyGroupId INNER JOIN " +
-                "Tag t ON x.tagId = t.Id " +
+                "TABLE(id BIGINT = :ids) i ON p.id = i.id " +
               "WHERE " +
-                "(p.id = :id OR NULL IS :id) AND " +
-                "(p.name = :name OR NULL IS :name) AND " +
-                "(p.version = :version OR NULL IS :version) AND " +
-                "(p.status = :status OR NULL IS :status) AND " +
-                "t.<tags; separator=\" AND t.\"> " +
+                "TRUE<filter><seek> " +
               "ORDER BY " +
-                "p.<sorts; separator=\", p.\"> " +
+                "<sorts> " +
               "OFFSET :start " +
               "LIMIT :limit")
 //@formatter:on
-    public List<PropertyGroup> filterWithTags(
-            @BindMap({ "id", "id", "name", "name", "version", "version", "status", "status", "start",
-                    "limit" }) Map<String, String> bindings,
-            @Define("sorts") List<Sort> sorts, @Define("tags") Collection<Tag> tags);
+    public List<PropertyGroup> filterByIds(
+            @BindMap({ "start", "limit" }) @BindFilter(value = { "name", "version",
+                    "status" }, alias = "p") Map<String, String> bindings,
+            @DefineSorts(value = { "id", "name", "version", "status" }, alias = "p") List<Sort> sorts,
+            @Bind("ids") Long[] ids, @BindCursor("p") Cursor cursor);
 
 //@formatter:off
     @SqlQuery("SELECT " +
                 "COUNT(1) " +
               "FROM " +
                 "PropertyGroup p INNER JOIN " +
-                "TagPropertyGroupXref x ON p.id = x.propertyGroupId INNER JOIN " +
-                "Tag t ON x.tagId = t.Id " +
+                "TABLE(id BIGINT = :ids) i ON p.id = i.id " +
+              "WHERE " +
+                "TRUE<filter>")
+//@formatter:on
+    public int filterByIdsCount(
+            @BindFilter(value = { "name", "version", "status" }, alias = "p") Map<String, String> bindings,
+            @Bind("ids") Long[] ids);
+
+//@formatter:off
+    @SqlQuery("SELECT " +
+                "p.id, p.name, p.status, p.version " +
+              "FROM " +
+                "PropertyGroup p " +
               "WHERE " +
-                "(p.id = :id OR NULL IS :id) AND " +
-                "(p.name = :name OR NULL IS :name) AND " +
-                "(p.version = :version OR NULL IS :version) AND " +
-                "(p.status = :status OR NULL IS :status) AND " +
-                "t.<tags; separator=\" AND t.\">")
+                "TRUE<filter><tagged><seek> " +
+              "ORDER BY " +
+                "<sorts> " +
+              "OFFSET :start " +
+              "LIMIT :limit")
 //@formatter:on
-    public int filterWithTagsCount(@BindMap({ "id", "id", "name", "name", "version", "version", "status", "status",
-            "start", "limit" }) Map<String, String> bindings, @Define("tags") Collection<Tag> tags);
+    public List<PropertyGroup> filterWithTags(
+            @BindMap({ "start", "limit" }) @BindFilter(value = { "id", "name", "version",
+                    "status" }, alias = "p") Map<String, String> bindings,
+            @DefineSorts(value = { "id", "name", "version", "status" }, alias = "p") List<Sort> sorts,
+            @BindTags("p") Collection<Tag> tags, @BindCursor("p") Cursor cursor);
+
+    @SqlQuery("SELECT COUNT(1) FROM PropertyGroup p WHERE TRUE<filter><tagged>")
+    public int filterWithTagsCount(
+            @BindFilter(value = { "id", "name", "version", "status" }, alias = "p") Map<String, String> bindings,
+            @BindTags("p") Collection<Tag> tags);
 }
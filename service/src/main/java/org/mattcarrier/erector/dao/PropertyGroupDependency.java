@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+
+public class PropertyGroupDependency {
+    private Long parentId;
+    private Long dependentId;
+
+    public PropertyGroupDependency() {
+    }
+
+    public PropertyGroupDependency(Long parentId, Long dependentId) {
+        this.parentId = parentId;
+        this.dependentId = dependentId;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Long getDependentId() {
+        return dependentId;
+    }
+
+    public void setDependentId(Long dependentId) {
+        this.dependentId = dependentId;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(parentId, dependentId);
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof PropertyGroupDependency)) {
+            return false;
+        }
+
+        final PropertyGroupDependency that = (PropertyGroupDependency) obj;
+        return Objects.equals(this.parentId, that.parentId) && Objects.equals(this.dependentId, that.dependentId);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("parentId", parentId).add("dependentId", dependentId).toString();
+    }
+}
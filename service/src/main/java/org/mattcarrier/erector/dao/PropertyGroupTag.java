@@ -22,48 +22,57 @@
  */
 package org.mattcarrier.erector.dao;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
-import java.util.List;
 import java.util.Objects;
 
+import org.mattcarrier.erector.domain.Tag;
+
 import com.google.common.base.MoreObjects;
 
-public class TagDomain {
-    private List<String> domain;
+public class PropertyGroupTag {
+    private Long propertyGroupId;
+    private Tag tag;
+
+    public PropertyGroupTag() {
+    }
+
+    public PropertyGroupTag(Long propertyGroupId, Tag tag) {
+        this.propertyGroupId = propertyGroupId;
+        this.tag = tag;
+    }
 
-    public TagDomain() {
+    public Long getPropertyGroupId() {
+        return propertyGroupId;
     }
 
-    public TagDomain(List<String> domain) {
-        this.domain = checkNotNull(domain);
+    public void setPropertyGroupId(Long propertyGroupId) {
+        this.propertyGroupId = propertyGroupId;
     }
 
-    public List<String> getDomain() {
-        return domain;
+    public Tag getTag() {
+        return tag;
     }
 
-    public void setDomain(List<String> domain) {
-        this.domain = domain;
+    public void setTag(Tag tag) {
+        this.tag = tag;
     }
 
     @Override
     public final int hashCode() {
-        return Objects.hash(domain);
+        return Objects.hash(propertyGroupId, tag);
     }
 
     @Override
     public final boolean equals(Object obj) {
-        if (!(obj instanceof TagDomain)) {
+        if (!(obj instanceof PropertyGroupTag)) {
             return false;
         }
 
-        final TagDomain that = (TagDomain) obj;
-        return Objects.equals(this.getDomain(), that.getDomain());
+        final PropertyGroupTag that = (PropertyGroupTag) obj;
+        return Objects.equals(this.propertyGroupId, that.propertyGroupId) && Objects.equals(this.tag, that.tag);
     }
 
     @Override
     public String toString() {
-        return MoreObjects.toStringHelper(this).add("domain", domain).toString();
+        return MoreObjects.toStringHelper(this).add("propertyGroupId", propertyGroupId).add("tag", tag).toString();
     }
 }
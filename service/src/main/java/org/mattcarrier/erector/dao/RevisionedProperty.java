@@ -0,0 +1,81 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.util.Objects;
+
+import org.mattcarrier.erector.domain.Property;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A Property together with its revision, both read from the same row.
+ */
+public class RevisionedProperty {
+    private Property property;
+    private long revision;
+
+    public RevisionedProperty() {
+    }
+
+    public RevisionedProperty(Property property, long revision) {
+        this.property = property;
+        this.revision = revision;
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    public void setProperty(Property property) {
+        this.property = property;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(property, revision);
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof RevisionedProperty)) {
+            return false;
+        }
+
+        final RevisionedProperty that = (RevisionedProperty) obj;
+        return Objects.equals(this.property, that.property) && this.revision == that.revision;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("property", property).add("revision", revision).toString();
+    }
+}
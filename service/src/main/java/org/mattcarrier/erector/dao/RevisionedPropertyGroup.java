@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import java.util.Objects;
+
+import org.mattcarrier.erector.domain.PropertyGroup;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A PropertyGroup together with its revision, both read from the same row.
+ */
+public class RevisionedPropertyGroup {
+    private PropertyGroup propertyGroup;
+    private long revision;
+
+    public RevisionedPropertyGroup() {
+    }
+
+    public RevisionedPropertyGroup(PropertyGroup propertyGroup, long revision) {
+        this.propertyGroup = propertyGroup;
+        this.revision = revision;
+    }
+
+    public PropertyGroup getPropertyGroup() {
+        return propertyGroup;
+    }
+
+    public void setPropertyGroup(PropertyGroup propertyGroup) {
+        this.propertyGroup = propertyGroup;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(propertyGroup, revision);
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof RevisionedPropertyGroup)) {
+            return false;
+        }
+
+        final RevisionedPropertyGroup that = (RevisionedPropertyGroup) obj;
+        return Objects.equals(this.propertyGroup, that.propertyGroup) && this.revision == that.revision;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("propertyGroup", propertyGroup).add("revision", revision)
+                .toString();
+    }
+}
@@ -23,40 +23,55 @@
 package org.mattcarrier.erector.dao;
 
 import java.util.Collection;
+import java.util.List;
 
-import org.mattcarrier.erector.dao.mapper.TagDomainMapper;
+import org.mattcarrier.erector.dao.mapper.PropertyGroupTagMapper;
 import org.mattcarrier.erector.dao.mapper.TagMapper;
 import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
-import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.FetchSize;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
 import org.skife.jdbi.v2.unstable.BindIn;
 
 @UseStringTemplate3StatementLocator
-@RegisterMapper({ TagMapper.class, TagDomainMapper.class })
+@RegisterMapper({ TagMapper.class, PropertyGroupTagMapper.class })
 public interface TagDao {
-    @SqlUpdate("ALTER TABLE Tag ADD COLUMN <key> VARCHAR(128); CREATE INDEX indexTag<key> ON Tag(<key>)")
-    public void createTagDomain(@Define("key") String key);
+    @SqlUpdate("INSERT INTO TagKey(name) VALUES(UPPER(:key))")
+    public void createTagDomain(@Bind("key") String key);
 
-    @SqlUpdate("ALTER TABLE Tag DROP COLUMN <key>")
-    public void deleteTagDomain(@Define("key") String key);
+    /**
+     * Removes the key together with every Tag of that key and their associations.
+     */
+    @SqlUpdate("DELETE FROM TagKey WHERE name = UPPER(:key)")
+    public void deleteTagDomain(@Bind("key") String key);
 
-    @SqlQuery("SELECT * FROM Tag WHERE doNotDelete = '1' LIMIT 1")
-    public TagDomain getTagDomain();
+    @SqlQuery("SELECT name FROM TagKey ORDER BY name")
+    public List<String> getTagDomain();
 
-    @SqlUpdate("INSERT INTO Tag(<key>) VALUES(:value)")
+    /**
+     * Returns null when the key is not part of the tag domain.
+     */
+    @SqlUpdate("INSERT INTO Tag(tagKeyId, value) SELECT id, :value FROM TagKey WHERE name = UPPER(:key)")
     @GetGeneratedKeys
-    public long addTag(@Define("key") String key, @Bind("value") String value);
+    public Long addTag(@Bind("key") String key, @Bind("value") String value);
 
     @SqlUpdate("INSERT INTO TagPropertyGroupXref(tagId, propertyGroupId) VALUES(:tagId, :propertyGroupId)")
     @GetGeneratedKeys
     public long associateTag(@Bind("tagId") Long tagId, @Bind("propertyGroupId") Long propertyGroupId);
 
+    /**
+     * Associates the tag and PropertyGroup ids pairwise in a single batch.
+     */
+    @SqlBatch("INSERT INTO TagPropertyGroupXref(tagId, propertyGroupId) VALUES(:tagId, :propertyGroupId)")
+    public int[] associateTags(@Bind("tagId") List<Long> tagIds, @Bind("propertyGroupId") List<Long> propertyGroupIds);
+
     @SqlUpdate("DELETE FROM TagPropertyGroupXref WHERE tagId = :id")
     public int disassociateTag(@Bind("id") Long id);
 
@@ -69,20 +84,40 @@ public interface TagDao {
     @SqlUpdate("DELETE FROM Tag WHERE id IN (<tagIds>)")
     public int removeTags(@BindIn("tagIds") Collection<Long> tagIds);
 
-    @SqlUpdate("UPDATE Tag SET value = :value WHERE id = :id")
+    @SqlUpdate("UPDATE Tag SET tagKeyId = (SELECT id FROM TagKey WHERE name = UPPER(:key)), value = :value WHERE id = :id AND EXISTS (SELECT 1 FROM TagKey WHERE name = UPPER(:key))")
     public int update(@BindBean Tag tag);
 
-    @SqlQuery("SELECT * FROM Tag WHERE id = :id")
+    @SqlQuery("SELECT t.id, k.name AS key, t.value FROM Tag t INNER JOIN TagKey k ON t.tagKeyId = k.id WHERE t.id = :id")
     public Tag byId(@Bind("id") Long id);
 
+    @SqlQuery("SELECT t.id, k.name AS key, t.value FROM Tag t INNER JOIN TagKey k ON t.tagKeyId = k.id WHERE t.id IN (<ids>)")
+    public Collection<Tag> byIds(@BindIn("ids") Collection<Long> ids);
+
 //@formatter:off
     @SqlQuery("SELECT " +
-                "t.* " +
+                "t.id, k.name AS key, t.value " +
               "FROM " +
                 "Tag t INNER JOIN " +
-                "TagPropertyGroupXref x ON t.Id = x.tagId " +
+                "TagKey k ON t.tagKeyId = k.id INNER JOIN " +
+                "TagPropertyGroupXref x ON t.id = x.tagId " +
               "WHERE " +
                 "x.propertyGroupId = :propertyGroupId")
 //@formatter:on
     public Collection<Tag> byPropertyGroupId(@Bind("propertyGroupId") Long propertyGroupId);
+
+    /**
+     * Streams every Tag association ordered by PropertyGroup id, the caller has to close the iterator to release its
+     * connection.
+     */
+//@formatter:off
+    @SqlQuery("SELECT " +
+                "t.id, k.name AS key, t.value, x.propertyGroupId AS tagPropertyGroupId " +
+              "FROM " +
+                "Tag t INNER JOIN " +
+                "TagKey k ON t.tagKeyId = k.id INNER JOIN " +
+                "TagPropertyGroupXref x ON t.id = x.tagId " +
+              "ORDER BY " +
+                "x.propertyGroupId, t.id")
+//@formatter:on
+    public ResultIterator<PropertyGroupTag> iterateAssociations(@FetchSize int fetchSize);
 }
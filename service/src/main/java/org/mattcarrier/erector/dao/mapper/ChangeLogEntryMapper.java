@@ -0,0 +1,50 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class ChangeLogEntryMapper implements ResultSetMapper<ChangeLogEntry> {
+
+    @Override
+    public ChangeLogEntry map(int index, ResultSet rs, StatementContext ctxt) throws SQLException {
+        final ChangeLogEntry e = new ChangeLogEntry();
+        e.setRevision(rs.getLong("revision"));
+        e.setEntityType(EntityType.valueOf(rs.getString("entityType")));
+        e.setEntityId((Long) rs.getObject("entityId"));
+        e.setOperation(Operation.valueOf(rs.getString("operation")));
+        e.setPropertyGroupId((Long) rs.getObject("propertyGroupId"));
+        e.setRelatedId((Long) rs.getObject("relatedId"));
+        e.setTagKey(rs.getString("tagKey"));
+        e.setChangedAt(rs.getTimestamp("changedAt"));
+        return e;
+    }
+
+}
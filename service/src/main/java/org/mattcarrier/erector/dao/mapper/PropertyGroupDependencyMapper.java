@@ -23,29 +23,17 @@
 package org.mattcarrier.erector.dao.mapper;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
-import org.mattcarrier.erector.dao.TagDomain;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
-import com.google.common.collect.ImmutableSortedSet;
+public class PropertyGroupDependencyMapper implements ResultSetMapper<PropertyGroupDependency> {
 
-public class TagDomainMapper implements ResultSetMapper<TagDomain> {
     @Override
-    public TagDomain map(int index, ResultSet rs, StatementContext ctxt) throws SQLException {
-        final ResultSetMetaData md = rs.getMetaData();
-        final ImmutableSortedSet.Builder<String> domain = ImmutableSortedSet.naturalOrder();
-        for (int i = 1; i <= md.getColumnCount(); i++) {
-            final String column = md.getColumnName(i);
-            if ("id".equalsIgnoreCase(column) || ("doNotDelete".equalsIgnoreCase(column))) {
-                continue;
-            }
-
-            domain.add(column);
-        }
-
-        return new TagDomain(domain.build().asList());
+    public PropertyGroupDependency map(int index, ResultSet rs, StatementContext ctxt) throws SQLException {
+        return new PropertyGroupDependency(rs.getLong("parentId"), rs.getLong("dependentId"));
     }
+
 }
@@ -0,0 +1,42 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+/**
+ * Maps a Tag row joined with the {@code tagPropertyGroupId} of one of its associations.
+ */
+public class PropertyGroupTagMapper implements ResultSetMapper<PropertyGroupTag> {
+    private final TagMapper tagMapper = new TagMapper();
+
+    @Override
+    public PropertyGroupTag map(int index, ResultSet rs, StatementContext ctxt) throws SQLException {
+        return new PropertyGroupTag(rs.getLong("tagPropertyGroupId"), tagMapper.map(index, rs, ctxt));
+    }
+}
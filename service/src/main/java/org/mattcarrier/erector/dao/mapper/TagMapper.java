@@ -23,7 +23,6 @@
 package org.mattcarrier.erector.dao.mapper;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 import org.mattcarrier.erector.domain.Tag;
@@ -34,20 +33,9 @@ public class TagMapper implements ResultSetMapper<Tag> {
     @Override
     public Tag map(int index, ResultSet rs, StatementContext ctxt) throws SQLException {
         final Tag t = new Tag();
-        final ResultSetMetaData md = rs.getMetaData();
-
         t.setId(rs.getLong("id"));
-        for (int i = 1; i <= md.getColumnCount(); i++) {
-            final String val = rs.getString(i);
-            if (null != val && !("doNotDelete".equalsIgnoreCase(md.getColumnName(i)))
-                    && !("id".equalsIgnoreCase(md.getColumnName(i)))) {
-                t.setKey(md.getColumnName(i));
-                t.setValue(rs.getString(i));
-
-                return t;
-            }
-        }
-
-        throw new RuntimeException("Tag[" + t.getId() + "] has no value");
+        t.setKey(rs.getString("key"));
+        t.setValue(rs.getString("value"));
+        return t;
     }
 }
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.generate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a synthetic dataset through the DAOs. Properties and tag associations are written in batches, PropertyGroups
+ * and Tags one at a time as their generated ids are needed. The same seed always produces the same dataset.
+ */
+public class DatasetGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private int groups = 1000;
+    private int propertiesPerGroup = 20;
+    private int tagKeys = 20;
+    private int tagsPerGroup = 5;
+    private int cardinality = 10;
+    private Distribution distribution = Distribution.ZIPF;
+    private double skew = 1.0;
+    private int batchSize = 1000;
+    private long seed = 0;
+
+    public static String tagKey(int k) {
+        return "KEY" + k;
+    }
+
+    public void generate(PropertyGroupDao pgDao, PropertyDao propDao, TagDao tagDao) {
+        final Set<String> domain = new HashSet<>(tagDao.getTagDomain());
+        for (int k = 0; k < tagKeys; k++) {
+            if (!domain.contains(tagKey(k))) {
+                tagDao.createTagDomain(tagKey(k));
+            }
+        }
+
+        final Random random = new Random(seed);
+        final double[] cdf = distribution.cumulative(cardinality, skew);
+        final int[] keys = new int[tagKeys];
+        for (int k = 0; k < tagKeys; k++) {
+            keys[k] = k;
+        }
+
+        final List<Property> props = new ArrayList<>(batchSize);
+        final List<Long> tagIds = new ArrayList<>(batchSize);
+        final List<Long> pgIds = new ArrayList<>(batchSize);
+        final int progress = Math.max(1, groups / 10);
+        for (int g = 0; g < groups; g++) {
+            final PropertyGroup pg = new PropertyGroup();
+            pg.setName("group-" + g);
+            pg.setVersion("1." + random.nextInt(10) + ".0");
+            pg.setStatus(0 == random.nextInt(10) ? Status.INACTIVE : Status.ACTIVE);
+            final long pgId = pgDao.createPropertyGroup(pg);
+
+            for (int p = 0; p < propertiesPerGroup; p++) {
+                final Property prop = new Property();
+                prop.setKey("property-" + p);
+                prop.setValue("value-" + g + "-" + p);
+                prop.setDescription(0 == p % 3 ? null : "description of property-" + p);
+                prop.setPropertyGroupId(pgId);
+                props.add(prop);
+                if (props.size() >= batchSize) {
+                    propDao.createProperties(props);
+                    props.clear();
+                }
+            }
+
+            // a partial shuffle picks distinct keys for the group
+            final int tags = Math.min(tagsPerGroup, tagKeys);
+            for (int t = 0; t < tags; t++) {
+                final int swap = t + random.nextInt(tagKeys - t);
+                final int k = keys[swap];
+                keys[swap] = keys[t];
+                keys[t] = k;
+
+                tagIds.add(tagDao.addTag(tagKey(k), "v" + Distribution.sample(cdf, random)));
+                pgIds.add(pgId);
+                if (tagIds.size() >= batchSize) {
+                    tagDao.associateTags(tagIds, pgIds);
+                    tagIds.clear();
+                    pgIds.clear();
+                }
+            }
+
+            if (0 == (g + 1) % progress) {
+                LOG.info("generated {} of {} property groups", g + 1, groups);
+            }
+        }
+
+        if (!props.isEmpty()) {
+            propDao.createProperties(props);
+        }
+
+        if (!tagIds.isEmpty()) {
+            tagDao.associateTags(tagIds, pgIds);
+        }
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    public void setGroups(int groups) {
+        this.groups = groups;
+    }
+
+    public int getPropertiesPerGroup() {
+        return propertiesPerGroup;
+    }
+
+    public void setPropertiesPerGroup(int propertiesPerGroup) {
+        this.propertiesPerGroup = propertiesPerGroup;
+    }
+
+    public int getTagKeys() {
+        return tagKeys;
+    }
+
+    public void setTagKeys(int tagKeys) {
+        this.tagKeys = tagKeys;
+    }
+
+    public int getTagsPerGroup() {
+        return tagsPerGroup;
+    }
+
+    public void setTagsPerGroup(int tagsPerGroup) {
+        this.tagsPerGroup = tagsPerGroup;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public void setCardinality(int cardinality) {
+        this.cardinality = cardinality;
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.generate;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * How often each of the values of a tag key is drawn, rank 0 being the most frequent value.
+ */
+public enum Distribution {
+    UNIFORM {
+        @Override
+        double weight(int rank, double skew) {
+            return 1;
+        }
+    },
+    ZIPF {
+        @Override
+        double weight(int rank, double skew) {
+            return 1 / Math.pow(rank + 1, skew);
+        }
+    };
+
+    abstract double weight(int rank, double skew);
+
+    public double[] cumulative(int cardinality, double skew) {
+        final double[] cdf = new double[cardinality];
+        double total = 0;
+        for (int i = 0; i < cardinality; i++) {
+            total += weight(i, skew);
+            cdf[i] = total;
+        }
+
+        for (int i = 0; i < cardinality; i++) {
+            cdf[i] /= total;
+        }
+
+        return cdf;
+    }
+
+    public static int sample(double[] cdf, Random random) {
+        final int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return i >= 0 ? i : Math.min(-i - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.generate;
+
+import org.mattcarrier.erector.ErectorConfiguration;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+
+import io.dropwizard.Application;
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.setup.Environment;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+/**
+ * Fills the configured persistence with a synthetic dataset, e.g.
+ * {@code java -jar erector.jar generate --groups 100000 --properties 100 --tag-keys 300 config.yml}.
+ */
+public class GenerateCommand extends EnvironmentCommand<ErectorConfiguration> {
+    public GenerateCommand(Application<ErectorConfiguration> application) {
+        super(application, "generate", "Fills the configured persistence with a synthetic dataset");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--groups").dest("groups").type(Integer.class).setDefault(1000)
+                .help("number of property groups");
+        subparser.addArgument("--properties").dest("properties").type(Integer.class).setDefault(20)
+                .help("properties per property group");
+        subparser.addArgument("--tag-keys").dest("tagKeys").type(Integer.class).setDefault(20)
+                .help("size of the tag domain");
+        subparser.addArgument("--tags").dest("tags").type(Integer.class).setDefault(5)
+                .help("tags per property group, each of a different key");
+        subparser.addArgument("--cardinality").dest("cardinality").type(Integer.class).setDefault(10)
+                .help("distinct values per tag key");
+        subparser.addArgument("--distribution").dest("distribution").type(Distribution.class)
+                .setDefault(Distribution.ZIPF).help("how tag values are drawn, UNIFORM or ZIPF");
+        subparser.addArgument("--skew").dest("skew").type(Double.class).setDefault(1.0)
+                .help("exponent of the ZIPF distribution");
+        subparser.addArgument("--batch-size").dest("batchSize").type(Integer.class).setDefault(1000)
+                .help("rows per batched insert");
+        subparser.addArgument("--seed").dest("seed").type(Long.class).setDefault(0L)
+                .help("seed of the generated values");
+    }
+
+    @Override
+    protected void run(Environment env, Namespace namespace, ErectorConfiguration configuration) throws Exception {
+        final DatasetGenerator generator = new DatasetGenerator();
+        generator.setGroups(namespace.getInt("groups"));
+        generator.setPropertiesPerGroup(namespace.getInt("properties"));
+        generator.setTagKeys(namespace.getInt("tagKeys"));
+        generator.setTagsPerGroup(namespace.getInt("tags"));
+        generator.setCardinality(namespace.getInt("cardinality"));
+        generator.setDistribution(namespace.get("distribution"));
+        generator.setSkew(namespace.getDouble("skew"));
+        generator.setBatchSize(namespace.getInt("batchSize"));
+        generator.setSeed(namespace.getLong("seed"));
+
+        final PersistenceFactory persistence = configuration.getPersistence();
+        generator.generate(persistence.propertyGroupDao(), persistence.propertyDao(), persistence.tagDao());
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.hierarchy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.domain.Property;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * In-memory dependency DAG of {@link org.mattcarrier.erector.domain.PropertyGroup}s built from the
+ * PropertyGroupXref table.
+ * <p/>
+ * A group inherits the properties of its parents in the order the parents were added, later parents overriding
+ * earlier ones and the group's own properties overriding everything inherited. Resolved configurations are memoized
+ * per group and are only dropped for a group and its transitive dependents when {@link #invalidate(Long)} is called.
+ * Writes made through this node invalidate straight away, writes made by other nodes sharing the database are
+ * picked up by tailing the change log every refresh interval.
+ */
+public class PropertyGroupHierarchy implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(PropertyGroupHierarchy.class);
+    private static final int POLL_LIMIT = 1000;
+
+    private final PropertyGroupDao pgDao;
+    private final PropertyDao propDao;
+    private final ChangeLogDao changeLogDao;
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+
+    private final ConcurrentMap<Long, Map<String, String>> resolved = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> parents = new HashMap<>();
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    private boolean loaded;
+    private long lastRevision = -1;
+
+    public PropertyGroupHierarchy(PropertyGroupDao pgDao, PropertyDao propDao, ChangeLogDao changeLogDao,
+            ScheduledExecutorService executor, Duration refreshInterval) {
+        this.pgDao = checkNotNull(pgDao);
+        this.propDao = checkNotNull(propDao);
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.executor = checkNotNull(executor);
+        this.refreshInterval = checkNotNull(refreshInterval);
+    }
+
+    public Map<String, String> resolve(Long id) {
+        final Map<String, String> config = resolved.get(id);
+        if (null != config) {
+            return config;
+        }
+
+        synchronized (this) {
+            load();
+            return resolveLocked(id);
+        }
+    }
+
+    public synchronized List<Long> parents(Long id) {
+        load();
+        return ImmutableList.copyOf(parents.getOrDefault(id, Collections.emptySet()));
+    }
+
+    public synchronized void addParent(Long id, Long parentId) {
+        load();
+        if (id.equals(parentId) || ancestors(parentId).contains(id)) {
+            throw new IllegalArgumentException("PropertyGroup[" + parentId + "] depends on PropertyGroup[" + id + "]");
+        }
+
+        if (parents.getOrDefault(id, Collections.emptySet()).contains(parentId)) {
+            throw new IllegalStateException("PropertyGroup[" + id + "] already depends on PropertyGroup[" + parentId
+                    + "]");
+        }
+
+        pgDao.addDependency(parentId, id);
+        link(parentId, id);
+        invalidate(id);
+    }
+
+    public synchronized boolean removeParent(Long id, Long parentId) {
+        load();
+        if (0 == pgDao.removeDependency(parentId, id)) {
+            return false;
+        }
+
+        parents.getOrDefault(id, Collections.emptySet()).remove(parentId);
+        dependents.getOrDefault(parentId, Collections.emptySet()).remove(id);
+        invalidate(id);
+        return true;
+    }
+
+    /**
+     * Drops the memoized configuration of the group and of every group that transitively depends on it.
+     */
+    public synchronized void invalidate(Long id) {
+        final Deque<Long> queue = new ArrayDeque<>();
+        final Set<Long> seen = new HashSet<>();
+        queue.add(id);
+        while (!queue.isEmpty()) {
+            final Long next = queue.poll();
+            if (seen.add(next)) {
+                resolved.remove(next);
+                queue.addAll(dependents.getOrDefault(next, Collections.emptySet()));
+            }
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        synchronized (this) {
+            lastRevision = changeLogDao.latest();
+        }
+        executor.scheduleWithFixedDelay(this::poll, refreshInterval.toMilliseconds(),
+                refreshInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    void poll() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to refresh the PropertyGroup hierarchy", e);
+        }
+    }
+
+    /**
+     * Applies the change log entries written since the last refresh. Dependency changes reload the DAG, Property and
+     * PropertyGroup changes invalidate their group. Once deletes it has not seen may have been purged everything is
+     * dropped and reloaded.
+     */
+    synchronized void refresh() {
+        if (lastRevision < changeLogDao.floor()) {
+            lastRevision = changeLogDao.latest();
+            reset();
+            return;
+        }
+
+        final List<ChangeLogEntry> changes = changeLogDao.since(lastRevision, POLL_LIMIT);
+        for (ChangeLogEntry e : changes) {
+            switch (e.getEntityType()) {
+            case PROPERTY_GROUP_DEPENDENCY:
+                reset();
+                break;
+            case PROPERTY_GROUP:
+            case PROPERTY:
+                invalidate(e.getPropertyGroupId());
+                break;
+            default:
+                // tags take no part in resolution
+                break;
+            }
+
+            lastRevision = e.getRevision();
+        }
+    }
+
+    private void reset() {
+        resolved.clear();
+        parents.clear();
+        dependents.clear();
+        loaded = false;
+    }
+
+    private Map<String, String> resolveLocked(Long id) {
+        final Map<String, String> memo = resolved.get(id);
+        if (null != memo) {
+            return memo;
+        }
+
+        final Map<String, String> config = new LinkedHashMap<>();
+        for (Long parentId : parents.getOrDefault(id, Collections.emptySet())) {
+            config.putAll(resolveLocked(parentId));
+        }
+
+        for (Property p : propDao.byPropertyGroupId(id)) {
+            config.put(p.getKey(), p.getValue());
+        }
+
+        final Map<String, String> result = Collections.unmodifiableMap(config);
+        resolved.put(id, result);
+        return result;
+    }
+
+    private Set<Long> ancestors(Long id) {
+        final Deque<Long> queue = new ArrayDeque<>();
+        final Set<Long> seen = new HashSet<>();
+        queue.add(id);
+        while (!queue.isEmpty()) {
+            for (Long parentId : parents.getOrDefault(queue.poll(), Collections.emptySet())) {
+                if (seen.add(parentId)) {
+                    queue.add(parentId);
+                }
+            }
+        }
+
+        return seen;
+    }
+
+    private void link(Long parentId, Long dependentId) {
+        parents.computeIfAbsent(dependentId, k -> new LinkedHashSet<>()).add(parentId);
+        dependents.computeIfAbsent(parentId, k -> new HashSet<>()).add(dependentId);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        for (PropertyGroupDependency d : pgDao.dependencies()) {
+            link(d.getParentId(), d.getDependentId());
+        }
+
+        loaded = true;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.index;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Applies every successful Tag write to a {@link TagIndex}.
+ */
+public class IndexingTagDao implements TagDao {
+    private final TagDao delegate;
+    private final TagIndex index;
+
+    public IndexingTagDao(TagDao delegate, TagIndex index) {
+        this.delegate = checkNotNull(delegate);
+        this.index = checkNotNull(index);
+    }
+
+    @Override
+    public void createTagDomain(String key) {
+        delegate.createTagDomain(key);
+    }
+
+    @Override
+    public void deleteTagDomain(String key) {
+        delegate.deleteTagDomain(key);
+        index.domainDeleted(key);
+    }
+
+    @Override
+    public List<String> getTagDomain() {
+        return delegate.getTagDomain();
+    }
+
+    @Override
+    public Long addTag(String key, String value) {
+        return delegate.addTag(key, value);
+    }
+
+    @Override
+    public long associateTag(Long tagId, Long propertyGroupId) {
+        final long id = delegate.associateTag(tagId, propertyGroupId);
+        index.associated(tagId, propertyGroupId);
+        return id;
+    }
+
+    @Override
+    public int[] associateTags(List<Long> tagIds, List<Long> propertyGroupIds) {
+        final int[] ids = delegate.associateTags(tagIds, propertyGroupIds);
+        for (int i = 0; i < tagIds.size(); i++) {
+            index.associated(tagIds.get(i), propertyGroupIds.get(i));
+        }
+
+        return ids;
+    }
+
+    @Override
+    public int disassociateTag(Long id) {
+        final int disassociated = delegate.disassociateTag(id);
+        index.disassociated(Collections.singleton(id));
+        return disassociated;
+    }
+
+    @Override
+    public int removeTag(Long id) {
+        final int removed = delegate.removeTag(id);
+        index.removed(Collections.singleton(id));
+        return removed;
+    }
+
+    @Override
+    public int disassociateTags(Collection<Long> tagIds) {
+        final int disassociated = delegate.disassociateTags(tagIds);
+        index.disassociated(tagIds);
+        return disassociated;
+    }
+
+    @Override
+    public int removeTags(Collection<Long> tagIds) {
+        final int removed = delegate.removeTags(tagIds);
+        index.removed(tagIds);
+        return removed;
+    }
+
+    @Override
+    public int update(Tag tag) {
+        final int updated = delegate.update(tag);
+        if (0 != updated) {
+            index.updated(tag);
+        }
+
+        return updated;
+    }
+
+    @Override
+    public Tag byId(Long id) {
+        return delegate.byId(id);
+    }
+
+    @Override
+    public Collection<Tag> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public Collection<Tag> byPropertyGroupId(Long propertyGroupId) {
+        return delegate.byPropertyGroupId(propertyGroupId);
+    }
+
+    @Override
+    public ResultIterator<PropertyGroupTag> iterateAssociations(int fetchSize) {
+        return delegate.iterateAssociations(fetchSize);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.index;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.TagDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Immutable snapshot of the tag keys, swapped atomically whenever the domain changes.
+ * <p/>
+ * Keys are stored upper case, so membership checks are a single hash lookup. Changes made through this node are
+ * picked up by {@link #refresh()}, changes made by other nodes sharing the database are noticed by polling the
+ * revision of the latest TAG_DOMAIN change log entry.
+ */
+public class TagDomain implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(TagDomain.class);
+
+    private final TagDao tagDao;
+    private final ChangeLogDao changeLogDao;
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public TagDomain(TagDao tagDao, ChangeLogDao changeLogDao, ScheduledExecutorService executor,
+            Duration refreshInterval) {
+        this.tagDao = checkNotNull(tagDao);
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.executor = checkNotNull(executor);
+        this.refreshInterval = checkNotNull(refreshInterval);
+    }
+
+    public List<String> keys() {
+        return current().keys;
+    }
+
+    public boolean contains(String key) {
+        return current().members.contains(key.toUpperCase());
+    }
+
+    /**
+     * Reloads the domain, the revision is read first so a change racing the reload is caught by the next poll.
+     */
+    public void refresh() {
+        final long revision = changeLogDao.latestOf(EntityType.TAG_DOMAIN.name());
+        final List<String> keys = ImmutableList.copyOf(tagDao.getTagDomain());
+        snapshot.set(new Snapshot(revision, keys));
+    }
+
+    @Override
+    public void start() throws Exception {
+        refresh();
+        executor.scheduleWithFixedDelay(this::poll, refreshInterval.toMilliseconds(),
+                refreshInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    void poll() {
+        try {
+            final Snapshot current = snapshot.get();
+            if (null == current || changeLogDao.latestOf(EntityType.TAG_DOMAIN.name()) > current.revision) {
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to refresh the tag domain", e);
+        }
+    }
+
+    private Snapshot current() {
+        final Snapshot current = snapshot.get();
+        if (null != current) {
+            return current;
+        }
+
+        refresh();
+        return snapshot.get();
+    }
+
+    private static class Snapshot {
+        private final long revision;
+        private final List<String> keys;
+        private final Set<String> members;
+
+        private Snapshot(long revision, List<String> keys) {
+            this.revision = revision;
+            this.keys = keys;
+            final ImmutableSet.Builder<String> members = ImmutableSet.builder();
+            for (String key : keys) {
+                members.add(key.toUpperCase());
+            }
+            this.members = members.build();
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.index;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * In-memory inverted index from (tag key, tag value) to the bitmap of the ids of the PropertyGroups carrying that
+ * tag, so a search on several tags is the intersection of their bitmaps instead of a join per tag.
+ * <p/>
+ * The index is loaded from the TagPropertyGroupXref table on first use. Writes made through this node are applied
+ * straight away by {@link IndexingTagDao}, writes made by other nodes sharing the database are applied by tailing the
+ * change log every refresh interval, the Tags those changes name are read before the index is locked. The reverse map
+ * from tag id to PropertyGroup ids holds plain sets since nearly every tag id has a single PropertyGroup, a bitmap
+ * per tag id would cost the largest PropertyGroup id in bits. PropertyGroup ids above {@link Integer#MAX_VALUE} do
+ * not fit a bitmap, once one is seen the index stops answering and {@link #search(Collection)} returns null so
+ * callers fall back to SQL.
+ */
+public class TagIndex implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(TagIndex.class);
+    private static final int LOAD_FETCH_SIZE = 1000;
+    private static final int POLL_LIMIT = 1000;
+
+    private final TagDao tagDao;
+    private final ChangeLogDao changeLogDao;
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Tag, BitSet> postings = new HashMap<>();
+    private final Map<Tag, Set<Long>> tagIdsByValue = new HashMap<>();
+    private final Map<Long, Tag> tags = new HashMap<>();
+    private final Map<Long, Set<Long>> groupsByTagId = new HashMap<>();
+    private boolean loaded;
+    private boolean overflowed;
+    private long lastRevision;
+
+    public TagIndex(TagDao tagDao, ChangeLogDao changeLogDao, ScheduledExecutorService executor,
+            Duration refreshInterval) {
+        this.tagDao = checkNotNull(tagDao);
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.executor = checkNotNull(executor);
+        this.refreshInterval = checkNotNull(refreshInterval);
+    }
+
+    /**
+     * Returns the ids of the PropertyGroups carrying every one of the tags, or null when the index can not answer.
+     */
+    public BitSet search(Collection<Tag> query) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (overflowed) {
+                return null;
+            }
+
+            BitSet result = null;
+            for (Tag t : query) {
+                final BitSet posting = postings.get(normalize(t.getKey(), t.getValue()));
+                if (null == posting) {
+                    return new BitSet();
+                }
+
+                if (null == result) {
+                    result = (BitSet) posting.clone();
+                } else {
+                    result.and(posting);
+                }
+            }
+
+            return null == result ? new BitSet() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void associated(Long tagId, Long propertyGroupId) {
+        final Tag t = tagDao.byId(tagId);
+        if (null == t) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                index(tagId, t.getKey(), t.getValue(), propertyGroupId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void disassociated(Long tagId, Long propertyGroupId) {
+        lock.writeLock().lock();
+        try {
+            final Tag t = tags.get(tagId);
+            final Set<Long> groups = groupsByTagId.get(tagId);
+            if (null == t || null == groups || !groups.remove(propertyGroupId)) {
+                return;
+            }
+
+            unindex(t, tagId, Collections.singleton(propertyGroupId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void disassociated(Collection<Long> tagIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long tagId : tagIds) {
+                final Tag t = tags.get(tagId);
+                final Set<Long> groups = groupsByTagId.get(tagId);
+                if (null == t || null == groups) {
+                    continue;
+                }
+
+                groupsByTagId.put(tagId, new HashSet<>());
+                unindex(t, tagId, groups);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removed(Collection<Long> tagIds) {
+        lock.writeLock().lock();
+        try {
+            disassociated(tagIds);
+            for (Long tagId : tagIds) {
+                forget(tagId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updated(Tag tag) {
+        final Tag t = tagDao.byId(tag.getId());
+        lock.writeLock().lock();
+        try {
+            reindex(tag.getId(), t);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the groups of the tag id to its current key and value, or drops them when the Tag is gone.
+     */
+    private void reindex(Long tagId, Tag t) {
+        final Set<Long> groups = groupsByTagId.get(tagId);
+        removed(Collections.singleton(tagId));
+        if (null == t || null == groups) {
+            return;
+        }
+
+        for (Long pgId : groups) {
+            index(tagId, t.getKey(), t.getValue(), pgId);
+        }
+    }
+
+    public void domainDeleted(String key) {
+        lock.writeLock().lock();
+        try {
+            final Set<Long> tagIds = new HashSet<>();
+            for (Iterator<Map.Entry<Long, Tag>> it = tags.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<Long, Tag> e = it.next();
+                if (e.getValue().getKey().equalsIgnoreCase(key)) {
+                    tagIds.add(e.getKey());
+                }
+            }
+
+            removed(tagIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Gauge<Integer> sizeGauge() {
+        return () -> {
+            lock.readLock().lock();
+            try {
+                return postings.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        };
+    }
+
+    @Override
+    public void start() throws Exception {
+        executor.scheduleWithFixedDelay(this::poll, refreshInterval.toMilliseconds(),
+                refreshInterval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    void poll() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to refresh the tag index", e);
+        }
+    }
+
+    /**
+     * Applies the tag changes logged since the index was loaded or last refreshed. Once deletes it has not seen may
+     * have been purged the index is dropped and loaded again on next use.
+     */
+    void refresh() {
+        final long since;
+        lock.readLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+
+            since = lastRevision;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final boolean purged = since < changeLogDao.floor();
+        final List<ChangeLogEntry> entries = purged ? Collections.emptyList() : changeLogDao.since(since, POLL_LIMIT);
+        final Map<Long, Tag> named = named(entries);
+
+        lock.writeLock().lock();
+        try {
+            // a reload in the meantime has already read past these entries
+            if (!loaded || since != lastRevision) {
+                return;
+            }
+
+            if (purged) {
+                postings.clear();
+                tagIdsByValue.clear();
+                tags.clear();
+                groupsByTagId.clear();
+                overflowed = false;
+                loaded = false;
+                return;
+            }
+
+            for (ChangeLogEntry e : entries) {
+                apply(e, named);
+                lastRevision = e.getRevision();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The current Tags of the tag ids the entries associate or update, Tags deleted since are missing.
+     */
+    private Map<Long, Tag> named(List<ChangeLogEntry> entries) {
+        final Set<Long> tagIds = new HashSet<>();
+        for (ChangeLogEntry e : entries) {
+            if (EntityType.TAG_ASSOCIATION == e.getEntityType() && Operation.DELETE != e.getOperation()) {
+                tagIds.add(e.getRelatedId());
+            } else if (EntityType.TAG == e.getEntityType() && Operation.UPDATE == e.getOperation()) {
+                tagIds.add(e.getEntityId());
+            }
+        }
+
+        final Map<Long, Tag> named = new HashMap<>();
+        if (!tagIds.isEmpty()) {
+            for (Tag t : tagDao.byIds(tagIds)) {
+                named.put(t.getId(), t);
+            }
+        }
+
+        return named;
+    }
+
+    private void apply(ChangeLogEntry e, Map<Long, Tag> named) {
+        switch (e.getEntityType()) {
+        case TAG_ASSOCIATION:
+            if (Operation.DELETE == e.getOperation()) {
+                disassociated(e.getRelatedId(), e.getPropertyGroupId());
+            } else {
+                final Tag t = named.get(e.getRelatedId());
+                if (null != t) {
+                    index(e.getRelatedId(), t.getKey(), t.getValue(), e.getPropertyGroupId());
+                }
+            }
+            break;
+        case TAG:
+            if (Operation.DELETE == e.getOperation()) {
+                removed(Collections.singleton(e.getEntityId()));
+            } else if (Operation.UPDATE == e.getOperation()) {
+                reindex(e.getEntityId(), named.get(e.getEntityId()));
+            }
+            break;
+        case TAG_DOMAIN:
+            if (Operation.DELETE == e.getOperation()) {
+                domainDeleted(e.getTagKey());
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+
+            // read first so a write racing the load is applied again by the next refresh
+            lastRevision = changeLogDao.latest();
+            try (ResultIterator<PropertyGroupTag> it = tagDao.iterateAssociations(LOAD_FETCH_SIZE)) {
+                while (it.hasNext()) {
+                    final PropertyGroupTag pgt = it.next();
+                    final Tag t = pgt.getTag();
+                    index(t.getId(), t.getKey(), t.getValue(), pgt.getPropertyGroupId());
+                }
+            }
+
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long tagId, String key, String value, Long propertyGroupId) {
+        if (propertyGroupId > Integer.MAX_VALUE) {
+            overflowed = true;
+            return;
+        }
+
+        final Tag t = normalize(key, value);
+        final int bit = propertyGroupId.intValue();
+        tags.put(tagId, t);
+        groupsByTagId.computeIfAbsent(tagId, k -> new HashSet<>()).add(propertyGroupId);
+        tagIdsByValue.computeIfAbsent(t, k -> new HashSet<>()).add(tagId);
+        postings.computeIfAbsent(t, k -> new BitSet()).set(bit);
+    }
+
+    /**
+     * Clears the groups from the posting of the tag unless another tag with the same key and value still holds them.
+     */
+    private void unindex(Tag t, Long tagId, Collection<Long> groups) {
+        final BitSet posting = postings.get(t);
+        if (null == posting) {
+            return;
+        }
+
+        for (Long pgId : groups) {
+            boolean held = false;
+            for (Long other : tagIdsByValue.getOrDefault(t, Collections.emptySet())) {
+                if (!other.equals(tagId) && groupsByTagId.getOrDefault(other, Collections.emptySet()).contains(pgId)) {
+                    held = true;
+                    break;
+                }
+            }
+
+            if (!held) {
+                posting.clear(pgId.intValue());
+            }
+        }
+
+        if (posting.isEmpty()) {
+            postings.remove(t);
+        }
+    }
+
+    private void forget(Long tagId) {
+        final Tag t = tags.remove(tagId);
+        groupsByTagId.remove(tagId);
+        if (null == t) {
+            return;
+        }
+
+        final Set<Long> ids = tagIdsByValue.get(t);
+        if (null != ids) {
+            ids.remove(tagId);
+            if (ids.isEmpty()) {
+                tagIdsByValue.remove(t);
+            }
+        }
+    }
+
+    private static Tag normalize(String key, String value) {
+        final Tag t = new Tag();
+        t.setKey(key.toUpperCase());
+        t.setValue(value);
+        return t;
+    }
+}
@@ -22,8 +22,10 @@
  */
 package org.mattcarrier.erector.persistence;
 
+import org.mattcarrier.erector.dao.ChangeLogDao;
 import org.mattcarrier.erector.dao.PropertyDao;
 import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
 import org.mattcarrier.erector.dao.TagDao;
 import org.mattcarrier.erector.persistence.jdbi.JDBIPersistenceFactory;
 
@@ -39,4 +41,37 @@ public interface PersistenceFactory extends Discoverable {
     public TagDao tagDao();
     public PropertyDao propertyDao();
     public PropertyGroupDao propertyGroupDao();
+    public RevisionDao revisionDao();
+    public ChangeLogDao changeLogDao();
+
+    public default ReadScope readScope() {
+        return ReadScope.DIRECT;
+    }
+
+    /**
+     * Backends without snapshots read through their own DAOs, each iterator then sees the data as of when it started.
+     */
+    public default ReadSnapshot snapshot() {
+        final PersistenceFactory persistence = this;
+        return new ReadSnapshot() {
+            @Override
+            public PropertyDao propertyDao() {
+                return persistence.propertyDao();
+            }
+
+            @Override
+            public PropertyGroupDao propertyGroupDao() {
+                return persistence.propertyGroupDao();
+            }
+
+            @Override
+            public TagDao tagDao() {
+                return persistence.tagDao();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
 }
@@ -0,0 +1,47 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence;
+
+import java.util.function.Supplier;
+
+/**
+ * Groups reads that have to come from the same copy of the data, such as a revision and the entity its ETag stands
+ * for. Backends with a single copy run them as they are.
+ */
+public interface ReadScope {
+    public static final ReadScope DIRECT = new ReadScope() {
+        @Override
+        public <T> T consistently(Supplier<T> reads) {
+            return reads.get();
+        }
+    };
+
+    public <T> T consistently(Supplier<T> reads);
+
+    /**
+     * The copy the calling thread's scope reads from, null outside a scope or when there is only one.
+     */
+    public default Object source() {
+        return null;
+    }
+}
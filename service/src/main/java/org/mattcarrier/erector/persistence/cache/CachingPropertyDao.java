@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.RevisionedProperty;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class CachingPropertyDao implements PropertyDao {
+    private final PropertyDao delegate;
+    private final EntityCache<Long, Property> byId;
+    private final EntityCache<Long, RevisionedProperty> revisionedById;
+
+    public CachingPropertyDao(PropertyDao delegate, EntityCacheFactory factory, MetricRegistry metrics) {
+        this.delegate = checkNotNull(delegate);
+        this.byId = factory.build(metrics, MetricRegistry.name(PropertyDao.class, "byId", "cache"));
+        this.revisionedById = factory.build(metrics,
+                MetricRegistry.name(PropertyDao.class, "revisionedById", "cache"));
+    }
+
+    @Override
+    public long createProperty(Property p) {
+        final long id = delegate.createProperty(p);
+        invalidate(id);
+        return id;
+    }
+
+    @Override
+    public int[] createProperties(Iterable<Property> props) {
+        return delegate.createProperties(props);
+    }
+
+    @Override
+    public int updateProperty(Property p) {
+        try {
+            return delegate.updateProperty(p);
+        } finally {
+            invalidate(p.getId());
+        }
+    }
+
+    @Override
+    public int deleteProperty(Long id) {
+        try {
+            return delegate.deleteProperty(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public Property byId(Long id) {
+        return byId.get(id, () -> delegate.byId(id));
+    }
+
+    @Override
+    public List<Property> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public ResultIterator<Property> iterateAll(int fetchSize) {
+        return delegate.iterateAll(fetchSize);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        return delegate.revision(id);
+    }
+
+    @Override
+    public RevisionedProperty revisionedById(Long id) {
+        return revisionedById.get(id, () -> delegate.revisionedById(id));
+    }
+
+    @Override
+    public List<Property> byPropertyGroupId(Long propertyGroupId) {
+        return delegate.byPropertyGroupId(propertyGroupId);
+    }
+
+    @Override
+    public List<Property> filter(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return delegate.filter(bindings, sorts, cursor);
+    }
+
+    @Override
+    public int filterCount(Map<String, String> bindings) {
+        return delegate.filterCount(bindings);
+    }
+
+    private void invalidate(Long id) {
+        byId.invalidate(id);
+        revisionedById.invalidate(id);
+    }
+}
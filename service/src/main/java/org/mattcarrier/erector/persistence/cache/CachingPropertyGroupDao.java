@@ -0,0 +1,190 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class CachingPropertyGroupDao implements PropertyGroupDao {
+    private final PropertyGroupDao delegate;
+    private final EntityCache<Long, PropertyGroup> byId;
+    private final EntityCache<Long, RevisionedPropertyGroup> revisionedById;
+
+    public CachingPropertyGroupDao(PropertyGroupDao delegate, EntityCacheFactory factory, MetricRegistry metrics) {
+        this.delegate = checkNotNull(delegate);
+        this.byId = factory.build(metrics, MetricRegistry.name(PropertyGroupDao.class, "byId", "cache"));
+        this.revisionedById = factory.build(metrics,
+                MetricRegistry.name(PropertyGroupDao.class, "revisionedById", "cache"));
+    }
+
+    @Override
+    public long createPropertyGroup(PropertyGroup pg) {
+        final long id = delegate.createPropertyGroup(pg);
+        invalidate(id);
+        return id;
+    }
+
+    @Override
+    public int updatePropertyGroup(PropertyGroup pg) {
+        try {
+            return delegate.updatePropertyGroup(pg);
+        } finally {
+            invalidate(pg.getId());
+        }
+    }
+
+    @Override
+    public int deletePropertyGroup(Long id) {
+        try {
+            return delegate.deletePropertyGroup(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public PropertyGroup byId(Long id) {
+        return byId.get(id, () -> delegate.byId(id));
+    }
+
+    @Override
+    public List<PropertyGroup> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public ResultIterator<PropertyGroup> iterateAll(int fetchSize) {
+        return delegate.iterateAll(fetchSize);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        return delegate.revision(id);
+    }
+
+    @Override
+    public RevisionedPropertyGroup revisionedById(Long id) {
+        return revisionedById.get(id, () -> delegate.revisionedById(id));
+    }
+
+    @Override
+    public List<RevisionedPropertyGroup> revisionedByIds(Collection<Long> ids) {
+        return delegate.revisionedByIds(ids);
+    }
+
+    @Override
+    public int touch(Long id) {
+        try {
+            return delegate.touch(id);
+        } finally {
+            revisionedById.invalidate(id);
+        }
+    }
+
+    /**
+     * Which PropertyGroups carry the tag is not known here, so every revisioned entry is dropped.
+     */
+    @Override
+    public int touchByTagId(Long tagId) {
+        try {
+            return delegate.touchByTagId(tagId);
+        } finally {
+            revisionedById.invalidateAll();
+        }
+    }
+
+    @Override
+    public int touchByTagKey(String key) {
+        try {
+            return delegate.touchByTagKey(key);
+        } finally {
+            revisionedById.invalidateAll();
+        }
+    }
+
+    @Override
+    public long addDependency(Long parentId, Long dependentId) {
+        return delegate.addDependency(parentId, dependentId);
+    }
+
+    @Override
+    public int removeDependency(Long parentId, Long dependentId) {
+        return delegate.removeDependency(parentId, dependentId);
+    }
+
+    @Override
+    public List<PropertyGroupDependency> dependencies() {
+        return delegate.dependencies();
+    }
+
+    @Override
+    public List<PropertyGroup> filterNoTags(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return delegate.filterNoTags(bindings, sorts, cursor);
+    }
+
+    @Override
+    public int filterNoTagsCount(Map<String, String> bindings) {
+        return delegate.filterNoTagsCount(bindings);
+    }
+
+    @Override
+    public List<PropertyGroup> filterByIds(Map<String, String> bindings, List<Sort> sorts, Long[] ids,
+            Cursor cursor) {
+        return delegate.filterByIds(bindings, sorts, ids, cursor);
+    }
+
+    @Override
+    public int filterByIdsCount(Map<String, String> bindings, Long[] ids) {
+        return delegate.filterByIdsCount(bindings, ids);
+    }
+
+    @Override
+    public List<PropertyGroup> filterWithTags(Map<String, String> bindings, List<Sort> sorts, Collection<Tag> tags,
+            Cursor cursor) {
+        return delegate.filterWithTags(bindings, sorts, tags, cursor);
+    }
+
+    @Override
+    public int filterWithTagsCount(Map<String, String> bindings, Collection<Tag> tags) {
+        return delegate.filterWithTagsCount(bindings, tags);
+    }
+
+    private void invalidate(Long id) {
+        byId.invalidate(id);
+        revisionedById.invalidate(id);
+    }
+}
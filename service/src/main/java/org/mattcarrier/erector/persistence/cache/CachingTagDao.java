@@ -0,0 +1,220 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Caches the Tags of each PropertyGroup.
+ * <p/>
+ * Tag writes are keyed by tag id, so the PropertyGroups holding each cached Tag are tracked to invalidate exactly the
+ * lists a write touches. Each list also remembers the PropertyGroup's revision from before it was read and is reloaded
+ * once the revision moves past it, which catches the tag writes made through other nodes and keeps a list at least as
+ * new as a revision read before it.
+ */
+public class CachingTagDao implements TagDao {
+    private final TagDao delegate;
+    private final PropertyGroupDao pgDao;
+    private final EntityCache<Long, RevisionedTags> byPropertyGroupId;
+    private final ConcurrentMap<Long, Set<Long>> groupsByTagId = new ConcurrentHashMap<>();
+
+    public CachingTagDao(TagDao delegate, PropertyGroupDao pgDao, EntityCacheFactory factory,
+            MetricRegistry metrics) {
+        this.delegate = checkNotNull(delegate);
+        this.pgDao = checkNotNull(pgDao);
+        this.byPropertyGroupId = factory.build(metrics,
+                MetricRegistry.name(TagDao.class, "byPropertyGroupId", "cache"), this::forget);
+    }
+
+    @Override
+    public void createTagDomain(String key) {
+        delegate.createTagDomain(key);
+    }
+
+    @Override
+    public void deleteTagDomain(String key) {
+        try {
+            delegate.deleteTagDomain(key);
+        } finally {
+            byPropertyGroupId.invalidateAll();
+        }
+    }
+
+    @Override
+    public List<String> getTagDomain() {
+        return delegate.getTagDomain();
+    }
+
+    @Override
+    public Long addTag(String key, String value) {
+        return delegate.addTag(key, value);
+    }
+
+    @Override
+    public long associateTag(Long tagId, Long propertyGroupId) {
+        try {
+            return delegate.associateTag(tagId, propertyGroupId);
+        } finally {
+            byPropertyGroupId.invalidate(propertyGroupId);
+        }
+    }
+
+    @Override
+    public int[] associateTags(List<Long> tagIds, List<Long> propertyGroupIds) {
+        try {
+            return delegate.associateTags(tagIds, propertyGroupIds);
+        } finally {
+            byPropertyGroupId.invalidateAll(propertyGroupIds);
+        }
+    }
+
+    @Override
+    public int disassociateTag(Long id) {
+        try {
+            return delegate.disassociateTag(id);
+        } finally {
+            invalidateGroupsOf(Collections.singleton(id));
+        }
+    }
+
+    @Override
+    public int removeTag(Long id) {
+        try {
+            return delegate.removeTag(id);
+        } finally {
+            invalidateGroupsOf(Collections.singleton(id));
+        }
+    }
+
+    @Override
+    public int disassociateTags(Collection<Long> tagIds) {
+        try {
+            return delegate.disassociateTags(tagIds);
+        } finally {
+            invalidateGroupsOf(tagIds);
+        }
+    }
+
+    @Override
+    public int removeTags(Collection<Long> tagIds) {
+        try {
+            return delegate.removeTags(tagIds);
+        } finally {
+            invalidateGroupsOf(tagIds);
+        }
+    }
+
+    @Override
+    public int update(Tag tag) {
+        try {
+            return delegate.update(tag);
+        } finally {
+            invalidateGroupsOf(Collections.singleton(tag.getId()));
+        }
+    }
+
+    @Override
+    public Tag byId(Long id) {
+        return delegate.byId(id);
+    }
+
+    @Override
+    public Collection<Tag> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public Collection<Tag> byPropertyGroupId(Long propertyGroupId) {
+        final Long revision = pgDao.revision(propertyGroupId);
+        if (null == revision) {
+            return delegate.byPropertyGroupId(propertyGroupId);
+        }
+
+        RevisionedTags tags = byPropertyGroupId.get(propertyGroupId, () -> load(propertyGroupId, revision));
+        if (tags.revision < revision) {
+            byPropertyGroupId.invalidate(propertyGroupId);
+            tags = byPropertyGroupId.get(propertyGroupId, () -> load(propertyGroupId, revision));
+        }
+
+        return tags.tags;
+    }
+
+    private RevisionedTags load(Long propertyGroupId, long revision) {
+        final Collection<Tag> tags = ImmutableList.copyOf(delegate.byPropertyGroupId(propertyGroupId));
+        for (Tag t : tags) {
+            groupsByTagId.computeIfAbsent(t.getId(), k -> ConcurrentHashMap.newKeySet()).add(propertyGroupId);
+        }
+
+        return new RevisionedTags(revision, tags);
+    }
+
+    @Override
+    public ResultIterator<PropertyGroupTag> iterateAssociations(int fetchSize) {
+        return delegate.iterateAssociations(fetchSize);
+    }
+
+    private void invalidateGroupsOf(Collection<Long> tagIds) {
+        final Set<Long> groups = new HashSet<>();
+        for (Long tagId : tagIds) {
+            groups.addAll(groupsByTagId.getOrDefault(tagId, Collections.emptySet()));
+        }
+
+        byPropertyGroupId.invalidateAll(groups);
+    }
+
+    private void forget(Long propertyGroupId, RevisionedTags tags) {
+        for (Tag t : tags.tags) {
+            groupsByTagId.computeIfPresent(t.getId(), (k, groups) -> {
+                groups.remove(propertyGroupId);
+                return groups.isEmpty() ? null : groups;
+            });
+        }
+    }
+
+    private static final class RevisionedTags {
+        private final long revision;
+        private final Collection<Tag> tags;
+
+        private RevisionedTags(long revision, Collection<Tag> tags) {
+            this.revision = revision;
+            this.tags = tags;
+        }
+    }
+}
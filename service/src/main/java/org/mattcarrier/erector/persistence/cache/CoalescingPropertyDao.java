@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.RevisionedProperty;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.skife.jdbi.v2.ResultIterator;
+
+public class CoalescingPropertyDao implements PropertyDao {
+    private final PropertyDao delegate;
+    private final SingleFlight flight;
+
+    public CoalescingPropertyDao(PropertyDao delegate, SingleFlight flight) {
+        this.delegate = checkNotNull(delegate);
+        this.flight = checkNotNull(flight);
+    }
+
+    @Override
+    public long createProperty(Property p) {
+        try {
+            return delegate.createProperty(p);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int[] createProperties(Iterable<Property> props) {
+        try {
+            return delegate.createProperties(props);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int updateProperty(Property p) {
+        try {
+            return delegate.updateProperty(p);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int deleteProperty(Long id) {
+        try {
+            return delegate.deleteProperty(id);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public Property byId(Long id) {
+        return flight.execute(Arrays.asList("property.byId", id), () -> delegate.byId(id));
+    }
+
+    @Override
+    public List<Property> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public ResultIterator<Property> iterateAll(int fetchSize) {
+        return delegate.iterateAll(fetchSize);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        return flight.execute(Arrays.asList("property.revision", id), () -> delegate.revision(id));
+    }
+
+    @Override
+    public RevisionedProperty revisionedById(Long id) {
+        return flight.execute(Arrays.asList("property.revisionedById", id), () -> delegate.revisionedById(id));
+    }
+
+    @Override
+    public List<Property> byPropertyGroupId(Long propertyGroupId) {
+        return flight.execute(Arrays.asList("property.byPropertyGroupId", propertyGroupId),
+                () -> delegate.byPropertyGroupId(propertyGroupId));
+    }
+
+    @Override
+    public List<Property> filter(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return flight.execute(Arrays.asList("property.filter", bindings, sorts, cursor),
+                () -> delegate.filter(bindings, sorts, cursor));
+    }
+
+    @Override
+    public int filterCount(Map<String, String> bindings) {
+        return flight.execute(Arrays.asList("property.filterCount", bindings), () -> delegate.filterCount(bindings));
+    }
+}
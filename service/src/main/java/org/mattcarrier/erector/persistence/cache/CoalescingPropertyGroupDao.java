@@ -0,0 +1,194 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Coalesces the reads of PropertyGroups. Searches by tag are passed through as tags are written through the TagDao,
+ * which does not forget in-flight reads.
+ */
+public class CoalescingPropertyGroupDao implements PropertyGroupDao {
+    private final PropertyGroupDao delegate;
+    private final SingleFlight flight;
+
+    public CoalescingPropertyGroupDao(PropertyGroupDao delegate, SingleFlight flight) {
+        this.delegate = checkNotNull(delegate);
+        this.flight = checkNotNull(flight);
+    }
+
+    @Override
+    public long createPropertyGroup(PropertyGroup pg) {
+        try {
+            return delegate.createPropertyGroup(pg);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int updatePropertyGroup(PropertyGroup pg) {
+        try {
+            return delegate.updatePropertyGroup(pg);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int deletePropertyGroup(Long id) {
+        try {
+            return delegate.deletePropertyGroup(id);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public PropertyGroup byId(Long id) {
+        return flight.execute(Arrays.asList("propertyGroup.byId", id), () -> delegate.byId(id));
+    }
+
+    @Override
+    public List<PropertyGroup> byIds(Collection<Long> ids) {
+        return delegate.byIds(ids);
+    }
+
+    @Override
+    public ResultIterator<PropertyGroup> iterateAll(int fetchSize) {
+        return delegate.iterateAll(fetchSize);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        return flight.execute(Arrays.asList("propertyGroup.revision", id), () -> delegate.revision(id));
+    }
+
+    @Override
+    public RevisionedPropertyGroup revisionedById(Long id) {
+        return flight.execute(Arrays.asList("propertyGroup.revisionedById", id), () -> delegate.revisionedById(id));
+    }
+
+    @Override
+    public List<RevisionedPropertyGroup> revisionedByIds(Collection<Long> ids) {
+        return delegate.revisionedByIds(ids);
+    }
+
+    @Override
+    public int touch(Long id) {
+        try {
+            return delegate.touch(id);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int touchByTagId(Long tagId) {
+        try {
+            return delegate.touchByTagId(tagId);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int touchByTagKey(String key) {
+        try {
+            return delegate.touchByTagKey(key);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public long addDependency(Long parentId, Long dependentId) {
+        try {
+            return delegate.addDependency(parentId, dependentId);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public int removeDependency(Long parentId, Long dependentId) {
+        try {
+            return delegate.removeDependency(parentId, dependentId);
+        } finally {
+            flight.forget();
+        }
+    }
+
+    @Override
+    public List<PropertyGroupDependency> dependencies() {
+        return delegate.dependencies();
+    }
+
+    @Override
+    public List<PropertyGroup> filterNoTags(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return flight.execute(Arrays.asList("propertyGroup.filterNoTags", bindings, sorts, cursor),
+                () -> delegate.filterNoTags(bindings, sorts, cursor));
+    }
+
+    @Override
+    public int filterNoTagsCount(Map<String, String> bindings) {
+        return flight.execute(Arrays.asList("propertyGroup.filterNoTagsCount", bindings),
+                () -> delegate.filterNoTagsCount(bindings));
+    }
+
+    @Override
+    public List<PropertyGroup> filterByIds(Map<String, String> bindings, List<Sort> sorts, Long[] ids,
+            Cursor cursor) {
+        return delegate.filterByIds(bindings, sorts, ids, cursor);
+    }
+
+    @Override
+    public int filterByIdsCount(Map<String, String> bindings, Long[] ids) {
+        return delegate.filterByIdsCount(bindings, ids);
+    }
+
+    @Override
+    public List<PropertyGroup> filterWithTags(Map<String, String> bindings, List<Sort> sorts, Collection<Tag> tags,
+            Cursor cursor) {
+        return delegate.filterWithTags(bindings, sorts, tags, cursor);
+    }
+
+    @Override
+    public int filterWithTagsCount(Map<String, String> bindings, Collection<Tag> tags) {
+        return delegate.filterWithTagsCount(bindings, tags);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Caches the totals of search queries per global revision. Any write moves the revision, so a cached count is never
+ * served after a write has committed; entries for old revisions simply age out of the cache.
+ */
+public class CountCache {
+    private final EntityCache<List<Object>, Integer> cache;
+
+    public CountCache(EntityCacheFactory factory, MetricRegistry metrics) {
+        this.cache = factory.isEnabled() ? factory.build(metrics, MetricRegistry.name(CountCache.class)) : null;
+    }
+
+    /**
+     * @param query
+     *            name of the count query
+     * @param filter
+     *            everything the count depends on besides the revision, compared by equals
+     */
+    public int get(long revision, String query, Object filter, Supplier<Integer> count) {
+        if (null == cache) {
+            return count.get();
+        }
+
+        return cache.get(Arrays.asList(revision, query, filter), count);
+    }
+}
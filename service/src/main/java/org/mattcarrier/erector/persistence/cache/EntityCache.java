@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Bounded read-through cache of DAO lookups.
+ * <p/>
+ * A lookup that races with an invalidation is returned to its caller but not cached, so a write can never be
+ * shadowed by a read that started before it. Misses are not cached either: a row created by a write this cache never
+ * sees, like a batch insert or a write on another node, is found on its first lookup.
+ * <p/>
+ * The removal callback is not told about a value replaced by a concurrent load of the same key, since the value that
+ * replaced it is still cached.
+ */
+public class EntityCache<K, V> {
+    private final Cache<K, V> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    EntityCache(EntityCacheFactory factory, MetricRegistry metrics, String name, BiConsumer<K, V> onRemoval) {
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(factory.getMaximumSize())
+                .expireAfterWrite(factory.getExpireAfterWrite().toNanoseconds(), TimeUnit.NANOSECONDS)
+                .recordStats();
+        if (null == onRemoval) {
+            this.cache = builder.build();
+        } else {
+            this.cache = builder.removalListener((RemovalNotification<K, V> n) -> {
+                if (null != n.getValue() && RemovalCause.REPLACED != n.getCause()) {
+                    onRemoval.accept(n.getKey(), n.getValue());
+                }
+            }).build();
+        }
+
+        metrics.register(MetricRegistry.name(name, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.register(MetricRegistry.name(name, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.register(MetricRegistry.name(name, "evictions"),
+                (Gauge<Long>) () -> cache.stats().evictionCount());
+        metrics.register(MetricRegistry.name(name, "hitRatio"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.register(MetricRegistry.name(name, "size"), (Gauge<Long>) cache::size);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        final V cached = cache.getIfPresent(key);
+        if (null != cached) {
+            return cached;
+        }
+
+        final long stamp = generation.get();
+        final V value = loader.get();
+        if (null != value && stamp == generation.get()) {
+            cache.put(key, value);
+        }
+
+        return value;
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll(Iterable<K> keys) {
+        generation.incrementAndGet();
+        cache.invalidateAll(keys);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
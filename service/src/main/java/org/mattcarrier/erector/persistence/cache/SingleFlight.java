@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.mattcarrier.erector.persistence.ReadScope;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * Shares one in-flight DAO read between every caller asking for the same key at the same time.
+ * <p/>
+ * Writes forget the in-flight reads once they complete, so a read arriving after a write returned never joins a
+ * query that started before it. Reads inside a {@link ReadScope} only join reads from the same copy of the data.
+ */
+public class SingleFlight {
+    private final ConcurrentMap<Object, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final Meter queries;
+    private final Meter coalesced;
+    private final ReadScope scope;
+
+    public SingleFlight(MetricRegistry metrics, ReadScope scope) {
+        this.scope = checkNotNull(scope);
+        this.queries = metrics.meter(MetricRegistry.name(SingleFlight.class, "queries"));
+        this.coalesced = metrics.meter(MetricRegistry.name(SingleFlight.class, "coalesced"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> query) {
+        final Object source = scope.source();
+        final Object flightKey = null == source ? key : Arrays.asList(key, source);
+        final CompletableFuture<Object> mine = new CompletableFuture<>();
+        final CompletableFuture<Object> flight = flights.putIfAbsent(flightKey, mine);
+        if (null != flight) {
+            coalesced.mark();
+            try {
+                return (T) flight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) { throw (RuntimeException) e.getCause(); }
+                if (e.getCause() instanceof Error) { throw (Error) e.getCause(); }
+                throw e;
+            }
+        }
+
+        queries.mark();
+        try {
+            final T result = query.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(flightKey, mine);
+        }
+    }
+
+    public void forget() {
+        flights.clear();
+    }
+
+    /**
+     * Share of reads over the last minute that joined a query already in flight.
+     */
+    public Gauge<Double> ratioGauge() {
+        return new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(coalesced.getOneMinuteRate(),
+                        coalesced.getOneMinuteRate() + queries.getOneMinuteRate());
+            }
+        };
+    }
+
+    public Gauge<Integer> inFlightGauge() {
+        return flights::size;
+    }
+}
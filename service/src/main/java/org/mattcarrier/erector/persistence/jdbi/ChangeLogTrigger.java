@@ -0,0 +1,193 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.h2.api.Trigger;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+
+/**
+ * H2 row trigger appending one ChangeLog row per changed row, so the log entry commits or rolls back with the write
+ * itself. Updates that only move the revision column, which is how a PropertyGroup is touched when something it owns
+ * changes, are not logged since the owned entity already has its own entry. TagKey rows are logged by name as
+ * changes to the tag domain. An update that moves a row to another PropertyGroup is logged for the PropertyGroup it
+ * left as well, so readers of either group notice.
+ * <p/>
+ * Installed as a BEFORE trigger it locks the single RevisionLock row until the transaction ends and stamps the row's
+ * revision afterwards. Every revision a transaction takes is therefore drawn after all transactions holding smaller
+ * revisions committed, so once revision N is visible every revision below N is visible too and readers can safely
+ * advance their watermark to the largest revision they have seen. Since the lock is taken before any row is written,
+ * writers always acquire their locks in the same order.
+ */
+public class ChangeLogTrigger implements Trigger {
+    private static final String LOCK = "UPDATE RevisionLock SET id = id WHERE id = 1";
+    private static final String NEXT_REVISION = "SELECT NEXT VALUE FOR revisionSeq";
+    private static final String INSERT = "INSERT INTO ChangeLog(revision, entityType, entityId, operation, propertyGroupId, relatedId, tagKey) VALUES(NEXT VALUE FOR revisionSeq, ?, ?, ?, ?, ?, ?)";
+
+    private boolean before;
+    private EntityType entityType;
+    private int id;
+    private int propertyGroupId = -1;
+    private int relatedId = -1;
+    private int tagKey = -1;
+    private int revision = -1;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+            int type) throws SQLException {
+        final Map<String, Integer> columns = new HashMap<>();
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                columns.put(rs.getString("COLUMN_NAME"), rs.getInt("ORDINAL_POSITION") - 1);
+            }
+        }
+
+        id = columns.get("ID");
+        revision = columns.getOrDefault("REVISION", -1);
+        this.before = before;
+        if (before) {
+            return;
+        }
+
+        switch (tableName) {
+        case "PROPERTYGROUP":
+            entityType = EntityType.PROPERTY_GROUP;
+            propertyGroupId = id;
+            break;
+        case "PROPERTYGROUPXREF":
+            entityType = EntityType.PROPERTY_GROUP_DEPENDENCY;
+            propertyGroupId = columns.get("DEPENDENTID");
+            relatedId = columns.get("PARENTID");
+            break;
+        case "PROPERTY":
+            entityType = EntityType.PROPERTY;
+            propertyGroupId = columns.get("PROPERTYGROUPID");
+            break;
+        case "TAG":
+            entityType = EntityType.TAG;
+            break;
+        case "TAGKEY":
+            entityType = EntityType.TAG_DOMAIN;
+            id = -1;
+            tagKey = columns.get("NAME");
+            break;
+        case "TAGPROPERTYGROUPXREF":
+            entityType = EntityType.TAG_ASSOCIATION;
+            propertyGroupId = columns.get("PROPERTYGROUPID");
+            relatedId = columns.get("TAGID");
+            break;
+        default:
+            throw new SQLException("No change log mapping for table " + tableName);
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (before) {
+            lock(conn, newRow);
+            return;
+        }
+
+        final Operation operation = null == oldRow ? Operation.INSERT
+                : null == newRow ? Operation.DELETE : Operation.UPDATE;
+        if (Operation.UPDATE == operation && onlyRevisionChanged(oldRow, newRow)) {
+            return;
+        }
+
+        log(conn, operation, null == newRow ? oldRow : newRow);
+        if (Operation.UPDATE == operation && -1 != propertyGroupId
+                && !Objects.equals(oldRow[propertyGroupId], newRow[propertyGroupId])) {
+            log(conn, operation, oldRow);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+    }
+
+    @Override
+    public void remove() throws SQLException {
+    }
+
+    private void log(Connection conn, Operation operation, Object[] row) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            ps.setString(1, entityType.name());
+            setColumn(ps, 2, row, id);
+            ps.setString(3, operation.name());
+            setColumn(ps, 4, row, propertyGroupId);
+            setColumn(ps, 5, row, relatedId);
+            if (-1 == tagKey) {
+                ps.setNull(6, Types.VARCHAR);
+            } else {
+                ps.setString(6, (String) row[tagKey]);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private void lock(Connection conn, Object[] newRow) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(LOCK)) {
+            ps.executeUpdate();
+        }
+
+        if (-1 == revision || null == newRow) {
+            return;
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(NEXT_REVISION); ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            newRow[revision] = rs.getLong(1);
+        }
+    }
+
+    private boolean onlyRevisionChanged(Object[] oldRow, Object[] newRow) {
+        if (-1 == revision) {
+            return false;
+        }
+
+        for (int i = 0; i < newRow.length; i++) {
+            if (i != revision && !Objects.equals(oldRow[i], newRow[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void setColumn(PreparedStatement ps, int parameter, Object[] row, int column) throws SQLException {
+        if (-1 == column) {
+            ps.setNull(parameter, Types.BIGINT);
+        } else {
+            ps.setObject(parameter, row[column]);
+        }
+    }
+}
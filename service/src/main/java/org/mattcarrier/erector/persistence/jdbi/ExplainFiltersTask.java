@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.mattcarrier.erector.persistence.jdbi.FilterQueryLog.Query;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.Argument;
+import org.skife.jdbi.v2.util.StringColumnMapper;
+
+import com.google.common.collect.ImmutableMultimap;
+
+import io.dropwizard.servlets.tasks.Task;
+
+/**
+ * Runs {@code EXPLAIN ANALYZE} on the most frequent and the slowest filter queries seen so far, with the arguments of
+ * their slowest execution, and reports the indexes each one used and whether it scanned a table, e.g.
+ * {@code curl -X POST 'http://localhost:8081/tasks/explain-filters?limit=10'}.
+ */
+public class ExplainFiltersTask extends Task {
+    private static final Pattern ACCESS = Pattern.compile("/\\* PUBLIC\\.([\\w.]+)(:[^*]*)? \\*/");
+
+    private final DBI jdbi;
+    private final FilterQueryLog log;
+
+    public ExplainFiltersTask(DBI jdbi, FilterQueryLog log) {
+        super("explain-filters");
+        this.jdbi = checkNotNull(jdbi);
+        this.log = checkNotNull(log);
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        final int limit = parameters.containsKey("limit")
+                ? Integer.parseInt(parameters.get("limit").iterator().next()) : 5;
+        final Set<Query> queries = new LinkedHashSet<>(log.mostFrequent(limit));
+        queries.addAll(log.slowest(limit));
+        if (queries.isEmpty()) {
+            output.println("no filter queries recorded yet");
+            return;
+        }
+
+        try (Handle h = jdbi.open()) {
+            for (Query q : queries) {
+                output.printf("%s executed %d times, slowest %dms%n", q.getName(), q.getCount(),
+                        TimeUnit.NANOSECONDS.toMillis(q.getSlowest()));
+                output.println(q.getSql());
+
+                final org.skife.jdbi.v2.Query<String> explain = h.createQuery("EXPLAIN ANALYZE " + q.getSql())
+                        .map(StringColumnMapper.INSTANCE);
+                for (Entry<String, Argument> a : q.getArguments().entrySet()) {
+                    explain.bind(a.getKey(), a.getValue());
+                }
+
+                final String plan = explain.first();
+                for (String access : access(plan)) {
+                    output.println("  " + access);
+                }
+
+                output.println(plan);
+                output.println();
+            }
+        }
+    }
+
+    /**
+     * Describes how every table of the plan was read, a condition after the index means it was searched rather than
+     * read in full.
+     */
+    static List<String> access(String plan) {
+        final List<String> access = new ArrayList<>();
+        final Matcher m = ACCESS.matcher(plan);
+        while (m.find()) {
+            final String target = m.group(1);
+            if (target.endsWith(".tableScan")) {
+                access.add("TABLE SCAN of " + target.substring(0, target.length() - ".tableScan".length()));
+            } else if (null == m.group(2)) {
+                access.add("FULL SCAN of index " + target);
+            } else {
+                access.add("index " + target + m.group(2).replaceAll("\\s+", " ").trim());
+            }
+        }
+
+        return access;
+    }
+}
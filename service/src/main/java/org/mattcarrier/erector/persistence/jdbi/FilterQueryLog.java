@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.Argument;
+
+/**
+ * Counts the rendered filter queries of {@link PropertyDao} and {@link PropertyGroupDao} by their SQL, which differs
+ * per combination of filter fields, tags and sorts, and keeps the arguments of the slowest execution of each so it
+ * can be explained later.
+ */
+public class FilterQueryLog {
+    private static final int MAXIMUM_QUERIES = 1000;
+    private static final Pattern PARAMETER = Pattern.compile("(?<!:):(\\w+)");
+
+    public static class Query {
+        private final String name;
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private volatile long slowest = -1;
+        private volatile Map<String, Argument> arguments = Collections.emptyMap();
+
+        Query(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Nanoseconds.
+         */
+        public long getSlowest() {
+            return slowest;
+        }
+
+        public Map<String, Argument> getArguments() {
+            return arguments;
+        }
+
+        void executed(long elapsed, StatementContext ctx) {
+            count.increment();
+            if (elapsed > slowest) {
+                slower(elapsed, ctx);
+            }
+        }
+
+        private synchronized void slower(long elapsed, StatementContext ctx) {
+            if (elapsed <= slowest) {
+                return;
+            }
+
+            // the statement's binding is cleared once it closes so the arguments are copied
+            final Map<String, Argument> copy = new LinkedHashMap<>();
+            final Matcher m = PARAMETER.matcher(sql);
+            while (m.find()) {
+                copy.put(m.group(1), ctx.getBinding().forName(m.group(1)));
+            }
+
+            arguments = copy;
+            slowest = elapsed;
+        }
+    }
+
+    private final ConcurrentMap<String, Query> queries = new ConcurrentHashMap<>();
+
+    public void record(long elapsed, StatementContext ctx) {
+        final Method method = ctx.getSqlObjectMethod();
+        final Class<?> type = ctx.getSqlObjectType();
+        if (null == method || !method.getName().startsWith("filter")
+                || (PropertyDao.class != type && PropertyGroupDao.class != type)) {
+            return;
+        }
+
+        final String sql = ctx.getLocatedSql();
+        Query q = queries.get(sql);
+        if (null == q) {
+            if (queries.size() >= MAXIMUM_QUERIES) {
+                return;
+            }
+
+            q = queries.computeIfAbsent(sql, s -> new Query(type.getSimpleName() + "." + method.getName(), s));
+        }
+
+        q.executed(elapsed, ctx);
+    }
+
+    public List<Query> mostFrequent(int limit) {
+        return top(limit, Comparator.comparingLong(Query::getCount));
+    }
+
+    public List<Query> slowest(int limit) {
+        return top(limit, Comparator.comparingLong(Query::getSlowest));
+    }
+
+    private List<Query> top(int limit, Comparator<Query> by) {
+        return queries.values().stream().sorted(by.reversed()).limit(limit).collect(Collectors.toList());
+    }
+}
@@ -26,10 +26,18 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 import org.mattcarrier.erector.ErectorConfiguration;
+import org.mattcarrier.erector.dao.ChangeLogDao;
 import org.mattcarrier.erector.dao.PropertyDao;
 import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
 import org.mattcarrier.erector.dao.TagDao;
 import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.mattcarrier.erector.persistence.ReadScope;
+import org.mattcarrier.erector.persistence.ReadSnapshot;
+import org.mattcarrier.erector.persistence.cache.CachingPropertyDao;
+import org.mattcarrier.erector.persistence.cache.CachingPropertyGroupDao;
+import org.mattcarrier.erector.persistence.cache.CachingTagDao;
+import org.mattcarrier.erector.persistence.cache.EntityCacheFactory;
 import org.skife.jdbi.v2.DBI;
 
 import com.fasterxml.jackson.annotation.JsonTypeName;
@@ -41,6 +49,7 @@ import io.dropwizard.flyway.FlywayConfiguration;
 import io.dropwizard.flyway.FlywayFactory;
 import io.dropwizard.jdbi.DBIFactory;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 
 @JsonTypeName("jdbi")
 public class JDBIPersistenceFactory implements PersistenceFactory, DatabaseConfiguration<ErectorConfiguration>,
@@ -56,27 +65,120 @@ public class JDBIPersistenceFactory implements PersistenceFactory, DatabaseConfi
     @NotNull
     private FlywayFactory flywayFactory = new FlywayFactory();
 
+    @Valid
+    @NotNull
+    private EntityCacheFactory cache = new EntityCacheFactory();
+
+    @Valid
+    @NotNull
+    private ReplicasFactory replicas = new ReplicasFactory();
+
+    @NotNull
+    private Duration slowQueryThreshold = Duration.milliseconds(500);
+
     private DBI jdbi;
+    private PropertyGroupDao propertyGroupDao;
+    private TagDao tagDao;
+    private PropertyDao propertyDao;
+    private RevisionDao revisionDao;
+    private ChangeLogDao changeLogDao;
+    private ReadScope readScope = ReadScope.DIRECT;
 
     @Override
     public void initialize(Environment env) {
         final DBIFactory factory = new DBIFactory();
         this.jdbi = factory.build(env, database, name);
+        final FilterQueryLog filterQueries = new FilterQueryLog();
+        final StatementTimingCollector timing = new StatementTimingCollector(env.metrics(), slowQueryThreshold,
+                filterQueries);
+        jdbi.setTimingCollector(timing);
+        env.admin().addTask(new ExplainFiltersTask(jdbi, filterQueries));
+
+        this.propertyGroupDao = jdbi.onDemand(PropertyGroupDao.class);
+        this.tagDao = jdbi.onDemand(TagDao.class);
+        this.propertyDao = jdbi.onDemand(PropertyDao.class);
+        this.revisionDao = jdbi.onDemand(RevisionDao.class);
+        this.changeLogDao = jdbi.onDemand(ChangeLogDao.class);
+        if (replicas.isEnabled()) {
+            final ReplicaRouter router = replicas.build(env, name, revisionDao, timing);
+            this.propertyGroupDao = router.route(PropertyGroupDao.class, propertyGroupDao);
+            this.tagDao = router.route(TagDao.class, tagDao);
+            this.propertyDao = router.route(PropertyDao.class, propertyDao);
+            this.revisionDao = router.route(RevisionDao.class, revisionDao);
+            this.readScope = router;
+        }
+        if (cache.isEnabled()) {
+            this.propertyGroupDao = new CachingPropertyGroupDao(propertyGroupDao, cache, env.metrics());
+            this.tagDao = new CachingTagDao(tagDao, propertyGroupDao, cache, env.metrics());
+            this.propertyDao = new CachingPropertyDao(propertyDao, cache, env.metrics());
+        }
     }
 
     @Override
     public PropertyGroupDao propertyGroupDao() {
-        return jdbi.onDemand(PropertyGroupDao.class);
+        return propertyGroupDao;
     }
 
     @Override
     public TagDao tagDao() {
-        return jdbi.onDemand(TagDao.class);
+        return tagDao;
     }
 
     @Override
     public PropertyDao propertyDao() {
-        return jdbi.onDemand(PropertyDao.class);
+        return propertyDao;
+    }
+
+    @Override
+    public RevisionDao revisionDao() {
+        return revisionDao;
+    }
+
+    @Override
+    public ChangeLogDao changeLogDao() {
+        return changeLogDao;
+    }
+
+    @Override
+    public ReadScope readScope() {
+        return readScope;
+    }
+
+    @Override
+    public ReadSnapshot snapshot() {
+        return new JDBIReadSnapshot(jdbi);
+    }
+
+    public DataSourceFactory getDatabase() {
+        return database;
+    }
+
+    public void setDatabase(DataSourceFactory database) {
+        this.database = database;
+    }
+
+    public EntityCacheFactory getCache() {
+        return cache;
+    }
+
+    public void setCache(EntityCacheFactory cache) {
+        this.cache = cache;
+    }
+
+    public ReplicasFactory getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(ReplicasFactory replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
     }
 
     @Override
@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import java.sql.SQLException;
+
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.persistence.ReadSnapshot;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionIsolationLevel;
+import org.skife.jdbi.v2.exceptions.TransactionException;
+
+/**
+ * Attaches the DAOs to one handle inside a read only, repeatable read transaction, so every statement reads the same
+ * state of the primary. The transaction is rolled back and the connection's settings restored on close.
+ */
+public class JDBIReadSnapshot implements ReadSnapshot {
+    private final Handle handle;
+    private final TransactionIsolationLevel isolation;
+    private final boolean readOnly;
+
+    public JDBIReadSnapshot(DBI jdbi) {
+        this.handle = jdbi.open();
+        try {
+            this.isolation = handle.getTransactionIsolationLevel();
+            this.readOnly = handle.getConnection().isReadOnly();
+            handle.getConnection().setReadOnly(true);
+            handle.setTransactionIsolation(TransactionIsolationLevel.REPEATABLE_READ);
+            handle.begin();
+        } catch (SQLException | RuntimeException e) {
+            handle.close();
+            throw new TransactionException("Unable to start a read only transaction", e);
+        }
+    }
+
+    @Override
+    public PropertyDao propertyDao() {
+        return handle.attach(PropertyDao.class);
+    }
+
+    @Override
+    public PropertyGroupDao propertyGroupDao() {
+        return handle.attach(PropertyGroupDao.class);
+    }
+
+    @Override
+    public TagDao tagDao() {
+        return handle.attach(TagDao.class);
+    }
+
+    @Override
+    public void close() {
+        try {
+            handle.rollback();
+            handle.setTransactionIsolation(isolation);
+            handle.getConnection().setReadOnly(readOnly);
+        } catch (SQLException e) {
+            throw new TransactionException("Unable to restore the connection", e);
+        } finally {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.persistence.ReadScope;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.exceptions.DBIException;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Sends the read only DAO methods ({@code byId}, {@code revisionedById}, {@code byIds}, {@code filter*},
+ * {@code byPropertyGroupId} and {@code getTagDomain}) to a replica and everything else to the primary.
+ * <p>
+ * Replication progress is measured with the revision sequence, which every write advances. Each replica's position is
+ * polled every interval and after every write through this router the primary's position becomes the minimum a
+ * replica must have reached to serve reads, so writes made through this node are visible to its later reads. Writes
+ * made through other nodes are not waited for. When no replica has caught up, or a replica read fails, the read goes
+ * to the primary.
+ * <p>
+ * Every query made inside {@link #consistently(Supplier)}, including {@link RevisionDao#current()}, goes to the one
+ * source chosen when the scope was entered, so an ETag and the entity it stands for are read from the same copy. A
+ * replica failing inside a scope is not fallen back from query by query, the whole scope is restarted on the primary.
+ */
+public class ReplicaRouter implements Managed, ReadScope {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LOAD
+    }
+
+    private final RevisionDao primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selection selection;
+    private final ScheduledExecutorService executor;
+    private final Duration interval;
+    private final AtomicLong required = new AtomicLong();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Pin> pinned = new ThreadLocal<>();
+    private final Meter replicaReads;
+    private final Meter primaryReads;
+    private volatile long primaryPosition = -1;
+
+    public ReplicaRouter(RevisionDao primary, List<DBI> replicas, Selection selection,
+            ScheduledExecutorService executor, Duration interval, MetricRegistry metrics) {
+        checkArgument(!replicas.isEmpty(), "At least one replica is required");
+        this.primary = checkNotNull(primary);
+        this.selection = checkNotNull(selection);
+        this.executor = checkNotNull(executor);
+        this.interval = checkNotNull(interval);
+        for (int i = 0; i < replicas.size(); i++) {
+            final Replica replica = new Replica(i, replicas.get(i));
+            this.replicas.add(replica);
+            metrics.register(MetricRegistry.name(ReplicaRouter.class, "replica-" + i, "lag"),
+                    (Gauge<Long>) () -> lag(replica));
+        }
+        this.replicaReads = metrics.meter(MetricRegistry.name(ReplicaRouter.class, "replica-reads"));
+        this.primaryReads = metrics.meter(MetricRegistry.name(ReplicaRouter.class, "primary-reads"));
+    }
+
+    @Override
+    public void start() throws Exception {
+        check();
+        executor.scheduleWithFixedDelay(this::checkSafely, interval.toMilliseconds(), interval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    /**
+     * Wraps the primary's DAO in one that routes its reads to the same DAO on the replicas.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T route(Class<T> type, T onPrimary) {
+        checkNotNull(onPrimary);
+        final List<T> onReplicas = new ArrayList<>();
+        for (Replica replica : replicas) {
+            onReplicas.add(replica.dbi.onDemand(type));
+        }
+
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (Object.class.equals(method.getDeclaringClass())) {
+                return invoke(method, onPrimary, args);
+            }
+
+            final Pin pin = pinned.get();
+            if (null == pin ? isRead(method) : method.isAnnotationPresent(SqlQuery.class)) {
+                final Replica replica = null == pin ? choose() : pin.replica;
+                if (null != replica) {
+                    replica.inFlight.incrementAndGet();
+                    try {
+                        final Object result = invoke(method, onReplicas.get(replica.index), args);
+                        replicaReads.mark();
+                        return result;
+                    } catch (DBIException e) {
+                        replica.position.set(-1);
+                        if (null != pin) {
+                            LOG.warn("Replica read failed, restarting the scope on the primary", e);
+                            throw e;
+                        }
+
+                        LOG.warn("Replica read failed, reading from the primary until the next check", e);
+                    } finally {
+                        replica.inFlight.decrementAndGet();
+                    }
+                }
+
+                primaryReads.mark();
+                return invoke(method, onPrimary, args);
+            }
+
+            final Object result = invoke(method, onPrimary, args);
+            if (!method.isAnnotationPresent(SqlQuery.class)) {
+                required.accumulateAndGet(primary.current(), Math::max);
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Runs the reads against one replica that has caught up, or against the primary when none has. When the replica
+     * fails meanwhile all reads are run again on the primary. Nested scopes share the outer one's source.
+     */
+    @Override
+    public <T> T consistently(Supplier<T> reads) {
+        if (null != pinned.get()) {
+            return reads.get();
+        }
+
+        final Pin pin = new Pin(choose());
+        pinned.set(pin);
+        try {
+            return reads.get();
+        } catch (RuntimeException e) {
+            // the failure may reach us wrapped, or through another thread's read of the same replica
+            if (null == pin.replica || 0 <= pin.replica.position.get()) {
+                throw e;
+            }
+
+            pinned.set(new Pin(null));
+            return reads.get();
+        } finally {
+            pinned.remove();
+        }
+    }
+
+    @Override
+    public Object source() {
+        final Pin pin = pinned.get();
+        return null == pin ? null : pin.source;
+    }
+
+    /**
+     * Polls the position of the primary and every replica, a replica that cannot be reached serves no reads until it
+     * is reachable again.
+     */
+    public void check() {
+        primaryPosition = primary.current();
+        for (Replica replica : replicas) {
+            try {
+                replica.position.set(replica.revisionDao.current());
+            } catch (DBIException e) {
+                LOG.warn("Unable to read the position of a replica", e);
+                replica.position.set(-1);
+            }
+        }
+    }
+
+    static boolean isRead(Method method) {
+        final String name = method.getName();
+        return name.equals("byId") || name.equals("revisionedById") || name.equals("byIds") || name.startsWith("filter")
+                || name.equals("byPropertyGroupId") || name.equals("getTagDomain");
+    }
+
+    private Replica choose() {
+        final long minimum = required.get();
+        if (Selection.ROUND_ROBIN == selection) {
+            final int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                final Replica replica = replicas.get((start + i) % replicas.size());
+                if (replica.position.get() >= minimum) {
+                    return replica;
+                }
+            }
+
+            return null;
+        }
+
+        Replica chosen = null;
+        for (Replica replica : replicas) {
+            if (replica.position.get() >= minimum
+                    && (null == chosen || replica.inFlight.get() < chosen.inFlight.get())) {
+                chosen = replica;
+            }
+        }
+
+        return chosen;
+    }
+
+    private Long lag(Replica replica) {
+        final long position = replica.position.get();
+        return position < 0 || primaryPosition < 0 ? null : Math.max(0, primaryPosition - position);
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to check replica positions", e);
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Pin {
+        private final Object source;
+        private final Replica replica;
+
+        private Pin(Replica replica) {
+            this.source = null == replica ? "primary" : "replica-" + replica.index;
+            this.replica = replica;
+        }
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final DBI dbi;
+        private final RevisionDao revisionDao;
+        private final AtomicLong position = new AtomicLong(-1);
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Replica(int index, DBI dbi) {
+            this.index = index;
+            this.dbi = dbi;
+            this.revisionDao = dbi.onDemand(RevisionDao.class);
+        }
+    }
+}
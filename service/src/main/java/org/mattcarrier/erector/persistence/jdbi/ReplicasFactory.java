@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.persistence.jdbi.ReplicaRouter.Selection;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.TimingCollector;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.jdbi.DBIFactory;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+
+public class ReplicasFactory {
+    @Valid
+    @NotNull
+    private List<DataSourceFactory> databases = new ArrayList<>();
+
+    @NotNull
+    private Selection selection = Selection.LEAST_LOAD;
+
+    @NotNull
+    private Duration checkInterval = Duration.seconds(1);
+
+    public List<DataSourceFactory> getDatabases() {
+        return databases;
+    }
+
+    public void setDatabases(List<DataSourceFactory> databases) {
+        this.databases = databases;
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public boolean isEnabled() {
+        return !databases.isEmpty();
+    }
+
+    public ReplicaRouter build(Environment env, String name, RevisionDao primary, TimingCollector timing) {
+        final DBIFactory factory = new DBIFactory();
+        final List<DBI> replicas = new ArrayList<>();
+        for (int i = 0; i < databases.size(); i++) {
+            final DBI replica = factory.build(env, databases.get(i), name + "-replica-" + i);
+            replica.setTimingCollector(timing);
+            replicas.add(replica);
+        }
+
+        final ReplicaRouter router = new ReplicaRouter(primary, replicas, selection,
+                env.lifecycle().scheduledExecutorService(name + "-replica-checker").threads(1).build(),
+                checkInterval, env.metrics());
+        env.lifecycle().manage(router);
+        return router;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.dropwizard.util.Duration;
+
+/**
+ * Times every statement under the DAO method that issued it, e.g.
+ * {@code org.mattcarrier.erector.dao.PropertyGroupDao.filterWithTags}, the same names Dropwizard's collector uses.
+ * Statements slower than the threshold are logged with their rendered SQL, which names the parameters but never
+ * carries the bound values since those may be property values like credentials. Filter queries are also handed to a
+ * {@link FilterQueryLog}.
+ */
+public class StatementTimingCollector implements TimingCollector {
+    private static final Logger LOG = LoggerFactory.getLogger(StatementTimingCollector.class);
+
+    private final MetricRegistry metrics;
+    private final long slowQueryThreshold;
+    private final FilterQueryLog filterQueries;
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<>();
+    private final Timer raw;
+
+    public StatementTimingCollector(MetricRegistry metrics, Duration slowQueryThreshold,
+            FilterQueryLog filterQueries) {
+        this.metrics = checkNotNull(metrics);
+        this.slowQueryThreshold = slowQueryThreshold.toNanoseconds();
+        this.filterQueries = checkNotNull(filterQueries);
+        this.raw = metrics.timer(MetricRegistry.name("sql", "raw"));
+    }
+
+    @Override
+    public void collect(long elapsedTime, StatementContext ctx) {
+        final Method method = ctx.getSqlObjectMethod();
+        final Timer timer = null == method ? raw
+                : timers.computeIfAbsent(method,
+                        m -> metrics.timer(MetricRegistry.name(ctx.getSqlObjectType(), m.getName())));
+        timer.update(elapsedTime, TimeUnit.NANOSECONDS);
+        filterQueries.record(elapsedTime, ctx);
+
+        if (elapsedTime >= slowQueryThreshold) {
+            LOG.warn("slow statement {}.{} took {}ms: {}",
+                    null == method ? "sql" : ctx.getSqlObjectType().getSimpleName(),
+                    null == method ? "raw" : method.getName(), TimeUnit.NANOSECONDS.toMillis(elapsedTime),
+                    ctx.getLocatedSql());
+        }
+    }
+}
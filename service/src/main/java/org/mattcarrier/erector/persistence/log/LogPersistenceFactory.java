@@ -0,0 +1,144 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+import javax.validation.constraints.NotNull;
+
+import org.h2.mvstore.MVStore;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.mattcarrier.erector.persistence.mvstore.MVStoreChangeLogDao;
+import org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase;
+import org.mattcarrier.erector.persistence.mvstore.MVStorePropertyDao;
+import org.mattcarrier.erector.persistence.mvstore.MVStorePropertyGroupDao;
+import org.mattcarrier.erector.persistence.mvstore.MVStoreTagDao;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.util.Size;
+import io.dropwizard.util.SizeUnit;
+import io.dropwizard.validation.MaxSize;
+import io.dropwizard.validation.MinSize;
+
+/**
+ * Serves everything from an in-memory MVStore, the working set, and makes writes durable in a {@link SegmentLog}
+ * kept in {@code directory}. The DAOs are those of the MVStore backend.
+ */
+@JsonTypeName("log")
+public class LogPersistenceFactory implements PersistenceFactory {
+    @NotNull
+    private String directory;
+
+    @NotNull
+    @MinSize(1024)
+    @MaxSize(value = 1, unit = SizeUnit.GIGABYTES)
+    private Size segmentSize = Size.megabytes(16);
+
+    @NotNull
+    private Duration snapshotInterval = Duration.minutes(10);
+
+    private PropertyGroupDao propertyGroupDao;
+    private TagDao tagDao;
+    private PropertyDao propertyDao;
+    private RevisionDao revisionDao;
+    private ChangeLogDao changeLogDao;
+
+    @Override
+    public void initialize(Environment env) {
+        final SegmentLog log = new SegmentLog(Paths.get(directory), (int) segmentSize.toBytes());
+        final MVStoreDatabase db = new MVStoreDatabase(new MVStore.Builder().autoCommitDisabled().open(), log);
+        try {
+            log.recover(db);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to recover " + directory, e);
+        }
+        env.lifecycle().manage(new LogSnapshotter(log, db,
+                env.lifecycle().scheduledExecutorService("log-snapshotter").threads(1).build(), snapshotInterval,
+                env.metrics()));
+
+        this.propertyGroupDao = new MVStorePropertyGroupDao(db);
+        this.tagDao = new MVStoreTagDao(db);
+        this.propertyDao = new MVStorePropertyDao(db);
+        this.revisionDao = db::currentRevision;
+        this.changeLogDao = new MVStoreChangeLogDao(db);
+    }
+
+    @Override
+    public PropertyGroupDao propertyGroupDao() {
+        return propertyGroupDao;
+    }
+
+    @Override
+    public TagDao tagDao() {
+        return tagDao;
+    }
+
+    @Override
+    public PropertyDao propertyDao() {
+        return propertyDao;
+    }
+
+    @Override
+    public RevisionDao revisionDao() {
+        return revisionDao;
+    }
+
+    @Override
+    public ChangeLogDao changeLogDao() {
+        return changeLogDao;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Size getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(Size segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.log;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Snapshots the database into its {@link SegmentLog} on an interval and once more on shutdown, so a restart only
+ * replays the segments written since.
+ */
+public class LogSnapshotter implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(LogSnapshotter.class);
+
+    private final SegmentLog log;
+    private final MVStoreDatabase db;
+    private final ScheduledExecutorService executor;
+    private final Duration interval;
+    private final Timer snapshots;
+
+    public LogSnapshotter(SegmentLog log, MVStoreDatabase db, ScheduledExecutorService executor, Duration interval,
+            MetricRegistry metrics) {
+        this.log = checkNotNull(log);
+        this.db = checkNotNull(db);
+        this.executor = checkNotNull(executor);
+        this.interval = checkNotNull(interval);
+        this.snapshots = metrics.timer(MetricRegistry.name(LogSnapshotter.class, "snapshots"));
+    }
+
+    @Override
+    public void start() throws Exception {
+        executor.scheduleWithFixedDelay(this::runSafely, interval.toMilliseconds(), interval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        run();
+        log.close();
+        db.stop();
+    }
+
+    public void run() {
+        final Timer.Context time = snapshots.time();
+        try {
+            log.snapshot(db);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            time.stop();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to snapshot the log", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.log;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.mattcarrier.erector.persistence.mvstore.Mutation;
+
+/**
+ * Binary form of a {@link Mutation}. Keys and values are limited to what the MVStore DAOs keep in their maps: null,
+ * {@code Long}, {@code String}, {@code long[]} and {@code Object[]} of those.
+ */
+final class MutationCodec {
+    private static final byte NULL = 0, LONG = 1, STRING = 2, LONGS = 3, OBJECTS = 4;
+
+    private MutationCodec() {
+    }
+
+    static void write(DataOutput out, Mutation m) throws IOException {
+        out.writeUTF(m.getMap());
+        writeValue(out, m.getKey());
+        writeValue(out, m.getValue());
+    }
+
+    static Mutation read(DataInput in) throws IOException {
+        return new Mutation(in.readUTF(), readValue(in), readValue(in));
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (null == value) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof String) {
+            // writeUTF is limited to 64KB
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof long[]) {
+            final long[] longs = (long[]) value;
+            out.writeByte(LONGS);
+            out.writeInt(longs.length);
+            for (long l : longs) {
+                out.writeLong(l);
+            }
+        } else if (value instanceof Object[]) {
+            final Object[] objects = (Object[]) value;
+            out.writeByte(OBJECTS);
+            out.writeInt(objects.length);
+            for (Object o : objects) {
+                writeValue(out, o);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + value.getClass());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case LONG:
+            return in.readLong();
+        case STRING:
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        case LONGS:
+            final long[] longs = new long[in.readInt()];
+            for (int i = 0; i < longs.length; i++) {
+                longs[i] = in.readLong();
+            }
+            return longs;
+        case OBJECTS:
+            final Object[] objects = new Object[in.readInt()];
+            for (int i = 0; i < objects.length; i++) {
+                objects[i] = readValue(in);
+            }
+            return objects;
+        default:
+            throw new IOException("Unknown value type " + type);
+        }
+    }
+}
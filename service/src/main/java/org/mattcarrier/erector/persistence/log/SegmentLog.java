@@ -0,0 +1,313 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.log;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.mattcarrier.erector.persistence.mvstore.Journal;
+import org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase;
+import org.mattcarrier.erector.persistence.mvstore.Mutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of the map changes of an {@link MVStoreDatabase}, split into numbered segment files that are
+ * written through a memory mapping.
+ * <p/>
+ * Every write becomes one record of {@code length, CRC32, changes}, appended at the end of the active segment and
+ * forced to disk before the write commits. A record that does not fit rolls over to the next segment. Zeroes or a
+ * checksum mismatch mark the end of a segment, which is how a record torn by a crash is dropped on recovery.
+ * <p/>
+ * {@link #snapshot(MVStoreDatabase)} writes every map to {@code snapshot-N} and continues in segment N, after which
+ * the older segments and snapshots are deleted. Recovery loads the newest snapshot and replays the segments from its
+ * number on, so a restart reads at most the changes since the last snapshot. A segment is unmapped as soon as it is
+ * closed, so deleting it frees its space right away instead of once the buffer is collected.
+ */
+public class SegmentLog implements Journal, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentLog.class);
+    private static final Pattern FILE = Pattern.compile("(segment|snapshot)-(\\d+)");
+    private static final int SNAPSHOT_MAGIC = 0x45524c53;
+    private static final int HEADER = 8;
+    private static final int REPLAY_BATCH = 1000;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private long number;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    public SegmentLog(Path directory, int segmentSize) {
+        checkArgument(segmentSize > HEADER, "Segments must hold a record");
+        this.directory = checkNotNull(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Loads the newest snapshot and the segments written after it into {@code db} and opens the last segment for
+     * appending, appends continue after the last valid record. Has to be called before the log is used.
+     */
+    public void recover(MVStoreDatabase db) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> tmp = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) tmp.filter(p -> p.toString().endsWith(".tmp"))::iterator) {
+                Files.delete(p);
+            }
+        }
+
+        final TreeMap<Long, Path> snapshots = files("snapshot");
+        final long first = snapshots.isEmpty() ? 1 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            loadSnapshot(snapshots.lastEntry().getValue(), db);
+        }
+
+        final SortedMap<Long, Path> segments = files("segment").tailMap(first);
+        int records = 0;
+        for (Entry<Long, Path> e : segments.entrySet()) {
+            close();
+            number = e.getKey();
+            channel = FileChannel.open(e.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(MapMode.READ_WRITE, 0, channel.size());
+            for (List<Mutation> changes = next(segment); null != changes; changes = next(segment)) {
+                db.apply(changes);
+                records++;
+            }
+        }
+
+        if (null == segment) {
+            open(first, segmentSize);
+        }
+        LOGGER.info("Recovered {} records from {} segments in {}", records, segments.size(), directory);
+    }
+
+    /**
+     * Reads the record at the position of {@code segment}, leaving the position at the end of the last valid record
+     * when there is none.
+     */
+    private static List<Mutation> next(MappedByteBuffer segment) throws IOException {
+        final int start = segment.position();
+        if (segment.remaining() < HEADER) {
+            return null;
+        }
+
+        final int length = segment.getInt();
+        final int checksum = segment.getInt();
+        if (length <= 0 || length > segment.remaining()) {
+            segment.position(start);
+            return null;
+        }
+
+        final byte[] payload = new byte[length];
+        segment.get(payload);
+        if (checksum != checksum(payload)) {
+            segment.position(start);
+            return null;
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final List<Mutation> changes = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            changes.add(MutationCodec.read(in));
+        }
+
+        return changes;
+    }
+
+    @Override
+    public synchronized void append(List<Mutation> mutations) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(mutations.size());
+            for (Mutation m : mutations) {
+                MutationCodec.write(out, m);
+            }
+
+            final byte[] payload = bytes.toByteArray();
+            if (segment.remaining() < HEADER + payload.length) {
+                roll(HEADER + payload.length);
+            }
+            segment.putInt(payload.length).putInt(checksum(payload)).put(payload);
+            segment.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every map of {@code db} to a new snapshot and drops the segments and snapshots it supersedes. Writes to
+     * {@code db} wait until the snapshot is complete.
+     */
+    public void snapshot(MVStoreDatabase db) throws IOException {
+        final long snapshot = db.snapshot(entries -> {
+            synchronized (this) {
+                try {
+                    final long next = number + 1;
+                    writeSnapshot(next, entries);
+                    roll(segmentSize);
+                    return next;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        for (Path p : files("segment").headMap(snapshot).values()) {
+            Files.delete(p);
+        }
+        for (Path p : files("snapshot").headMap(snapshot).values()) {
+            Files.delete(p);
+        }
+    }
+
+    private void writeSnapshot(long snapshot, Iterator<Mutation> entries) throws IOException {
+        final Path tmp = file("snapshot", snapshot).resolveSibling("snapshot.tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            while (entries.hasNext()) {
+                out.writeBoolean(true);
+                MutationCodec.write(out, entries.next());
+            }
+            out.writeBoolean(false);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        Files.move(tmp, file("snapshot", snapshot), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void loadSnapshot(Path snapshot, MVStoreDatabase db) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (SNAPSHOT_MAGIC != in.readInt()) {
+                throw new IOException(snapshot + " is not a snapshot");
+            }
+
+            final List<Mutation> batch = new ArrayList<>();
+            while (in.readBoolean()) {
+                batch.add(MutationCodec.read(in));
+                if (REPLAY_BATCH == batch.size()) {
+                    db.apply(batch);
+                    batch.clear();
+                }
+            }
+            db.apply(batch);
+        }
+    }
+
+    private void roll(int minimum) throws IOException {
+        close();
+        open(number + 1, Math.max(segmentSize, minimum));
+    }
+
+    private void open(long segmentNumber, int size) throws IOException {
+        number = segmentNumber;
+        channel = FileChannel.open(file("segment", segmentNumber), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(MapMode.READ_WRITE, 0, size);
+    }
+
+    private Path file(String kind, long fileNumber) {
+        return directory.resolve(String.format("%s-%020d", kind, fileNumber));
+    }
+
+    private TreeMap<Long, Path> files(String kind) throws IOException {
+        final TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(p -> {
+                final Matcher m = FILE.matcher(p.getFileName().toString());
+                if (m.matches() && kind.equals(m.group(1))) {
+                    files.put(Long.parseLong(m.group(2)), p);
+                }
+            });
+        }
+
+        return files;
+    }
+
+    private static int checksum(byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != segment) {
+            segment.force();
+            unmap(segment);
+            segment = null;
+        }
+        if (null != channel) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Releases the mapping through the buffer's cleaner, the Java 8 way since the API has no unmap. The buffer must
+     * not be used afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Method cleaner = buffer.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            final Object c = cleaner.invoke(buffer);
+            if (null != c) {
+                c.getClass().getMethod("clean").invoke(c);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Unable to unmap a segment, it is released once collected", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_CHANGED_AT;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_ENTITY_ID;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_ENTITY_TYPE;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_GROUP;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_OPERATION;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_RELATED;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.LOG_TAG_KEY;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.h2.mvstore.MVMap;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+
+/**
+ * Reads and compacts the change log map, whose entries are appended by the other MVStore DAOs.
+ */
+public class MVStoreChangeLogDao implements ChangeLogDao {
+    private static final String DELETE = Operation.DELETE.name();
+
+    private final MVStoreDatabase db;
+
+    public MVStoreChangeLogDao(MVStoreDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public List<ChangeLogEntry> since(long since, int limit) {
+        final MVMap<Long, Object[]> changeLog = db.read().changeLog;
+        final List<ChangeLogEntry> entries = new ArrayList<>();
+        for (Iterator<Long> it = changeLog.keyIterator(since + 1); it.hasNext() && entries.size() < limit;) {
+            final long revision = it.next();
+            final Object[] row = changeLog.get(revision);
+            if (null != row) {
+                entries.add(entry(revision, row));
+            }
+        }
+
+        return entries;
+    }
+
+    @Override
+    public long latest() {
+        final Long latest = db.read().changeLog.lastKey();
+        return null == latest ? 0 : latest;
+    }
+
+    /**
+     * Walks the log backwards, the latest change of a type is usually among the last few.
+     */
+    @Override
+    public long latestOf(String entityType) {
+        final MVMap<Long, Object[]> changeLog = db.read().changeLog;
+        for (Long revision = changeLog.lastKey(); null != revision; revision = changeLog.lowerKey(revision)) {
+            final Object[] row = changeLog.get(revision);
+            if (null != row && entityType.equals(row[LOG_ENTITY_TYPE])) {
+                return revision;
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long floor() {
+        return db.read().floor();
+    }
+
+    @Override
+    public int compact() {
+        return db.write(t -> {
+            final Map<List<Object>, Long> latest = new HashMap<>();
+            final List<Long> superseded = new ArrayList<>();
+            for (Entry<Long, Object[]> e : t.changeLog.entrySet()) {
+                final Object[] row = e.getValue();
+                final List<Object> entity = Arrays.asList(row[LOG_ENTITY_TYPE],
+                        null == row[LOG_ENTITY_ID] ? "key:" + row[LOG_TAG_KEY] : row[LOG_ENTITY_ID], row[LOG_GROUP]);
+                final Long previous = latest.put(entity, e.getKey());
+                if (null != previous) {
+                    superseded.add(previous);
+                }
+            }
+
+            superseded.forEach(revision -> db.remove(t.changeLog, revision));
+            return superseded.size();
+        });
+    }
+
+    @Override
+    public int raiseFloor(Timestamp cutoff) {
+        return db.write(t -> {
+            long floor = t.floor();
+            for (Entry<Long, Object[]> e : t.changeLog.entrySet()) {
+                final Object[] row = e.getValue();
+                if (DELETE.equals(row[LOG_OPERATION]) && (Long) row[LOG_CHANGED_AT] < cutoff.getTime()) {
+                    floor = Math.max(floor, e.getKey());
+                }
+            }
+
+            db.setFloor(floor);
+            return 1;
+        });
+    }
+
+    @Override
+    public int purgeTombstones() {
+        return db.write(t -> {
+            final List<Long> purged = new ArrayList<>();
+            for (Iterator<Long> it = t.changeLog.keyIterator(null); it.hasNext();) {
+                final long revision = it.next();
+                if (revision > t.floor()) {
+                    break;
+                }
+                if (DELETE.equals(t.changeLog.get(revision)[LOG_OPERATION])) {
+                    purged.add(revision);
+                }
+            }
+
+            purged.forEach(revision -> db.remove(t.changeLog, revision));
+            return purged.size();
+        });
+    }
+
+    private static ChangeLogEntry entry(long revision, Object[] row) {
+        final ChangeLogEntry e = new ChangeLogEntry();
+        e.setRevision(revision);
+        e.setEntityType(EntityType.valueOf((String) row[LOG_ENTITY_TYPE]));
+        e.setEntityId((Long) row[LOG_ENTITY_ID]);
+        e.setOperation(Operation.valueOf((String) row[LOG_OPERATION]));
+        e.setPropertyGroupId((Long) row[LOG_GROUP]);
+        e.setRelatedId((Long) row[LOG_RELATED]);
+        e.setTagKey((String) row[LOG_TAG_KEY]);
+        e.setChangedAt(new Date((Long) row[LOG_CHANGED_AT]));
+        return e;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+
+import com.google.common.collect.Iterators;
+
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * The MVStore backend's {@link Tables}, with the counters and change log the DAOs share.
+ * <p/>
+ * Writes are serialized, change the live maps and end with a commit, so a DAO call is persisted as a unit and a failing
+ * call is rolled back. Reads go to a read-only view of the last committed version without locking, so they never see
+ * the half-applied changes of a running write nor those of one that is rolled back. The view of a file store has to be
+ * read within the store's retention time, 45s by default. Revisions and ids come from counters kept in the
+ * {@code meta} map, change log entries are appended by the DAOs in the same commit as the write they describe.
+ * <p/>
+ * When a {@link Journal} is given every map change goes through {@link #put} and {@link #remove}, and the changes of
+ * a write are handed to the journal before it commits.
+ */
+public class MVStoreDatabase implements Managed {
+    static final int GROUP_NAME = 0, GROUP_VERSION = 1, GROUP_STATUS = 2, GROUP_REVISION = 3;
+    static final int PROPERTY_KEY = 0, PROPERTY_VALUE = 1, PROPERTY_DESCRIPTION = 2, PROPERTY_GROUP = 3,
+            PROPERTY_REVISION = 4;
+    static final int TAG_KEY = 0, TAG_VALUE = 1;
+    static final int LOG_ENTITY_TYPE = 0, LOG_ENTITY_ID = 1, LOG_OPERATION = 2, LOG_GROUP = 3, LOG_RELATED = 4,
+            LOG_TAG_KEY = 5, LOG_CHANGED_AT = 6;
+
+    private final MVStore store;
+    private final Journal journal;
+    private final List<Mutation> pending = new ArrayList<>();
+    private final Tables live;
+    private volatile Tables committed;
+
+    public MVStoreDatabase(MVStore store) {
+        this(store, null);
+    }
+
+    public MVStoreDatabase(MVStore store, Journal journal) {
+        this.store = checkNotNull(store);
+        this.journal = journal;
+        this.live = new Tables(store);
+        this.committed = commit();
+    }
+
+    /**
+     * The maps as of the last commit.
+     */
+    Tables read() {
+        return committed;
+    }
+
+    /**
+     * Runs {@code write} on the live maps exclusively and commits it, rolling back everything it changed when it
+     * fails.
+     */
+    <T> T write(Function<Tables, T> write) {
+        synchronized (store) {
+            try {
+                final T result = write.apply(live);
+                if (null != journal && !pending.isEmpty()) {
+                    journal.append(pending);
+                }
+                committed = commit();
+                return result;
+            } catch (RuntimeException e) {
+                store.rollback();
+                throw e;
+            } finally {
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Commits the live maps and returns the view of what was committed. Pages of a committed version are copied before
+     * a later write changes them, so the view stays as it is.
+     */
+    private Tables commit() {
+        final long version = store.getCurrentVersion();
+        store.commit();
+        return live.at(version);
+    }
+
+    <K, V> void put(MVMap<K, V> map, K key, V value) {
+        map.put(key, value);
+        if (null != journal) {
+            pending.add(new Mutation(map.getName(), key, value));
+        }
+    }
+
+    <K, V> V remove(MVMap<K, V> map, K key) {
+        final V removed = map.remove(key);
+        if (null != journal && null != removed) {
+            pending.add(new Mutation(map.getName(), key, null));
+        }
+        return removed;
+    }
+
+    /**
+     * Applies changes read back from a journal and commits them, without journaling them again.
+     */
+    public void apply(List<Mutation> mutations) {
+        synchronized (store) {
+            for (Mutation m : mutations) {
+                final MVMap<Object, Object> map = store.openMap(m.getMap());
+                if (m.isRemove()) {
+                    map.remove(m.getKey());
+                } else {
+                    map.put(m.getKey(), m.getValue());
+                }
+            }
+            committed = commit();
+        }
+    }
+
+    /**
+     * Runs {@code read} while writes are held off, passing every entry of every map as a put.
+     */
+    public <T> T snapshot(Function<Iterator<Mutation>, T> read) {
+        synchronized (store) {
+            final Iterator<Mutation> entries = Iterators.concat(Iterators.transform(
+                    store.getMapNames().iterator(), name -> {
+                        final MVMap<Object, Object> map = store.openMap(name);
+                        return Iterators.transform(map.entrySet().iterator(),
+                                e -> new Mutation(name, e.getKey(), e.getValue()));
+                    }));
+            return read.apply(entries);
+        }
+    }
+
+    public long currentRevision() {
+        return committed.revision();
+    }
+
+    long nextRevision() {
+        return next(Tables.REVISION);
+    }
+
+    /**
+     * Next value of the id counter of {@code map}.
+     */
+    long nextId(MVMap<?, ?> map) {
+        return next(map.getName());
+    }
+
+    void setFloor(long floor) {
+        put(live.meta, Tables.FLOOR, floor);
+    }
+
+    private long next(String counter) {
+        final long next = live.meta.getOrDefault(counter, 0L) + 1;
+        put(live.meta, counter, next);
+        return next;
+    }
+
+    void log(EntityType entityType, Long entityId, Operation operation, Long propertyGroupId, Long relatedId,
+            String tagKey) {
+        put(live.changeLog, nextRevision(), new Object[] { entityType.name(), entityId, operation.name(),
+                propertyGroupId, relatedId, tagKey, System.currentTimeMillis() });
+    }
+
+    /**
+     * Key of {@link Tables#tagsByKeyValue}, tag keys are upper cased like the JDBI backend does.
+     */
+    static String keyValue(String key, String value) {
+        return key.toUpperCase(Locale.ENGLISH) + '\u0000' + value;
+    }
+
+    void index(MVMap<Object[], Long> index, Object key, long id) {
+        put(index, Tables.entry(key, id), id);
+    }
+
+    void unindex(MVMap<Object[], Long> index, Object key, long id) {
+        remove(index, Tables.entry(key, id));
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        store.close();
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import javax.validation.constraints.Min;
+
+import org.h2.mvstore.MVStore;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import io.dropwizard.setup.Environment;
+
+/**
+ * Keeps everything in an embedded MVStore without a SQL layer, see {@link MVStoreDatabase}. The store only lives in
+ * memory when no file is configured.
+ */
+@JsonTypeName("mvstore")
+public class MVStorePersistenceFactory implements PersistenceFactory {
+    private String file;
+
+    /**
+     * Read cache of the store in MB.
+     */
+    @Min(1)
+    private int cacheSize = 16;
+
+    private PropertyGroupDao propertyGroupDao;
+    private TagDao tagDao;
+    private PropertyDao propertyDao;
+    private RevisionDao revisionDao;
+    private ChangeLogDao changeLogDao;
+
+    @Override
+    public void initialize(Environment env) {
+        final MVStoreDatabase db = new MVStoreDatabase(open());
+        env.lifecycle().manage(db);
+
+        this.propertyGroupDao = new MVStorePropertyGroupDao(db);
+        this.tagDao = new MVStoreTagDao(db);
+        this.propertyDao = new MVStorePropertyDao(db);
+        this.revisionDao = db::currentRevision;
+        this.changeLogDao = new MVStoreChangeLogDao(db);
+    }
+
+    private MVStore open() {
+        return new MVStore.Builder().fileName(file).cacheSize(cacheSize).autoCommitDisabled().open();
+    }
+
+    @Override
+    public PropertyGroupDao propertyGroupDao() {
+        return propertyGroupDao;
+    }
+
+    @Override
+    public TagDao tagDao() {
+        return tagDao;
+    }
+
+    @Override
+    public PropertyDao propertyDao() {
+        return propertyDao;
+    }
+
+    @Override
+    public RevisionDao revisionDao() {
+        return revisionDao;
+    }
+
+    @Override
+    public ChangeLogDao changeLogDao() {
+        return changeLogDao;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.ConstraintViolations.violation;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.PROPERTY_DESCRIPTION;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.PROPERTY_GROUP;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.PROPERTY_KEY;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.PROPERTY_REVISION;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.PROPERTY_VALUE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.RevisionedProperty;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+public class MVStorePropertyDao implements PropertyDao {
+    private static final List<String> FIELDS = ImmutableList.of("id", "key", "value", "description",
+            "propertyGroupId");
+
+    private final MVStoreDatabase db;
+
+    public MVStorePropertyDao(MVStoreDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public long createProperty(Property p) {
+        return db.write(t -> insert(t, p));
+    }
+
+    /**
+     * Inserts every Property in a single commit, nothing is inserted when one of them violates a constraint.
+     */
+    @Override
+    public int[] createProperties(Iterable<Property> props) {
+        return db.write(t -> {
+            final List<Property> inserted = new ArrayList<>();
+            props.forEach(p -> {
+                insert(t, p);
+                inserted.add(p);
+            });
+
+            final int[] counts = new int[inserted.size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+    }
+
+    private long insert(Tables t, Property p) {
+        check(t, null, p);
+        final long id = db.nextId(t.properties);
+        db.put(t.properties, id, row(p, db.nextRevision()));
+        db.index(t.propertiesByGroup, p.getPropertyGroupId(), id);
+        db.log(EntityType.PROPERTY, id, Operation.INSERT, p.getPropertyGroupId(), null, null);
+        return id;
+    }
+
+    @Override
+    public int updateProperty(Property p) {
+        return db.write(t -> {
+            final Object[] existing = t.properties.get(p.getId());
+            if (null == existing) {
+                return 0;
+            }
+
+            check(t, p.getId(), p);
+            final Object[] updated = row(p, db.nextRevision());
+            db.put(t.properties, p.getId(), updated);
+            if (!Objects.equals(existing[PROPERTY_GROUP], updated[PROPERTY_GROUP])) {
+                db.unindex(t.propertiesByGroup, existing[PROPERTY_GROUP], p.getId());
+                db.index(t.propertiesByGroup, p.getPropertyGroupId(), p.getId());
+            }
+            if (!Arrays.equals(Arrays.copyOf(existing, PROPERTY_REVISION),
+                    Arrays.copyOf(updated, PROPERTY_REVISION))) {
+                db.log(EntityType.PROPERTY, p.getId(), Operation.UPDATE, p.getPropertyGroupId(), null, null);
+            }
+            if (!Objects.equals(existing[PROPERTY_GROUP], updated[PROPERTY_GROUP])) {
+                db.log(EntityType.PROPERTY, p.getId(), Operation.UPDATE, (Long) existing[PROPERTY_GROUP], null, null);
+            }
+            return 1;
+        });
+    }
+
+    /**
+     * Enforces the foreign key to the PropertyGroup and the unique key per PropertyGroup.
+     */
+    private static void check(Tables t, Long id, Property p) {
+        if (null == p.getPropertyGroupId() || !t.groups.containsKey(p.getPropertyGroupId())) {
+            throw violation("PropertyGroup " + p.getPropertyGroupId() + " not found", "23506");
+        }
+
+        for (long existing : Tables.ids(t.propertiesByGroup, p.getPropertyGroupId()).toArray()) {
+            if (!Objects.equals(id, existing)
+                    && Objects.equals(p.getKey(), t.properties.get(existing)[PROPERTY_KEY])) {
+                throw violation("Property " + p.getKey() + " already exists", "23505");
+            }
+        }
+    }
+
+    @Override
+    public int deleteProperty(Long id) {
+        return db.write(t -> {
+            final Object[] existing = db.remove(t.properties, id);
+            if (null == existing) {
+                return 0;
+            }
+
+            final Long propertyGroupId = (Long) existing[PROPERTY_GROUP];
+            db.unindex(t.propertiesByGroup, propertyGroupId, id);
+            db.log(EntityType.PROPERTY, id, Operation.DELETE, propertyGroupId, null, null);
+            return 1;
+        });
+    }
+
+    @Override
+    public Property byId(Long id) {
+        return property(id, db.read().properties.get(id));
+    }
+
+    @Override
+    public List<Property> byIds(Collection<Long> ids) {
+        return properties(db.read(), ids.stream().mapToLong(Long::longValue).distinct())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public ResultIterator<Property> iterateAll(int fetchSize) {
+        return Queries.iterator(Iterators.transform(db.read().properties.entrySet().iterator(),
+                (Entry<Long, Object[]> e) -> property(e.getKey(), e.getValue())));
+    }
+
+    @Override
+    public Long revision(Long id) {
+        final Object[] row = db.read().properties.get(id);
+        return null == row ? null : (Long) row[PROPERTY_REVISION];
+    }
+
+    @Override
+    public RevisionedProperty revisionedById(Long id) {
+        final Object[] row = db.read().properties.get(id);
+        return null == row ? null : new RevisionedProperty(property(id, row), (Long) row[PROPERTY_REVISION]);
+    }
+
+    @Override
+    public List<Property> byPropertyGroupId(Long propertyGroupId) {
+        final Tables t = db.read();
+        return properties(t, Tables.ids(t.propertiesByGroup, propertyGroupId))
+                .sorted(Comparator.comparing(Property::getKey)).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Property> filter(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return Queries.page(candidates(db.read(), bindings), MVStorePropertyDao::column, bindings, FIELDS, sorts,
+                FIELDS, cursor);
+    }
+
+    @Override
+    public int filterCount(Map<String, String> bindings) {
+        return Queries.count(candidates(db.read(), bindings), MVStorePropertyDao::column, bindings, FIELDS);
+    }
+
+    /**
+     * Narrows the rows to scan with the id or PropertyGroup index when the filter has one of them.
+     */
+    private static Stream<Property> candidates(Tables t, Map<String, String> bindings) {
+        final String id = bindings.get("id");
+        if (null != id) {
+            return properties(t, Queries.id(id));
+        }
+
+        final String propertyGroupId = bindings.get("propertyGroupId");
+        if (null != propertyGroupId) {
+            return properties(t, Queries.id(propertyGroupId).flatMap(g -> Tables.ids(t.propertiesByGroup, g)));
+        }
+
+        return t.properties.entrySet().stream().map(e -> property(e.getKey(), e.getValue()));
+    }
+
+    private static Stream<Property> properties(Tables t, LongStream ids) {
+        return ids.mapToObj(id -> property(id, t.properties.get(id))).filter(Objects::nonNull);
+    }
+
+    private static Object[] row(Property p, long revision) {
+        return new Object[] { p.getKey(), p.getValue(), p.getDescription(), p.getPropertyGroupId(), revision };
+    }
+
+    private static Property property(long id, Object[] row) {
+        if (null == row) {
+            return null;
+        }
+
+        final Property p = new Property();
+        p.setId(id);
+        p.setKey((String) row[PROPERTY_KEY]);
+        p.setValue((String) row[PROPERTY_VALUE]);
+        p.setDescription((String) row[PROPERTY_DESCRIPTION]);
+        p.setPropertyGroupId((Long) row[PROPERTY_GROUP]);
+        return p;
+    }
+
+    private static Object column(Property p, String field) {
+        switch (field) {
+        case "id":
+            return p.getId();
+        case "key":
+            return p.getKey();
+        case "value":
+            return p.getValue();
+        case "description":
+            return p.getDescription();
+        case "propertyGroupId":
+            return p.getPropertyGroupId();
+        default:
+            throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.ConstraintViolations.violation;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.GROUP_NAME;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.GROUP_REVISION;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.GROUP_STATUS;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.GROUP_VERSION;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+public class MVStorePropertyGroupDao implements PropertyGroupDao {
+    private static final List<String> FIELDS = ImmutableList.of("id", "name", "version", "status");
+    private static final List<String> FIELDS_BY_IDS = ImmutableList.of("name", "version", "status");
+
+    private final MVStoreDatabase db;
+
+    public MVStorePropertyGroupDao(MVStoreDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public long createPropertyGroup(PropertyGroup pg) {
+        return db.write(t -> {
+            final long id = db.nextId(t.groups);
+            db.put(t.groups, id, row(pg, db.nextRevision()));
+            db.index(t.groupsByName, pg.getName(), id);
+            db.log(EntityType.PROPERTY_GROUP, id, Operation.INSERT, id, null, null);
+            return id;
+        });
+    }
+
+    @Override
+    public int updatePropertyGroup(PropertyGroup pg) {
+        return db.write(t -> {
+            final Object[] existing = t.groups.get(pg.getId());
+            if (null == existing) {
+                return 0;
+            }
+
+            final Object[] updated = row(pg, db.nextRevision());
+            db.put(t.groups, pg.getId(), updated);
+            if (!Objects.equals(existing[GROUP_NAME], updated[GROUP_NAME])) {
+                db.unindex(t.groupsByName, existing[GROUP_NAME], pg.getId());
+                db.index(t.groupsByName, pg.getName(), pg.getId());
+            }
+            if (!Arrays.equals(Arrays.copyOf(existing, GROUP_REVISION), Arrays.copyOf(updated, GROUP_REVISION))) {
+                db.log(EntityType.PROPERTY_GROUP, pg.getId(), Operation.UPDATE, pg.getId(), null, null);
+            }
+            return 1;
+        });
+    }
+
+    /**
+     * @throws org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException
+     *             if Properties, Tags or dependencies still reference the PropertyGroup
+     */
+    @Override
+    public int deletePropertyGroup(Long id) {
+        return db.write(t -> {
+            final Object[] existing = t.groups.get(id);
+            if (null == existing) {
+                return 0;
+            }
+            if (Tables.contains(t.propertiesByGroup, id) || Tables.contains(t.associationsByGroup, id)
+                    || t.dependencies.values().stream().anyMatch(d -> d[0] == id || d[1] == id)) {
+                throw violation("PropertyGroup " + id + " is still referenced", "23503");
+            }
+
+            db.remove(t.groups, id);
+            db.unindex(t.groupsByName, existing[GROUP_NAME], id);
+            db.log(EntityType.PROPERTY_GROUP, id, Operation.DELETE, id, null, null);
+            return 1;
+        });
+    }
+
+    @Override
+    public PropertyGroup byId(Long id) {
+        return group(id, db.read().groups.get(id));
+    }
+
+    @Override
+    public List<PropertyGroup> byIds(Collection<Long> ids) {
+        return groups(db.read(), ids.stream().mapToLong(Long::longValue).distinct()).collect(Collectors.toList());
+    }
+
+    @Override
+    public ResultIterator<PropertyGroup> iterateAll(int fetchSize) {
+        return Queries.iterator(Iterators.transform(db.read().groups.entrySet().iterator(),
+                (Entry<Long, Object[]> e) -> group(e.getKey(), e.getValue())));
+    }
+
+    @Override
+    public Long revision(Long id) {
+        final Object[] row = db.read().groups.get(id);
+        return null == row ? null : (Long) row[GROUP_REVISION];
+    }
+
+    @Override
+    public RevisionedPropertyGroup revisionedById(Long id) {
+        final Object[] row = db.read().groups.get(id);
+        return null == row ? null : new RevisionedPropertyGroup(group(id, row), (Long) row[GROUP_REVISION]);
+    }
+
+    @Override
+    public List<RevisionedPropertyGroup> revisionedByIds(Collection<Long> ids) {
+        final Tables t = db.read();
+        final List<RevisionedPropertyGroup> revisioned = new ArrayList<>();
+        for (long id : ids.stream().mapToLong(Long::longValue).distinct().toArray()) {
+            final Object[] row = t.groups.get(id);
+            if (null != row) {
+                revisioned.add(new RevisionedPropertyGroup(group(id, row), (Long) row[GROUP_REVISION]));
+            }
+        }
+
+        return revisioned;
+    }
+
+    @Override
+    public int touch(Long id) {
+        return db.write(t -> touch(t, LongStream.of(id)));
+    }
+
+    @Override
+    public int touchByTagId(Long tagId) {
+        return db.write(t -> touch(t, t.groupsOf(tagId)));
+    }
+
+    @Override
+    public int touchByTagKey(String key) {
+        return db.write(t -> touch(t, t.tagsOf(key).flatMap(t::groupsOf)));
+    }
+
+    private int touch(Tables t, LongStream ids) {
+        int touched = 0;
+        for (long id : ids.distinct().toArray()) {
+            final Object[] row = t.groups.get(id);
+            if (null != row) {
+                final Object[] copy = row.clone();
+                copy[GROUP_REVISION] = db.nextRevision();
+                db.put(t.groups, id, copy);
+                touched++;
+            }
+        }
+
+        return touched;
+    }
+
+    @Override
+    public long addDependency(Long parentId, Long dependentId) {
+        return db.write(t -> {
+            if (!t.groups.containsKey(parentId) || !t.groups.containsKey(dependentId)) {
+                throw violation("PropertyGroup not found", "23506");
+            }
+            if (null != dependency(t, parentId, dependentId)) {
+                throw violation("Dependency already exists", "23505");
+            }
+
+            final long id = db.nextId(t.dependencies);
+            db.put(t.dependencies, id, new long[] { parentId, dependentId });
+            db.log(EntityType.PROPERTY_GROUP_DEPENDENCY, id, Operation.INSERT, dependentId, parentId, null);
+            return id;
+        });
+    }
+
+    @Override
+    public int removeDependency(Long parentId, Long dependentId) {
+        return db.write(t -> {
+            final Long id = dependency(t, parentId, dependentId);
+            if (null == id) {
+                return 0;
+            }
+
+            db.remove(t.dependencies, id);
+            db.log(EntityType.PROPERTY_GROUP_DEPENDENCY, id, Operation.DELETE, dependentId, parentId, null);
+            return 1;
+        });
+    }
+
+    private static Long dependency(Tables t, long parentId, long dependentId) {
+        for (Entry<Long, long[]> e : t.dependencies.entrySet()) {
+            if (e.getValue()[0] == parentId && e.getValue()[1] == dependentId) {
+                return e.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<PropertyGroupDependency> dependencies() {
+        final List<PropertyGroupDependency> dependencies = new ArrayList<>();
+        for (long[] d : db.read().dependencies.values()) {
+            dependencies.add(new PropertyGroupDependency(d[0], d[1]));
+        }
+
+        return dependencies;
+    }
+
+    @Override
+    public List<PropertyGroup> filterNoTags(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        return Queries.page(candidates(db.read(), bindings), MVStorePropertyGroupDao::column, bindings, FIELDS, sorts,
+                FIELDS, cursor);
+    }
+
+    @Override
+    public int filterNoTagsCount(Map<String, String> bindings) {
+        return Queries.count(candidates(db.read(), bindings), MVStorePropertyGroupDao::column, bindings, FIELDS);
+    }
+
+    @Override
+    public List<PropertyGroup> filterByIds(Map<String, String> bindings, List<Sort> sorts, Long[] ids,
+            Cursor cursor) {
+        return Queries.page(groups(db.read(), Arrays.stream(ids).mapToLong(Long::longValue).distinct()),
+                MVStorePropertyGroupDao::column, bindings, FIELDS_BY_IDS, sorts, FIELDS, cursor);
+    }
+
+    @Override
+    public int filterByIdsCount(Map<String, String> bindings, Long[] ids) {
+        return Queries.count(groups(db.read(), Arrays.stream(ids).mapToLong(Long::longValue).distinct()),
+                MVStorePropertyGroupDao::column, bindings, FIELDS_BY_IDS);
+    }
+
+    @Override
+    public List<PropertyGroup> filterWithTags(Map<String, String> bindings, List<Sort> sorts, Collection<Tag> tags,
+            Cursor cursor) {
+        return Queries.page(tagged(db.read(), bindings, tags), MVStorePropertyGroupDao::column, bindings, FIELDS,
+                sorts, FIELDS, cursor);
+    }
+
+    @Override
+    public int filterWithTagsCount(Map<String, String> bindings, Collection<Tag> tags) {
+        return Queries.count(tagged(db.read(), bindings, tags), MVStorePropertyGroupDao::column, bindings, FIELDS);
+    }
+
+    /**
+     * Narrows the rows to scan with the id or name index when the filter has one of them.
+     */
+    private static Stream<PropertyGroup> candidates(Tables t, Map<String, String> bindings) {
+        final String id = bindings.get("id");
+        if (null != id) {
+            return groups(t, Queries.id(id));
+        }
+
+        final String name = bindings.get("name");
+        if (null != name) {
+            return groups(t, Tables.ids(t.groupsByName, name));
+        }
+
+        return t.groups.entrySet().stream().map(e -> group(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * Intersects the PropertyGroups of every tag, which is usually far smaller than the rows matching the filter.
+     */
+    private static Stream<PropertyGroup> tagged(Tables t, Map<String, String> bindings, Collection<Tag> tags) {
+        if (tags.isEmpty()) {
+            return candidates(t, bindings);
+        }
+
+        long[] ids = null;
+        for (Tag tag : tags) {
+            final long[] tagged = t.tagsOf(tag.getKey(), tag.getValue()).flatMap(t::groupsOf).distinct().sorted()
+                    .toArray();
+            ids = null == ids ? tagged
+                    : Arrays.stream(ids).filter(id -> 0 <= Arrays.binarySearch(tagged, id)).toArray();
+        }
+
+        return groups(t, Arrays.stream(ids));
+    }
+
+    private static Stream<PropertyGroup> groups(Tables t, LongStream ids) {
+        return ids.mapToObj(id -> group(id, t.groups.get(id))).filter(Objects::nonNull);
+    }
+
+    private static Object[] row(PropertyGroup pg, long revision) {
+        return new Object[] { pg.getName(), pg.getVersion(),
+                null == pg.getStatus() ? null : pg.getStatus().name(), revision };
+    }
+
+    private static PropertyGroup group(long id, Object[] row) {
+        if (null == row) {
+            return null;
+        }
+
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setId(id);
+        pg.setName((String) row[GROUP_NAME]);
+        pg.setVersion((String) row[GROUP_VERSION]);
+        pg.setStatus(null == row[GROUP_STATUS] ? null : Status.valueOf((String) row[GROUP_STATUS]));
+        return pg;
+    }
+
+    private static Object column(PropertyGroup pg, String field) {
+        switch (field) {
+        case "id":
+            return pg.getId();
+        case "name":
+            return pg.getName();
+        case "version":
+            return pg.getVersion();
+        case "status":
+            return null == pg.getStatus() ? null : pg.getStatus().name();
+        default:
+            throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+}
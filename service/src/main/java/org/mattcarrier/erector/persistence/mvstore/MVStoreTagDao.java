@@ -0,0 +1,275 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.ConstraintViolations.violation;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.TAG_KEY;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.TAG_VALUE;
+import static org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase.keyValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+public class MVStoreTagDao implements TagDao {
+    private final MVStoreDatabase db;
+
+    public MVStoreTagDao(MVStoreDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public void createTagDomain(String key) {
+        db.write(t -> {
+            final String name = key.toUpperCase(Locale.ENGLISH);
+            if (t.tagKeys.containsKey(name)) {
+                throw violation("Tag key " + name + " already exists", "23505");
+            }
+
+            db.put(t.tagKeys, name, db.nextId(t.tagKeys));
+            db.log(EntityType.TAG_DOMAIN, null, Operation.INSERT, null, null, name);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTagDomain(String key) {
+        db.write(t -> {
+            final String name = key.toUpperCase(Locale.ENGLISH);
+            if (null == db.remove(t.tagKeys, name)) {
+                return null;
+            }
+
+            t.tagsOf(name).forEach(id -> remove(t, id));
+            db.log(EntityType.TAG_DOMAIN, null, Operation.DELETE, null, null, name);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> getTagDomain() {
+        return new ArrayList<>(db.read().tagKeys.keySet());
+    }
+
+    @Override
+    public Long addTag(String key, String value) {
+        return db.write(t -> {
+            final String name = key.toUpperCase(Locale.ENGLISH);
+            if (!t.tagKeys.containsKey(name)) {
+                return null;
+            }
+
+            final long id = db.nextId(t.tags);
+            db.put(t.tags, id, new Object[] { name, value });
+            db.index(t.tagsByKeyValue, keyValue(name, value), id);
+            db.log(EntityType.TAG, id, Operation.INSERT, null, null, null);
+            return id;
+        });
+    }
+
+    @Override
+    public long associateTag(Long tagId, Long propertyGroupId) {
+        return db.write(t -> associate(t, tagId, propertyGroupId));
+    }
+
+    @Override
+    public int[] associateTags(List<Long> tagIds, List<Long> propertyGroupIds) {
+        return db.write(t -> {
+            final int[] counts = new int[tagIds.size()];
+            for (int i = 0; i < counts.length; i++) {
+                associate(t, tagIds.get(i), propertyGroupIds.get(i));
+                counts[i] = 1;
+            }
+
+            return counts;
+        });
+    }
+
+    private long associate(Tables t, Long tagId, Long propertyGroupId) {
+        if (null == tagId || null == propertyGroupId || !t.tags.containsKey(tagId)
+                || !t.groups.containsKey(propertyGroupId)) {
+            throw violation("Tag or PropertyGroup not found", "23506");
+        }
+        if (t.groupsOf(tagId).anyMatch(id -> id == propertyGroupId)) {
+            throw violation("Tag " + tagId + " is already associated", "23505");
+        }
+
+        final long id = db.nextId(t.associations);
+        db.put(t.associations, id, new long[] { tagId, propertyGroupId });
+        db.index(t.associationsByTag, tagId, id);
+        db.index(t.associationsByGroup, propertyGroupId, id);
+        db.log(EntityType.TAG_ASSOCIATION, id, Operation.INSERT, propertyGroupId, tagId, null);
+        return id;
+    }
+
+    @Override
+    public int disassociateTag(Long id) {
+        return db.write(t -> disassociate(t, id));
+    }
+
+    @Override
+    public int disassociateTags(Collection<Long> tagIds) {
+        return db.write(t -> tagIds.stream().distinct().mapToInt(id -> disassociate(t, id)).sum());
+    }
+
+    private int disassociate(Tables t, long tagId) {
+        final long[] ids = Tables.ids(t.associationsByTag, tagId).toArray();
+        for (long id : ids) {
+            final long propertyGroupId = db.remove(t.associations, id)[1];
+            db.unindex(t.associationsByTag, tagId, id);
+            db.unindex(t.associationsByGroup, propertyGroupId, id);
+            db.log(EntityType.TAG_ASSOCIATION, id, Operation.DELETE, propertyGroupId, tagId, null);
+        }
+
+        return ids.length;
+    }
+
+    /**
+     * Also removes the associations of the Tag, like the cascading foreign key of the JDBI backend.
+     */
+    @Override
+    public int removeTag(Long id) {
+        return db.write(t -> remove(t, id));
+    }
+
+    @Override
+    public int removeTags(Collection<Long> tagIds) {
+        return db.write(t -> tagIds.stream().distinct().mapToInt(id -> remove(t, id)).sum());
+    }
+
+    private int remove(Tables t, long id) {
+        final Object[] existing = t.tags.get(id);
+        if (null == existing) {
+            return 0;
+        }
+
+        disassociate(t, id);
+        db.remove(t.tags, id);
+        db.unindex(t.tagsByKeyValue, keyValue((String) existing[TAG_KEY], (String) existing[TAG_VALUE]), id);
+        db.log(EntityType.TAG, id, Operation.DELETE, null, null, null);
+        return 1;
+    }
+
+    @Override
+    public int update(Tag tag) {
+        return db.write(t -> {
+            final Object[] existing = t.tags.get(tag.getId());
+            final String name = tag.getKey().toUpperCase(Locale.ENGLISH);
+            if (null == existing || !t.tagKeys.containsKey(name)) {
+                return 0;
+            }
+
+            final Object[] updated = { name, tag.getValue() };
+            if (!Arrays.equals(existing, updated)) {
+                db.put(t.tags, tag.getId(), updated);
+                db.unindex(t.tagsByKeyValue,
+                        keyValue((String) existing[TAG_KEY], (String) existing[TAG_VALUE]), tag.getId());
+                db.index(t.tagsByKeyValue, keyValue(name, tag.getValue()), tag.getId());
+                db.log(EntityType.TAG, tag.getId(), Operation.UPDATE, null, null, null);
+            }
+            return 1;
+        });
+    }
+
+    @Override
+    public Tag byId(Long id) {
+        return tag(id, db.read().tags.get(id));
+    }
+
+    @Override
+    public Collection<Tag> byIds(Collection<Long> ids) {
+        return tags(db.read(), ids.stream().mapToLong(Long::longValue).distinct());
+    }
+
+    @Override
+    public Collection<Tag> byPropertyGroupId(Long propertyGroupId) {
+        final Tables t = db.read();
+        return tags(t, t.tagsOfGroup(propertyGroupId));
+    }
+
+    /**
+     * Streams the associations in the order of the PropertyGroup index, sorting the Tags of each PropertyGroup by id.
+     */
+    @Override
+    public ResultIterator<PropertyGroupTag> iterateAssociations(int fetchSize) {
+        final Tables t = db.read();
+        return Queries.iterator(Iterators.concat(Iterators.transform(groups(t.associationsByGroup.keyIterator(null)),
+                propertyGroupId -> tags(t, t.tagsOfGroup(propertyGroupId).sorted()).stream()
+                        .map(tag -> new PropertyGroupTag(propertyGroupId, tag)).iterator())));
+    }
+
+    /**
+     * The PropertyGroups of the association index in order, each once since its entries are adjacent.
+     */
+    private static Iterator<Long> groups(Iterator<Object[]> entries) {
+        final PeekingIterator<Object[]> it = Iterators.peekingIterator(entries);
+        return new AbstractIterator<Long>() {
+            @Override
+            protected Long computeNext() {
+                if (!it.hasNext()) {
+                    return endOfData();
+                }
+
+                final Long propertyGroupId = (Long) it.next()[0];
+                while (it.hasNext() && propertyGroupId.equals(it.peek()[0])) {
+                    it.next();
+                }
+                return propertyGroupId;
+            }
+        };
+    }
+
+    private static List<Tag> tags(Tables t, LongStream ids) {
+        return ids.mapToObj(id -> tag(id, t.tags.get(id))).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static Tag tag(long id, Object[] row) {
+        if (null == row) {
+            return null;
+        }
+
+        final Tag t = new Tag();
+        t.setId(id);
+        t.setKey((String) row[TAG_KEY]);
+        t.setValue((String) row[TAG_VALUE]);
+        return t;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.dao.Sort.Direction;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Evaluates the filter, sort, keyset and OFFSET/LIMIT parts of the filter queries over candidate rows, with the same
+ * whitelists and NULL ordering as {@link org.mattcarrier.erector.dao.BindFilter} and
+ * {@link org.mattcarrier.erector.dao.DefineSorts}.
+ */
+final class Queries {
+    private Queries() {
+    }
+
+    static <T> List<T> page(Stream<T> candidates, BiFunction<T, String, Object> column, Map<String, String> bindings,
+            List<String> filterable, List<Sort> sorts, List<String> sortable, Cursor cursor) {
+        final Comparator<T> order = order(column, sorts, sortable);
+        Stream<T> rows = candidates.filter(matches(column, bindings, filterable));
+        if (null != cursor) {
+            rows = rows.filter(row -> cursor.admits(row, column));
+        }
+
+        final String start = bindings.get("start");
+        final String limit = bindings.get("limit");
+        rows = rows.sorted(order).skip(null == start ? 0 : Long.parseLong(start));
+        return (null == limit ? rows : rows.limit(Long.parseLong(limit))).collect(Collectors.toList());
+    }
+
+    static <T> int count(Stream<T> candidates, BiFunction<T, String, Object> column, Map<String, String> bindings,
+            List<String> filterable) {
+        return (int) candidates.filter(matches(column, bindings, filterable)).count();
+    }
+
+    static <T> Predicate<T> matches(BiFunction<T, String, Object> column, Map<String, String> bindings,
+            List<String> filterable) {
+        Predicate<T> matches = row -> true;
+        for (String field : filterable) {
+            final String value = bindings.get(field);
+            if (null != value) {
+                matches = matches.and(row -> equal(column.apply(row, field), value));
+            }
+        }
+
+        return matches;
+    }
+
+    private static boolean equal(Object column, String value) {
+        if (column instanceof Number) {
+            try {
+                return ((Number) column).longValue() == Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        return null != column && column.toString().equals(value);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a sort field is not whitelisted
+     */
+    private static <T> Comparator<T> order(BiFunction<T, String, Object> column, List<Sort> sorts,
+            List<String> sortable) {
+        Comparator<T> order = (a, b) -> 0;
+        for (Sort s : sorts) {
+            if (!sortable.contains(s.getField())) {
+                throw new IllegalArgumentException("Unknown sort field " + s.getField());
+            }
+
+            final Comparator<T> field = Comparator.comparing(row -> comparable(column.apply(row, s.getField())),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            order = order.thenComparing(Direction.ASC == s.getDirection() ? field : field.reversed());
+        }
+
+        return order;
+    }
+
+    /**
+     * The id a filter binds, none when it is not a number since no row can match it.
+     */
+    static LongStream id(String id) {
+        try {
+            return LongStream.of(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return LongStream.empty();
+        }
+    }
+
+    static <T> ResultIterator<T> iterator(Iterator<T> rows) {
+        return new ResultIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return rows.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.LongStream;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+/**
+ * The maps of the MVStore backend as of one version: the live maps writes change, or a read-only view of a committed
+ * version.
+ * <p/>
+ * There is one primary map per entity keyed by id with the columns as an {@code Object[]} value. Secondary indexes are
+ * keyed by {looked up column, id} with the id as value, so indexing a row adds or removes a single entry and the ids
+ * of one column value are the range of keys that starts with it.
+ */
+final class Tables {
+    static final String REVISION = "revision";
+    static final String FLOOR = "floor";
+
+    /**
+     * The revision, floor and id counters.
+     */
+    final MVMap<String, Long> meta;
+
+    final MVMap<Long, Object[]> groups;
+    final MVMap<Object[], Long> groupsByName;
+    /**
+     * PropertyGroup dependencies keyed by id with {parentId, dependentId} values.
+     */
+    final MVMap<Long, long[]> dependencies;
+
+    final MVMap<Long, Object[]> properties;
+    final MVMap<Object[], Long> propertiesByGroup;
+
+    final MVMap<String, Long> tagKeys;
+    final MVMap<Long, Object[]> tags;
+    final MVMap<Object[], Long> tagsByKeyValue;
+
+    /**
+     * Tag associations keyed by id with {tagId, propertyGroupId} values.
+     */
+    final MVMap<Long, long[]> associations;
+    final MVMap<Object[], Long> associationsByTag;
+    final MVMap<Object[], Long> associationsByGroup;
+
+    final MVMap<Long, Object[]> changeLog;
+
+    Tables(MVStore store) {
+        this.meta = store.openMap("meta");
+        this.groups = store.openMap("propertyGroup");
+        this.groupsByName = store.openMap("propertyGroup.name");
+        this.dependencies = store.openMap("propertyGroupDependency");
+        this.properties = store.openMap("property");
+        this.propertiesByGroup = store.openMap("property.propertyGroupId");
+        this.tagKeys = store.openMap("tagKey");
+        this.tags = store.openMap("tag");
+        this.tagsByKeyValue = store.openMap("tag.keyValue");
+        this.associations = store.openMap("tagAssociation");
+        this.associationsByTag = store.openMap("tagAssociation.tagId");
+        this.associationsByGroup = store.openMap("tagAssociation.propertyGroupId");
+        this.changeLog = store.openMap("changeLog");
+    }
+
+    private Tables(Tables live, long version) {
+        this.meta = live.meta.openVersion(version);
+        this.groups = live.groups.openVersion(version);
+        this.groupsByName = live.groupsByName.openVersion(version);
+        this.dependencies = live.dependencies.openVersion(version);
+        this.properties = live.properties.openVersion(version);
+        this.propertiesByGroup = live.propertiesByGroup.openVersion(version);
+        this.tagKeys = live.tagKeys.openVersion(version);
+        this.tags = live.tags.openVersion(version);
+        this.tagsByKeyValue = live.tagsByKeyValue.openVersion(version);
+        this.associations = live.associations.openVersion(version);
+        this.associationsByTag = live.associationsByTag.openVersion(version);
+        this.associationsByGroup = live.associationsByGroup.openVersion(version);
+        this.changeLog = live.changeLog.openVersion(version);
+    }
+
+    /**
+     * Read-only view of these maps as of a committed version.
+     */
+    Tables at(long version) {
+        return new Tables(this, version);
+    }
+
+    long revision() {
+        return meta.getOrDefault(REVISION, 0L);
+    }
+
+    long floor() {
+        return meta.getOrDefault(FLOOR, 0L);
+    }
+
+    /**
+     * Key of the index entry of the row {@code id} whose indexed column is {@code key}.
+     */
+    static Object[] entry(Object key, long id) {
+        return new Object[] { key, id };
+    }
+
+    /**
+     * Ids of the rows whose indexed column is {@code key}, in id order.
+     */
+    static LongStream ids(MVMap<Object[], Long> index, Object key) {
+        final LongStream.Builder ids = LongStream.builder();
+        for (Iterator<Object[]> it = index.keyIterator(entry(key, Long.MIN_VALUE)); it.hasNext();) {
+            final Object[] entry = it.next();
+            if (!key.equals(entry[0])) {
+                break;
+            }
+
+            ids.accept((Long) entry[1]);
+        }
+
+        return ids.build();
+    }
+
+    static boolean contains(MVMap<Object[], Long> index, Object key) {
+        final Object[] first = index.ceilingKey(entry(key, Long.MIN_VALUE));
+        return null != first && key.equals(first[0]);
+    }
+
+    LongStream tagsOf(String key, String value) {
+        return ids(tagsByKeyValue, MVStoreDatabase.keyValue(key, value));
+    }
+
+    /**
+     * Ids of every Tag of the key, read from the range of {@link #tagsByKeyValue} the key prefixes.
+     */
+    LongStream tagsOf(String key) {
+        final String prefix = MVStoreDatabase.keyValue(key, "");
+        final LongStream.Builder tagIds = LongStream.builder();
+        for (Iterator<Object[]> it = tagsByKeyValue.keyIterator(entry(prefix, Long.MIN_VALUE)); it.hasNext();) {
+            final Object[] entry = it.next();
+            if (!((String) entry[0]).startsWith(prefix)) {
+                break;
+            }
+
+            tagIds.accept((Long) entry[1]);
+        }
+
+        return tagIds.build();
+    }
+
+    /**
+     * Ids of the PropertyGroups associated with the tag.
+     */
+    LongStream groupsOf(long tagId) {
+        return column(associations, ids(associationsByTag, tagId), 1);
+    }
+
+    /**
+     * Ids of the Tags associated with the PropertyGroup.
+     */
+    LongStream tagsOfGroup(long propertyGroupId) {
+        return column(associations, ids(associationsByGroup, propertyGroupId), 0);
+    }
+
+    /**
+     * One column of the {@code long[]} rows with the given ids.
+     */
+    private static LongStream column(MVMap<Long, long[]> map, LongStream ids, int column) {
+        return ids.mapToObj(map::get).filter(Objects::nonNull).mapToLong(row -> row[column]);
+    }
+}
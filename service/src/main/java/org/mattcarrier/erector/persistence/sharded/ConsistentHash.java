@@ -0,0 +1,58 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Hash ring placing every shard at a number of virtual nodes. A key belongs to the first node at or after its hash,
+ * so adding a shard only moves the keys that now hash closest to one of its nodes.
+ */
+public class ConsistentHash {
+    private static final HashFunction HASH = Hashing.murmur3_32();
+
+    private final TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+    public ConsistentHash(int shards, int virtualNodes) {
+        checkArgument(shards > 0, "At least one shard is required");
+        checkArgument(virtualNodes > 0, "At least one virtual node is required");
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(HASH.hashString("shard-" + shard + "-" + node, StandardCharsets.UTF_8).asInt(),
+                        shard);
+            }
+        }
+    }
+
+    public int shardOf(long key) {
+        final Entry<Integer, Integer> node = ring.ceilingEntry(HASH.hashLong(key).asInt());
+        return null == node ? ring.firstEntry().getValue() : node.getValue();
+    }
+}
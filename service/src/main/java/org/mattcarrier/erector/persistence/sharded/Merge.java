@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.dao.Sort.Direction;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Merges the sorted results of a query that ran on several shards. NULLs sort first, which is how H2 orders them.
+ */
+final class Merge {
+    private Merge() {
+    }
+
+    /**
+     * The bindings each shard needs to contribute to the page: every shard has to return the rows the merged result
+     * skips as well.
+     */
+    static Map<String, String> fanOut(Map<String, String> bindings) {
+        final Map<String, String> fanOut = new HashMap<>(bindings);
+        final String start = bindings.get("start");
+        final String limit = bindings.get("limit");
+        fanOut.put("start", "0");
+        if (null != limit) {
+            fanOut.put("limit", String.valueOf((null == start ? 0 : Long.parseLong(start)) + Long.parseLong(limit)));
+        }
+
+        return fanOut;
+    }
+
+    /**
+     * Merges the pages each shard returned for {@link #fanOut(Map)} and applies the original OFFSET and LIMIT.
+     */
+    static <T> List<T> page(List<List<T>> pages, Comparator<T> order, Map<String, String> bindings) {
+        final String start = bindings.get("start");
+        final String limit = bindings.get("limit");
+        return skipAndLimit(pages, order, null == start ? 0 : Long.parseLong(start),
+                null == limit ? Long.MAX_VALUE : Long.parseLong(limit));
+    }
+
+    static <T> List<T> skipAndLimit(List<List<T>> pages, Comparator<T> order, long start, long limit) {
+        final List<T> merged = new ArrayList<>();
+        final ResultIterator<T> rows = iterator(pages.stream().map(Merge::iterator).collect(Collectors.toList()),
+                order);
+        for (long i = 0; rows.hasNext() && merged.size() < limit; i++) {
+            final T row = rows.next();
+            if (i >= start) {
+                merged.add(row);
+            }
+        }
+
+        return merged;
+    }
+
+    static <T> Comparator<T> order(List<Sort> sorts, BiFunction<T, String, Object> column) {
+        Comparator<T> order = (a, b) -> 0;
+        for (Sort s : sorts) {
+            final Comparator<T> field = Comparator.comparing(row -> comparable(column.apply(row, s.getField())),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            order = order.thenComparing(Direction.ASC == s.getDirection() ? field : field.reversed());
+        }
+
+        return order;
+    }
+
+    /**
+     * Merges already sorted iterators, closing all of them when closed.
+     */
+    static <T> ResultIterator<T> iterator(List<ResultIterator<T>> sorted, Comparator<T> order) {
+        final PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.row, b.row));
+        for (ResultIterator<T> rows : sorted) {
+            if (rows.hasNext()) {
+                heads.add(new Head<>(rows.next(), rows));
+            }
+        }
+
+        return new ResultIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                final Head<T> head = heads.remove();
+                if (head.rows.hasNext()) {
+                    heads.add(new Head<>(head.rows.next(), head.rows));
+                }
+
+                return head.row;
+            }
+
+            @Override
+            public void close() {
+                sorted.forEach(ResultIterator::close);
+            }
+        };
+    }
+
+    private static <T> ResultIterator<T> iterator(List<T> rows) {
+        final Iterator<T> it = rows.iterator();
+        return new ResultIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return it.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+
+    private static final class Head<T> {
+        private final T row;
+        private final ResultIterator<T> rows;
+
+        private Head(T row, ResultIterator<T> rows) {
+            this.row = row;
+            this.rows = rows;
+        }
+    }
+}
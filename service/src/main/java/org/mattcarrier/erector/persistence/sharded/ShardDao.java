@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import java.util.List;
+
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.mapper.ChangeLogEntryMapper;
+import org.mattcarrier.erector.dao.mapper.TagMapper;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import org.skife.jdbi.v2.unstable.BindIn;
+
+/**
+ * Statements only a sharded deployment needs: inserts with ids chosen by {@link ShardedDatabase} instead of the
+ * shard's own identity columns, so ids stay unique across shards, the upkeep of the revision sequence and the
+ * counters the first shard keeps for both.
+ */
+@UseStringTemplate3StatementLocator
+@RegisterMapper(ChangeLogEntryMapper.class)
+public interface ShardDao {
+    @SqlUpdate("INSERT INTO PropertyGroup(id, name, status, version, revision) VALUES(:id, :pg.name, :pg.status, :pg.version, NEXT VALUE FOR revisionSeq)")
+    public void insertPropertyGroup(@Bind("id") long id, @BindBean("pg") PropertyGroup pg);
+
+    @SqlUpdate("INSERT INTO Property(id, key, value, description, propertyGroupId, revision) VALUES(:id, :p.key, :p.value, :p.description, :p.propertyGroupId, NEXT VALUE FOR revisionSeq)")
+    public void insertProperty(@Bind("id") long id, @BindBean("p") Property p);
+
+    @SqlBatch("INSERT INTO Property(id, key, value, description, propertyGroupId, revision) VALUES(:id, :p.key, :p.value, :p.description, :p.propertyGroupId, NEXT VALUE FOR revisionSeq)")
+    public int[] insertProperties(@Bind("id") List<Long> ids, @BindBean("p") List<Property> props);
+
+    @SqlUpdate("DELETE FROM Property WHERE id IN (<ids>)")
+    public int deleteProperties(@BindIn("ids") List<Long> ids);
+
+    @SqlUpdate("INSERT INTO TagPropertyGroupXref(id, tagId, propertyGroupId) VALUES(:id, :tagId, :propertyGroupId)")
+    public void insertAssociation(@Bind("id") long id, @Bind("tagId") Long tagId,
+            @Bind("propertyGroupId") Long propertyGroupId);
+
+    @SqlBatch("INSERT INTO TagPropertyGroupXref(id, tagId, propertyGroupId) VALUES(:id, :tagId, :propertyGroupId)")
+    public int[] insertAssociations(@Bind("id") List<Long> ids, @Bind("tagId") List<Long> tagIds,
+            @Bind("propertyGroupId") List<Long> propertyGroupIds);
+
+    @SqlUpdate("DELETE FROM TagPropertyGroupXref WHERE id IN (<ids>)")
+    public int deleteAssociations(@BindIn("ids") List<Long> ids);
+
+    @SqlUpdate("INSERT INTO TagKey(id, name) VALUES(:id, UPPER(:key))")
+    public void insertTagKey(@Bind("id") long id, @Bind("key") String key);
+
+    @SqlUpdate("INSERT INTO Tag(id, tagKeyId, value) SELECT :id, id, :value FROM TagKey WHERE name = UPPER(:key)")
+    public void insertTag(@Bind("id") long id, @Bind("key") String key, @Bind("value") String value);
+
+    @SqlQuery("SELECT id FROM TagKey WHERE name = UPPER(:key)")
+    public long tagKeyId(@Bind("key") String key);
+
+    @SqlQuery("SELECT t.id, k.name AS key, t.value FROM Tag t INNER JOIN TagKey k ON t.tagKeyId = k.id")
+    @Mapper(TagMapper.class)
+    public List<Tag> tags();
+
+    @SqlQuery("SELECT COUNT(1) FROM PropertyGroupXref WHERE parentId = :id OR dependentId = :id")
+    public int dependencyCount(@Bind("id") Long id);
+
+    @SqlQuery("SELECT COUNT(1) FROM Property WHERE propertyGroupId = :propertyGroupId AND key = :key")
+    public int propertyCount(@Bind("propertyGroupId") Long propertyGroupId, @Bind("key") String key);
+
+    @SqlQuery("SELECT COALESCE(MAX(id), 0) FROM <table>")
+    public long maxId(@Define("table") String table);
+
+    @SqlUpdate("ALTER SEQUENCE revisionSeq RESTART WITH <next>")
+    public void restartRevisions(@Define("next") long next);
+
+    /**
+     * Locks the counters until the transaction ends, serializing writers across erector instances.
+     */
+    @SqlUpdate("UPDATE ShardCounter SET value = value WHERE name = 'revision'")
+    public void lockCounters();
+
+    @SqlQuery("SELECT value FROM ShardCounter WHERE name = :name")
+    public long counter(@Bind("name") String name);
+
+    @SqlUpdate("UPDATE ShardCounter SET value = GREATEST(value, :value) WHERE name = :name")
+    public void raiseCounter(@Bind("name") String name, @Bind("value") long value);
+
+    /**
+     * Like {@link org.mattcarrier.erector.dao.ChangeLogDao#since(long, int)} without the tag dictionary entries, the
+     * first shard logs those for every shard.
+     */
+    @SqlQuery("SELECT * FROM ChangeLog WHERE revision > :since AND entityType NOT IN ('TAG', 'TAG_DOMAIN') ORDER BY revision LIMIT :limit")
+    public List<ChangeLogEntry> ownChangesSince(@Bind("since") long since, @Bind("limit") int limit);
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.List;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+
+/**
+ * Merges the change logs of all shards by revision, which {@link ShardedDatabase} keeps in commit order across
+ * shards. Tag dictionary entries are taken from the first shard only since every shard logs its copy.
+ */
+public class ShardedChangeLogDao implements ChangeLogDao {
+    private static final Comparator<ChangeLogEntry> BY_REVISION = Comparator.comparing(ChangeLogEntry::getRevision);
+
+    private final ShardedDatabase db;
+
+    public ShardedChangeLogDao(ShardedDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public List<ChangeLogEntry> since(long since, int limit) {
+        return Merge.skipAndLimit(db.query(s -> 0 == s.index ? s.changeLogDao.since(since, limit)
+                : s.shardDao.ownChangesSince(since, limit)), BY_REVISION, 0, limit);
+    }
+
+    @Override
+    public long latest() {
+        return max(db.query(s -> s.changeLogDao.latest()));
+    }
+
+    @Override
+    public long latestOf(String entityType) {
+        if (EntityType.TAG.name().equals(entityType) || EntityType.TAG_DOMAIN.name().equals(entityType)) {
+            return db.first().changeLogDao.latestOf(entityType);
+        }
+
+        return max(db.query(s -> s.changeLogDao.latestOf(entityType)));
+    }
+
+    /**
+     * The highest floor of any shard, a reader behind it may have missed a purged delete on that shard.
+     */
+    @Override
+    public long floor() {
+        return max(db.query(s -> s.changeLogDao.floor()));
+    }
+
+    @Override
+    public int compact() {
+        return ShardedPropertyGroupDao.sum(db.query(s -> s.changeLogDao.compact()));
+    }
+
+    @Override
+    public int raiseFloor(Timestamp cutoff) {
+        return ShardedPropertyGroupDao.sum(db.query(s -> s.changeLogDao.raiseFloor(cutoff)));
+    }
+
+    @Override
+    public int purgeTombstones() {
+        return ShardedPropertyGroupDao.sum(db.query(s -> s.changeLogDao.purgeTombstones()));
+    }
+
+    private static long max(List<Long> values) {
+        return values.stream().mapToLong(Long::longValue).max().getAsLong();
+    }
+}
@@ -0,0 +1,338 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The shards of a sharded deployment. Every shard is a complete erector database; a PropertyGroup, its Properties,
+ * FileMeta and tag associations live on the shard its id hashes to. The tag dictionary is copied to every shard so
+ * associations keep their foreign keys, and dependencies between PropertyGroups are kept on the first shard.
+ * <p>
+ * Writes are serialized, across erector instances too: each one holds the lock on the counters the first shard keeps
+ * until it is done. Before a shard executes a write its revision sequence is moved past the highest revision any
+ * shard has handed out, so revisions, and with them the merged change log, stay in commit order across shards. Ids
+ * of sharded rows are drawn from the same counters so they stay unique across shards.
+ * <p>
+ * Shards commit on their own, so a broadcast failing on one shard leaves the others written. The tag dictionary of
+ * such a shard is copied over from the first shard again right away, and before every later write until that
+ * succeeds.
+ */
+public class ShardedDatabase {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedDatabase.class);
+    static final String PROPERTY_GROUP = "PropertyGroup";
+    static final String PROPERTY = "Property";
+    static final String ASSOCIATION = "TagPropertyGroupXref";
+    private static final String REVISION = "revision";
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final ConsistentHash ring;
+    private final Executor fanOut;
+    private final DBI coordinator;
+    private final Map<String, Long> ids = new HashMap<>();
+    private final Set<Shard> diverged = new LinkedHashSet<>();
+    private ShardDao counters;
+    private long revision;
+
+    public ShardedDatabase(List<DBI> shards, ConsistentHash ring, Executor fanOut) {
+        checkArgument(!shards.isEmpty(), "At least one shard is required");
+        this.ring = checkNotNull(ring);
+        this.fanOut = checkNotNull(fanOut);
+        this.coordinator = shards.get(0);
+        for (int i = 0; i < shards.size(); i++) {
+            this.shards.add(new Shard(i, shards.get(i)));
+        }
+
+        // catches the counters up with rows written before they existed, raising them is safe from any instance
+        final ShardDao counters = first().shardDao;
+        for (Shard shard : this.shards) {
+            counters.raiseCounter(REVISION, shard.revision);
+            for (String table : new String[] { PROPERTY_GROUP, PROPERTY, ASSOCIATION }) {
+                counters.raiseCounter(table, shard.shardDao.maxId(table));
+            }
+        }
+
+        // an instance may have stopped halfway through a broadcast, the first write checks every copy
+        diverged.addAll(this.shards.subList(1, this.shards.size()));
+    }
+
+    List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * The shard that also holds the tag dictionary and the dependencies.
+     */
+    Shard first() {
+        return shards.get(0);
+    }
+
+    /**
+     * The shard of a PropertyGroup, the first one for a null id so the statement fails like it would unsharded.
+     */
+    Shard of(Long propertyGroupId) {
+        return null == propertyGroupId ? first() : shards.get(ring.shardOf(propertyGroupId));
+    }
+
+    /**
+     * Groups the PropertyGroup ids by their shard.
+     */
+    Map<Shard, List<Long>> of(Collection<Long> propertyGroupIds) {
+        return propertyGroupIds.stream().collect(Collectors.groupingBy(this::of, LinkedHashMap::new,
+                Collectors.toList()));
+    }
+
+    /**
+     * Runs the query on every given shard in parallel, returning the results in shard order.
+     */
+    <T> List<T> query(Collection<Shard> on, Function<Shard, T> query) {
+        if (1 == on.size()) {
+            return Collections.singletonList(query.apply(on.iterator().next()));
+        }
+
+        final List<CompletableFuture<T>> results = on.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), fanOut))
+                .collect(Collectors.toList());
+        try {
+            return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    <T> List<T> query(Function<Shard, T> query) {
+        return query(shards, query);
+    }
+
+    /**
+     * Runs a write, which may span shards, while holding the write lock. The counters are committed even when the
+     * write fails, since the shards keep whatever revisions and ids it used up.
+     */
+    synchronized <T> T write(Supplier<T> write) {
+        try (Handle handle = coordinator.open()) {
+            handle.begin();
+            counters = handle.attach(ShardDao.class);
+            counters.lockCounters();
+            revision = counters.counter(REVISION);
+            try {
+                repair();
+                return write.get();
+            } finally {
+                counters.raiseCounter(REVISION, revision);
+                ids.forEach(counters::raiseCounter);
+                ids.clear();
+                counters = null;
+                handle.commit();
+            }
+        }
+    }
+
+    /**
+     * Executes one write on a shard, only valid inside {@link #write(Supplier)}.
+     */
+    <T> T update(Shard shard, Function<Shard, T> statement) {
+        checkState(Thread.holdsLock(this), "Shard updates need the write lock");
+        if (shard.revision < revision) {
+            shard.shardDao.restartRevisions(revision + 1);
+        }
+
+        try {
+            return statement.apply(shard);
+        } finally {
+            shard.revision = shard.revisionDao.current();
+            revision = Math.max(revision, shard.revision);
+        }
+    }
+
+    /**
+     * Executes the write on the first shard and then on every other one, returning the first shard's result.
+     */
+    <T> T broadcast(Function<Shard, T> statement) {
+        return broadcast(statement, (shard, result) -> statement.apply(shard));
+    }
+
+    /**
+     * Executes {@code onFirst} on the first shard and {@code onOthers}, given its result, on every other one. The tag
+     * dictionary of a shard the write fails on is copied from the first shard, the failure is only rethrown when
+     * that fails too.
+     */
+    <T> T broadcast(Function<Shard, T> onFirst, BiConsumer<Shard, T> onOthers) {
+        final T result = update(first(), onFirst);
+        RuntimeException failure = null;
+        for (Shard shard : shards.subList(1, shards.size())) {
+            try {
+                update(shard, s -> {
+                    onOthers.accept(s, result);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOG.warn("Tag dictionary write failed on shard {}", shard.index, e);
+                diverged.add(shard);
+                failure = e;
+            }
+        }
+
+        if (!repair() && null != failure) {
+            throw failure;
+        }
+
+        return result;
+    }
+
+    /**
+     * Copies the tag dictionary to the shards a broadcast failed on, returning whether all of them are caught up.
+     */
+    private boolean repair() {
+        for (Iterator<Shard> it = diverged.iterator(); it.hasNext();) {
+            final Shard shard = it.next();
+            try {
+                update(shard, this::copyDictionary);
+                it.remove();
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to copy the tag dictionary to shard {}", shard.index, e);
+            }
+        }
+
+        return diverged.isEmpty();
+    }
+
+    private Void copyDictionary(Shard shard) {
+        final Shard first = first();
+        final Set<String> keys = new HashSet<>(first.tagDao.getTagDomain());
+        final Set<String> copiedKeys = new HashSet<>(shard.tagDao.getTagDomain());
+        for (String key : Sets.difference(copiedKeys, keys)) {
+            shard.tagDao.deleteTagDomain(key);
+        }
+        for (String key : Sets.difference(keys, copiedKeys)) {
+            shard.shardDao.insertTagKey(first.shardDao.tagKeyId(key), key);
+        }
+
+        final Map<Long, Tag> tags = Maps.uniqueIndex(first.shardDao.tags(), Tag::getId);
+        final Map<Long, Tag> copies = Maps.uniqueIndex(shard.shardDao.tags(), Tag::getId);
+        final Set<Long> removed = Sets.difference(copies.keySet(), tags.keySet()).immutableCopy();
+        if (!removed.isEmpty()) {
+            shard.tagDao.removeTags(removed);
+        }
+        for (Tag tag : tags.values()) {
+            final Tag copy = copies.get(tag.getId());
+            if (null == copy) {
+                shard.shardDao.insertTag(tag.getId(), tag.getKey(), tag.getValue());
+            } else if (!tag.equals(copy)) {
+                shard.tagDao.update(tag);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Next id of a sharded table, only valid inside {@link #write(Supplier)}. Property ids are chosen to hash to the
+     * shard of their PropertyGroup, so they are usually found on the first shard tried.
+     */
+    long nextId(String table, Shard on) {
+        checkState(Thread.holdsLock(this), "Ids are assigned under the write lock");
+        long id = ids.computeIfAbsent(table, counters::counter);
+        do {
+            id++;
+        } while (null != on && on.index != ring.shardOf(id));
+        ids.put(table, id);
+        return id;
+    }
+
+    /**
+     * The shard a Property id hashes to first, followed by all others.
+     */
+    List<Shard> probe(long propertyId) {
+        final List<Shard> order = new ArrayList<>(shards);
+        order.add(0, order.remove(ring.shardOf(propertyId)));
+        return order;
+    }
+
+    /**
+     * The highest revision committed by any writer.
+     */
+    public long currentRevision() {
+        return first().shardDao.counter(REVISION);
+    }
+
+    static final class Shard {
+        final int index;
+        final PropertyGroupDao propertyGroupDao;
+        final PropertyDao propertyDao;
+        final TagDao tagDao;
+        final ChangeLogDao changeLogDao;
+        final RevisionDao revisionDao;
+        final ShardDao shardDao;
+        private long revision;
+
+        private Shard(int index, DBI dbi) {
+            this.index = index;
+            this.propertyGroupDao = dbi.onDemand(PropertyGroupDao.class);
+            this.propertyDao = dbi.onDemand(PropertyDao.class);
+            this.tagDao = dbi.onDemand(TagDao.class);
+            this.changeLogDao = dbi.onDemand(ChangeLogDao.class);
+            this.revisionDao = dbi.onDemand(RevisionDao.class);
+            this.shardDao = dbi.onDemand(ShardDao.class);
+            this.revision = revisionDao.current();
+        }
+    }
+}
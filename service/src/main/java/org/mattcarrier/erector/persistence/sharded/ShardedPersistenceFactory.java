@@ -0,0 +1,181 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import org.flywaydb.core.Flyway;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.persistence.PersistenceFactory;
+import org.mattcarrier.erector.persistence.cache.CachingPropertyDao;
+import org.mattcarrier.erector.persistence.cache.CachingPropertyGroupDao;
+import org.mattcarrier.erector.persistence.cache.CachingTagDao;
+import org.mattcarrier.erector.persistence.cache.EntityCacheFactory;
+import org.skife.jdbi.v2.DBI;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.jdbi.DBIFactory;
+import io.dropwizard.setup.Environment;
+
+/**
+ * Partitions PropertyGroups across several databases, see {@link ShardedDatabase}. Every shard is migrated on
+ * startup. The shards must be listed in the same order on every start, appending a shard moves only the
+ * PropertyGroups that now hash to it but those are not moved automatically.
+ */
+@JsonTypeName("sharded")
+public class ShardedPersistenceFactory implements PersistenceFactory {
+    @Valid
+    @NotNull
+    @Size(min = 1)
+    private List<DataSourceFactory> shards = new ArrayList<>();
+
+    @Min(1)
+    private int virtualNodes = 128;
+
+    /**
+     * Threads running the queries that span shards.
+     */
+    @Min(1)
+    private int fanOutThreads = 32;
+
+    @Valid
+    @NotNull
+    private EntityCacheFactory cache = new EntityCacheFactory();
+
+    private PropertyGroupDao propertyGroupDao;
+    private TagDao tagDao;
+    private PropertyDao propertyDao;
+    private RevisionDao revisionDao;
+    private ChangeLogDao changeLogDao;
+
+    @Override
+    public void initialize(Environment env) {
+        final DBIFactory factory = new DBIFactory();
+        final List<DBI> dbis = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            final ManagedDataSource ds = shards.get(i).build(env.metrics(), "flyway-shard-" + i);
+            try {
+                migrate(ds);
+                ds.stop();
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to migrate shard " + i, e);
+            }
+            dbis.add(factory.build(env, shards.get(i), "shard-" + i));
+        }
+
+        final ShardedDatabase db = new ShardedDatabase(dbis, new ConsistentHash(shards.size(), virtualNodes),
+                env.lifecycle().executorService("shard-fan-out").minThreads(fanOutThreads)
+                        .maxThreads(fanOutThreads).build());
+        this.propertyGroupDao = new ShardedPropertyGroupDao(db);
+        this.tagDao = new ShardedTagDao(db);
+        this.propertyDao = new ShardedPropertyDao(db);
+        this.revisionDao = db::currentRevision;
+        this.changeLogDao = new ShardedChangeLogDao(db);
+        if (cache.isEnabled()) {
+            this.propertyGroupDao = new CachingPropertyGroupDao(propertyGroupDao, cache, env.metrics());
+            this.tagDao = new CachingTagDao(tagDao, propertyGroupDao, cache, env.metrics());
+            this.propertyDao = new CachingPropertyDao(propertyDao, cache, env.metrics());
+        }
+    }
+
+    /**
+     * Applies the regular migrations plus the ones only shards need.
+     */
+    static void migrate(DataSource ds) {
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(ds);
+        flyway.setLocations("db/migration", "db/sharding");
+        flyway.migrate();
+    }
+
+    @Override
+    public PropertyGroupDao propertyGroupDao() {
+        return propertyGroupDao;
+    }
+
+    @Override
+    public TagDao tagDao() {
+        return tagDao;
+    }
+
+    @Override
+    public PropertyDao propertyDao() {
+        return propertyDao;
+    }
+
+    @Override
+    public RevisionDao revisionDao() {
+        return revisionDao;
+    }
+
+    @Override
+    public ChangeLogDao changeLogDao() {
+        return changeLogDao;
+    }
+
+    public List<DataSourceFactory> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<DataSourceFactory> shards) {
+        this.shards = shards;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public int getFanOutThreads() {
+        return fanOutThreads;
+    }
+
+    public void setFanOutThreads(int fanOutThreads) {
+        this.fanOutThreads = fanOutThreads;
+    }
+
+    public EntityCacheFactory getCache() {
+        return cache;
+    }
+
+    public void setCache(EntityCacheFactory cache) {
+        this.cache = cache;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.ConstraintViolations.violation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.RevisionedProperty;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.persistence.sharded.ShardedDatabase.Shard;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Keeps every Property on the shard of its PropertyGroup. Ids are chosen to hash to that shard so lookups by id
+ * usually need one query; a Property moved to a PropertyGroup on another shard keeps its id and is found by asking
+ * the remaining shards. Filters bound to a PropertyGroup are answered by its shard, every other filter by all shards.
+ */
+public class ShardedPropertyDao implements PropertyDao {
+    private static final Comparator<Property> BY_ID = Comparator.comparing(Property::getId);
+
+    private final ShardedDatabase db;
+
+    public ShardedPropertyDao(ShardedDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public long createProperty(Property p) {
+        return db.write(() -> {
+            final Shard shard = db.of(p.getPropertyGroupId());
+            final long id = db.nextId(ShardedDatabase.PROPERTY, shard);
+            return db.update(shard, s -> {
+                s.shardDao.insertProperty(id, p);
+                return id;
+            });
+        });
+    }
+
+    /**
+     * Inserts the Properties of each shard in a single transaction. When a shard fails the Properties already inserted
+     * on the others are deleted again, so the batch is rejected as a whole like it is unsharded.
+     */
+    @Override
+    public int[] createProperties(Iterable<Property> props) {
+        final Map<Shard, List<Integer>> positions = new LinkedHashMap<>();
+        final List<Property> all = new ArrayList<>();
+        for (Property p : props) {
+            positions.computeIfAbsent(db.of(p.getPropertyGroupId()), s -> new ArrayList<>()).add(all.size());
+            all.add(p);
+        }
+
+        return db.write(() -> {
+            final int[] inserted = new int[all.size()];
+            final Map<Shard, List<Long>> done = new LinkedHashMap<>();
+            try {
+                positions.forEach((shard, at) -> {
+                    final List<Long> ids = new ArrayList<>();
+                    final List<Property> batch = new ArrayList<>();
+                    for (int i : at) {
+                        ids.add(db.nextId(ShardedDatabase.PROPERTY, shard));
+                        batch.add(all.get(i));
+                    }
+
+                    final int[] counts = db.update(shard, s -> s.shardDao.insertProperties(ids, batch));
+                    done.put(shard, ids);
+                    for (int i = 0; i < counts.length; i++) {
+                        inserted[at.get(i)] = counts[i];
+                    }
+                });
+            } catch (RuntimeException e) {
+                done.forEach((shard, ids) -> db.update(shard, s -> s.shardDao.deleteProperties(ids)));
+                throw e;
+            }
+
+            return inserted;
+        });
+    }
+
+    /**
+     * Moves the Property when its new PropertyGroup lives on another shard.
+     *
+     * @throws org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException
+     *             if the new PropertyGroup does not exist or already has a Property with the key
+     */
+    @Override
+    public int updateProperty(Property p) {
+        return db.write(() -> {
+            final Shard current = null == p.getId() ? null : locate(p.getId());
+            if (null == current) {
+                return 0;
+            }
+
+            final Shard target = db.of(p.getPropertyGroupId());
+            if (null == p.getPropertyGroupId() || current == target) {
+                return db.update(current, s -> s.propertyDao.updateProperty(p));
+            }
+
+            if (null == target.propertyGroupDao.byId(p.getPropertyGroupId())) {
+                throw violation("PropertyGroup " + p.getPropertyGroupId() + " not found", "23506");
+            }
+            if (0 < target.shardDao.propertyCount(p.getPropertyGroupId(), p.getKey())) {
+                throw violation("Property " + p.getKey() + " already exists", "23505");
+            }
+
+            db.update(current, s -> s.propertyDao.deleteProperty(p.getId()));
+            db.update(target, s -> {
+                s.shardDao.insertProperty(p.getId(), p);
+                return null;
+            });
+            return 1;
+        });
+    }
+
+    @Override
+    public int deleteProperty(Long id) {
+        return db.write(() -> {
+            final Shard shard = locate(id);
+            return null == shard ? 0 : db.update(shard, s -> s.propertyDao.deleteProperty(id));
+        });
+    }
+
+    @Override
+    public Property byId(Long id) {
+        for (Shard shard : db.probe(id)) {
+            final Property p = shard.propertyDao.byId(id);
+            if (null != p) {
+                return p;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Property> byIds(Collection<Long> ids) {
+        final Set<Long> missing = new HashSet<>(ids);
+        final Map<Shard, List<Long>> byShard = ids.stream().distinct()
+                .collect(Collectors.groupingBy(id -> db.probe(id).get(0), LinkedHashMap::new, Collectors.toList()));
+        final List<Property> found = db.query(byShard.keySet(), s -> s.propertyDao.byIds(byShard.get(s))).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+        found.forEach(p -> missing.remove(p.getId()));
+        if (!missing.isEmpty()) {
+            db.query(s -> s.propertyDao.byIds(missing)).forEach(found::addAll);
+        }
+
+        return found;
+    }
+
+    @Override
+    public ResultIterator<Property> iterateAll(int fetchSize) {
+        return Merge.iterator(db.query(s -> s.propertyDao.iterateAll(fetchSize)), BY_ID);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        for (Shard shard : db.probe(id)) {
+            final Long revision = shard.propertyDao.revision(id);
+            if (null != revision) {
+                return revision;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public RevisionedProperty revisionedById(Long id) {
+        for (Shard shard : db.probe(id)) {
+            final RevisionedProperty p = shard.propertyDao.revisionedById(id);
+            if (null != p) {
+                return p;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Property> byPropertyGroupId(Long propertyGroupId) {
+        return db.of(propertyGroupId).propertyDao.byPropertyGroupId(propertyGroupId);
+    }
+
+    @Override
+    public List<Property> filter(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyDao.filter(bindings, sorts, cursor);
+        }
+
+        final Map<String, String> fanOut = Merge.fanOut(bindings);
+        return Merge.page(db.query(s -> s.propertyDao.filter(fanOut, sorts, cursor)),
+                Merge.order(sorts, ShardedPropertyDao::column), bindings);
+    }
+
+    @Override
+    public int filterCount(Map<String, String> bindings) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyDao.filterCount(bindings);
+        }
+
+        return ShardedPropertyGroupDao.sum(db.query(s -> s.propertyDao.filterCount(bindings)));
+    }
+
+    /**
+     * The shard of the PropertyGroup a filter is bound to, null when every shard has to be asked.
+     */
+    private Shard shardOfFilter(Map<String, String> bindings) {
+        final String propertyGroupId = bindings.get("propertyGroupId");
+        if (null == propertyGroupId) {
+            return null;
+        }
+
+        try {
+            return db.of(Long.parseLong(propertyGroupId));
+        } catch (NumberFormatException e) {
+            return db.first();
+        }
+    }
+
+    private Shard locate(Long id) {
+        for (Shard shard : db.probe(id)) {
+            if (null != shard.propertyDao.revision(id)) {
+                return shard;
+            }
+        }
+
+        return null;
+    }
+
+    private static Object column(Property p, String field) {
+        switch (field) {
+        case "id":
+            return p.getId();
+        case "key":
+            return p.getKey();
+        case "value":
+            return p.getValue();
+        case "description":
+            return p.getDescription();
+        case "propertyGroupId":
+            return p.getPropertyGroupId();
+        default:
+            throw new IllegalArgumentException("Unknown sort field " + field);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mattcarrier.erector.persistence.ConstraintViolations.violation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.persistence.sharded.ShardedDatabase.Shard;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * Reads and writes a PropertyGroup on its own shard. Filters bound to an id are answered by that id's shard,
+ * filters over explicit ids by the shards owning them and every other filter by all shards, merged in sort order.
+ */
+public class ShardedPropertyGroupDao implements PropertyGroupDao {
+    private static final Comparator<PropertyGroup> BY_ID = Comparator.comparing(PropertyGroup::getId);
+
+    private final ShardedDatabase db;
+
+    public ShardedPropertyGroupDao(ShardedDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public long createPropertyGroup(PropertyGroup pg) {
+        return db.write(() -> {
+            final long id = db.nextId(ShardedDatabase.PROPERTY_GROUP, null);
+            return db.update(db.of(id), s -> {
+                s.shardDao.insertPropertyGroup(id, pg);
+                return id;
+            });
+        });
+    }
+
+    @Override
+    public int updatePropertyGroup(PropertyGroup pg) {
+        return db.write(() -> db.update(db.of(pg.getId()), s -> s.propertyGroupDao.updatePropertyGroup(pg)));
+    }
+
+    /**
+     * @throws org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException
+     *             if Properties, Tags or dependencies still reference the PropertyGroup
+     */
+    @Override
+    public int deletePropertyGroup(Long id) {
+        return db.write(() -> {
+            if (0 < db.first().shardDao.dependencyCount(id)) {
+                throw violation("PropertyGroup " + id + " is still referenced", "23503");
+            }
+
+            return db.update(db.of(id), s -> s.propertyGroupDao.deletePropertyGroup(id));
+        });
+    }
+
+    @Override
+    public PropertyGroup byId(Long id) {
+        return db.of(id).propertyGroupDao.byId(id);
+    }
+
+    @Override
+    public List<PropertyGroup> byIds(Collection<Long> ids) {
+        final Map<Shard, List<Long>> byShard = db.of(ids);
+        return db.query(byShard.keySet(), s -> s.propertyGroupDao.byIds(byShard.get(s))).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    @Override
+    public ResultIterator<PropertyGroup> iterateAll(int fetchSize) {
+        return Merge.iterator(db.query(s -> s.propertyGroupDao.iterateAll(fetchSize)), BY_ID);
+    }
+
+    @Override
+    public Long revision(Long id) {
+        return db.of(id).propertyGroupDao.revision(id);
+    }
+
+    @Override
+    public RevisionedPropertyGroup revisionedById(Long id) {
+        return db.of(id).propertyGroupDao.revisionedById(id);
+    }
+
+    @Override
+    public List<RevisionedPropertyGroup> revisionedByIds(Collection<Long> ids) {
+        final Map<Shard, List<Long>> byShard = db.of(ids);
+        return db.query(byShard.keySet(), s -> s.propertyGroupDao.revisionedByIds(byShard.get(s))).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    @Override
+    public int touch(Long id) {
+        return db.write(() -> db.update(db.of(id), s -> s.propertyGroupDao.touch(id)));
+    }
+
+    @Override
+    public int touchByTagId(Long tagId) {
+        return db.write(() -> {
+            int touched = 0;
+            for (Shard shard : db.shards()) {
+                touched += db.update(shard, s -> s.propertyGroupDao.touchByTagId(tagId));
+            }
+
+            return touched;
+        });
+    }
+
+    @Override
+    public int touchByTagKey(String key) {
+        return db.write(() -> {
+            int touched = 0;
+            for (Shard shard : db.shards()) {
+                touched += db.update(shard, s -> s.propertyGroupDao.touchByTagKey(key));
+            }
+
+            return touched;
+        });
+    }
+
+    /**
+     * @throws org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException
+     *             if either PropertyGroup does not exist or the dependency already does
+     */
+    @Override
+    public long addDependency(Long parentId, Long dependentId) {
+        return db.write(() -> {
+            if (null == byId(parentId) || null == byId(dependentId)) {
+                throw violation("PropertyGroup not found", "23506");
+            }
+
+            return db.update(db.first(), s -> s.propertyGroupDao.addDependency(parentId, dependentId));
+        });
+    }
+
+    @Override
+    public int removeDependency(Long parentId, Long dependentId) {
+        return db.write(() -> db.update(db.first(), s -> s.propertyGroupDao.removeDependency(parentId, dependentId)));
+    }
+
+    @Override
+    public List<PropertyGroupDependency> dependencies() {
+        return db.first().propertyGroupDao.dependencies();
+    }
+
+    @Override
+    public List<PropertyGroup> filterNoTags(Map<String, String> bindings, List<Sort> sorts, Cursor cursor) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyGroupDao.filterNoTags(bindings, sorts, cursor);
+        }
+
+        final Map<String, String> fanOut = Merge.fanOut(bindings);
+        return Merge.page(db.query(s -> s.propertyGroupDao.filterNoTags(fanOut, sorts, cursor)), order(sorts),
+                bindings);
+    }
+
+    @Override
+    public int filterNoTagsCount(Map<String, String> bindings) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyGroupDao.filterNoTagsCount(bindings);
+        }
+
+        return sum(db.query(s -> s.propertyGroupDao.filterNoTagsCount(bindings)));
+    }
+
+    @Override
+    public List<PropertyGroup> filterByIds(Map<String, String> bindings, List<Sort> sorts, Long[] ids,
+            Cursor cursor) {
+        final Map<Shard, List<Long>> byShard = byShard(ids);
+        if (byShard.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (1 == byShard.size()) {
+            final Entry<Shard, List<Long>> only = byShard.entrySet().iterator().next();
+            return only.getKey().propertyGroupDao.filterByIds(bindings, sorts, array(only.getValue()), cursor);
+        }
+
+        final Map<String, String> fanOut = Merge.fanOut(bindings);
+        return Merge.page(db.query(byShard.keySet(),
+                s -> s.propertyGroupDao.filterByIds(fanOut, sorts, array(byShard.get(s)), cursor)), order(sorts),
+                bindings);
+    }
+
+    @Override
+    public int filterByIdsCount(Map<String, String> bindings, Long[] ids) {
+        final Map<Shard, List<Long>> byShard = byShard(ids);
+        return sum(db.query(byShard.keySet(),
+                s -> s.propertyGroupDao.filterByIdsCount(bindings, array(byShard.get(s)))));
+    }
+
+    @Override
+    public List<PropertyGroup> filterWithTags(Map<String, String> bindings, List<Sort> sorts, Collection<Tag> tags,
+            Cursor cursor) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyGroupDao.filterWithTags(bindings, sorts, tags, cursor);
+        }
+
+        final Map<String, String> fanOut = Merge.fanOut(bindings);
+        return Merge.page(db.query(s -> s.propertyGroupDao.filterWithTags(fanOut, sorts, tags, cursor)),
+                order(sorts), bindings);
+    }
+
+    @Override
+    public int filterWithTagsCount(Map<String, String> bindings, Collection<Tag> tags) {
+        final Shard shard = shardOfFilter(bindings);
+        if (null != shard) {
+            return shard.propertyGroupDao.filterWithTagsCount(bindings, tags);
+        }
+
+        return sum(db.query(s -> s.propertyGroupDao.filterWithTagsCount(bindings, tags)));
+    }
+
+    /**
+     * The single shard that can match a filter bound to an id, null when every shard has to be asked. An id that is
+     * not a number goes to the first shard to fail there.
+     */
+    private Shard shardOfFilter(Map<String, String> bindings) {
+        final String id = bindings.get("id");
+        if (null == id) {
+            return null;
+        }
+
+        try {
+            return db.of(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return db.first();
+        }
+    }
+
+    private Map<Shard, List<Long>> byShard(Long[] ids) {
+        final List<Long> all = new ArrayList<>();
+        for (Long id : ids) {
+            if (null != id) {
+                all.add(id);
+            }
+        }
+
+        return db.of(all);
+    }
+
+    private static Long[] array(List<Long> ids) {
+        return ids.toArray(new Long[ids.size()]);
+    }
+
+    static int sum(List<Integer> counts) {
+        return counts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static Comparator<PropertyGroup> order(List<Sort> sorts) {
+        return Merge.order(sorts, ShardedPropertyGroupDao::column);
+    }
+
+    private static Object column(PropertyGroup pg, String field) {
+        switch (field) {
+        case "id":
+            return pg.getId();
+        case "name":
+            return pg.getName();
+        case "version":
+            return pg.getVersion();
+        case "status":
+            return null == pg.getStatus() ? null : pg.getStatus().name();
+        default:
+            throw new IllegalArgumentException("Unknown sort field " + field);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.persistence.sharded.ShardedDatabase.Shard;
+import org.skife.jdbi.v2.ResultIterator;
+
+/**
+ * The tag dictionary is written to the first shard, which assigns the ids, and copied to every other shard.
+ * Associations live on the shard of their PropertyGroup.
+ */
+public class ShardedTagDao implements TagDao {
+    private static final Comparator<PropertyGroupTag> BY_PROPERTY_GROUP = Comparator
+            .comparing(PropertyGroupTag::getPropertyGroupId).thenComparing(a -> a.getTag().getId());
+
+    private final ShardedDatabase db;
+
+    public ShardedTagDao(ShardedDatabase db) {
+        this.db = checkNotNull(db);
+    }
+
+    @Override
+    public void createTagDomain(String key) {
+        db.write(() -> db.broadcast(s -> {
+            s.tagDao.createTagDomain(key);
+            return s.shardDao.tagKeyId(key);
+        }, (s, id) -> s.shardDao.insertTagKey(id, key)));
+    }
+
+    @Override
+    public void deleteTagDomain(String key) {
+        db.write(() -> db.broadcast(s -> {
+            s.tagDao.deleteTagDomain(key);
+            return null;
+        }));
+    }
+
+    @Override
+    public List<String> getTagDomain() {
+        return db.first().tagDao.getTagDomain();
+    }
+
+    @Override
+    public Long addTag(String key, String value) {
+        return db.write(() -> db.broadcast(s -> s.tagDao.addTag(key, value), (s, id) -> {
+            if (null != id) {
+                s.shardDao.insertTag(id, key, value);
+            }
+        }));
+    }
+
+    @Override
+    public long associateTag(Long tagId, Long propertyGroupId) {
+        return db.write(() -> {
+            final long id = db.nextId(ShardedDatabase.ASSOCIATION, null);
+            return db.update(db.of(propertyGroupId), s -> {
+                s.shardDao.insertAssociation(id, tagId, propertyGroupId);
+                return id;
+            });
+        });
+    }
+
+    /**
+     * Associates the pairs of each shard in a single batch. When a shard fails the associations already made on the
+     * others are removed again, so the batch is rejected as a whole like it is unsharded.
+     */
+    @Override
+    public int[] associateTags(List<Long> tagIds, List<Long> propertyGroupIds) {
+        checkArgument(tagIds.size() == propertyGroupIds.size(), "Every tag needs a PropertyGroup");
+        final Map<Shard, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < propertyGroupIds.size(); i++) {
+            positions.computeIfAbsent(db.of(propertyGroupIds.get(i)), s -> new ArrayList<>()).add(i);
+        }
+
+        return db.write(() -> {
+            final int[] associated = new int[tagIds.size()];
+            final Map<Shard, List<Long>> done = new LinkedHashMap<>();
+            try {
+                positions.forEach((shard, at) -> {
+                    final List<Long> ids = new ArrayList<>();
+                    final List<Long> tags = new ArrayList<>();
+                    final List<Long> groups = new ArrayList<>();
+                    for (int i : at) {
+                        ids.add(db.nextId(ShardedDatabase.ASSOCIATION, null));
+                        tags.add(tagIds.get(i));
+                        groups.add(propertyGroupIds.get(i));
+                    }
+
+                    final int[] counts = db.update(shard, s -> s.shardDao.insertAssociations(ids, tags, groups));
+                    done.put(shard, ids);
+                    for (int i = 0; i < counts.length; i++) {
+                        associated[at.get(i)] = counts[i];
+                    }
+                });
+            } catch (RuntimeException e) {
+                done.forEach((shard, ids) -> db.update(shard, s -> s.shardDao.deleteAssociations(ids)));
+                throw e;
+            }
+
+            return associated;
+        });
+    }
+
+    @Override
+    public int disassociateTag(Long id) {
+        return db.write(() -> {
+            int disassociated = 0;
+            for (Shard shard : db.shards()) {
+                disassociated += db.update(shard, s -> s.tagDao.disassociateTag(id));
+            }
+
+            return disassociated;
+        });
+    }
+
+    @Override
+    public int removeTag(Long id) {
+        return db.write(() -> db.broadcast(s -> s.tagDao.removeTag(id)));
+    }
+
+    @Override
+    public int disassociateTags(Collection<Long> tagIds) {
+        return db.write(() -> {
+            int disassociated = 0;
+            for (Shard shard : db.shards()) {
+                disassociated += db.update(shard, s -> s.tagDao.disassociateTags(tagIds));
+            }
+
+            return disassociated;
+        });
+    }
+
+    @Override
+    public int removeTags(Collection<Long> tagIds) {
+        return db.write(() -> db.broadcast(s -> s.tagDao.removeTags(tagIds)));
+    }
+
+    @Override
+    public int update(Tag tag) {
+        return db.write(() -> db.broadcast(s -> s.tagDao.update(tag)));
+    }
+
+    @Override
+    public Tag byId(Long id) {
+        return db.first().tagDao.byId(id);
+    }
+
+    @Override
+    public Collection<Tag> byIds(Collection<Long> ids) {
+        return db.first().tagDao.byIds(ids);
+    }
+
+    @Override
+    public Collection<Tag> byPropertyGroupId(Long propertyGroupId) {
+        return db.of(propertyGroupId).tagDao.byPropertyGroupId(propertyGroupId);
+    }
+
+    @Override
+    public ResultIterator<PropertyGroupTag> iterateAssociations(int fetchSize) {
+        return Merge.iterator(db.query(s -> s.tagDao.iterateAssociations(fetchSize)), BY_PROPERTY_GROUP);
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.validation.constraints.Min;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import org.mattcarrier.erector.api.ChangeSet;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+
+@Api("changes")
+@Path("/erector/api/v1/changes")
+@Produces(MediaType.APPLICATION_JSON)
+public class ChangeLogResource {
+    private final ChangeLogDao changeLogDao;
+    private final PropertyGroupDao pgDao;
+    private final PropertyDao propDao;
+    private final TagDao tagDao;
+    private final int maximumLimit;
+
+    public ChangeLogResource(ChangeLogDao changeLogDao, PropertyGroupDao pgDao, PropertyDao propDao, TagDao tagDao,
+            int maximumLimit) {
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.pgDao = checkNotNull(pgDao);
+        this.propDao = checkNotNull(propDao);
+        this.tagDao = checkNotNull(tagDao);
+        this.maximumLimit = maximumLimit;
+    }
+
+    @GET
+    @ApiOperation(value = "Lists the changes made after a revision", notes = "Changes are ordered by revision and carry the current state of the changed PropertyGroup, Property or Tag. Pass the returned revision as since to continue. Revisions become visible in commit order, so no change below the returned revision shows up later. Older changes to an entity are compacted away, so only its latest change is guaranteed to be returned", response = ChangeSet.class)
+    @ApiResponse(code = 410, message = "since is older than the retained change log, resync from the full resources")
+    public ChangeSet changes(@QueryParam("since") @DefaultValue("0") @Min(0) long since,
+            @QueryParam("limit") @DefaultValue("500") @Min(1) int limit) {
+        final long floor = changeLogDao.floor();
+        if (0 != since && since < floor) {
+            throw new WebApplicationException("Changes before revision " + floor + " are no longer retained",
+                    Status.GONE);
+        }
+
+        final int pageSize = Math.min(limit, maximumLimit);
+        final List<ChangeLogEntry> changes = changeLogDao.since(since, pageSize + 1);
+        final boolean hasMore = changes.size() > pageSize;
+        final List<ChangeLogEntry> page = hasMore ? changes.subList(0, pageSize) : changes;
+        hydrate(page);
+
+        return new ChangeSet(since, page.isEmpty() ? since : page.get(page.size() - 1).getRevision(), hasMore, page);
+    }
+
+    private void hydrate(List<ChangeLogEntry> changes) {
+        final Map<EntityType, Set<Long>> ids = new EnumMap<>(EntityType.class);
+        for (ChangeLogEntry e : changes) {
+            if (Operation.DELETE != e.getOperation() && null != e.getEntityId()) {
+                ids.computeIfAbsent(e.getEntityType(), k -> new HashSet<>()).add(e.getEntityId());
+            }
+        }
+
+        final Map<Long, Object> groups = new HashMap<>();
+        final Map<Long, Object> properties = new HashMap<>();
+        final Map<Long, Object> tags = new HashMap<>();
+        if (ids.containsKey(EntityType.PROPERTY_GROUP)) {
+            for (PropertyGroup pg : pgDao.byIds(ids.get(EntityType.PROPERTY_GROUP))) {
+                groups.put(pg.getId(), pg);
+            }
+        }
+        if (ids.containsKey(EntityType.PROPERTY)) {
+            for (Property p : propDao.byIds(ids.get(EntityType.PROPERTY))) {
+                properties.put(p.getId(), p);
+            }
+        }
+        if (ids.containsKey(EntityType.TAG)) {
+            for (Tag t : tagDao.byIds(ids.get(EntityType.TAG))) {
+                tags.put(t.getId(), t);
+            }
+        }
+
+        for (ChangeLogEntry e : changes) {
+            switch (e.getEntityType()) {
+            case PROPERTY_GROUP:
+                e.setEntity(groups.get(e.getEntityId()));
+                break;
+            case PROPERTY:
+                e.setEntity(properties.get(e.getEntityId()));
+                break;
+            case TAG:
+                e.setEntity(tags.get(e.getEntityId()));
+                break;
+            default:
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.persistence.ReadSnapshot;
+import org.skife.jdbi.v2.ResultIterator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@Api("export")
+@Path("/erector/api/v1/export")
+@Produces(ExportResource.NDJSON)
+public class ExportResource {
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final Supplier<ReadSnapshot> snapshots;
+    private final ObjectMapper mapper;
+    private final int fetchSize;
+
+    public ExportResource(Supplier<ReadSnapshot> snapshots, ObjectMapper mapper, int fetchSize) {
+        this.snapshots = checkNotNull(snapshots);
+        this.mapper = checkNotNull(mapper).copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.fetchSize = fetchSize;
+    }
+
+    @GET
+    @Path("/properties")
+    @ApiOperation(value = "Exports every Property", notes = "Streams one JSON document per line ordered by id")
+    public StreamingOutput properties() {
+        return out -> {
+            try (ReadSnapshot snapshot = snapshots.get();
+                    ResultIterator<Property> props = snapshot.propertyDao().iterateAll(fetchSize)) {
+                final OutputStream os = new BufferedOutputStream(out);
+                while (props.hasNext()) {
+                    writeLine(os, props.next());
+                }
+                os.flush();
+            }
+        };
+    }
+
+    @GET
+    @Path("/propertygroups")
+    @ApiOperation(value = "Exports every PropertyGroup with its Tags", notes = "Streams one JSON document per line ordered by id, the PropertyGroups and Tags are read from one snapshot")
+    public StreamingOutput propertyGroups() {
+        return out -> {
+            try (ReadSnapshot snapshot = snapshots.get();
+                    ResultIterator<PropertyGroup> groups = snapshot.propertyGroupDao().iterateAll(fetchSize);
+                    ResultIterator<PropertyGroupTag> tags = snapshot.tagDao().iterateAssociations(fetchSize)) {
+                final OutputStream os = new BufferedOutputStream(out);
+                PropertyGroupTag tag = tags.hasNext() ? tags.next() : null;
+                while (groups.hasNext()) {
+                    final PropertyGroup pg = groups.next();
+                    final ObjectNode node = mapper.valueToTree(pg);
+                    final ArrayNode tagNodes = node.putArray("tags");
+
+                    // both sides are ordered by PropertyGroup id so the tags are merged in a single pass
+                    while (null != tag && tag.getPropertyGroupId() < pg.getId()) {
+                        tag = tags.hasNext() ? tags.next() : null;
+                    }
+                    while (null != tag && tag.getPropertyGroupId().equals(pg.getId())) {
+                        tagNodes.add(mapper.valueToTree(tag.getTag()));
+                        tag = tags.hasNext() ? tags.next() : null;
+                    }
+
+                    writeLine(os, node);
+                }
+                os.flush();
+            }
+        };
+    }
+
+    private void writeLine(OutputStream os, Object value) throws IOException {
+        mapper.writeValue(os, value);
+        os.write('\n');
+    }
+}
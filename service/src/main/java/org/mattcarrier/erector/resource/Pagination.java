@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.Sort;
+
+import com.google.common.collect.ImmutableSet;
+
+final class Pagination {
+    /**
+     * The query parameters that control paging, every other parameter of a search is a filter.
+     */
+    static final Set<String> PARAMETERS = ImmutableSet.of("start", "limit", "sort", "cursor", "count");
+
+    private Pagination() {
+    }
+
+    /**
+     * The bindings of a search without its paging, i.e. what its total depends on.
+     */
+    static Map<String, String> filter(Map<String, String> bindings) {
+        final Map<String, String> filter = new HashMap<>(bindings);
+        filter.remove("start");
+        filter.remove("limit");
+        return filter;
+    }
+
+    static Cursor cursor(String token) {
+        if (null == token) {
+            return null;
+        }
+
+        try {
+            return Cursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException("Invalid cursor", Status.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Resolves the total order a search runs with: the cursor's sorts when continuing, otherwise the requested or
+     * default sorts with the id tiebreaker appended. Every sort field must be one of {@code fields}.
+     */
+    static List<Sort> sorts(List<Sort> requested, List<Sort> defaults, Cursor cursor, Set<String> fields) {
+        final List<Sort> sorts = Cursor.withTiebreaker(requested.isEmpty() ? defaults : requested);
+        if (null != cursor && !requested.isEmpty() && !sorts.equals(cursor.getSorts())) {
+            throw new WebApplicationException("sort does not match the cursor", Status.BAD_REQUEST);
+        }
+
+        final List<Sort> resolved = null == cursor ? sorts : cursor.getSorts();
+        for (Sort s : resolved) {
+            if (!fields.contains(s.getField())) {
+                throw new WebApplicationException("Unknown sort field " + s.getField(), Status.BAD_REQUEST);
+            }
+        }
+
+        return resolved;
+    }
+}
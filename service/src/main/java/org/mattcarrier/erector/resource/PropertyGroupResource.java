@@ -26,14 +26,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
@@ -48,20 +51,38 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
+import org.mattcarrier.erector.api.CountMode;
 import org.mattcarrier.erector.api.PagedResponse;
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyDao;
 import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
 import org.mattcarrier.erector.dao.Sort;
 import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
 import org.mattcarrier.erector.domain.PropertyGroup;
 import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.hierarchy.PropertyGroupHierarchy;
+import org.mattcarrier.erector.index.TagIndex;
+import org.mattcarrier.erector.persistence.ReadScope;
+import org.mattcarrier.erector.persistence.cache.CountCache;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
 
+import com.google.common.collect.ImmutableSet;
+
+import io.dropwizard.util.Duration;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -73,23 +94,46 @@ import jersey.repackaged.com.google.common.collect.ImmutableList;
 @Path("/erector/api/v1/propertygroups")
 @Produces(MediaType.APPLICATION_JSON)
 public class PropertyGroupResource {
+    private static final Set<String> SORT_FIELDS = ImmutableSet.of("id", "name", "version", "status");
+
     private final PropertyGroupDao pgDao;
+    private final PropertyDao propDao;
     private final TagDao tagDao;
+    private final RevisionDao revisionDao;
+    private final ReadScope reads;
+    private final PropertyGroupHierarchy hierarchy;
+    private final PropertyGroupWatcher watcher;
+    private final CountCache counts;
+    private final TagIndex tagIndex;
+    private final Bulkheads bulkheads;
 
-    public PropertyGroupResource(PropertyGroupDao pgDao, TagDao tagDao) {
+    public PropertyGroupResource(PropertyGroupDao pgDao, PropertyDao propDao, TagDao tagDao,
+            RevisionDao revisionDao, ReadScope reads, PropertyGroupHierarchy hierarchy,
+            PropertyGroupWatcher watcher, CountCache counts, TagIndex tagIndex, Bulkheads bulkheads) {
         this.pgDao = checkNotNull(pgDao);
+        this.propDao = checkNotNull(propDao);
         this.tagDao = checkNotNull(tagDao);
+        this.revisionDao = checkNotNull(revisionDao);
+        this.reads = checkNotNull(reads);
+        this.hierarchy = checkNotNull(hierarchy);
+        this.watcher = checkNotNull(watcher);
+        this.counts = checkNotNull(counts);
+        this.tagIndex = checkNotNull(tagIndex);
+        this.bulkheads = checkNotNull(bulkheads);
     }
 
     @POST
     @ApiOperation("Creates a PropertyGroup")
     @ApiResponses({
             @ApiResponse(code = 201, message = "Created", responseHeaders = @ResponseHeader(name = "location", description = "location of created resource")) })
-    public Response create(@Valid PropertyGroup pg) throws URISyntaxException {
-        if (null != pg.getId()) { throw new WebApplicationException("PropertyGroup already exists.", Status.CONFLICT); }
+    public void create(@Valid PropertyGroup pg, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            if (null != pg.getId()) { throw new WebApplicationException("PropertyGroup already exists.",
+                    Status.CONFLICT); }
 
-        return Response.created(new URI("/erector/api/v1/propertygroups/" + pgDao.createPropertyGroup(pg)))
-                .type(MediaType.APPLICATION_JSON).build();
+            return Response.created(new URI("/erector/api/v1/propertygroups/" + pgDao.createPropertyGroup(pg)))
+                    .type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @PUT
@@ -98,15 +142,18 @@ public class PropertyGroupResource {
     @ApiResponses({ @ApiResponse(code = 204, message = "Updated Successfully"),
             @ApiResponse(code = 400, message = "PropertyGroup is not persisted"),
             @ApiResponse(code = 404, message = "PropertyGroup not found") })
-    public Response update(@PathParam("id") Long id, @Valid PropertyGroup pg) {
-        if (null == pg.getId()
-                || !id.equals(pg.getId())) { throw new WebApplicationException("PropertyGroup is not persisted.",
-                        Status.BAD_REQUEST); }
+    public void update(@PathParam("id") Long id, @Valid PropertyGroup pg, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            if (null == pg.getId()
+                    || !id.equals(pg.getId())) { throw new WebApplicationException("PropertyGroup is not persisted.",
+                            Status.BAD_REQUEST); }
 
-        if (0 == pgDao.updatePropertyGroup(
-                pg)) { throw new WebApplicationException("PropertyGroup Not Found", Status.NOT_FOUND); }
+            if (0 == pgDao.updatePropertyGroup(
+                    pg)) { throw new WebApplicationException("PropertyGroup Not Found", Status.NOT_FOUND); }
 
-        return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+            watcher.changed(id);
+            return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @DELETE
@@ -114,20 +161,116 @@ public class PropertyGroupResource {
     @ApiOperation(value = "Deletes a PropertyGroup")
     @ApiResponses({ @ApiResponse(code = 204, message = "Deletion Successfully"),
             @ApiResponse(code = 404, message = "PropertyGroup not found") })
-    public Response delete(@PathParam("id") Long id) {
-        pgDao.deletePropertyGroup(id);
-        return Response.ok().type(MediaType.APPLICATION_JSON).build();
+    public void delete(@PathParam("id") Long id, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            pgDao.deletePropertyGroup(id);
+            hierarchy.invalidate(id);
+            watcher.changed(id);
+            return Response.ok().type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @GET
     @Path("/{id}")
-    @ApiOperation(value = "Gets a PropertyGroup by ID")
+    @ApiOperation(value = "Gets a PropertyGroup by ID", notes = "Responds with a strong ETag and honors If-None-Match", response = PropertyGroup.class)
+    @ApiResponses({ @ApiResponse(code = 304, message = "PropertyGroup not modified"),
+            @ApiResponse(code = 404, message = "PropertyGroup not found") })
+    public void byId(@Context Request request, @PathParam("id") Long id, @Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, () -> {
+            final RevisionedPropertyGroup pg = pgDao.revisionedById(id);
+            if (null == pg) { throw new NotFoundException("PropertyGroup not found"); }
+
+            return EntityTags.conditional(request, pg.getRevision(), pg::getPropertyGroup);
+        });
+    }
+
+    @GET
+    @Path("/{id}/watch")
+    @ApiOperation(value = "Waits for the PropertyGroup to change", notes = "Completes with the PropertyGroup and its ETag as soon as the PropertyGroup, one of its Properties or one of its Tags changes past revision. The revision is the value of a previous ETag", response = PropertyGroup.class)
+    @ApiResponses({ @ApiResponse(code = 304, message = "PropertyGroup did not change before the timeout"),
+            @ApiResponse(code = 404, message = "PropertyGroup not found") })
+    public void watch(@PathParam("id") Long id, @QueryParam("revision") @DefaultValue("0") long revision,
+            @QueryParam("timeout") @DefaultValue("30") @Min(1) Integer timeout,
+            @Suspended AsyncResponse response) {
+        watcher.watch(id, revision, Duration.seconds(timeout), response);
+    }
+
+    @GET
+    @Path("/{id}/config")
+    @ApiOperation(value = "Gets all Property keys and values for the PropertyGroup", notes = "Properties are returned in a single response ordered by key. When inherited is set the properties of all parent PropertyGroups are included, overridden by the PropertyGroup's own properties", response = String.class, responseContainer = "Map")
     @ApiResponse(code = 404, message = "PropertyGroup not found")
-    public PropertyGroup byId(@PathParam("id") Long id) {
-        final PropertyGroup pg = pgDao.byId(id);
-        if (null == pg) { throw new NotFoundException("PropertyGroup not found"); }
+    public void config(@PathParam("id") Long id, @QueryParam("inherited") @DefaultValue("false") boolean inherited,
+            @Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, () -> config(id, inherited));
+    }
 
-        return pg;
+    private Map<String, String> config(Long id, boolean inherited) {
+        if (inherited) {
+            final Map<String, String> config = hierarchy.resolve(id);
+            if (config.isEmpty() && null == pgDao.byId(id)) {
+                hierarchy.invalidate(id);
+                throw new NotFoundException("PropertyGroup not found");
+            }
+
+            return config;
+        }
+
+        final List<Property> props = propDao.byPropertyGroupId(id);
+        if (props.isEmpty()) {
+            get(id);
+        }
+
+        final Map<String, String> config = new LinkedHashMap<>();
+        for (Property p : props) {
+            config.put(p.getKey(), p.getValue());
+        }
+
+        return config;
+    }
+
+    @GET
+    @Path("/{id}/parents")
+    @ApiOperation(value = "Lists the ids of the PropertyGroups this PropertyGroup inherits from", response = Long.class, responseContainer = "List")
+    @ApiResponse(code = 404, message = "PropertyGroup not found")
+    public void parents(@PathParam("id") Long id, @Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, () -> hierarchy.parents(get(id).getId()));
+    }
+
+    @PUT
+    @Path("/{id}/parents/{parentId}")
+    @ApiOperation(value = "Makes the PropertyGroup inherit the properties of another PropertyGroup")
+    @ApiResponses({ @ApiResponse(code = 204, message = "Added Successfully"),
+            @ApiResponse(code = 404, message = "PropertyGroup not found"),
+            @ApiResponse(code = 409, message = "if the dependency already exists or would create a cycle") })
+    public void addParent(@PathParam("id") Long id, @PathParam("parentId") Long parentId,
+            @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            get(id);
+            get(parentId);
+            try {
+                hierarchy.addParent(id, parentId);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new WebApplicationException(e.getMessage(), Status.CONFLICT);
+            }
+
+            return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+        });
+    }
+
+    @DELETE
+    @Path("/{id}/parents/{parentId}")
+    @ApiOperation(value = "Stops the PropertyGroup inheriting the properties of another PropertyGroup")
+    @ApiResponses({ @ApiResponse(code = 204, message = "Deletion Successfully"),
+            @ApiResponse(code = 404, message = "Dependency not found") })
+    public void removeParent(@PathParam("id") Long id, @PathParam("parentId") Long parentId,
+            @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            if (!hierarchy.removeParent(id, parentId)) {
+                throw new WebApplicationException("Dependency Not Found", Status.NOT_FOUND);
+            }
+
+            return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @POST
@@ -135,12 +278,22 @@ public class PropertyGroupResource {
     @ApiOperation("Creates a Tag and associates the Tag to the PropertyGroup")
     @ApiResponses({
             @ApiResponse(code = 201, message = "Created", responseHeaders = @ResponseHeader(name = "location", description = "location of all tags for propertygroup")),
+            @ApiResponse(code = 400, message = "if the tag key is not part of the tag domain"),
             @ApiResponse(code = 409, message = "if the tag is already persisted") })
-    public Response createTag(@PathParam("id") Long propertyGroupId, @Valid Tag tag) throws URISyntaxException {
+    public void createTag(@PathParam("id") Long propertyGroupId, @Valid Tag tag, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> createTag(propertyGroupId, tag));
+    }
+
+    private Response createTag(Long propertyGroupId, Tag tag) throws URISyntaxException {
         if (null != tag.getId()) { throw new WebApplicationException("Tag already exists.", Status.CONFLICT); }
 
         tag.setId(tagDao.addTag(tag.getKey(), tag.getValue()));
+        if (null == tag.getId()) { throw new WebApplicationException(
+                tag.getKey() + " is not part of the tag domain", Status.BAD_REQUEST); }
+
         tagDao.associateTag(tag.getId(), propertyGroupId);
+        pgDao.touch(propertyGroupId);
+        watcher.changed(propertyGroupId);
         return Response.created(new URI("/erector/api/v1/propertygroups/" + propertyGroupId + "/tags"))
                 .type(MediaType.APPLICATION_JSON).build();
     }
@@ -149,52 +302,81 @@ public class PropertyGroupResource {
     @Path("{propertyGroupId}/tags/{tagId}")
     @ApiOperation(value = "Deletes an associated Tag")
     @ApiResponses({ @ApiResponse(code = 204, message = "Deletion Successfully") })
-    public Response deleteTag(@PathParam("propertyGroupId") Long propertyGroupId, @PathParam("tagId") Long tagId) {
-        tagDao.disassociateTag(tagId);
-        tagDao.removeTag(tagId);
-        return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+    public void deleteTag(@PathParam("propertyGroupId") Long propertyGroupId, @PathParam("tagId") Long tagId,
+            @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            pgDao.touchByTagId(tagId);
+            tagDao.disassociateTag(tagId);
+            tagDao.removeTag(tagId);
+            watcher.changed(propertyGroupId);
+            return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @GET
     @Path("/{id}/tags")
-    @ApiOperation("Retrieves all Tags for the PropertyGroup")
-    @ApiResponses({ @ApiResponse(code = 404, message = "PropertyGroup not found") })
-    public Collection<Tag> tags(@PathParam("id") Long propertyGroupId) {
-        return tagDao.byPropertyGroupId(byId(propertyGroupId).getId());
+    @ApiOperation(value = "Retrieves all Tags for the PropertyGroup", notes = "Responds with a strong ETag and honors If-None-Match", response = Tag.class, responseContainer = "List")
+    @ApiResponses({ @ApiResponse(code = 304, message = "Tags not modified"),
+            @ApiResponse(code = 404, message = "PropertyGroup not found") })
+    public void tags(@Context Request request, @PathParam("id") Long propertyGroupId,
+            @Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, () -> reads.consistently(() -> EntityTags.conditional(request,
+                revision(propertyGroupId), () -> tagDao.byPropertyGroupId(propertyGroupId))));
     }
 
     @DELETE
     @Path("{propertyGroupId}/tags")
     @ApiOperation(value = "Deletes an associated Tag")
     @ApiResponses({ @ApiResponse(code = 204, message = "Deletion Successfully") })
-    public Response removeAllTags(@PathParam("propertyGroupId") Long propertyGroupId) {
-        final Set<Long> tagIds = tags(propertyGroupId).parallelStream().map(t -> {
-            return t.getId();
-        }).collect(Collectors.toSet());
-        tagDao.disassociateTags(tagIds);
-        tagDao.removeTags(tagIds);
-        return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+    public void removeAllTags(@PathParam("propertyGroupId") Long propertyGroupId, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> {
+            final Set<Long> tagIds = tagDao.byPropertyGroupId(get(propertyGroupId).getId()).parallelStream()
+                    .map(t -> {
+                        return t.getId();
+                    }).collect(Collectors.toSet());
+            if (!tagIds.isEmpty()) {
+                tagDao.disassociateTags(tagIds);
+                tagDao.removeTags(tagIds);
+                pgDao.touch(propertyGroupId);
+                watcher.changed(propertyGroupId);
+            }
+            return Response.noContent().type(MediaType.APPLICATION_JSON).build();
+        });
     }
 
     @GET
-    @ApiOperation(value = "Search for PropertyGroups", notes = "All fields area available for filtering and sortering as well as start and limit for pagination", response = PropertyGroup.class, responseContainer = "List")
-    public PagedResponse<PropertyGroup> filter(@Context UriInfo uriInfo,
+    @ApiOperation(value = "Search for PropertyGroups", notes = "All fields area available for filtering and sortering. count=none skips the total and count=cached serves it from a cache invalidated by writes, hasMore is always set. Pages are continued by passing the next cursor of the previous page, start remains for compatibility but reads every skipped row. Responds with a strong ETag and honors If-None-Match", response = PropertyGroup.class, responseContainer = "List")
+    @ApiResponses({ @ApiResponse(code = 304, message = "Search results not modified"),
+            @ApiResponse(code = 400, message = "Invalid cursor or sort") })
+    public void filter(@Context UriInfo uriInfo, @Context Request request,
             @QueryParam("limit") @DefaultValue("50") @Min(1) Integer limit,
-            @QueryParam("start") @DefaultValue("0") Integer start, @QueryParam("sort") List<Sort> sorts) {
+            @QueryParam("start") @DefaultValue("0") Integer start, @QueryParam("sort") List<Sort> sorts,
+            @QueryParam("cursor") String cursor, @QueryParam("count") @DefaultValue("exact") CountMode count,
+            @Suspended AsyncResponse response) {
         final MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-        final Map<String, String> bindings = new HashMap<>();
-        bindings.put("start", String.valueOf(start));
-        bindings.put("limit", String.valueOf(limit));
+        bulkheads.search().execute(response, () -> reads.consistently(() -> {
+            final long revision = revisionDao.current();
+            return EntityTags.conditional(request, revision,
+                    () -> filter(queryParams, limit, start, sorts, Pagination.cursor(cursor), count, revision));
+        }));
+    }
 
-        if (sorts.isEmpty()) {
-            sorts = ImmutableList.of(new Sort("status"), new Sort("id"));
+    private PagedResponse<PropertyGroup> filter(MultivaluedMap<String, String> queryParams, Integer limit,
+            Integer start, List<Sort> requested, Cursor cursor, CountMode count, long revision) {
+        final List<Sort> sorts = Pagination.sorts(requested, ImmutableList.of(new Sort("status"), new Sort("id")),
+                cursor, SORT_FIELDS);
+        if (null != cursor) {
+            start = 0;
         }
 
+        final Map<String, String> bindings = new HashMap<>();
+        bindings.put("start", String.valueOf(start));
+        bindings.put("limit", String.valueOf(limit + 1));
+
         final Set<Tag> tags = new HashSet<>();
         for (Entry<String, List<String>> e : queryParams.entrySet()) {
             final String key = e.getKey();
-            if (e.getValue().isEmpty() || bindings.containsKey(key) || e.getKey().equals("sort") || key.equals("start")
-                    || key.equals("limit")) {
+            if (e.getValue().isEmpty() || bindings.containsKey(key) || Pagination.PARAMETERS.contains(key)) {
                 continue;
             }
 
@@ -209,12 +391,89 @@ public class PropertyGroupResource {
             tags.add(t);
         }
 
+        final Long[] ids = tags.isEmpty() ? null : indexed(tags);
+        final List<PropertyGroup> fetched;
         if (tags.isEmpty()) {
-            final int total = pgDao.filterNoTagsCount(bindings);
-            return new PagedResponse<>(pgDao.filterNoTags(bindings, sorts), start / limit, limit, total);
+            fetched = pgDao.filterNoTags(bindings, sorts, cursor);
+        } else if (null == ids) {
+            fetched = pgDao.filterWithTags(bindings, sorts, tags, cursor);
+        } else {
+            fetched = 0 == ids.length ? ImmutableList.of() : pgDao.filterByIds(bindings, sorts, ids, cursor);
+        }
+
+        final boolean hasMore = fetched.size() > limit;
+        final List<PropertyGroup> results = hasMore ? fetched.subList(0, limit) : fetched;
+        final String next = hasMore
+                ? Cursor.after(sorts, results.get(results.size() - 1), PropertyGroupResource::column).encode() : null;
+        return new PagedResponse<>(results, start / limit, limit, total(bindings, tags, ids, count, revision),
+                hasMore, next);
+    }
+
+    /**
+     * Ids of the PropertyGroups carrying every tag according to the tag index, null when the index can not answer.
+     */
+    private Long[] indexed(Set<Tag> tags) {
+        final BitSet matches = tagIndex.search(tags);
+        if (null == matches) {
+            return null;
+        }
+
+        final Long[] ids = new Long[matches.cardinality()];
+        for (int i = 0, id = matches.nextSetBit(0); id >= 0; i++, id = matches.nextSetBit(id + 1)) {
+            ids[i] = (long) id;
         }
 
-        final int total = pgDao.filterWithTagsCount(bindings, tags);
-        return new PagedResponse<>(pgDao.filterWithTags(bindings, sorts, tags), start / limit, limit, total);
+        return ids;
+    }
+
+    private Integer total(Map<String, String> bindings, Set<Tag> tags, Long[] ids, CountMode count, long revision) {
+        final Supplier<Integer> exact;
+        if (tags.isEmpty()) {
+            exact = () -> pgDao.filterNoTagsCount(bindings);
+        } else if (null == ids) {
+            exact = () -> pgDao.filterWithTagsCount(bindings, tags);
+        } else if (0 == ids.length) {
+            exact = () -> 0;
+        } else {
+            exact = () -> pgDao.filterByIdsCount(bindings, ids);
+        }
+
+        switch (count) {
+        case NONE:
+            return null;
+        case CACHED:
+            return counts.get(revision, "propertygroups", Arrays.asList(Pagination.filter(bindings), tags), exact);
+        default:
+            return exact.get();
+        }
+    }
+
+    private static Object column(PropertyGroup pg, String field) {
+        switch (field) {
+        case "id":
+            return pg.getId();
+        case "name":
+            return pg.getName();
+        case "version":
+            return pg.getVersion();
+        case "status":
+            return pg.getStatus();
+        default:
+            throw new IllegalArgumentException("Unknown sort field " + field);
+        }
+    }
+
+    private PropertyGroup get(Long id) {
+        final PropertyGroup pg = pgDao.byId(id);
+        if (null == pg) { throw new NotFoundException("PropertyGroup not found"); }
+
+        return pg;
+    }
+
+    private long revision(Long id) {
+        final Long revision = pgDao.revision(id);
+        if (null == revision) { throw new NotFoundException("PropertyGroup not found"); }
+
+        return revision;
     }
 }
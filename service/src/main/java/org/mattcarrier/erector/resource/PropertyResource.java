@@ -24,15 +24,19 @@ package org.mattcarrier.erector.resource;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -44,17 +48,34 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
+import org.mattcarrier.erector.api.BulkResult;
+import org.mattcarrier.erector.api.CountMode;
 import org.mattcarrier.erector.api.PagedResponse;
+import org.mattcarrier.erector.bulk.PropertyImporter;
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.Cursor;
 import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.RevisionedProperty;
 import org.mattcarrier.erector.dao.Sort;
 import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.hierarchy.PropertyGroupHierarchy;
+import org.mattcarrier.erector.persistence.ReadScope;
+import org.mattcarrier.erector.persistence.cache.CountCache;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
+
+import com.google.common.collect.ImmutableSet;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -67,23 +88,71 @@ import jersey.repackaged.com.google.common.collect.ImmutableList;
 @Path("/erector/api/v1/properties")
 @Produces(MediaType.APPLICATION_JSON)
 public class PropertyResource {
+    private static final Set<String> SORT_FIELDS = ImmutableSet.of("id", "key", "value", "description",
+            "propertyGroupId");
+
     private final PropertyDao propDao;
+    private final PropertyGroupDao pgDao;
+    private final RevisionDao revisionDao;
+    private final ReadScope reads;
+    private final PropertyGroupHierarchy hierarchy;
+    private final PropertyGroupWatcher watcher;
+    private final CountCache counts;
+    private final PropertyImporter importer;
+    private final Bulkheads bulkheads;
 
-    public PropertyResource(PropertyDao propDao) {
+    public PropertyResource(PropertyDao propDao, PropertyGroupDao pgDao, RevisionDao revisionDao, ReadScope reads,
+            PropertyGroupHierarchy hierarchy, PropertyGroupWatcher watcher, CountCache counts,
+            PropertyImporter importer, Bulkheads bulkheads) {
         this.propDao = checkNotNull(propDao);
+        this.pgDao = checkNotNull(pgDao);
+        this.revisionDao = checkNotNull(revisionDao);
+        this.reads = checkNotNull(reads);
+        this.hierarchy = checkNotNull(hierarchy);
+        this.watcher = checkNotNull(watcher);
+        this.counts = checkNotNull(counts);
+        this.importer = checkNotNull(importer);
+        this.bulkheads = checkNotNull(bulkheads);
     }
 
     @POST
     @ApiOperation("Creates a Property")
     @ApiResponses({
             @ApiResponse(code = 201, message = "Created", responseHeaders = @ResponseHeader(name = "location", description = "location of created resource") ) })
-    public Response create(@Valid Property p) throws URISyntaxException {
+    public void create(@Valid Property p, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> create(p));
+    }
+
+    private Response create(Property p) throws URISyntaxException {
         if (null != p.getId()) {
             throw new WebApplicationException("Property already exists.", Status.CONFLICT);
         }
 
-        return Response.created(new URI("/erector/api/v1/properties/" + propDao.createProperty(p)))
-                .type(MediaType.APPLICATION_JSON).build();
+        final long id = propDao.createProperty(p);
+        pgDao.touch(p.getPropertyGroupId());
+        hierarchy.invalidate(p.getPropertyGroupId());
+        watcher.changed(p.getPropertyGroupId());
+        return Response.created(new URI("/erector/api/v1/properties/" + id)).type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    @POST
+    @Path("/bulk")
+    @Consumes({ MediaType.APPLICATION_JSON, ExportResource.NDJSON })
+    @ApiOperation(value = "Creates Properties in bulk", notes = "Accepts a JSON array or newline delimited JSON and responds with the outcome of every row, rows are written in chunks and a failing row does not reject the others", response = BulkResult.class)
+    public void bulk(InputStream in, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> bulk(in));
+    }
+
+    private BulkResult bulk(InputStream in) throws IOException {
+        final BulkResult result = importer.importFrom(in);
+        for (Long pgId : result.getPropertyGroupIds()) {
+            pgDao.touch(pgId);
+            hierarchy.invalidate(pgId);
+            watcher.changed(pgId);
+        }
+
+        return result;
     }
 
     @PUT
@@ -92,15 +161,27 @@ public class PropertyResource {
     @ApiResponses({ @ApiResponse(code = 204, message = "Updated Successfully"),
             @ApiResponse(code = 400, message = "Property is not persisted"),
             @ApiResponse(code = 404, message = "Property not found") })
-    public Response update(@PathParam("id") Long id, @Valid Property p) throws URISyntaxException {
+    public void update(@PathParam("id") Long id, @Valid Property p, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> update(id, p));
+    }
+
+    private Response update(Long id, Property p) {
         if (null == p.getId() || !id.equals(p.getId())) {
             throw new WebApplicationException("Property is not persisted.", Status.BAD_REQUEST);
         }
 
-        if (0 == propDao.updateProperty(p)) {
+        final Property existing = propDao.byId(id);
+        if (null == existing || 0 == propDao.updateProperty(p)) {
             throw new WebApplicationException("Property Not Found", Status.NOT_FOUND);
         }
 
+        pgDao.touch(existing.getPropertyGroupId());
+        pgDao.touch(p.getPropertyGroupId());
+        hierarchy.invalidate(existing.getPropertyGroupId());
+        hierarchy.invalidate(p.getPropertyGroupId());
+        watcher.changed(existing.getPropertyGroupId());
+        watcher.changed(p.getPropertyGroupId());
+
         return Response.noContent().type(MediaType.APPLICATION_JSON).build();
     }
 
@@ -109,52 +190,112 @@ public class PropertyResource {
     @ApiOperation(value = "Deletes a Property")
     @ApiResponses({ @ApiResponse(code = 204, message = "Deletion Successfully"),
             @ApiResponse(code = 404, message = "Property not found") })
-    public Response delete(@PathParam("id") Long id) {
-        if (0 == propDao.deleteProperty(id)) {
+    public void delete(@PathParam("id") Long id, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> delete(id));
+    }
+
+    private Response delete(Long id) {
+        final Property existing = propDao.byId(id);
+        if (null == existing || 0 == propDao.deleteProperty(id)) {
             throw new WebApplicationException("Property Not Found", Status.NOT_FOUND);
         }
 
+        pgDao.touch(existing.getPropertyGroupId());
+        hierarchy.invalidate(existing.getPropertyGroupId());
+        watcher.changed(existing.getPropertyGroupId());
+
         return Response.noContent().type(MediaType.APPLICATION_JSON).build();
     }
 
     @GET
     @Path("/{id}")
-    @ApiOperation(value = "Gets a Property by ID")
-    @ApiResponse(code = 404, message = "Property not found")
-    public Property byId(@PathParam("id") Long id) {
-        final Property p = propDao.byId(id);
+    @ApiOperation(value = "Gets a Property by ID", notes = "Responds with a strong ETag and honors If-None-Match", response = Property.class)
+    @ApiResponses({ @ApiResponse(code = 304, message = "Property not modified"),
+            @ApiResponse(code = 404, message = "Property not found") })
+    public void byId(@Context Request request, @PathParam("id") Long id, @Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, () -> byId(request, id));
+    }
+
+    private Response byId(Request request, Long id) {
+        final RevisionedProperty p = propDao.revisionedById(id);
         if (null == p) {
             throw new NotFoundException("Property not found");
         }
 
-        return p;
+        return EntityTags.conditional(request, p.getRevision(), p::getProperty);
     }
 
     @GET
-    @ApiOperation(value = "Search for Properties", notes = "All fields area available for filtering and sortering as well as start and limit for pagination", response = Property.class, responseContainer = "List")
-    public PagedResponse<Property> filter(@Context UriInfo uriInfo,
+    @ApiOperation(value = "Search for Properties", notes = "All fields area available for filtering and sortering. count=none skips the total and count=cached serves it from a cache invalidated by writes, hasMore is always set. Pages are continued by passing the next cursor of the previous page, start remains for compatibility but reads every skipped row. Responds with a strong ETag and honors If-None-Match", response = Property.class, responseContainer = "List")
+    @ApiResponses({ @ApiResponse(code = 304, message = "Search results not modified"),
+            @ApiResponse(code = 400, message = "Invalid cursor or sort") })
+    public void filter(@Context UriInfo uriInfo, @Context Request request,
             @QueryParam("limit") @DefaultValue("50") @Min(1) Integer limit,
-            @QueryParam("start") @DefaultValue("0") Integer start, @QueryParam("sort") List<Sort> sorts) {
+            @QueryParam("start") @DefaultValue("0") Integer start, @QueryParam("sort") List<Sort> sorts,
+            @QueryParam("cursor") String cursor, @QueryParam("count") @DefaultValue("exact") CountMode count,
+            @Suspended AsyncResponse response) {
         final MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
-        final Map<String, String> bindings = new HashMap<>();
-        bindings.put("start", String.valueOf(start));
-        bindings.put("limit", String.valueOf(limit));
+        bulkheads.search().execute(response, () -> reads.consistently(() -> {
+            final long revision = revisionDao.current();
+            return EntityTags.conditional(request, revision,
+                    () -> filter(queryParams, limit, start, sorts, Pagination.cursor(cursor), count, revision));
+        }));
+    }
 
-        if (sorts.isEmpty()) {
-            sorts = ImmutableList.of(new Sort("id"));
+    private PagedResponse<Property> filter(MultivaluedMap<String, String> queryParams, Integer limit, Integer start,
+            List<Sort> requested, Cursor cursor, CountMode count, long revision) {
+        final List<Sort> sorts = Pagination.sorts(requested, ImmutableList.of(new Sort("id")), cursor, SORT_FIELDS);
+        if (null != cursor) {
+            start = 0;
         }
 
+        final Map<String, String> bindings = new HashMap<>();
+        bindings.put("start", String.valueOf(start));
+        bindings.put("limit", String.valueOf(limit + 1));
+
         for (Entry<String, List<String>> e : queryParams.entrySet()) {
             final String key = e.getKey();
-            if (e.getValue().isEmpty() || bindings.containsKey(key) || e.getKey().equals("sort") || key.equals("start")
-                    || key.equals("limit")) {
+            if (e.getValue().isEmpty() || bindings.containsKey(key) || Pagination.PARAMETERS.contains(key)) {
                 continue;
             }
 
             bindings.put(key, e.getValue().get(0));
         }
 
-        final int total = propDao.filterCount(bindings);
-        return new PagedResponse<>(propDao.filter(bindings, sorts), start / limit, limit, total);
+        final List<Property> fetched = propDao.filter(bindings, sorts, cursor);
+        final boolean hasMore = fetched.size() > limit;
+        final List<Property> results = hasMore ? fetched.subList(0, limit) : fetched;
+        final String next = hasMore
+                ? Cursor.after(sorts, results.get(results.size() - 1), PropertyResource::column).encode() : null;
+        return new PagedResponse<>(results, start / limit, limit, total(bindings, count, revision), hasMore, next);
+    }
+
+    private Integer total(Map<String, String> bindings, CountMode count, long revision) {
+        switch (count) {
+        case NONE:
+            return null;
+        case CACHED:
+            return counts.get(revision, "properties", Pagination.filter(bindings),
+                    () -> propDao.filterCount(bindings));
+        default:
+            return propDao.filterCount(bindings);
+        }
+    }
+
+    private static Object column(Property p, String field) {
+        switch (field) {
+        case "id":
+            return p.getId();
+        case "key":
+            return p.getKey();
+        case "value":
+            return p.getValue();
+        case "description":
+            return p.getDescription();
+        case "propertyGroupId":
+            return p.getPropertyGroupId();
+        default:
+            throw new IllegalArgumentException("Unknown sort field " + field);
+        }
     }
 }
@@ -35,12 +35,18 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
 import org.mattcarrier.erector.dao.TagDao;
 import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.index.TagDomain;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -52,38 +58,56 @@ import io.swagger.annotations.ApiResponses;
 @Produces(MediaType.APPLICATION_JSON)
 public class TagResource {
     private final TagDao tagDao;
+    private final PropertyGroupDao pgDao;
+    private final PropertyGroupWatcher watcher;
+    private final TagDomain domain;
+    private final Bulkheads bulkheads;
 
-    public TagResource(TagDao tagDao) {
+    public TagResource(TagDao tagDao, PropertyGroupDao pgDao, PropertyGroupWatcher watcher, TagDomain domain,
+            Bulkheads bulkheads) {
         this.tagDao = checkNotNull(tagDao);
+        this.pgDao = checkNotNull(pgDao);
+        this.watcher = checkNotNull(watcher);
+        this.domain = checkNotNull(domain);
+        this.bulkheads = checkNotNull(bulkheads);
     }
 
     @GET
     @Path("/domain")
     @ApiOperation(value = "Lists the tag domain")
-    public List<String> tagDomain() {
-        return tagDao.getTagDomain().getDomain();
+    public void tagDomain(@Suspended AsyncResponse response) {
+        bulkheads.config().execute(response, domain::keys);
     }
 
     @POST
     @Path("/domain/{tagName}")
     @ApiOperation(value = "Add a new entry into the tag domain")
     @ApiResponses({ @ApiResponse(code = 409, message = "if the entry is already in the tag domain") })
-    public List<String> addTagDomain(@PathParam("tagName") String tagName) {
-        final List<String> domain = tagDomain();
-        for (String t : domain) {
-            if (t.toLowerCase().equals(tagName.toLowerCase())) { throw new WebApplicationException(
-                    tagName + " is already part of the domain", Status.CONFLICT); }
-        }
+    public void addTagDomain(@PathParam("tagName") String tagName, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> addTagDomain(tagName));
+    }
+
+    private List<String> addTagDomain(String tagName) {
+        if (domain.contains(tagName)) { throw new WebApplicationException(tagName + " is already part of the domain",
+                Status.CONFLICT); }
 
         tagDao.createTagDomain(tagName);
-        return tagDomain();
+        domain.refresh();
+        return domain.keys();
     }
 
     @DELETE
     @Path("/domain/{tagName}")
     @ApiOperation(value = "Remove an entry from the tag domain")
-    public Response removeTagDomain(@PathParam("tagName") String tagName) {
+    public void removeTagDomain(@PathParam("tagName") String tagName, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> removeTagDomain(tagName));
+    }
+
+    private Response removeTagDomain(String tagName) {
+        pgDao.touchByTagKey(tagName);
         tagDao.deleteTagDomain(tagName);
+        domain.refresh();
+        watcher.changedAll();
         return Response.ok().type(MediaType.APPLICATION_JSON).build();
     }
 
@@ -93,11 +117,17 @@ public class TagResource {
     @ApiResponses({ @ApiResponse(code = 204, message = "Updated Successfully"),
             @ApiResponse(code = 400, message = "Tag is not persisted"),
             @ApiResponse(code = 404, message = "Tag not found") })
-    public Response update(@PathParam("id") Long id, @Valid Tag tag) {
+    public void update(@PathParam("id") Long id, @Valid Tag tag, @Suspended AsyncResponse response) {
+        bulkheads.admin().execute(response, () -> update(id, tag));
+    }
+
+    private Response update(Long id, Tag tag) {
         if (null == tag.getId() || !id.equals(tag.getId())) { throw new WebApplicationException("Tag is not persisted.",
                 Status.BAD_REQUEST); }
 
         if (0 == tagDao.update(tag)) { throw new WebApplicationException("Tag Not Found", Status.NOT_FOUND); }
+        pgDao.touchByTagId(id);
+        watcher.changedAll();
         return Response.noContent().type(MediaType.APPLICATION_JSON).build();
     }
 }
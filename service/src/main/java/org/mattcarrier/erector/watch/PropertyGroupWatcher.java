@@ -0,0 +1,248 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.watch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.Lists;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+
+/**
+ * Parks {@link AsyncResponse}s waiting for a {@link PropertyGroup} revision to move past a known value.
+ * <p/>
+ * A parked watch holds neither a container thread nor a database connection. Writes made through this node call
+ * {@link #changed(Long)} or {@link #changedAll()} to wake watchers straight away; writes made elsewhere are picked up
+ * by tailing the change log every poll interval and rechecking only the watched groups it names. All rechecks run on
+ * one scheduler thread and read the watched groups in batches, so a burst of writes cannot fan out into a burst of
+ * queries.
+ */
+public class PropertyGroupWatcher implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(PropertyGroupWatcher.class);
+    private static final int POLL_LIMIT = 1000;
+    private static final int CHECK_BATCH = 500;
+
+    private final PropertyGroupDao pgDao;
+    private final ChangeLogDao changeLogDao;
+    private final ScheduledExecutorService executor;
+    private final Duration pollInterval;
+    private final Duration maximumTimeout;
+
+    private final ConcurrentMap<Long, Set<Watch>> watches = new ConcurrentHashMap<>();
+    private volatile long lastRevision = -1;
+
+    public PropertyGroupWatcher(PropertyGroupDao pgDao, ChangeLogDao changeLogDao,
+            ScheduledExecutorService executor, Duration pollInterval, Duration maximumTimeout) {
+        this.pgDao = checkNotNull(pgDao);
+        this.changeLogDao = checkNotNull(changeLogDao);
+        this.executor = checkNotNull(executor);
+        this.pollInterval = checkNotNull(pollInterval);
+        this.maximumTimeout = checkNotNull(maximumTimeout);
+    }
+
+    /**
+     * Resumes {@code response} with the {@link PropertyGroup} once its revision is greater than {@code revision}, with
+     * a 304 if that does not happen within {@code timeout} and with a 404 if the group does not exist or is deleted.
+     */
+    public void watch(Long id, long revision, Duration timeout, AsyncResponse response) {
+        final Watch w = new Watch(revision, response);
+        final long millis = Math.min(timeout.toMilliseconds(), maximumTimeout.toMilliseconds());
+        response.setTimeout(millis, TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(r -> {
+            remove(id, w);
+            r.resume(notModified(revision));
+        });
+
+        // registering before the first check means a write landing in between is never missed
+        watches.compute(id, (k, s) -> {
+            final Set<Watch> set = null == s ? ConcurrentHashMap.newKeySet() : s;
+            set.add(w);
+            return set;
+        });
+        executor.execute(() -> check(id));
+    }
+
+    public void changed(Long id) {
+        if (watches.containsKey(id)) {
+            executor.execute(() -> check(id));
+        }
+    }
+
+    public void changedAll() {
+        if (!watches.isEmpty()) {
+            executor.execute(this::checkAll);
+        }
+    }
+
+    public Gauge<Integer> parkedGauge() {
+        return () -> watches.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void start() throws Exception {
+        lastRevision = changeLogDao.latest();
+        executor.scheduleWithFixedDelay(this::poll, pollInterval.toMilliseconds(), pollInterval.toMilliseconds(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        for (Set<Watch> set : watches.values()) {
+            for (Watch w : set) {
+                w.response.resume(notModified(w.revision));
+            }
+        }
+        watches.clear();
+    }
+
+    private void poll() {
+        try {
+            final List<ChangeLogEntry> changes = changeLogDao.since(lastRevision, POLL_LIMIT + 1);
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            lastRevision = changes.get(changes.size() - 1).getRevision();
+            final Set<Long> ids = new HashSet<>();
+            for (ChangeLogEntry e : changes) {
+                if (null == e.getPropertyGroupId()) {
+                    // tag changes do not name the groups they affect
+                    checkAll();
+                    return;
+                }
+
+                ids.add(e.getPropertyGroupId());
+            }
+
+            if (changes.size() > POLL_LIMIT) {
+                checkAll();
+                return;
+            }
+
+            check(ids);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to poll for PropertyGroup changes", e);
+        }
+    }
+
+    private void checkAll() {
+        check(new ArrayList<>(watches.keySet()));
+    }
+
+    private void check(Long id) {
+        check(Collections.singleton(id));
+    }
+
+    /**
+     * Reads the watched groups among {@code ids} a batch at a time, the revision and the body of a group come from
+     * the same row.
+     */
+    private void check(Collection<Long> ids) {
+        final List<Long> watched = ids.stream().filter(watches::containsKey).collect(Collectors.toList());
+        for (List<Long> batch : Lists.partition(watched, CHECK_BATCH)) {
+            final Map<Long, RevisionedPropertyGroup> current;
+            try {
+                current = pgDao.revisionedByIds(batch).stream()
+                        .collect(Collectors.toMap(r -> r.getPropertyGroup().getId(), r -> r));
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to check PropertyGroups {} for changes", batch, e);
+                continue;
+            }
+
+            for (Long id : batch) {
+                resume(id, current.get(id));
+            }
+        }
+    }
+
+    private void resume(Long id, RevisionedPropertyGroup current) {
+        final Set<Watch> set = watches.get(id);
+        if (null == set) {
+            return;
+        }
+
+        for (Watch w : set) {
+            if (null != current && current.getRevision() <= w.revision) {
+                continue;
+            }
+
+            remove(id, w);
+            if (null == current) {
+                w.response.resume(new NotFoundException("PropertyGroup not found"));
+            } else {
+                w.response.resume(Response.ok(current.getPropertyGroup(), MediaType.APPLICATION_JSON)
+                        .tag(new EntityTag(String.valueOf(current.getRevision()))).build());
+            }
+        }
+    }
+
+    private void remove(Long id, Watch w) {
+        watches.computeIfPresent(id, (k, s) -> {
+            s.remove(w);
+            return s.isEmpty() ? null : s;
+        });
+    }
+
+    private static Response notModified(long revision) {
+        return Response.notModified(new EntityTag(String.valueOf(revision))).build();
+    }
+
+    private static final class Watch {
+        private final long revision;
+        private final AsyncResponse response;
+
+        private Watch(long revision, AsyncResponse response) {
+            this.revision = revision;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+--
+-- The MIT License
+-- Copyright © 2016 Matt Carrier
+--
+-- Permission is hereby granted, free of charge, to any person obtaining a copy
+-- of this software and associated documentation files (the "Software"), to deal
+-- in the Software without restriction, including without limitation the rights
+-- to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+-- copies of the Software, and to permit persons to whom the Software is
+-- furnished to do so, subject to the following conditions:
+--
+-- The above copyright notice and this permission notice shall be included in
+-- all copies or substantial portions of the Software.
+--
+-- THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+-- IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+-- FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+-- AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+-- LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+-- OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+-- THE SOFTWARE.
+--
+
+CREATE TABLE ChangeLog (
+  revision BIGINT PRIMARY KEY,
+  entityType varchar(64) NOT NULL,
+  entityId BIGINT,
+  operation varchar(16) NOT NULL,
+  propertyGroupId BIGINT,
+  relatedId BIGINT,
+  tagKey varchar(128),
+  changedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX indexChangeLogEntity ON ChangeLog(entityType, entityId, revision);
+
+CREATE INDEX indexChangeLogOperation ON ChangeLog(operation, changedAt);
+
+CREATE TABLE ChangeLogFloor (
+  id INT PRIMARY KEY,
+  revision BIGINT NOT NULL
+);
+
+INSERT INTO ChangeLogFloor(id, revision) VALUES(1, 0);
+
+CREATE TRIGGER changeLogPropertyGroup AFTER INSERT, UPDATE, DELETE ON PropertyGroup FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER changeLogPropertyGroupXref AFTER INSERT, UPDATE, DELETE ON PropertyGroupXref FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER changeLogProperty AFTER INSERT, UPDATE, DELETE ON Property FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER changeLogTag AFTER INSERT, UPDATE, DELETE ON Tag FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER changeLogTagPropertyGroupXref AFTER INSERT, UPDATE, DELETE ON TagPropertyGroupXref FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
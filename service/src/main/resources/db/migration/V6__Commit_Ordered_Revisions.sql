@@ -0,0 +1,40 @@
+--
+-- The MIT License
+-- Copyright © 2016 Matt Carrier
+--
+-- Permission is hereby granted, free of charge, to any person obtaining a copy
+-- of this software and associated documentation files (the "Software"), to deal
+-- in the Software without restriction, including without limitation the rights
+-- to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+-- copies of the Software, and to permit persons to whom the Software is
+-- furnished to do so, subject to the following conditions:
+--
+-- The above copyright notice and this permission notice shall be included in
+-- all copies or substantial portions of the Software.
+--
+-- THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+-- IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+-- FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+-- AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+-- LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+-- OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+-- THE SOFTWARE.
+--
+
+CREATE TABLE RevisionLock (
+  id INT PRIMARY KEY
+);
+
+INSERT INTO RevisionLock(id) VALUES(1);
+
+CREATE TRIGGER revisionLockPropertyGroup BEFORE INSERT, UPDATE, DELETE ON PropertyGroup FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER revisionLockPropertyGroupXref BEFORE INSERT, UPDATE, DELETE ON PropertyGroupXref FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER revisionLockProperty BEFORE INSERT, UPDATE, DELETE ON Property FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER revisionLockTag BEFORE INSERT, UPDATE, DELETE ON Tag FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER revisionLockTagKey BEFORE INSERT, UPDATE, DELETE ON TagKey FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
+
+CREATE TRIGGER revisionLockTagPropertyGroupXref BEFORE INSERT, UPDATE, DELETE ON TagPropertyGroupXref FOR EACH ROW CALL "org.mattcarrier.erector.persistence.jdbi.ChangeLogTrigger";
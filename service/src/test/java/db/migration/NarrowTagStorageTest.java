@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import static org.junit.Assert.assertEquals;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class NarrowTagStorageTest {
+    @Test
+    public void movesTagColumnsToRows() {
+        final JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:NarrowTagStorageTest;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(ds);
+        flyway.setTarget(MigrationVersion.fromVersion("3"));
+        flyway.migrate();
+
+        final String wide = Strings.repeat("X", 80);
+        final DBI dbi = new DBI(ds);
+        final long tagId;
+        try (Handle h = dbi.open()) {
+            h.execute("ALTER TABLE Tag ADD COLUMN env VARCHAR(128); CREATE INDEX indexTagenv ON Tag(env)");
+            h.execute("ALTER TABLE Tag ADD COLUMN region VARCHAR(128); CREATE INDEX indexTagregion ON Tag(region)");
+            h.execute("ALTER TABLE Tag ADD COLUMN " + wide + " VARCHAR(128)");
+            h.execute("INSERT INTO PropertyGroup(id, name, version, status) VALUES(1, 'name', 'version', 'ACTIVE')");
+            h.execute("INSERT INTO Tag(env) VALUES('prod')");
+            h.execute("INSERT INTO Tag(region) VALUES('east')");
+            tagId = h.createQuery("SELECT id FROM Tag WHERE env = 'prod'").mapTo(Long.class).first();
+            h.execute("INSERT INTO TagPropertyGroupXref(tagId, propertyGroupId) VALUES(?, 1)", tagId);
+        }
+
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+
+        final TagDao tagDao = dbi.onDemand(TagDao.class);
+        assertEquals(ImmutableList.of("ENV", "REGION", wide), tagDao.getTagDomain());
+
+        final Tag expected = new Tag();
+        expected.setId(tagId);
+        expected.setKey("ENV");
+        expected.setValue("prod");
+        assertEquals(ImmutableSet.of(expected), ImmutableSet.copyOf(tagDao.byPropertyGroupId(1L)));
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.api.BulkResult;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+
+import com.google.common.collect.ImmutableSet;
+
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+
+public class PropertyImporterTest extends AbstractDaoTest {
+    private PropertyDao propDao;
+    private PropertyGroupDao pgDao;
+    private PropertyImporter importer;
+    private PropertyGroup pg;
+
+    @Before
+    public void setup() {
+        propDao = dbi.onDemand(PropertyDao.class);
+        pgDao = dbi.onDemand(PropertyGroupDao.class);
+        importer = new PropertyImporter(propDao, Jackson.newObjectMapper(), Validators.newValidator(), 2);
+
+        pg = new PropertyGroup();
+        pg.setName("bulk");
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+    }
+
+    @After
+    public void tearDown() {
+        for (Property p : propDao.byPropertyGroupId(pg.getId())) {
+            propDao.deleteProperty(p.getId());
+        }
+        pgDao.deletePropertyGroup(pg.getId());
+    }
+
+    @Test
+    public void ndjson() throws IOException {
+        final BulkResult result = importFrom(row("a") + "\n" + row("b") + "\n" + row("c") + "\n");
+        assertEquals(3, result.getCreated());
+        assertEquals(0, result.getFailed());
+        assertEquals(ImmutableSet.of(pg.getId()), result.getPropertyGroupIds());
+        assertEquals(3, propDao.byPropertyGroupId(pg.getId()).size());
+    }
+
+    @Test
+    public void failingRowsDoNotRejectTheirChunk() throws IOException {
+        final BulkResult result = importFrom("[" + row("a") + "," + row("a") + "," + row("") + ","
+                + "{\"key\":\"d\",\"propertyGroupId\":-1}," + row("e") + "]");
+        assertEquals(2, result.getCreated());
+        assertEquals(3, result.getFailed());
+        assertTrue(result.getRows().get(0).isCreated());
+        assertFalse(result.getRows().get(1).isCreated());
+        assertEquals(2, result.getRows().get(2).getIndex());
+        assertFalse(result.getRows().get(2).isCreated());
+        assertEquals("PropertyGroup not found.", result.getRows().get(3).getError());
+        assertTrue(result.getRows().get(4).isCreated());
+        assertEquals(2, propDao.byPropertyGroupId(pg.getId()).size());
+    }
+
+    @Test
+    public void malformedInputStopsTheImport() throws IOException {
+        final BulkResult result = importFrom(row("a") + "\n{\"key\":");
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, result.getRows().get(1).getIndex());
+    }
+
+    private BulkResult importFrom(String body) throws IOException {
+        return importer.importFrom(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String row(String key) {
+        return "{\"key\":\"" + key + "\",\"value\":\"v\",\"propertyGroupId\":" + pg.getId() + "}";
+    }
+}
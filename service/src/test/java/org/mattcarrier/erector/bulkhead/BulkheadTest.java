@@ -0,0 +1,110 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.bulkhead;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Meter;
+
+import io.dropwizard.util.Duration;
+
+public class BulkheadTest {
+    private BlockingQueue<Runnable> queue;
+    private ThreadPoolExecutor executor;
+    private Meter rejected;
+    private Bulkhead bulkhead;
+
+    @Before
+    public void setup() {
+        queue = new ArrayBlockingQueue<>(1);
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, queue);
+        rejected = new Meter();
+        bulkhead = new Bulkhead(executor, queue, Duration.seconds(10), rejected, new Meter());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void resumesWithResult() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        bulkhead.execute(response, () -> "config");
+        verify(response, timeout(1000)).resume(eq("config"));
+    }
+
+    @Test
+    public void resumesWithFailure() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        bulkhead.execute(response, () -> {
+            throw new NotFoundException();
+        });
+        verify(response, timeout(1000)).resume(any(NotFoundException.class));
+    }
+
+    @Test
+    public void rejectsOnceQueueIsFull() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AsyncResponse slow = mock(AsyncResponse.class);
+        bulkhead.execute(slow, () -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        running.await(1, TimeUnit.SECONDS);
+
+        final AsyncResponse queued = mock(AsyncResponse.class);
+        bulkhead.execute(queued, () -> "queued");
+        assertEquals(Integer.valueOf(1), bulkhead.queueDepthGauge().getValue());
+
+        final AsyncResponse shed = mock(AsyncResponse.class);
+        bulkhead.execute(shed, () -> "shed");
+        verify(shed).resume(any(ServiceUnavailableException.class));
+        assertEquals(1, rejected.getCount());
+
+        release.countDown();
+        verify(slow, timeout(1000)).resume(eq(true));
+        verify(queued, timeout(1000)).resume(eq("queued"));
+        assertEquals(Integer.valueOf(0), bulkhead.queueDepthGauge().getValue());
+    }
+}
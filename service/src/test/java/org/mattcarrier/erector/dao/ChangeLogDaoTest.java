@@ -0,0 +1,219 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.skife.jdbi.v2.Handle;
+
+import com.google.common.collect.ImmutableList;
+
+public class ChangeLogDaoTest extends AbstractDaoTest {
+    private ChangeLogDao dao;
+    private PropertyGroupDao pgDao;
+    private PropertyDao propDao;
+    private TagDao tagDao;
+
+    private long since;
+
+    @Before
+    public void setup() {
+        dao = dbi.onDemand(ChangeLogDao.class);
+        pgDao = dbi.onDemand(PropertyGroupDao.class);
+        propDao = dbi.onDemand(PropertyDao.class);
+        tagDao = dbi.onDemand(TagDao.class);
+        since = dao.latest();
+    }
+
+    @Test
+    public void writesAreLogged() {
+        final PropertyGroup pg = group();
+        final Property p = property(pg);
+        pgDao.touch(pg.getId());
+        p.setValue("value2");
+        propDao.updateProperty(p);
+
+        tagDao.createTagDomain("changeLogTag");
+        final long tagId = tagDao.addTag("changeLogTag", "value");
+        tagDao.associateTag(tagId, pg.getId());
+        tagDao.disassociateTag(tagId);
+        tagDao.removeTag(tagId);
+        tagDao.deleteTagDomain("changeLogTag");
+
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(pg.getId());
+
+        final List<ChangeLogEntry> changes = dao.since(since, 100);
+        assertEquals("CHANGELOGTAG", changes.get(3).getTagKey());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i).getRevision() > changes.get(i - 1).getRevision());
+        }
+
+        assertEquals(ImmutableList.of(
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, pg.getId(), null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.INSERT, null, null),
+                entry(EntityType.TAG, tagId, Operation.INSERT, null, null),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.INSERT, pg.getId(), tagId),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.DELETE, pg.getId(), tagId),
+                entry(EntityType.TAG, tagId, Operation.DELETE, null, null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.DELETE, null, null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.DELETE, pg.getId(), null),
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.DELETE, pg.getId(), null)),
+                changes.stream().map(this::withoutRevision).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void movesAreLoggedForBothGroups() {
+        final PropertyGroup from = group();
+        final PropertyGroup to = group();
+        final Property p = property(from);
+        p.setPropertyGroupId(to.getId());
+        propDao.updateProperty(p);
+
+        dao.compact();
+        assertEquals(ImmutableList.of(entry(EntityType.PROPERTY_GROUP, from.getId(), Operation.INSERT, from.getId(), null),
+                entry(EntityType.PROPERTY_GROUP, to.getId(), Operation.INSERT, to.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, to.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, from.getId(), null)),
+                dao.since(since, 100).stream().map(this::withoutRevision).collect(Collectors.toList()));
+
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(from.getId());
+        pgDao.deletePropertyGroup(to.getId());
+    }
+
+    @Test
+    public void compact() {
+        final PropertyGroup pg = group();
+        final Property p = property(pg);
+        p.setValue("value2");
+        propDao.updateProperty(p);
+        p.setValue("value3");
+        propDao.updateProperty(p);
+
+        dao.compact();
+        final List<ChangeLogEntry> changes = dao.since(since, 100);
+        assertEquals(ImmutableList.of(entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, pg.getId(), null)),
+                changes.stream().map(this::withoutRevision).collect(Collectors.toList()));
+
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(pg.getId());
+    }
+
+    @Test
+    public void purgeTombstones() {
+        final PropertyGroup pg = group();
+        pgDao.deletePropertyGroup(pg.getId());
+        final long deleted = dao.latest();
+
+        assertEquals(1, dao.raiseFloor(new Timestamp(System.currentTimeMillis() + 60000)));
+        assertEquals(deleted, dao.floor());
+        assertTrue(dao.purgeTombstones() >= 1);
+        assertTrue(dao.since(since, 100).stream().noneMatch(e -> Operation.DELETE == e.getOperation()));
+
+        dao.raiseFloor(new Timestamp(0));
+        assertEquals(deleted, dao.floor());
+    }
+
+    @Test
+    public void revisionsFollowCommitOrder() throws Exception {
+        final PropertyGroup first;
+        final CompletableFuture<PropertyGroup> second;
+        try (Handle h = dbi.open()) {
+            h.begin();
+            first = new PropertyGroup();
+            first.setName("changeLog");
+            first.setStatus(Status.ACTIVE);
+            first.setVersion("version");
+            first.setId(h.attach(PropertyGroupDao.class).createPropertyGroup(first));
+
+            second = CompletableFuture.supplyAsync(this::group);
+            Thread.sleep(200);
+            assertFalse(second.isDone());
+            h.commit();
+        }
+
+        final long secondId = second.get().getId();
+        final List<ChangeLogEntry> changes = dao.since(since, 100);
+        assertEquals(ImmutableList.of(first.getId(), secondId),
+                changes.stream().map(ChangeLogEntry::getEntityId).collect(Collectors.toList()));
+        assertTrue(pgDao.revision(first.getId()) < pgDao.revision(secondId));
+        pgDao.deletePropertyGroup(first.getId());
+        pgDao.deletePropertyGroup(secondId);
+    }
+
+    private PropertyGroup group() {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName("changeLog");
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    private Property property(PropertyGroup pg) {
+        final Property p = new Property();
+        p.setKey("key");
+        p.setValue("value");
+        p.setPropertyGroupId(pg.getId());
+        p.setId(propDao.createProperty(p));
+        return p;
+    }
+
+    private ChangeLogEntry withoutRevision(ChangeLogEntry e) {
+        if (EntityType.TAG_ASSOCIATION == e.getEntityType()) {
+            e.setEntityId(null);
+        }
+        e.setTagKey(null);
+        e.setRevision(0);
+        return e;
+    }
+
+    private static ChangeLogEntry entry(EntityType type, Long entityId, Operation operation, Long propertyGroupId,
+            Long relatedId) {
+        final ChangeLogEntry e = new ChangeLogEntry();
+        e.setEntityType(type);
+        e.setEntityId(entityId);
+        e.setOperation(operation);
+        e.setPropertyGroupId(propertyGroupId);
+        e.setRelatedId(relatedId);
+        return e;
+    }
+}
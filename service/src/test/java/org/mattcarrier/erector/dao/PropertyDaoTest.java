@@ -23,6 +23,11 @@
 package org.mattcarrier.erector.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -101,68 +106,136 @@ public class PropertyDaoTest extends AbstractDaoTest {
         p.setKey("key2");
         p.setPropertyGroupId(pg2.getId());
         p.setValue("value2");
+        final long created = dao.revision(p.getId());
         assertEquals(1, dao.updateProperty(p));
         assertEquals(p, dao.byId(p.getId()));
+        assertTrue(dao.revision(p.getId()) > created);
+        assertEquals(new RevisionedProperty(p, dao.revision(p.getId())), dao.revisionedById(p.getId()));
+        assertNull(dao.revisionedById(-1L));
+    }
+
+    @Test
+    public void byPropertyGroupId() {
+        assertEquals(ImmutableList.of(p, p2), dao.byPropertyGroupId(pg.getId()));
+        assertEquals(ImmutableList.of(p3), dao.byPropertyGroupId(pg2.getId()));
     }
 
     @Test
     public void filterById() {
         assertEquals(ImmutableList.of(p),
-                dao.filter(ImmutableMap.of("id", String.valueOf(p.getId())), ImmutableList.of(new Sort("id"))));
+                dao.filter(ImmutableMap.of("id", String.valueOf(p.getId())), ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void filterByDescription() {
         assertEquals(ImmutableList.of(p),
-                dao.filter(ImmutableMap.of("description", p.getDescription()), ImmutableList.of(new Sort("id"))));
+                dao.filter(ImmutableMap.of("description", p.getDescription()), ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void filterByKey() {
         assertEquals(ImmutableList.of(p, p3),
-                dao.filter(ImmutableMap.of("key", p.getKey()), ImmutableList.of(new Sort("id"))));
+                dao.filter(ImmutableMap.of("key", p.getKey()), ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void filterByPropertyGroup() {
         assertEquals(ImmutableList.of(p, p2), dao.filter(ImmutableMap.of("propertyGroupId", String.valueOf(pg.getId())),
-                ImmutableList.of(new Sort("id"))));
+                ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void pagingAll() {
         assertEquals(ImmutableList.of(p, p3),
                 dao.filter(ImmutableMap.of("key", p.getKey(), "start", "0", "limit", String.valueOf(Integer.MAX_VALUE)),
-                        ImmutableList.of(new Sort("id"))));
+                        ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void paging() {
         assertEquals(ImmutableList.of(p3), dao.filter(ImmutableMap.of("key", p.getKey(), "start", "1", "limit", "1"),
-                ImmutableList.of(new Sort("id"))));
+                ImmutableList.of(new Sort("id")), null));
     }
 
     @Test
     public void sortByKey() {
         assertEquals(ImmutableList.of(p, p3, p2),
-                dao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("key"), new Sort("id"))));
+                dao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("key"), new Sort("id")), null));
     }
 
     @Test
     public void sortByValue() {
         assertEquals(ImmutableList.of(p, p2, p3),
-                dao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("value"), new Sort("id"))));
+                dao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("value"), new Sort("id")), null));
     }
 
     @Test
     public void sortByDescription() {
         assertEquals(ImmutableList.of(p3, p2, p), dao.filter(ImmutableMap.of(),
-                ImmutableList.of(new Sort("description", Direction.DESC), new Sort("id"))));
+                ImmutableList.of(new Sort("description", Direction.DESC), new Sort("id")), null));
     }
 
     @Test
     public void sortByPropertyGroupId() {
         assertEquals(ImmutableList.of(p3, p2, p), dao.filter(ImmutableMap.of(),
-                ImmutableList.of(new Sort("description", Direction.DESC), new Sort("id"))));
+                ImmutableList.of(new Sort("description", Direction.DESC), new Sort("id")), null));
+    }
+
+    @Test
+    public void filterIgnoresUnlistedFields() {
+        assertEquals(ImmutableList.of(p, p2, p3),
+                dao.filter(ImmutableMap.of("revision", "1"), ImmutableList.of(new Sort("id")), null));
+        assertEquals(3, dao.filterCount(ImmutableMap.of("revision", "1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sortByUnlistedFieldIsRejected() {
+        dao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("revision")), null);
+    }
+
+    @Test
+    public void seekByKey() {
+        final List<Sort> sorts = ImmutableList.of(new Sort("key"));
+        assertEquals(ImmutableList.of(p, p3, p2), seekAll(sorts));
+    }
+
+    @Test
+    public void seekByDescriptionWithNulls() {
+        p2.setDescription(null);
+        dao.updateProperty(p2);
+
+        final List<Sort> asc = ImmutableList.of(new Sort("description"));
+        assertEquals(ImmutableList.of(p2, p, p3), seekAll(asc));
+        assertEquals(dao.filter(ImmutableMap.of(), Cursor.withTiebreaker(asc), null), seekAll(asc));
+
+        final List<Sort> desc = ImmutableList.of(new Sort("description", Direction.DESC));
+        assertEquals(ImmutableList.of(p3, p, p2), seekAll(desc));
+    }
+
+    private List<Property> seekAll(List<Sort> sorts) {
+        final List<Property> all = new ArrayList<>();
+        Cursor cursor = null;
+        while (true) {
+            final List<Property> page = dao.filter(ImmutableMap.of("limit", "1"), Cursor.withTiebreaker(sorts), cursor);
+            if (page.isEmpty()) {
+                return all;
+            }
+
+            all.addAll(page);
+            cursor = Cursor.decode(Cursor.after(sorts, page.get(0), PropertyDaoTest::column).encode());
+        }
+    }
+
+    private static Object column(Property p, String field) {
+        switch (field) {
+        case "id":
+            return p.getId();
+        case "key":
+            return p.getKey();
+        case "description":
+            return p.getDescription();
+        default:
+            throw new IllegalArgumentException(field);
+        }
     }
 }
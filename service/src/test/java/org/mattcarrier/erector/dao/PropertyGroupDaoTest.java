@@ -23,8 +23,12 @@
 package org.mattcarrier.erector.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -32,9 +36,11 @@ import org.junit.Test;
 import org.mattcarrier.erector.domain.PropertyGroup;
 import org.mattcarrier.erector.domain.Tag;
 import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.skife.jdbi.v2.ResultIterator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 public class PropertyGroupDaoTest extends AbstractDaoTest {
     private PropertyGroupDao dao;
@@ -120,19 +126,112 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
         assertEquals(pg, dao.byId(pg.getId()));
     }
 
+    @Test
+    public void revision() {
+        final long created = dao.revision(pg.getId());
+        assertEquals(1, dao.touch(pg.getId()));
+        final long touched = dao.revision(pg.getId());
+        assertTrue(touched > created);
+
+        pg.setVersion("version3");
+        assertEquals(1, dao.updatePropertyGroup(pg));
+        assertTrue(dao.revision(pg.getId()) > touched);
+        assertNull(dao.revision(-1L));
+        assertEquals(ImmutableList.of(new RevisionedPropertyGroup(pg, dao.revision(pg.getId()))),
+                dao.revisionedByIds(ImmutableList.of(pg.getId(), -1L)));
+        assertEquals(new RevisionedPropertyGroup(pg, dao.revision(pg.getId())), dao.revisionedById(pg.getId()));
+        assertNull(dao.revisionedById(-1L));
+    }
+
+    @Test
+    public void iterateAll() {
+        final List<PropertyGroup> groups = new ArrayList<>();
+        try (ResultIterator<PropertyGroup> it = dao.iterateAll(2)) {
+            it.forEachRemaining(groups::add);
+        }
+        assertEquals(ImmutableList.of(pg, pgInactive, pgVersion2, pgName2), groups);
+    }
+
+    @Test
+    public void iterateAssociations() {
+        final List<PropertyGroupTag> associations = new ArrayList<>();
+        try (ResultIterator<PropertyGroupTag> it = tagDao.iterateAssociations(1)) {
+            it.forEachRemaining(associations::add);
+        }
+        assertEquals(ImmutableList.of(
+                new PropertyGroupTag(pg.getId(), tagDao.byPropertyGroupId(pg.getId()).iterator().next()),
+                new PropertyGroupTag(pgInactive.getId(), tagDao.byPropertyGroupId(pgInactive.getId()).iterator().next())),
+                associations);
+    }
+
+    @Test
+    public void touchByTagId() {
+        final long created = dao.revision(pg.getId());
+        assertEquals(1, dao.touchByTagId(t.getId()));
+        assertTrue(dao.revision(pg.getId()) > created);
+    }
+
+    @Test
+    public void dependencies() {
+        dao.addDependency(pg.getId(), pgName2.getId());
+        dao.addDependency(pgVersion2.getId(), pgName2.getId());
+        assertEquals(ImmutableList.of(new PropertyGroupDependency(pg.getId(), pgName2.getId()),
+                new PropertyGroupDependency(pgVersion2.getId(), pgName2.getId())), dao.dependencies());
+
+        assertEquals(1, dao.removeDependency(pg.getId(), pgName2.getId()));
+        assertEquals(1, dao.removeDependency(pgVersion2.getId(), pgName2.getId()));
+        assertEquals(0, dao.removeDependency(pgVersion2.getId(), pgName2.getId()));
+        assertEquals(ImmutableList.of(), dao.dependencies());
+    }
+
     @Test
     public void byName() {
         final List<PropertyGroup> groups = dao.filterNoTags(ImmutableMap.of("name", pg.getName()),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(3, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
 
+    @Test
+    public void byTags() {
+        tagDao.createTagDomain("otherTag");
+        final Long other = tagDao.addTag("otherTag", "other");
+        tagDao.associateTag(other, pg.getId());
+        try {
+            final Tag otherTag = new Tag();
+            otherTag.setKey("OTHERtag");
+            otherTag.setValue("other");
+
+            final List<Sort> sorts = ImmutableList.of(new Sort("id"));
+            final Map<String, String> bindings = ImmutableMap.of("name", "name");
+            assertEquals(ImmutableList.of(pg, pgInactive),
+                    dao.filterWithTags(bindings, sorts, ImmutableSet.of(t), null));
+            assertEquals(ImmutableList.of(pg), dao.filterWithTags(bindings, sorts, ImmutableSet.of(t, otherTag), null));
+            assertEquals(1, dao.filterWithTagsCount(bindings, ImmutableSet.of(t, otherTag)));
+
+            otherTag.setValue("'; DROP TABLE Tag; --");
+            assertEquals(ImmutableList.of(), dao.filterWithTags(bindings, sorts, ImmutableSet.of(otherTag), null));
+        } finally {
+            tagDao.deleteTagDomain("otherTag");
+        }
+    }
+
+    @Test
+    public void byIds() {
+        final List<Sort> sorts = ImmutableList.of(new Sort("id"));
+        final Long[] ids = { pg.getId(), pgInactive.getId(), pgName2.getId() };
+        assertEquals(ImmutableList.of(pg, pgInactive),
+                dao.filterByIds(ImmutableMap.of("name", "name"), sorts, ids, null));
+        assertEquals(ImmutableList.of(pg, pgName2),
+                dao.filterByIds(ImmutableMap.of("status", "ACTIVE"), sorts, ids, null));
+        assertEquals(2, dao.filterByIdsCount(ImmutableMap.of("name", "name"), ids));
+    }
+
     @Test
     public void byNameAndVersion() {
         final List<PropertyGroup> groups = dao.filterNoTags(
                 ImmutableMap.of("name", pg.getName(), "version", pg.getVersion()),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(2, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
@@ -141,7 +240,7 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
     public void byNameAndStatus() {
         final List<PropertyGroup> groups = dao.filterNoTags(
                 ImmutableMap.of("name", pg.getName(), "status", pg.getStatus().toString()),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(2, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
@@ -150,7 +249,7 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
     public void byNameVersionAndStatus() {
         final List<PropertyGroup> groups = dao.filterNoTags(
                 ImmutableMap.of("name", pg.getName(), "status", pg.getStatus().toString(), "version", pg.getVersion()),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(1, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
@@ -159,7 +258,7 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
     public void byNameVersionAndTags() {
         final List<PropertyGroup> groups = dao.filterWithTags(
                 (ImmutableMap.of("name", pg.getName(), "version", pg.getVersion())),
-                ImmutableList.of(new Sort("status"), new Sort("id")), ImmutableList.of(t));
+                ImmutableList.of(new Sort("status"), new Sort("id")), ImmutableList.of(t), null);
         assertEquals(2, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
@@ -168,7 +267,7 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
     public void pagingAll() {
         final List<PropertyGroup> groups = dao.filterNoTags(
                 (ImmutableMap.of("name", pg.getName(), "start", "0", "limit", String.valueOf(Integer.MAX_VALUE))),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(3, groups.size());
         assertEquals(pg, groups.iterator().next());
     }
@@ -177,7 +276,7 @@ public class PropertyGroupDaoTest extends AbstractDaoTest {
     public void paging() {
         final List<PropertyGroup> groups = dao.filterNoTags(
                 (ImmutableMap.of("name", pg.getName(), "start", "1", "limit", "1")),
-                ImmutableList.of(new Sort("status"), new Sort("id")));
+                ImmutableList.of(new Sort("status"), new Sort("id")), null);
         assertEquals(1, groups.size());
         assertEquals(pgVersion2, groups.iterator().next());
     }
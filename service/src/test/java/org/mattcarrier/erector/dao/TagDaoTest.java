@@ -24,6 +24,9 @@ package org.mattcarrier.erector.dao;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,6 +36,7 @@ import org.mattcarrier.erector.domain.Tag;
 import org.mattcarrier.erector.domain.PropertyGroup.Status;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class TagDaoTest extends AbstractDaoTest {
     private TagDao dao;
@@ -84,6 +88,44 @@ public class TagDaoTest extends AbstractDaoTest {
         assertEquals(t, dao.byId(t.getId()));
     }
 
+    @Test
+    public void update() {
+        dao.createTagDomain("otherTag");
+        try {
+            final Tag moved = new Tag();
+            moved.setId(t.getId());
+            moved.setKey("otherTag");
+            moved.setValue("value3");
+            assertEquals(1, dao.update(moved));
+            assertEquals(moved, dao.byId(t.getId()));
+
+            moved.setKey("unknownTag");
+            assertEquals(0, dao.update(moved));
+        } finally {
+            t.setKey("testTag");
+            dao.update(t);
+            dao.deleteTagDomain("otherTag");
+        }
+    }
+
+    @Test
+    public void tagDomain() {
+        assertTrue(dao.getTagDomain().contains("TESTTAG"));
+        assertNull(dao.addTag("unknownTag", "value"));
+    }
+
+    @Test
+    public void deleteTagDomainRemovesItsTags() {
+        dao.createTagDomain("doomedTag");
+        final Long doomed = dao.addTag("doomedTag", "value");
+        dao.associateTag(doomed, pg.getId());
+
+        dao.deleteTagDomain("doomedTag");
+        assertNull(dao.byId(doomed));
+        assertEquals(ImmutableSet.of(t.getId(), t2.getId()),
+                dao.byPropertyGroupId(pg.getId()).stream().map(Tag::getId).collect(Collectors.toSet()));
+    }
+
     @Test
     public void disassociateAndRemoveTag() {
         dao.disassociateTag(t2.getId());
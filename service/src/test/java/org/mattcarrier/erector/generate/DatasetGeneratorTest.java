@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.generate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.Tag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class DatasetGeneratorTest extends AbstractDaoTest {
+    @Test
+    public void generatesTheConfiguredShape() {
+        final PropertyGroupDao pgDao = dbi.onDemand(PropertyGroupDao.class);
+        final PropertyDao propDao = dbi.onDemand(PropertyDao.class);
+        final TagDao tagDao = dbi.onDemand(TagDao.class);
+
+        final DatasetGenerator generator = new DatasetGenerator();
+        generator.setGroups(25);
+        generator.setPropertiesPerGroup(4);
+        generator.setTagKeys(6);
+        generator.setTagsPerGroup(3);
+        generator.setCardinality(4);
+        generator.setBatchSize(7);
+        generator.generate(pgDao, propDao, tagDao);
+
+        assertEquals(25, pgDao.filterNoTagsCount(ImmutableMap.of()));
+        assertEquals(100, propDao.filterCount(ImmutableMap.of()));
+        assertEquals(ImmutableList.of("KEY0", "KEY1", "KEY2", "KEY3", "KEY4", "KEY5"), tagDao.getTagDomain());
+
+        final List<PropertyGroup> pgs = pgDao.filterNoTags(ImmutableMap.of("start", "0", "limit", "25"),
+                ImmutableList.of(new Sort("id")), null);
+        for (PropertyGroup pg : pgs) {
+            final Collection<Tag> tags = tagDao.byPropertyGroupId(pg.getId());
+            assertEquals(3, tags.size());
+            assertEquals(3, tags.stream().map(Tag::getKey).distinct().count());
+            assertTrue(tags.stream().map(Tag::getValue).allMatch(v -> v.matches("v[0-3]")));
+        }
+    }
+
+    @Test
+    public void zipfFavoursTheFirstRanks() {
+        final double[] zipf = Distribution.ZIPF.cumulative(4, 1.0);
+        assertEquals(1.0, zipf[3], 1e-9);
+        assertEquals(0.48, zipf[0], 0.01);
+        assertTrue(zipf[0] > zipf[1] - zipf[0]);
+
+        final double[] uniform = Distribution.UNIFORM.cumulative(4, 1.0);
+        assertEquals(0.25, uniform[0], 1e-9);
+        assertEquals(1.0, uniform[3], 1e-9);
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.hierarchy;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import io.dropwizard.util.Duration;
+
+public class PropertyGroupHierarchyTest extends AbstractDaoTest {
+    private PropertyDao propDao;
+    private PropertyGroupDao pgDao;
+    private PropertyGroupHierarchy hierarchy;
+
+    private PropertyGroup base;
+    private PropertyGroup middle;
+    private PropertyGroup leaf;
+
+    private Property baseTimeout;
+    private Property baseHost;
+    private Property middleHost;
+    private Property leafPort;
+
+    @Before
+    public void setup() throws Exception {
+        propDao = dbi.onDemand(PropertyDao.class);
+        pgDao = dbi.onDemand(PropertyGroupDao.class);
+        hierarchy = new PropertyGroupHierarchy(pgDao, propDao, dbi.onDemand(ChangeLogDao.class),
+                mock(ScheduledExecutorService.class), Duration.seconds(5));
+        hierarchy.start();
+
+        base = group("base");
+        middle = group("middle");
+        leaf = group("leaf");
+
+        baseTimeout = property(base, "timeout", "30");
+        baseHost = property(base, "host", "base.example.com");
+        middleHost = property(middle, "host", "middle.example.com");
+        leafPort = property(leaf, "port", "8080");
+
+        hierarchy.addParent(middle.getId(), base.getId());
+        hierarchy.addParent(leaf.getId(), middle.getId());
+    }
+
+    @After
+    public void tearDown() {
+        hierarchy.removeParent(leaf.getId(), middle.getId());
+        hierarchy.removeParent(middle.getId(), base.getId());
+
+        for (Property p : ImmutableList.of(baseTimeout, baseHost, middleHost, leafPort)) {
+            propDao.deleteProperty(p.getId());
+        }
+
+        for (PropertyGroup pg : ImmutableList.of(base, middle, leaf)) {
+            pgDao.deletePropertyGroup(pg.getId());
+        }
+    }
+
+    @Test
+    public void resolve() {
+        assertEquals(ImmutableMap.of("host", "middle.example.com", "timeout", "30", "port", "8080"),
+                hierarchy.resolve(leaf.getId()));
+        assertEquals(ImmutableList.of(middle.getId()), hierarchy.parents(leaf.getId()));
+    }
+
+    @Test
+    public void resolveIsMemoizedUntilInvalidated() {
+        hierarchy.resolve(leaf.getId());
+
+        baseTimeout.setValue("60");
+        propDao.updateProperty(baseTimeout);
+        assertEquals("30", hierarchy.resolve(leaf.getId()).get("timeout"));
+
+        hierarchy.invalidate(base.getId());
+        assertEquals("60", hierarchy.resolve(leaf.getId()).get("timeout"));
+    }
+
+    @Test
+    public void pollNoticesChangesMadeElsewhere() {
+        hierarchy.resolve(leaf.getId());
+
+        // written without invalidating, as another node sharing the database would
+        baseTimeout.setValue("60");
+        propDao.updateProperty(baseTimeout);
+        pgDao.removeDependency(middle.getId(), leaf.getId());
+        pgDao.addDependency(base.getId(), leaf.getId());
+        hierarchy.poll();
+
+        assertEquals(ImmutableList.of(base.getId()), hierarchy.parents(leaf.getId()));
+        assertEquals(ImmutableMap.of("host", "base.example.com", "timeout", "60", "port", "8080"),
+                hierarchy.resolve(leaf.getId()));
+
+        pgDao.removeDependency(base.getId(), leaf.getId());
+        pgDao.addDependency(middle.getId(), leaf.getId());
+        hierarchy.poll();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCycles() {
+        hierarchy.addParent(base.getId(), leaf.getId());
+    }
+
+    @Test
+    public void removeParent() {
+        hierarchy.removeParent(middle.getId(), base.getId());
+        assertEquals(ImmutableMap.of("host", "middle.example.com", "port", "8080"), hierarchy.resolve(leaf.getId()));
+        hierarchy.addParent(middle.getId(), base.getId());
+    }
+
+    private PropertyGroup group(String name) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    private Property property(PropertyGroup pg, String key, String value) {
+        final Property p = new Property();
+        p.setKey(key);
+        p.setValue(value);
+        p.setPropertyGroupId(pg.getId());
+        p.setId(propDao.createProperty(p));
+        return p;
+    }
+}
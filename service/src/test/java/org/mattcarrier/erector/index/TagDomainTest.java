@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.index;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.TagDao;
+
+import io.dropwizard.util.Duration;
+
+public class TagDomainTest extends AbstractDaoTest {
+    private TagDao tagDao;
+    private TagDomain domain;
+
+    @Before
+    public void setup() throws Exception {
+        tagDao = dbi.onDemand(TagDao.class);
+        domain = new TagDomain(tagDao, dbi.onDemand(ChangeLogDao.class), mock(ScheduledExecutorService.class),
+                Duration.seconds(5));
+        domain.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (tagDao.getTagDomain().contains("DOMAINTAG")) {
+            tagDao.deleteTagDomain("domainTag");
+        }
+    }
+
+    @Test
+    public void membershipIgnoresCase() {
+        tagDao.createTagDomain("domainTag");
+        domain.refresh();
+        assertTrue(domain.contains("domaintag"));
+        assertTrue(domain.contains("DomainTag"));
+        assertTrue(domain.keys().contains("DOMAINTAG"));
+    }
+
+    @Test
+    public void pollNoticesChangesMadeElsewhere() {
+        assertFalse(domain.contains("domainTag"));
+
+        // written without refreshing, as another node sharing the database would
+        tagDao.createTagDomain("domainTag");
+        assertFalse(domain.contains("domainTag"));
+        domain.poll();
+        assertTrue(domain.contains("domainTag"));
+
+        tagDao.deleteTagDomain("domainTag");
+        domain.poll();
+        assertFalse(domain.contains("domainTag"));
+    }
+}
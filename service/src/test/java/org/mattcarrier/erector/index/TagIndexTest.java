@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.dropwizard.util.Duration;
+
+public class TagIndexTest extends AbstractDaoTest {
+    private PropertyGroupDao pgDao;
+    private TagDao rawTagDao;
+    private TagDao tagDao;
+    private TagIndex index;
+
+    private PropertyGroup web;
+    private PropertyGroup db;
+
+    @Before
+    public void setup() {
+        pgDao = dbi.onDemand(PropertyGroupDao.class);
+        rawTagDao = dbi.onDemand(TagDao.class);
+        index = new TagIndex(rawTagDao, dbi.onDemand(ChangeLogDao.class), mock(ScheduledExecutorService.class),
+                Duration.seconds(5));
+        tagDao = new IndexingTagDao(rawTagDao, index);
+
+        tagDao.createTagDomain("env");
+        tagDao.createTagDomain("tier");
+        web = group("web");
+        db = group("db");
+
+        // loaded from the database before the index is first used
+        tag(web, "env", "prod");
+        tag(db, "env", "prod");
+    }
+
+    @After
+    public void tearDown() {
+        tagDao.deleteTagDomain("env");
+        tagDao.deleteTagDomain("tier");
+        pgDao.deletePropertyGroup(web.getId());
+        pgDao.deletePropertyGroup(db.getId());
+    }
+
+    @Test
+    public void intersectsTags() {
+        assertEquals(bits(web, db), index.search(ImmutableList.of(tag("ENV", "prod"))));
+
+        final Long webTier = tag(web, "tier", "web");
+        tag(db, "tier", "db");
+        assertEquals(bits(web), index.search(ImmutableList.of(tag("env", "prod"), tag("tier", "web"))));
+        assertEquals(bits(), index.search(ImmutableList.of(tag("env", "dev"), tag("tier", "web"))));
+
+        final Tag moved = tag("tier", "db");
+        moved.setId(webTier);
+        tagDao.update(moved);
+        assertEquals(bits(web, db), index.search(ImmutableList.of(tag("tier", "db"))));
+        assertEquals(bits(), index.search(ImmutableList.of(tag("tier", "web"))));
+    }
+
+    @Test
+    public void followsRemovals() {
+        index.search(ImmutableList.of(tag("env", "prod")));
+        final Long duplicate = tag(web, "env", "prod");
+        tagDao.disassociateTag(duplicate);
+        tagDao.removeTag(duplicate);
+        assertEquals(bits(web, db), index.search(ImmutableList.of(tag("env", "prod"))));
+
+        for (Tag t : tagDao.byPropertyGroupId(db.getId())) {
+            tagDao.disassociateTags(ImmutableSet.of(t.getId()));
+            tagDao.removeTags(ImmutableSet.of(t.getId()));
+        }
+        assertEquals(bits(web), index.search(ImmutableList.of(tag("env", "prod"))));
+
+        tagDao.deleteTagDomain("env");
+        tagDao.createTagDomain("env");
+        assertEquals(bits(), index.search(ImmutableList.of(tag("env", "prod"))));
+    }
+
+    @Test
+    public void pollAppliesChangesMadeElsewhere() {
+        assertEquals(bits(web, db), index.search(ImmutableList.of(tag("env", "prod"))));
+
+        // written without the index, as another node sharing the database would
+        final Long webTier = rawTagDao.addTag("tier", "web");
+        rawTagDao.associateTag(webTier, web.getId());
+        for (Tag t : rawTagDao.byPropertyGroupId(db.getId())) {
+            rawTagDao.disassociateTag(t.getId());
+        }
+        assertEquals(bits(), index.search(ImmutableList.of(tag("tier", "web"))));
+
+        index.poll();
+        assertEquals(bits(web), index.search(ImmutableList.of(tag("tier", "web"))));
+        assertEquals(bits(web), index.search(ImmutableList.of(tag("env", "prod"))));
+
+        final Tag renamed = tag("tier", "edge");
+        renamed.setId(webTier);
+        rawTagDao.update(renamed);
+        rawTagDao.deleteTagDomain("env");
+        index.poll();
+        assertEquals(bits(web), index.search(ImmutableList.of(tag("tier", "edge"))));
+        assertEquals(bits(), index.search(ImmutableList.of(tag("env", "prod"))));
+        tagDao.createTagDomain("env");
+    }
+
+    @Test
+    public void pollReadsTagsWithoutBlockingSearches() throws Exception {
+        final TagDao reading = mock(TagDao.class, delegatesTo(rawTagDao));
+        final TagIndex polled = new TagIndex(reading, dbi.onDemand(ChangeLogDao.class),
+                mock(ScheduledExecutorService.class), Duration.seconds(5));
+        assertEquals(bits(web, db), polled.search(ImmutableList.of(tag("env", "prod"))));
+
+        final ExecutorService searcher = Executors.newSingleThreadExecutor();
+        try {
+            doAnswer(invocation -> {
+                // a search while the poll reads the tags must not wait for it
+                searcher.submit(() -> polled.search(ImmutableList.of(tag("env", "prod")))).get(5, TimeUnit.SECONDS);
+                return rawTagDao.byIds(invocation.getArgument(0));
+            }).when(reading).byIds(anyCollection());
+
+            rawTagDao.associateTag(rawTagDao.addTag("tier", "web"), web.getId());
+            polled.poll();
+            assertEquals(bits(web), polled.search(ImmutableList.of(tag("tier", "web"))));
+        } finally {
+            searcher.shutdownNow();
+        }
+    }
+
+    private PropertyGroup group(String name) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    private Long tag(PropertyGroup pg, String key, String value) {
+        final Long id = tagDao.addTag(key, value);
+        tagDao.associateTag(id, pg.getId());
+        return id;
+    }
+
+    private static Tag tag(String key, String value) {
+        final Tag t = new Tag();
+        t.setKey(key);
+        t.setValue(value);
+        return t;
+    }
+
+    private static BitSet bits(PropertyGroup... groups) {
+        final BitSet bits = new BitSet();
+        for (PropertyGroup pg : groups) {
+            bits.set(pg.getId().intValue());
+        }
+
+        return bits;
+    }
+}
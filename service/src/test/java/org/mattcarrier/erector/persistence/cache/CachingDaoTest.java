@@ -0,0 +1,219 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class CachingDaoTest extends AbstractDaoTest {
+    private MetricRegistry metrics;
+    private PropertyGroupDao pgDao;
+    private PropertyDao propDao;
+    private TagDao tagDao;
+
+    private PropertyGroup pg;
+    private Property p;
+    private Tag t;
+
+    @Before
+    public void setup() {
+        metrics = new MetricRegistry();
+        pgDao = new CachingPropertyGroupDao(dbi.onDemand(PropertyGroupDao.class), new EntityCacheFactory(), metrics);
+        propDao = new CachingPropertyDao(dbi.onDemand(PropertyDao.class), new EntityCacheFactory(), metrics);
+        tagDao = new CachingTagDao(dbi.onDemand(TagDao.class), pgDao, new EntityCacheFactory(), metrics);
+
+        pg = new PropertyGroup();
+        pg.setName("name");
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+
+        p = new Property();
+        p.setKey("key");
+        p.setValue("value");
+        p.setPropertyGroupId(pg.getId());
+        p.setId(propDao.createProperty(p));
+
+        t = new Tag();
+        t.setKey("cacheTag");
+        t.setValue("value");
+        tagDao.createTagDomain(t.getKey());
+        t.setId(tagDao.addTag(t.getKey(), t.getValue()));
+        tagDao.associateTag(t.getId(), pg.getId());
+    }
+
+    @After
+    public void tearDown() {
+        tagDao.disassociateTags(ImmutableList.of(t.getId()));
+        tagDao.removeTags(ImmutableList.of(t.getId()));
+        tagDao.deleteTagDomain(t.getKey());
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(pg.getId());
+    }
+
+    @Test
+    public void propertyGroupByIdIsCachedUntilUpdated() {
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(1L, gauge(PropertyGroupDao.class, "byId", "hits"));
+        assertEquals(1L, gauge(PropertyGroupDao.class, "byId", "misses"));
+
+        pg.setVersion("version2");
+        pgDao.updatePropertyGroup(pg);
+        assertEquals("version2", pgDao.byId(pg.getId()).getVersion());
+    }
+
+    @Test
+    public void revisionedPropertyGroupIsCachedUntilTouched() {
+        final long revision = pgDao.revisionedById(pg.getId()).getRevision();
+        assertEquals(revision, pgDao.revisionedById(pg.getId()).getRevision());
+        assertEquals(1L, gauge(PropertyGroupDao.class, "revisionedById", "hits"));
+
+        pgDao.touch(pg.getId());
+        assertNotEquals(revision, pgDao.revisionedById(pg.getId()).getRevision());
+
+        final long touched = pgDao.revisionedById(pg.getId()).getRevision();
+        pgDao.touchByTagId(t.getId());
+        assertNotEquals(touched, pgDao.revisionedById(pg.getId()).getRevision());
+        assertEquals(3L, gauge(PropertyGroupDao.class, "revisionedById", "misses"));
+    }
+
+    @Test
+    public void revisionedPropertyIsCachedUntilUpdated() {
+        final long revision = propDao.revisionedById(p.getId()).getRevision();
+        assertEquals(p, propDao.revisionedById(p.getId()).getProperty());
+        assertEquals(1L, gauge(PropertyDao.class, "revisionedById", "hits"));
+
+        p.setValue("value2");
+        propDao.updateProperty(p);
+        assertEquals("value2", propDao.revisionedById(p.getId()).getProperty().getValue());
+        assertNotEquals(revision, propDao.revisionedById(p.getId()).getRevision());
+    }
+
+    @Test
+    public void propertyByIdIsCachedUntilDeleted() {
+        assertEquals(p, propDao.byId(p.getId()));
+        propDao.deleteProperty(p.getId());
+        assertNull(propDao.byId(p.getId()));
+        assertEquals(2L, gauge(PropertyDao.class, "byId", "misses"));
+    }
+
+    @Test
+    public void missesAreNotCached() {
+        assertNull(propDao.byId(p.getId() + 1000));
+        assertNull(propDao.byId(p.getId() + 1000));
+        assertEquals(0L, gauge(PropertyDao.class, "byId", "hits"));
+        assertEquals(2L, gauge(PropertyDao.class, "byId", "misses"));
+    }
+
+    @Test
+    public void tagsAreInvalidatedByTagId() {
+        assertEquals(ImmutableList.of(t), tagDao.byPropertyGroupId(pg.getId()));
+
+        assertEquals(ImmutableList.of(t), tagDao.byPropertyGroupId(pg.getId()));
+
+        tagDao.disassociateTag(t.getId());
+        assertEquals(ImmutableList.of(), tagDao.byPropertyGroupId(pg.getId()));
+        assertEquals(1L, gauge(TagDao.class, "byPropertyGroupId", "hits"));
+        assertEquals(2L, gauge(TagDao.class, "byPropertyGroupId", "misses"));
+    }
+
+    @Test
+    public void tagsAreReloadedOnceTheGroupMovesPastTheirRevision() {
+        assertEquals(ImmutableList.of(t), tagDao.byPropertyGroupId(pg.getId()));
+
+        // another node's write, this cache never sees it
+        final TagDao elsewhere = dbi.onDemand(TagDao.class);
+        final Long other = elsewhere.addTag(t.getKey(), "other");
+        elsewhere.associateTag(other, pg.getId());
+        assertEquals(ImmutableList.of(t), tagDao.byPropertyGroupId(pg.getId()));
+
+        dbi.onDemand(PropertyGroupDao.class).touch(pg.getId());
+        try {
+            assertEquals(2, tagDao.byPropertyGroupId(pg.getId()).size());
+        } finally {
+            elsewhere.disassociateTags(ImmutableList.of(other));
+            elsewhere.removeTags(ImmutableList.of(other));
+        }
+    }
+
+    @Test
+    public void concurrentLoadsDoNotReportTheReplacedValue() {
+        final List<String> removed = new ArrayList<>();
+        final EntityCache<Long, String> cache = new EntityCacheFactory().build(metrics, "replaced",
+                (Long k, String v) -> removed.add(v));
+
+        // the inner lookup finishes its load first, as a second concurrent miss would
+        assertEquals("outer", cache.get(1L, () -> {
+            cache.get(1L, () -> "inner");
+            return "outer";
+        }));
+        assertEquals(ImmutableList.of(), removed);
+
+        cache.invalidate(1L);
+        assertEquals(ImmutableList.of("outer"), removed);
+    }
+
+    @Test
+    public void countsAreCachedPerRevision() {
+        final CountCache counts = new CountCache(new EntityCacheFactory(), metrics);
+        final RevisionDao revisionDao = dbi.onDemand(RevisionDao.class);
+        final Map<String, String> filter = ImmutableMap.of("propertyGroupId", String.valueOf(pg.getId()));
+
+        final long revision = revisionDao.current();
+        assertEquals(1, counts.get(revision, "properties", filter, () -> propDao.filterCount(filter)));
+        propDao.deleteProperty(p.getId());
+        assertEquals(1, counts.get(revision, "properties", filter, () -> propDao.filterCount(filter)));
+
+        assertNotEquals(revision, revisionDao.current());
+        assertEquals(0, counts.get(revisionDao.current(), "properties", filter, () -> propDao.filterCount(filter)));
+    }
+
+    private long gauge(Class<?> dao, String method, String stat) {
+        final Gauge<?> gauge = metrics.getGauges().get(MetricRegistry.name(dao, method, "cache", stat));
+        return (Long) gauge.getValue();
+    }
+}
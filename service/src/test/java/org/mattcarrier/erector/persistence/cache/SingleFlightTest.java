@@ -0,0 +1,144 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.persistence.ReadScope;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class SingleFlightTest {
+    private MetricRegistry metrics;
+    private SingleFlight flight;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        metrics = new MetricRegistry();
+        flight = new SingleFlightFactory().build(metrics, ReadScope.DIRECT);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentReadsShareOneQuery() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger queries = new AtomicInteger();
+        final Object result = new Object();
+        final List<Future<Object>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(executor.submit(() -> flight.execute("key", () -> {
+                queries.incrementAndGet();
+                await(release);
+                return result;
+            })));
+        }
+
+        while (8 != metrics.meter(MetricRegistry.name(SingleFlight.class, "queries")).getCount()
+                + metrics.meter(MetricRegistry.name(SingleFlight.class, "coalesced")).getCount()) {
+            Thread.sleep(5);
+        }
+        assertEquals(Integer.valueOf(1), flight.inFlightGauge().getValue());
+        release.countDown();
+
+        for (Future<Object> caller : callers) {
+            assertSame(result, caller.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, queries.get());
+        assertEquals(7, metrics.meter(MetricRegistry.name(SingleFlight.class, "coalesced")).getCount());
+        assertEquals(Integer.valueOf(0), flight.inFlightGauge().getValue());
+    }
+
+    @Test
+    public void failureIsSharedAndNotRemembered() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<Object> leader = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("down");
+        }));
+        while (0 == flight.inFlightGauge().getValue()) {
+            Thread.sleep(5);
+        }
+        final Future<Object> follower = executor.submit(() -> flight.execute("key", () -> "unused"));
+        while (0 == metrics.meter(MetricRegistry.name(SingleFlight.class, "coalesced")).getCount()) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<Object> caller : Arrays.asList(leader, follower)) {
+            try {
+                caller.get(1, TimeUnit.SECONDS);
+                fail("expected the query to fail");
+            } catch (ExecutionException e) {
+                assertEquals(IllegalStateException.class, e.getCause().getClass());
+            }
+        }
+        assertEquals("up", flight.execute("key", () -> "up"));
+    }
+
+    @Test
+    public void forgetStartsAFreshQuery() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<Object> stale = executor.submit(() -> flight.execute("key", () -> {
+            await(release);
+            return "before";
+        }));
+        while (0 == flight.inFlightGauge().getValue()) {
+            Thread.sleep(5);
+        }
+
+        flight.forget();
+        assertEquals("after", flight.execute("key", () -> "after"));
+        release.countDown();
+        assertEquals("before", stale.get(1, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+
+import io.dropwizard.util.Duration;
+
+public class ExplainFiltersTaskTest extends AbstractDaoTest {
+    @Test
+    public void explainsRecordedFilterQueries() throws Exception {
+        final FilterQueryLog log = new FilterQueryLog();
+        dbi.setTimingCollector(new StatementTimingCollector(new MetricRegistry(), Duration.seconds(10), log));
+
+        final PropertyGroupDao pgDao = dbi.onDemand(PropertyGroupDao.class);
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName("explained");
+        pg.setVersion("1.0.0");
+        pg.setStatus(Status.ACTIVE);
+        final long pgId = pgDao.createPropertyGroup(pg);
+        for (int i = 0; i < 3; i++) {
+            pgDao.filterNoTags(ImmutableMap.of("name", "explained", "start", "0", "limit", "10"),
+                    ImmutableList.of(new Sort("id")), null);
+        }
+        dbi.onDemand(PropertyDao.class).filter(
+                ImmutableMap.of("propertyGroupId", String.valueOf(pgId), "start", "0", "limit", "10"),
+                ImmutableList.of(new Sort("key")), null);
+
+        assertEquals(2, log.mostFrequent(5).size());
+        assertEquals(3, log.mostFrequent(1).get(0).getCount());
+
+        final StringWriter out = new StringWriter();
+        new ExplainFiltersTask(dbi, log).execute(ImmutableMultimap.of("limit", "5"), new PrintWriter(out));
+        final String report = out.toString();
+        assertTrue(report, report.contains("PropertyGroupDao.filterNoTags executed 3 times"));
+        assertTrue(report, report.contains("PropertyDao.filter executed 1 times"));
+        assertTrue(report, report.contains("index INDEXPROPERTYGROUPNAMEVERSIONSTATUS: NAME = ?1"));
+    }
+
+    @Test
+    public void describesTableAccess() {
+        assertEquals(ImmutableList.of("FULL SCAN of index PRIMARY_KEY_5"),
+                ExplainFiltersTask.access("SELECT P.ID FROM PUBLIC.P\n    /* PUBLIC.PRIMARY_KEY_5 */\n"
+                        + "    /* scanCount: 4 */\nWHERE K = ?1\nORDER BY 1\n/* index sorted */"));
+        assertEquals(ImmutableList.of("index IDXGK: G = ?1 AND K = ?2"),
+                ExplainFiltersTask.access("SELECT P.ID FROM PUBLIC.P\n    /* PUBLIC.IDXGK: G = ?1\n"
+                        + "        AND K = ?2\n     */\n    /* scanCount: 2 */"));
+        assertEquals(ImmutableList.of("TABLE SCAN of P"),
+                ExplainFiltersTask.access("FROM PUBLIC.P /* PUBLIC.P.tableScan */"));
+    }
+}
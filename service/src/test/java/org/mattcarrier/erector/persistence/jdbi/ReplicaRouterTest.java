@@ -0,0 +1,182 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.persistence.jdbi.ReplicaRouter.Selection;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+
+import io.dropwizard.util.Duration;
+
+public class ReplicaRouterTest {
+    @Test
+    public void readsOwnWritesFromThePrimaryUntilTheReplicaCatchesUp() {
+        final DBI primary = database("primary", "PRIMARY");
+        final DBI replica = database("replica", "REPLICA");
+        final MetricRegistry metrics = new MetricRegistry();
+        final ReplicaRouter router = router(primary, ImmutableList.of(replica), Selection.LEAST_LOAD, metrics);
+        final PropertyGroupDao pgDao = router.route(PropertyGroupDao.class, primary.onDemand(PropertyGroupDao.class));
+        final TagDao tagDao = router.route(TagDao.class, primary.onDemand(TagDao.class));
+
+        assertEquals(ImmutableList.of("REPLICA"), tagDao.getTagDomain());
+
+        pgDao.createPropertyGroup(group("written"));
+        assertEquals(ImmutableList.of("PRIMARY"), tagDao.getTagDomain());
+        router.check();
+        assertEquals(ImmutableList.of("PRIMARY"), tagDao.getTagDomain());
+        assertTrue(lag(metrics, 0) > 0);
+
+        final RevisionDao primaryRevision = primary.onDemand(RevisionDao.class);
+        final RevisionDao replicaRevision = replica.onDemand(RevisionDao.class);
+        while (replicaRevision.current() < primaryRevision.current()) {
+            replica.onDemand(PropertyGroupDao.class).createPropertyGroup(group("replicated"));
+        }
+        router.check();
+        assertEquals(ImmutableList.of("REPLICA"), tagDao.getTagDomain());
+        assertEquals(0L, lag(metrics, 0));
+        assertEquals(2, metrics.meter(MetricRegistry.name(ReplicaRouter.class, "replica-reads")).getCount());
+        assertEquals(2, metrics.meter(MetricRegistry.name(ReplicaRouter.class, "primary-reads")).getCount());
+    }
+
+    @Test
+    public void roundRobinsAndFallsBackToThePrimary() {
+        final DBI primary = database("rr-primary", "PRIMARY");
+        final DBI first = database("rr-first", "FIRST");
+        final DBI second = database("rr-second", "SECOND");
+        final ReplicaRouter router = router(primary, ImmutableList.of(first, second), Selection.ROUND_ROBIN,
+                new MetricRegistry());
+        final TagDao tagDao = router.route(TagDao.class, primary.onDemand(TagDao.class));
+
+        assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+        assertEquals(ImmutableList.of("SECOND"), tagDao.getTagDomain());
+        assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+
+        try (Handle h = second.open()) {
+            h.execute("DROP TABLE TagKey CASCADE");
+        }
+        assertEquals(ImmutableList.of("PRIMARY"), tagDao.getTagDomain());
+        assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+        assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+    }
+
+    @Test
+    public void pinsEveryQueryInAScopeToOneSource() {
+        final DBI primary = database("pin-primary", "PRIMARY");
+        final DBI first = database("pin-first", "FIRST");
+        final DBI second = database("pin-second", "SECOND");
+        first.onDemand(PropertyGroupDao.class).createPropertyGroup(group("first"));
+        final ReplicaRouter router = router(primary, ImmutableList.of(first, second), Selection.ROUND_ROBIN,
+                new MetricRegistry());
+        final TagDao tagDao = router.route(TagDao.class, primary.onDemand(TagDao.class));
+        final RevisionDao revisionDao = router.route(RevisionDao.class, primary.onDemand(RevisionDao.class));
+
+        assertNull(router.source());
+        router.consistently(() -> {
+            assertEquals("replica-0", router.source());
+            assertEquals(first.onDemand(RevisionDao.class).current(), revisionDao.current());
+            assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+            assertEquals(ImmutableList.of("FIRST"), tagDao.getTagDomain());
+            return null;
+        });
+        assertNull(router.source());
+        assertEquals(ImmutableList.of("SECOND"), tagDao.getTagDomain());
+    }
+
+    @Test
+    public void restartsAScopeOnThePrimaryWhenItsReplicaFails() {
+        final DBI primary = database("restart-primary", "PRIMARY");
+        final DBI replica = database("restart-replica", "REPLICA");
+        final ReplicaRouter router = router(primary, ImmutableList.of(replica), Selection.ROUND_ROBIN,
+                new MetricRegistry());
+        final TagDao tagDao = router.route(TagDao.class, primary.onDemand(TagDao.class));
+
+        final List<Object> sources = new ArrayList<>();
+        final List<String> domain = router.consistently(() -> {
+            sources.add(router.source());
+            if (1 == sources.size()) {
+                try (Handle h = replica.open()) {
+                    h.execute("DROP TABLE TagKey CASCADE");
+                }
+            }
+
+            return tagDao.getTagDomain();
+        });
+        assertEquals(ImmutableList.of("replica-0", "primary"), sources);
+        assertEquals(ImmutableList.of("PRIMARY"), domain);
+    }
+
+    private static ReplicaRouter router(DBI primary, ImmutableList<DBI> replicas, Selection selection,
+            MetricRegistry metrics) {
+        final ReplicaRouter router = new ReplicaRouter(primary.onDemand(RevisionDao.class), replicas, selection,
+                mock(ScheduledExecutorService.class), Duration.seconds(1), metrics);
+        router.check();
+        return router;
+    }
+
+    private static long lag(MetricRegistry metrics, int replica) {
+        return (Long) metrics.getGauges().get(MetricRegistry.name(ReplicaRouter.class, "replica-" + replica, "lag"))
+                .getValue();
+    }
+
+    private static DBI database(String name, String tagKey) {
+        final JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:ReplicaRouterTest-" + name + ";DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(ds);
+        flyway.migrate();
+
+        final DBI dbi = new DBI(ds);
+        dbi.onDemand(TagDao.class).createTagDomain(tagKey);
+        return dbi;
+    }
+
+    private static PropertyGroup group(String name) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setVersion("1.0.0");
+        pg.setStatus(Status.ACTIVE);
+        return pg;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.jdbi;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.TagDao;
+import org.skife.jdbi.v2.Handle;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.util.Duration;
+
+public class StatementTimingCollectorTest extends AbstractDaoTest {
+    @Test
+    public void timesStatementsByDaoMethod() {
+        final MetricRegistry metrics = new MetricRegistry();
+        dbi.setTimingCollector(new StatementTimingCollector(metrics, Duration.milliseconds(0), new FilterQueryLog()));
+
+        final TagDao tagDao = dbi.onDemand(TagDao.class);
+        tagDao.getTagDomain();
+        tagDao.getTagDomain();
+        try (Handle h = dbi.open()) {
+            h.select("SELECT 1");
+        }
+
+        assertEquals(2, metrics.timer(MetricRegistry.name(TagDao.class, "getTagDomain")).getCount());
+        assertEquals(1, metrics.timer("sql.raw").getCount());
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.h2.mvstore.MVStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.persistence.mvstore.MVStoreDatabase;
+import org.mattcarrier.erector.persistence.mvstore.MVStorePropertyDao;
+import org.mattcarrier.erector.persistence.mvstore.MVStorePropertyGroupDao;
+import org.mattcarrier.erector.persistence.mvstore.Mutation;
+
+import com.google.common.collect.ImmutableList;
+
+public class SegmentLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private SegmentLog log;
+    private MVStoreDatabase db;
+    private MVStorePropertyGroupDao pgDao;
+    private MVStorePropertyDao propDao;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.getRoot().toPath();
+        reopen();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        log.close();
+        db.stop();
+    }
+
+    private void reopen() throws IOException {
+        if (null != log) {
+            tearDown();
+        }
+
+        log = new SegmentLog(directory, 4096);
+        db = new MVStoreDatabase(new MVStore.Builder().autoCommitDisabled().open(), log);
+        log.recover(db);
+        pgDao = new MVStorePropertyGroupDao(db);
+        propDao = new MVStorePropertyDao(db);
+    }
+
+    @Test
+    public void replaysSegments() throws IOException {
+        final PropertyGroup pg = group("replay");
+        final List<Property> props = properties(pg, 100);
+        propDao.deleteProperty(props.get(0).getId());
+        assertEquals(ImmutableList.of("segment"), kinds().distinct().collect(Collectors.toList()));
+
+        reopen();
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(props.subList(1, props.size()), propDao.byPropertyGroupId(pg.getId()));
+        assertNull(propDao.byId(props.get(0).getId()));
+        assertEquals(pg.getId() + 1, pgDao.createPropertyGroup(pg));
+    }
+
+    @Test
+    public void snapshotDropsReplayedSegments() throws IOException {
+        final PropertyGroup pg = group("snapshot");
+        properties(pg, 100);
+        log.snapshot(db);
+        assertEquals(ImmutableList.of("segment", "snapshot"), kinds().sorted().collect(Collectors.toList()));
+
+        final PropertyGroup after = group("after");
+        final long revision = pgDao.revision(after.getId());
+        reopen();
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(100, propDao.byPropertyGroupId(pg.getId()).size());
+        assertEquals(after, pgDao.byId(after.getId()));
+        assertEquals(revision, (long) pgDao.revision(after.getId()));
+    }
+
+    @Test
+    public void dropsTornRecord() throws IOException {
+        final PropertyGroup pg = group("torn");
+        final PropertyGroup torn = group("torn2");
+        log.close();
+
+        // flip a byte in the payload of the last record
+        final Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.max(Path::compareTo).get();
+        }
+        final byte[] bytes = Files.readAllBytes(segment);
+        int end = bytes.length;
+        while (0 == bytes[end - 1]) {
+            end--;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end - 1);
+            file.write(bytes[end - 1] ^ 0xff);
+        }
+
+        reopen();
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertNull(pgDao.byId(torn.getId()));
+        final PropertyGroup rewritten = group("rewritten");
+        reopen();
+        assertEquals(rewritten, pgDao.byId(rewritten.getId()));
+    }
+
+    @Test
+    public void journalsOneIndexEntryPerRow() {
+        final List<Mutation> journaled = new ArrayList<>();
+        final MVStoreDatabase captured = new MVStoreDatabase(new MVStore.Builder().autoCommitDisabled().open(),
+                journaled::addAll);
+        final MVStorePropertyGroupDao capturedGroups = new MVStorePropertyGroupDao(captured);
+        final MVStorePropertyDao capturedProperties = new MVStorePropertyDao(captured);
+        final PropertyGroup other = new PropertyGroup();
+        other.setName("index");
+        final long pgId = capturedGroups.createPropertyGroup(other);
+        for (int i = 0; i < 100; i++) {
+            final Property p = new Property();
+            p.setKey("key" + i);
+            p.setPropertyGroupId(pgId);
+            journaled.clear();
+            capturedProperties.createProperty(p);
+        }
+
+        final List<Mutation> indexed = journaled.stream()
+                .filter(m -> "property.propertyGroupId".equals(m.getMap())).collect(Collectors.toList());
+        assertEquals(1, indexed.size());
+        assertArrayEquals(new Object[] { pgId, indexed.get(0).getValue() }, (Object[]) indexed.get(0).getKey());
+        captured.stop();
+    }
+
+    private Stream<String> kinds() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString().split("-")[0]).collect(Collectors.toList()).stream();
+        }
+    }
+
+    private PropertyGroup group(String name) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setVersion("version");
+        pg.setStatus(Status.ACTIVE);
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    private List<Property> properties(PropertyGroup pg, int count) {
+        final ImmutableList.Builder<Property> props = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            final Property p = new Property();
+            p.setKey(String.format("key%03d", i));
+            p.setValue("value" + i);
+            p.setPropertyGroupId(pg.getId());
+            p.setId(propDao.createProperty(p));
+            props.add(p);
+        }
+
+        return props.build();
+    }
+}
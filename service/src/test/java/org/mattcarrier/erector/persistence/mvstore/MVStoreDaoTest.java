@@ -0,0 +1,389 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.mvstore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.h2.mvstore.MVStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.RevisionedProperty;
+import org.mattcarrier.erector.dao.RevisionedPropertyGroup;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class MVStoreDaoTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MVStoreDatabase db;
+    private MVStorePropertyGroupDao pgDao;
+    private MVStorePropertyDao propDao;
+    private MVStoreTagDao tagDao;
+    private MVStoreChangeLogDao changeLogDao;
+
+    @Before
+    public void setup() {
+        open(new MVStore.Builder().autoCommitDisabled().open());
+    }
+
+    @After
+    public void tearDown() {
+        db.stop();
+    }
+
+    private void open(MVStore store) {
+        db = new MVStoreDatabase(store);
+        pgDao = new MVStorePropertyGroupDao(db);
+        propDao = new MVStorePropertyDao(db);
+        tagDao = new MVStoreTagDao(db);
+        changeLogDao = new MVStoreChangeLogDao(db);
+    }
+
+    @Test
+    public void propertyGroups() {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final PropertyGroup inactive = group("name", "version", Status.INACTIVE);
+        final PropertyGroup version2 = group("name", "version2", Status.ACTIVE);
+        final PropertyGroup name2 = group("name2", "version", Status.ACTIVE);
+        assertEquals(pg, pgDao.byId(pg.getId()));
+
+        final List<Sort> sorts = ImmutableList.of(new Sort("status"), new Sort("id"));
+        assertEquals(ImmutableList.of(pg, version2, inactive),
+                pgDao.filterNoTags(ImmutableMap.of("name", "name"), sorts, null));
+        assertEquals(ImmutableList.of(version2),
+                pgDao.filterNoTags(ImmutableMap.of("name", "name", "start", "1", "limit", "1"), sorts, null));
+        assertEquals(ImmutableList.of(name2, version2, pg),
+                pgDao.filterNoTags(ImmutableMap.of("status", "ACTIVE"), ImmutableList.of(new Sort("id DESC")), null));
+        assertEquals(2, pgDao.filterNoTagsCount(ImmutableMap.of("version", "version", "status", "ACTIVE")));
+        assertEquals(ImmutableList.of(inactive), pgDao.filterByIds(ImmutableMap.of("status", "INACTIVE"),
+                ImmutableList.of(new Sort("id")), new Long[] { pg.getId(), inactive.getId() }, null));
+
+        final Cursor cursor = Cursor.after(sorts, pg, (g, field) -> "id".equals(field) ? g.getId() : g.getStatus());
+        assertEquals(ImmutableList.of(version2, inactive),
+                pgDao.filterNoTags(ImmutableMap.of("name", "name"), cursor.getSorts(), cursor));
+
+        final long created = pgDao.revision(pg.getId());
+        pg.setName("renamed");
+        assertEquals(1, pgDao.updatePropertyGroup(pg));
+        assertTrue(pgDao.revision(pg.getId()) > created);
+        assertEquals(ImmutableList.of(new RevisionedPropertyGroup(pg, pgDao.revision(pg.getId()))),
+                pgDao.revisionedByIds(ImmutableList.of(pg.getId(), pg.getId(), -1L)));
+        assertEquals(new RevisionedPropertyGroup(pg, pgDao.revision(pg.getId())), pgDao.revisionedById(pg.getId()));
+        assertEquals(ImmutableList.of(pg), pgDao.filterNoTags(ImmutableMap.of("name", "renamed"), sorts, null));
+        assertEquals(2, pgDao.filterNoTagsCount(ImmutableMap.of("name", "name")));
+
+        pgDao.addDependency(pg.getId(), name2.getId());
+        assertEquals(ImmutableList.of(new PropertyGroupDependency(pg.getId(), name2.getId())), pgDao.dependencies());
+        assertViolation("23503", () -> pgDao.deletePropertyGroup(pg.getId()));
+        assertEquals(1, pgDao.removeDependency(pg.getId(), name2.getId()));
+        assertEquals(1, pgDao.deletePropertyGroup(pg.getId()));
+        assertNull(pgDao.byId(pg.getId()));
+        assertNull(pgDao.revision(pg.getId()));
+
+        try (ResultIterator<PropertyGroup> it = pgDao.iterateAll(1)) {
+            assertEquals(ImmutableList.of(inactive, version2, name2), Lists.newArrayList(it));
+        }
+    }
+
+    @Test
+    public void tags() {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final PropertyGroup other = group("name", "version", Status.INACTIVE);
+        tagDao.createTagDomain("env");
+        tagDao.createTagDomain("region");
+        assertEquals(ImmutableList.of("ENV", "REGION"), tagDao.getTagDomain());
+        assertNull(tagDao.addTag("unknown", "value"));
+
+        final Tag prod = tag("env", "prod", pg);
+        final Tag prodOther = tag("ENV", "prod", other);
+        final Tag east = tag("region", "east", pg);
+        assertEquals(ImmutableSet.of(prod, east), ImmutableSet.copyOf(tagDao.byPropertyGroupId(pg.getId())));
+        assertViolation("23505", () -> tagDao.associateTag(prod.getId(), pg.getId()));
+
+        final List<Sort> sorts = ImmutableList.of(new Sort("id"));
+        assertEquals(ImmutableList.of(pg, other),
+                pgDao.filterWithTags(ImmutableMap.of(), sorts, ImmutableList.of(prod), null));
+        assertEquals(ImmutableList.of(pg),
+                pgDao.filterWithTags(ImmutableMap.of("name", "name"), sorts, ImmutableList.of(prod, east), null));
+        assertEquals(1, pgDao.filterWithTagsCount(ImmutableMap.of("status", "INACTIVE"), ImmutableList.of(prod)));
+
+        try (ResultIterator<PropertyGroupTag> it = tagDao.iterateAssociations(1)) {
+            assertEquals(ImmutableList.of(new PropertyGroupTag(pg.getId(), prod), new PropertyGroupTag(pg.getId(), east),
+                    new PropertyGroupTag(other.getId(), prodOther)), Lists.newArrayList(it));
+        }
+
+        final long revision = pgDao.revision(other.getId());
+        assertEquals(2, pgDao.touchByTagKey("env"));
+        assertTrue(pgDao.revision(other.getId()) > revision);
+
+        east.setValue("west");
+        assertEquals(1, tagDao.update(east));
+        assertEquals(ImmutableList.of(), pgDao.filterWithTags(ImmutableMap.of(), sorts,
+                ImmutableList.of(tag("region", "east")), null));
+
+        tagDao.deleteTagDomain("env");
+        assertNull(tagDao.byId(prod.getId()));
+        assertEquals(ImmutableList.of(east), ImmutableList.copyOf(tagDao.byPropertyGroupId(pg.getId())));
+        assertEquals(1, tagDao.removeTag(east.getId()));
+        assertEquals(1, pgDao.deletePropertyGroup(pg.getId()));
+    }
+
+    @Test
+    public void properties() {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final Property b = property(pg, "b");
+        final Property a = property(pg, "a");
+        assertEquals(ImmutableList.of(a, b), propDao.byPropertyGroupId(pg.getId()));
+        assertEquals(ImmutableList.of(b), propDao.filter(
+                ImmutableMap.of("propertyGroupId", pg.getId().toString(), "key", "b"), ImmutableList.of(), null));
+        assertEquals(2, propDao.filterCount(ImmutableMap.of("value", "value")));
+        assertEquals(new RevisionedProperty(a, propDao.revision(a.getId())), propDao.revisionedById(a.getId()));
+        assertNull(propDao.revisionedById(-1L));
+
+        assertViolation("23505", () -> propDao.createProperty(b));
+        final Property c = new Property();
+        c.setKey("c");
+        c.setPropertyGroupId(pg.getId());
+        final Property orphan = new Property();
+        orphan.setKey("c");
+        orphan.setPropertyGroupId(-1L);
+        assertViolation("23506", () -> propDao.createProperties(ImmutableList.of(c, orphan)));
+        assertEquals(2, propDao.filterCount(ImmutableMap.of()));
+        assertViolation("23503", () -> pgDao.deletePropertyGroup(pg.getId()));
+
+        a.setKey("b");
+        assertViolation("23505", () -> propDao.updateProperty(a));
+        a.setKey("c");
+        assertEquals(1, propDao.updateProperty(a));
+        assertEquals(a, propDao.byId(a.getId()));
+
+        try {
+            propDao.filter(ImmutableMap.of(), ImmutableList.of(new Sort("revision")), null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The same sequence of entries the triggers of the JDBI backend log.
+     */
+    @Test
+    public void writesAreLogged() {
+        final long since = changeLogDao.latest();
+        final PropertyGroup pg = group("changeLog", "version", Status.ACTIVE);
+        final Property p = property(pg, "key");
+        pgDao.touch(pg.getId());
+        p.setValue("value2");
+        propDao.updateProperty(p);
+
+        tagDao.createTagDomain("changeLogTag");
+        final long tagId = tagDao.addTag("changeLogTag", "value");
+        tagDao.associateTag(tagId, pg.getId());
+        tagDao.disassociateTag(tagId);
+        tagDao.removeTag(tagId);
+        tagDao.deleteTagDomain("changeLogTag");
+
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(pg.getId());
+
+        final List<ChangeLogEntry> changes = changeLogDao.since(since, 100);
+        assertEquals("CHANGELOGTAG", changes.get(3).getTagKey());
+        assertEquals(changes.get(10).getRevision(), changeLogDao.latest());
+        assertEquals(changes.get(7).getRevision(), changeLogDao.latestOf(EntityType.TAG.name()));
+        assertEquals(ImmutableList.of(
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, pg.getId(), null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.INSERT, null, null),
+                entry(EntityType.TAG, tagId, Operation.INSERT, null, null),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.INSERT, pg.getId(), tagId),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.DELETE, pg.getId(), tagId),
+                entry(EntityType.TAG, tagId, Operation.DELETE, null, null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.DELETE, null, null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.DELETE, pg.getId(), null),
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.DELETE, pg.getId(), null)),
+                changes.stream().map(MVStoreDaoTest::withoutRevision).collect(Collectors.toList()));
+
+        assertEquals(6, changeLogDao.compact());
+        assertEquals(5, changeLogDao.since(since, 100).size());
+    }
+
+    @Test
+    public void movesAreLoggedForBothGroups() {
+        final long since = changeLogDao.latest();
+        final PropertyGroup from = group("from", "version", Status.ACTIVE);
+        final PropertyGroup to = group("to", "version", Status.ACTIVE);
+        final Property p = property(from, "key");
+        p.setPropertyGroupId(to.getId());
+        propDao.updateProperty(p);
+
+        changeLogDao.compact();
+        assertEquals(ImmutableList.of(entry(EntityType.PROPERTY_GROUP, from.getId(), Operation.INSERT, from.getId(), null),
+                entry(EntityType.PROPERTY_GROUP, to.getId(), Operation.INSERT, to.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, to.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, from.getId(), null)),
+                changeLogDao.since(since, 100).stream().map(MVStoreDaoTest::withoutRevision)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void survivesReopening() throws Exception {
+        db.stop();
+        final String file = new File(folder.getRoot(), "erector.mv.db").getAbsolutePath();
+        open(new MVStore.Builder().fileName(file).autoCommitDisabled().open());
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final Property p = property(pg, "key");
+        final long revision = db.currentRevision();
+        db.stop();
+
+        open(new MVStore.Builder().fileName(file).autoCommitDisabled().open());
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(ImmutableList.of(p), propDao.byPropertyGroupId(pg.getId()));
+        assertEquals(revision, db.currentRevision());
+        assertTrue(pgDao.createPropertyGroup(pg) > pg.getId());
+    }
+
+    @Test
+    public void readsSeeCommittedWritesOnly() throws Exception {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final long revision = db.currentRevision();
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> {
+            try {
+                db.write(t -> {
+                    db.put(t.groups, pg.getId(), new Object[] { "renamed", "version", "ACTIVE", db.nextRevision() });
+                    db.index(t.groupsByName, "renamed", pg.getId());
+                    written.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                    throw new IllegalStateException("rolled back");
+                });
+            } catch (IllegalStateException expected) {
+            }
+        });
+        writer.start();
+
+        written.await();
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(0, pgDao.filterNoTagsCount(ImmutableMap.of("name", "renamed")));
+        assertEquals(revision, db.currentRevision());
+
+        release.countDown();
+        writer.join();
+        assertEquals(pg, pgDao.byId(pg.getId()));
+        assertEquals(0, pgDao.filterNoTagsCount(ImmutableMap.of("name", "renamed")));
+        assertEquals(revision, db.currentRevision());
+    }
+
+    private PropertyGroup group(String name, String version, Status status) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setVersion(version);
+        pg.setStatus(status);
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    private Property property(PropertyGroup pg, String key) {
+        final Property p = new Property();
+        p.setKey(key);
+        p.setValue("value");
+        p.setPropertyGroupId(pg.getId());
+        p.setId(propDao.createProperty(p));
+        return p;
+    }
+
+    private Tag tag(String key, String value, PropertyGroup pg) {
+        final Tag t = tag(key, value);
+        t.setId(tagDao.addTag(key, value));
+        tagDao.associateTag(t.getId(), pg.getId());
+        return t;
+    }
+
+    private static Tag tag(String key, String value) {
+        final Tag t = new Tag();
+        t.setKey(key.toUpperCase());
+        t.setValue(value);
+        return t;
+    }
+
+    private static void assertViolation(String sqlState, Runnable write) {
+        try {
+            write.run();
+            fail();
+        } catch (UnableToExecuteStatementException e) {
+            assertEquals(sqlState, ((SQLException) e.getCause()).getSQLState());
+        }
+    }
+
+    private static ChangeLogEntry withoutRevision(ChangeLogEntry e) {
+        if (EntityType.TAG_ASSOCIATION == e.getEntityType()) {
+            e.setEntityId(null);
+        }
+        e.setTagKey(null);
+        e.setRevision(0);
+        return e;
+    }
+
+    private static ChangeLogEntry entry(EntityType type, Long entityId, Operation operation, Long propertyGroupId,
+            Long relatedId) {
+        final ChangeLogEntry e = new ChangeLogEntry();
+        e.setEntityType(type);
+        e.setEntityId(entityId);
+        e.setOperation(operation);
+        e.setPropertyGroupId(propertyGroupId);
+        e.setRelatedId(relatedId);
+        return e;
+    }
+}
@@ -0,0 +1,481 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.persistence.sharded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.h2.api.Trigger;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.ChangeLogEntry;
+import org.mattcarrier.erector.dao.ChangeLogEntry.EntityType;
+import org.mattcarrier.erector.dao.ChangeLogEntry.Operation;
+import org.mattcarrier.erector.dao.Cursor;
+import org.mattcarrier.erector.dao.PropertyGroupDependency;
+import org.mattcarrier.erector.dao.PropertyGroupTag;
+import org.mattcarrier.erector.dao.Sort;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class ShardedDaoTest {
+    private static final int SHARDS = 3;
+
+    private final List<DBI> shards = new ArrayList<>();
+    private ExecutorService fanOut;
+    private ShardedDatabase db;
+    private ShardedPropertyGroupDao pgDao;
+    private ShardedPropertyDao propDao;
+    private ShardedTagDao tagDao;
+    private ShardedChangeLogDao changeLogDao;
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < SHARDS; i++) {
+            final JdbcDataSource ds = new JdbcDataSource();
+            ds.setURL("jdbc:h2:mem:ShardedDaoTest-" + System.nanoTime() + "-" + i + ";DB_CLOSE_DELAY=-1");
+            ds.setUser("sa");
+            ShardedPersistenceFactory.migrate(ds);
+            shards.add(new DBI(ds));
+        }
+
+        fanOut = Executors.newFixedThreadPool(SHARDS);
+        db = new ShardedDatabase(shards, new ConsistentHash(SHARDS, 128), fanOut);
+        pgDao = new ShardedPropertyGroupDao(db);
+        propDao = new ShardedPropertyDao(db);
+        tagDao = new ShardedTagDao(db);
+        changeLogDao = new ShardedChangeLogDao(db);
+    }
+
+    @After
+    public void tearDown() {
+        fanOut.shutdown();
+        for (DBI shard : shards) {
+            try (Handle h = shard.open()) {
+                h.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    @Test
+    public void filtersSpanningShardsAreMerged() {
+        final List<PropertyGroup> groups = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            groups.add(group("name" + i % 7, "version", 0 == i % 3 ? Status.INACTIVE : Status.ACTIVE));
+        }
+        for (int i = 0; i < SHARDS; i++) {
+            assertTrue(0 < count(i, "PropertyGroup"));
+        }
+        for (PropertyGroup pg : groups) {
+            assertEquals(pg, pgDao.byId(pg.getId()));
+        }
+
+        final List<Sort> sorts = ImmutableList.of(new Sort("name DESC"), new Sort("id"));
+        final List<PropertyGroup> sorted = groups.stream()
+                .sorted(Comparator.comparing(PropertyGroup::getName).reversed().thenComparing(PropertyGroup::getId))
+                .collect(Collectors.toList());
+        assertEquals(sorted.subList(5, 15),
+                pgDao.filterNoTags(ImmutableMap.of("start", "5", "limit", "10"), sorts, null));
+        assertEquals(30, pgDao.filterNoTagsCount(ImmutableMap.of()));
+        assertEquals(20, pgDao.filterNoTagsCount(ImmutableMap.of("status", "ACTIVE")));
+        assertEquals(ImmutableList.of(groups.get(4)),
+                pgDao.filterNoTags(ImmutableMap.of("id", groups.get(4).getId().toString()), sorts, null));
+
+        final List<PropertyGroup> paged = new ArrayList<>();
+        Cursor cursor = null;
+        while (paged.size() < 30) {
+            final List<PropertyGroup> page = pgDao.filterNoTags(ImmutableMap.of("limit", "4"), sorts, cursor);
+            paged.addAll(page);
+            cursor = Cursor.after(sorts, page.get(page.size() - 1),
+                    (pg, field) -> "id".equals(field) ? pg.getId() : pg.getName());
+        }
+        assertEquals(sorted, paged);
+
+        final Long[] ids = groups.subList(0, 10).stream().map(PropertyGroup::getId).toArray(Long[]::new);
+        assertEquals(groups.subList(0, 10).stream().filter(pg -> Status.ACTIVE == pg.getStatus())
+                .collect(Collectors.toList()), pgDao.filterByIds(ImmutableMap.of("status", "ACTIVE"),
+                        ImmutableList.of(new Sort("id")), ids, null));
+        assertEquals(10, pgDao.filterByIdsCount(ImmutableMap.of(), ids));
+        assertEquals(ImmutableSet.copyOf(groups.subList(0, 10)),
+                ImmutableSet.copyOf(pgDao.byIds(ImmutableList.copyOf(ids))));
+
+        try (ResultIterator<PropertyGroup> it = pgDao.iterateAll(2)) {
+            assertEquals(groups, Lists.newArrayList(it));
+        }
+    }
+
+    @Test
+    public void dependenciesSpanShards() {
+        final PropertyGroup parent = group("parent", "version", Status.ACTIVE);
+        final PropertyGroup dependent = groupBeside(parent, "dependent", Status.ACTIVE);
+
+        pgDao.addDependency(parent.getId(), dependent.getId());
+        assertEquals(ImmutableList.of(new PropertyGroupDependency(parent.getId(), dependent.getId())),
+                pgDao.dependencies());
+        assertViolation("23505", () -> pgDao.addDependency(parent.getId(), dependent.getId()));
+        assertViolation("23506", () -> pgDao.addDependency(parent.getId(), -1L));
+        assertViolation("23503", () -> pgDao.deletePropertyGroup(parent.getId()));
+        assertEquals(1, pgDao.removeDependency(parent.getId(), dependent.getId()));
+        assertEquals(1, pgDao.deletePropertyGroup(parent.getId()));
+        assertNull(pgDao.byId(parent.getId()));
+    }
+
+    @Test
+    public void tagsAreCopiedToEveryShard() {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final PropertyGroup other = groupBeside(pg, "name", Status.INACTIVE);
+
+        tagDao.createTagDomain("env");
+        tagDao.createTagDomain("region");
+        assertEquals(ImmutableList.of("ENV", "REGION"), tagDao.getTagDomain());
+        assertViolation("23505", () -> tagDao.createTagDomain("env"));
+        assertNull(tagDao.addTag("unknown", "value"));
+
+        final Tag prod = tag("env", "prod", pg);
+        tagDao.associateTag(prod.getId(), other.getId());
+        final Tag east = tag("region", "east", pg);
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(2, count(i, "TagKey"));
+            assertEquals(2, count(i, "Tag"));
+        }
+        assertEquals(ImmutableSet.of(prod, east), ImmutableSet.copyOf(tagDao.byPropertyGroupId(pg.getId())));
+        assertEquals(ImmutableSet.of(prod), ImmutableSet.copyOf(tagDao.byPropertyGroupId(other.getId())));
+        assertViolation("23505", () -> tagDao.associateTag(prod.getId(), pg.getId()));
+
+        final List<Sort> sorts = ImmutableList.of(new Sort("id"));
+        assertEquals(ImmutableList.of(pg, other),
+                pgDao.filterWithTags(ImmutableMap.of(), sorts, ImmutableList.of(prod), null));
+        assertEquals(ImmutableList.of(pg),
+                pgDao.filterWithTags(ImmutableMap.of("name", "name"), sorts, ImmutableList.of(prod, east), null));
+        assertEquals(1, pgDao.filterWithTagsCount(ImmutableMap.of("status", "INACTIVE"), ImmutableList.of(prod)));
+
+        try (ResultIterator<PropertyGroupTag> it = tagDao.iterateAssociations(1)) {
+            assertEquals(ImmutableList.of(new PropertyGroupTag(pg.getId(), prod), new PropertyGroupTag(pg.getId(), east),
+                    new PropertyGroupTag(other.getId(), prod)), Lists.newArrayList(it));
+        }
+
+        final long revision = pgDao.revision(other.getId());
+        assertEquals(2, pgDao.touchByTagKey("env"));
+        assertTrue(pgDao.revision(other.getId()) > revision);
+
+        east.setValue("west");
+        assertEquals(1, tagDao.update(east));
+        assertEquals(east, tagDao.byId(east.getId()));
+        tagDao.deleteTagDomain("env");
+        assertNull(tagDao.byId(prod.getId()));
+        assertEquals(ImmutableList.of(), ImmutableList.copyOf(tagDao.byPropertyGroupId(other.getId())));
+        assertEquals(1, tagDao.removeTag(east.getId()));
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(0, count(i, "Tag"));
+        }
+    }
+
+    @Test
+    public void failedBroadcastsAreRepaired() {
+        tagDao.createTagDomain("env");
+        try (Handle h = shards.get(SHARDS - 1).open()) {
+            h.execute("CREATE TRIGGER failingInsert BEFORE INSERT ON TagKey FOR EACH ROW CALL \""
+                    + FailingInsert.class.getName() + "\"");
+        }
+
+        FailingInsert.failures.set(1);
+        tagDao.createTagDomain("region");
+        assertEquals(2, count(SHARDS - 1, "TagKey"));
+
+        FailingInsert.failures.set(2);
+        try {
+            tagDao.createTagDomain("zone");
+            fail();
+        } catch (UnableToExecuteStatementException e) {
+            assertEquals(3, count(0, "TagKey"));
+            assertEquals(2, count(SHARDS - 1, "TagKey"));
+        }
+
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final Tag zone = tag("zone", "a", pg);
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(3, count(i, "TagKey"));
+            assertEquals(1, count(i, "Tag"));
+        }
+        assertEquals(ImmutableList.of(zone), ImmutableList.copyOf(tagDao.byPropertyGroupId(pg.getId())));
+    }
+
+    @Test
+    public void propertiesFollowTheirGroup() {
+        final PropertyGroup pg = group("name", "version", Status.ACTIVE);
+        final PropertyGroup other = groupBeside(pg, "other", Status.ACTIVE);
+
+        final Property b = property(pg, "b");
+        final Property a = property(pg, "a");
+        property(other, "a");
+        assertEquals(ImmutableList.of(a, b), propDao.byPropertyGroupId(pg.getId()));
+        assertEquals(ImmutableList.of(b), propDao.filter(
+                ImmutableMap.of("propertyGroupId", pg.getId().toString(), "key", "b"), ImmutableList.of(new Sort("id")),
+                null));
+        assertEquals(2, propDao.filterCount(ImmutableMap.of("key", "a")));
+        assertEquals(2, count(db.of(pg.getId()).index, "Property"));
+
+        assertViolation("23505", () -> propDao.createProperty(b));
+        final Property c = new Property();
+        c.setKey("c");
+        c.setPropertyGroupId(pg.getId());
+        final Property orphan = new Property();
+        orphan.setKey("c");
+        orphan.setPropertyGroupId(-1L);
+        assertViolation("23506", () -> propDao.createProperties(ImmutableList.of(c, orphan)));
+        assertEquals(3, propDao.filterCount(ImmutableMap.of()));
+        assertEquals(ImmutableList.of(a, b), propDao.byPropertyGroupId(pg.getId()));
+
+        a.setPropertyGroupId(other.getId());
+        assertViolation("23505", () -> propDao.updateProperty(a));
+        a.setKey("moved");
+        assertEquals(1, propDao.updateProperty(a));
+        assertEquals(a, propDao.byId(a.getId()));
+        assertEquals(ImmutableList.of(a), propDao.byIds(ImmutableList.of(a.getId())));
+        assertEquals(ImmutableList.of(b), propDao.byPropertyGroupId(pg.getId()));
+        assertEquals(1, count(db.of(pg.getId()).index, "Property"));
+        assertEquals(ImmutableList.of(b, a), propDao.filter(ImmutableMap.of("value", "value"),
+                ImmutableList.of(new Sort("propertyGroupId"), new Sort("key DESC")), null).subList(0, 2));
+        assertEquals(1, propDao.deleteProperty(a.getId()));
+        assertNull(propDao.revision(a.getId()));
+    }
+
+    /**
+     * The same sequence of entries the unsharded backends log, in one revision order across shards.
+     */
+    @Test
+    public void writesAreLoggedInOneOrder() {
+        final long since = changeLogDao.latest();
+        final PropertyGroup pg = group("changeLog", "version", Status.ACTIVE);
+        final Property p = property(pg, "key");
+        pgDao.touch(pg.getId());
+        p.setValue("value2");
+        propDao.updateProperty(p);
+
+        tagDao.createTagDomain("changeLogTag");
+        final long tagId = tagDao.addTag("changeLogTag", "value");
+        tagDao.associateTag(tagId, pg.getId());
+        tagDao.disassociateTag(tagId);
+        tagDao.removeTag(tagId);
+        tagDao.deleteTagDomain("changeLogTag");
+
+        propDao.deleteProperty(p.getId());
+        pgDao.deletePropertyGroup(pg.getId());
+
+        final List<ChangeLogEntry> changes = changeLogDao.since(since, 100);
+        assertEquals(changes, ImmutableList.builder().addAll(changeLogDao.since(since, 4))
+                .addAll(changeLogDao.since(changes.get(3).getRevision(), 4))
+                .addAll(changeLogDao.since(changes.get(7).getRevision(), 4)).build());
+        assertEquals(changes.get(10).getRevision(), db.currentRevision());
+        assertEquals(changes.get(7).getRevision(), changeLogDao.latestOf(EntityType.TAG.name()));
+        assertEquals(ImmutableList.of(
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.INSERT, pg.getId(), null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.UPDATE, pg.getId(), null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.INSERT, null, null),
+                entry(EntityType.TAG, tagId, Operation.INSERT, null, null),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.INSERT, pg.getId(), tagId),
+                entry(EntityType.TAG_ASSOCIATION, null, Operation.DELETE, pg.getId(), tagId),
+                entry(EntityType.TAG, tagId, Operation.DELETE, null, null),
+                entry(EntityType.TAG_DOMAIN, null, Operation.DELETE, null, null),
+                entry(EntityType.PROPERTY, p.getId(), Operation.DELETE, pg.getId(), null),
+                entry(EntityType.PROPERTY_GROUP, pg.getId(), Operation.DELETE, pg.getId(), null)),
+                changes.stream().map(ShardedDaoTest::withoutRevision).collect(Collectors.toList()));
+
+        changeLogDao.compact();
+        assertEquals(5, changeLogDao.since(since, 100).size());
+    }
+
+    /**
+     * A second erector instance on the same shards continues the ids and revisions of the first.
+     */
+    @Test
+    public void instancesShareIdsAndRevisions() {
+        final ShardedPropertyGroupDao otherPgDao = new ShardedPropertyGroupDao(
+                new ShardedDatabase(shards, new ConsistentHash(SHARDS, 128), fanOut));
+        final long since = changeLogDao.latest();
+        final Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            final PropertyGroup pg = new PropertyGroup();
+            pg.setName("instance" + i);
+            pg.setVersion("version");
+            pg.setStatus(Status.ACTIVE);
+            assertTrue(ids.add(0 == i % 2 ? pgDao.createPropertyGroup(pg) : otherPgDao.createPropertyGroup(pg)));
+        }
+
+        final List<ChangeLogEntry> changes = changeLogDao.since(since, 100);
+        assertEquals(10, changes.size());
+        assertEquals(10, changes.stream().mapToLong(ChangeLogEntry::getRevision).distinct().count());
+        assertEquals(changes.get(9).getRevision(), db.currentRevision());
+    }
+
+    @Test
+    public void addingAShardMovesOnlyItsKeys() {
+        final ConsistentHash four = new ConsistentHash(4, 128);
+        final ConsistentHash five = new ConsistentHash(5, 128);
+        final int[] perShard = new int[4];
+        int moved = 0;
+        for (long key = 0; key < 10000; key++) {
+            perShard[four.shardOf(key)]++;
+            if (four.shardOf(key) != five.shardOf(key)) {
+                assertEquals(4, five.shardOf(key));
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 1000 && moved < 3000);
+        for (int keys : perShard) {
+            assertTrue(keys > 1500);
+        }
+    }
+
+    private int count(int shard, String table) {
+        try (Handle h = shards.get(shard).open()) {
+            return h.createQuery("SELECT COUNT(1) FROM " + table).mapTo(Integer.class).first();
+        }
+    }
+
+    private PropertyGroup group(String name, String version, Status status) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setVersion(version);
+        pg.setStatus(status);
+        pg.setId(pgDao.createPropertyGroup(pg));
+        return pg;
+    }
+
+    /**
+     * Creates PropertyGroups until one lands on another shard than {@code pg}.
+     */
+    private PropertyGroup groupBeside(PropertyGroup pg, String name, Status status) {
+        PropertyGroup beside = group(name, "version", status);
+        while (db.of(beside.getId()) == db.of(pg.getId())) {
+            pgDao.deletePropertyGroup(beside.getId());
+            beside = group(name, "version", status);
+        }
+
+        return beside;
+    }
+
+    private Property property(PropertyGroup pg, String key) {
+        final Property p = new Property();
+        p.setKey(key);
+        p.setValue("value");
+        p.setPropertyGroupId(pg.getId());
+        p.setId(propDao.createProperty(p));
+        return p;
+    }
+
+    private Tag tag(String key, String value, PropertyGroup pg) {
+        final Tag t = new Tag();
+        t.setKey(key.toUpperCase());
+        t.setValue(value);
+        t.setId(tagDao.addTag(key, value));
+        tagDao.associateTag(t.getId(), pg.getId());
+        return t;
+    }
+
+    private static void assertViolation(String sqlState, Runnable write) {
+        try {
+            write.run();
+            fail();
+        } catch (UnableToExecuteStatementException e) {
+            assertEquals(sqlState, ((SQLException) e.getCause()).getSQLState());
+        }
+    }
+
+    private static ChangeLogEntry withoutRevision(ChangeLogEntry e) {
+        if (EntityType.TAG_ASSOCIATION == e.getEntityType()) {
+            e.setEntityId(null);
+        }
+        e.setTagKey(null);
+        e.setRevision(0);
+        return e;
+    }
+
+    private static ChangeLogEntry entry(EntityType type, Long entityId, Operation operation, Long propertyGroupId,
+            Long relatedId) {
+        final ChangeLogEntry e = new ChangeLogEntry();
+        e.setEntityType(type);
+        e.setEntityId(entityId);
+        e.setOperation(operation);
+        e.setPropertyGroupId(propertyGroupId);
+        e.setRelatedId(relatedId);
+        return e;
+    }
+
+    /**
+     * Fails as many inserts as {@link #failures} allows.
+     */
+    public static class FailingInsert implements Trigger {
+        static final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            if (0 < failures.getAndDecrement()) {
+                throw new SQLException("Failing insert");
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+}
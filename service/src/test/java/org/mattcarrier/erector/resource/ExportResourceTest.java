@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Property;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.persistence.jdbi.JDBIReadSnapshot;
+import org.skife.jdbi.v2.DBI;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.testing.junit.DropwizardClientRule;
+
+public class ExportResourceTest {
+    private static final DBI jdbi = database();
+
+    @ClassRule
+    public static final DropwizardClientRule server = new DropwizardClientRule(
+            new ExportResource(() -> new JDBIReadSnapshot(jdbi), Jackson.newObjectMapper(), 2));
+
+    private static Client client;
+    private static long first;
+    private static long second;
+    private static long tag;
+
+    @BeforeClass
+    public static void setup() {
+        client = ClientBuilder.newClient();
+
+        final PropertyGroupDao pgDao = jdbi.onDemand(PropertyGroupDao.class);
+        final TagDao tagDao = jdbi.onDemand(TagDao.class);
+        first = pgDao.createPropertyGroup(group("first"));
+        second = pgDao.createPropertyGroup(group("second"));
+        tagDao.createTagDomain("ENV");
+        tag = tagDao.addTag("ENV", "prod");
+        tagDao.associateTag(tag, first);
+        jdbi.onDemand(PropertyDao.class).createProperty(property("a", "1", first));
+        jdbi.onDemand(PropertyDao.class).createProperty(property("b", "2", second));
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Test
+    public void exportsEveryPropertyGroupWithItsTags() {
+        assertEquals(ImmutableList.of(
+                "{\"id\":" + first + ",\"name\":\"first\",\"version\":\"1.0.0\",\"status\":\"ACTIVE\",\"tags\":[{\"id\":" + tag + ",\"key\":\"ENV\",\"value\":\"prod\"}]}",
+                "{\"id\":" + second + ",\"name\":\"second\",\"version\":\"1.0.0\",\"status\":\"ACTIVE\",\"tags\":[]}"),
+                export("/propertygroups"));
+    }
+
+    @Test
+    public void exportsEveryProperty() throws IOException {
+        final ObjectMapper mapper = Jackson.newObjectMapper();
+        final List<String> lines = export("/properties");
+        assertEquals(2, lines.size());
+        assertEquals("a", mapper.readValue(lines.get(0), Property.class).getKey());
+        assertEquals(first, mapper.readValue(lines.get(0), Property.class).getPropertyGroupId().longValue());
+        assertEquals("b", mapper.readValue(lines.get(1), Property.class).getKey());
+    }
+
+    private static List<String> export(String path) {
+        final String body = client.target(server.baseUri() + "/erector/api/v1/export" + path).request().get(
+                String.class);
+        return Splitter.on('\n').omitEmptyStrings().splitToList(body);
+    }
+
+    private static DBI database() {
+        final JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:ExportResourceTest;DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(ds);
+        flyway.migrate();
+        return new DBI(ds);
+    }
+
+    private static PropertyGroup group(String name) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setName(name);
+        pg.setVersion("1.0.0");
+        pg.setStatus(Status.ACTIVE);
+        return pg;
+    }
+
+    private static Property property(String key, String value, long propertyGroupId) {
+        final Property p = new Property();
+        p.setKey(key);
+        p.setValue(value);
+        p.setPropertyGroupId(propertyGroupId);
+        return p;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Response;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mattcarrier.erector.bulkhead.Bulkhead;
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.PropertyDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.RevisionDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.hierarchy.PropertyGroupHierarchy;
+import org.mattcarrier.erector.index.TagIndex;
+import org.mattcarrier.erector.persistence.ReadScope;
+import org.mattcarrier.erector.persistence.cache.CountCache;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.dropwizard.testing.junit.DropwizardClientRule;
+import io.dropwizard.util.Duration;
+
+public class PropertyGroupResourceTest {
+    private static final PropertyGroupDao pgDao = mock(PropertyGroupDao.class);
+    private static final TagIndex tagIndex = mock(TagIndex.class);
+
+    @ClassRule
+    public static final DropwizardClientRule server = new DropwizardClientRule(new PropertyGroupResource(pgDao,
+            mock(PropertyDao.class), mock(TagDao.class), mock(RevisionDao.class), ReadScope.DIRECT,
+            mock(PropertyGroupHierarchy.class), mock(PropertyGroupWatcher.class), mock(CountCache.class), tagIndex,
+            new Bulkheads(bulkhead(), bulkhead(), bulkhead())));
+
+    private static Client client;
+
+    private static Bulkhead bulkhead() {
+        return new Bulkhead(Runnable::run, new ArrayBlockingQueue<>(1), Duration.seconds(5), new Meter(),
+                new Meter());
+    }
+
+    @BeforeClass
+    public static void setupClient() {
+        client = ClientBuilder.newClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @Test
+    public void pagingParametersAreNotTags() {
+        final Tag env = new Tag();
+        env.setKey("ENV");
+        env.setValue("prod");
+        when(pgDao.filterWithTags(anyMap(), any(), eq(ImmutableSet.of(env)), isNull()))
+                .thenReturn(ImmutableList.of(group(1L)));
+
+        final Response response = client.target(server.baseUri()).path("/erector/api/v1/propertygroups")
+                .queryParam("ENV", "prod").queryParam("count", "none").queryParam("limit", "10").request().get();
+        assertEquals(200, response.getStatus());
+        final String body = response.readEntity(String.class);
+        assertFalse(body, body.contains("\"totalResults\""));
+        assertEquals(1, body.split("\"name\":\"group\"").length - 1);
+        verify(pgDao, never()).filterWithTagsCount(anyMap(), any());
+    }
+
+    private static PropertyGroup group(Long id) {
+        final PropertyGroup pg = new PropertyGroup();
+        pg.setId(id);
+        pg.setName("group");
+        pg.setVersion("1.0.0");
+        pg.setStatus(Status.ACTIVE);
+        return pg;
+    }
+}
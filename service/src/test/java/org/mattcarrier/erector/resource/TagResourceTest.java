@@ -0,0 +1,133 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mattcarrier.erector.bulkhead.Bulkhead;
+import org.mattcarrier.erector.bulkhead.Bulkheads;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.dao.TagDao;
+import org.mattcarrier.erector.domain.Tag;
+import org.mattcarrier.erector.index.TagDomain;
+import org.mattcarrier.erector.watch.PropertyGroupWatcher;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+
+import io.dropwizard.testing.junit.DropwizardClientRule;
+import io.dropwizard.util.Duration;
+
+public class TagResourceTest {
+    private static final TagDao tagDao = mock(TagDao.class);
+    private static final TagDomain domain = mock(TagDomain.class);
+    private static volatile boolean stalled;
+
+    /**
+     * Runs work on the calling thread, or drops it while {@link #stalled} so requests wait for the timeout.
+     */
+    private static final Executor executor = r -> {
+        if (!stalled) {
+            r.run();
+        }
+    };
+
+    /**
+     * A real Jetty since the in-memory test container can not suspend requests.
+     */
+    @ClassRule
+    public static final DropwizardClientRule server = new DropwizardClientRule(new TagResource(tagDao,
+            mock(PropertyGroupDao.class), mock(PropertyGroupWatcher.class), domain,
+            new Bulkheads(bulkhead(), bulkhead(), bulkhead())));
+
+    private static Client client;
+
+    private static Bulkhead bulkhead() {
+        return new Bulkhead(executor, new ArrayBlockingQueue<>(1), Duration.milliseconds(200), new Meter(),
+                new Meter());
+    }
+
+    @BeforeClass
+    public static void setupClient() {
+        client = ClientBuilder.newClient();
+    }
+
+    @AfterClass
+    public static void closeClient() {
+        client.close();
+    }
+
+    @After
+    public void tearDown() {
+        stalled = false;
+        reset(tagDao, domain);
+    }
+
+    @Test
+    public void resumesWithEntity() {
+        when(domain.keys()).thenReturn(ImmutableList.of("ENV"));
+        final Response response = tags("/domain").request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals("[\"ENV\"]", response.readEntity(String.class));
+    }
+
+    @Test
+    public void resumesWithMappedException() {
+        when(domain.contains("ENV")).thenReturn(true);
+        assertEquals(409, tags("/domain/ENV").request().post(null).getStatus());
+
+        when(tagDao.update(any(Tag.class))).thenReturn(0);
+        assertEquals(404, tags("/1").request().put(Entity.json("{\"id\":1,\"key\":\"ENV\",\"value\":\"prod\"}"))
+                .getStatus());
+    }
+
+    @Test
+    public void timesOutWith503() {
+        stalled = true;
+        final Response response = tags("/domain").request().get();
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeaderString("Retry-After"));
+    }
+
+    private static WebTarget tags(String path) {
+        return client.target(server.baseUri()).path("/erector/api/v1/tags" + path);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * The MIT License
+ * Copyright © 2016 Matt Carrier
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.mattcarrier.erector.watch;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mattcarrier.erector.dao.AbstractDaoTest;
+import org.mattcarrier.erector.dao.ChangeLogDao;
+import org.mattcarrier.erector.dao.PropertyGroupDao;
+import org.mattcarrier.erector.domain.PropertyGroup;
+import org.mattcarrier.erector.domain.PropertyGroup.Status;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentMatcher;
+
+import io.dropwizard.util.Duration;
+
+public class PropertyGroupWatcherTest extends AbstractDaoTest {
+    private PropertyGroupDao pgDao;
+    private ScheduledExecutorService executor;
+    private PropertyGroupWatcher watcher;
+
+    private PropertyGroup pg;
+
+    @Before
+    public void setup() throws Exception {
+        pgDao = dbi.onDemand(PropertyGroupDao.class);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        watcher = new PropertyGroupWatcher(pgDao, dbi.onDemand(ChangeLogDao.class), executor,
+                Duration.milliseconds(50), Duration.seconds(60));
+        watcher.start();
+
+        pg = new PropertyGroup();
+        pg.setName("watched");
+        pg.setStatus(Status.ACTIVE);
+        pg.setVersion("version");
+        pg.setId(pgDao.createPropertyGroup(pg));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.stop();
+        executor.shutdownNow();
+        pgDao.deletePropertyGroup(pg.getId());
+    }
+
+    @Test
+    public void completesImmediatelyWhenAlreadyChanged() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        watcher.watch(pg.getId(), 0, Duration.seconds(30), response);
+        verify(response, timeout(1000)).resume(argThat(ok(pg.getId())));
+        assertEquals(Integer.valueOf(0), watcher.parkedGauge().getValue());
+    }
+
+    @Test
+    public void parksUntilChanged() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        watcher.watch(pg.getId(), pgDao.revision(pg.getId()), Duration.seconds(30), response);
+        verify(response, after(200).never()).resume(any(Response.class));
+        assertEquals(Integer.valueOf(1), watcher.parkedGauge().getValue());
+
+        pgDao.touch(pg.getId());
+        watcher.changed(pg.getId());
+        verify(response, timeout(1000)).resume(argThat(ok(pg.getId())));
+        assertEquals(Integer.valueOf(0), watcher.parkedGauge().getValue());
+    }
+
+    @Test
+    public void pollPicksUpChangesWithoutNotification() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        watcher.watch(pg.getId(), pgDao.revision(pg.getId()), Duration.seconds(30), response);
+        pg.setVersion("version2");
+        pgDao.updatePropertyGroup(pg);
+        verify(response, timeout(1000)).resume(argThat(ok(pg.getId())));
+    }
+
+    @Test
+    public void missingGroup() {
+        final AsyncResponse response = mock(AsyncResponse.class);
+        watcher.watch(-1L, 0, Duration.seconds(30), response);
+        verify(response, timeout(1000)).resume(any(NotFoundException.class));
+        verify(response, never()).resume(any(Response.class));
+    }
+
+    @Test
+    public void checksEveryWatchedGroupInOneQuery() throws Exception {
+        final PropertyGroup other = new PropertyGroup();
+        other.setName("other");
+        other.setStatus(Status.ACTIVE);
+        other.setVersion("version");
+        other.setId(pgDao.createPropertyGroup(other));
+
+        final PropertyGroupDao counted = mock(PropertyGroupDao.class, AdditionalAnswers.delegatesTo(pgDao));
+        final PropertyGroupWatcher batched = new PropertyGroupWatcher(counted, dbi.onDemand(ChangeLogDao.class),
+                executor, Duration.seconds(60), Duration.seconds(60));
+        batched.start();
+        try {
+            final AsyncResponse first = mock(AsyncResponse.class);
+            final AsyncResponse second = mock(AsyncResponse.class);
+            batched.watch(pg.getId(), pgDao.revision(pg.getId()), Duration.seconds(30), first);
+            batched.watch(other.getId(), pgDao.revision(other.getId()), Duration.seconds(30), second);
+            verify(counted, timeout(1000).times(2)).revisionedByIds(any());
+
+            pgDao.touch(pg.getId());
+            pgDao.touch(other.getId());
+            batched.changedAll();
+            verify(first, timeout(1000)).resume(argThat(ok(pg.getId())));
+            verify(second, timeout(1000)).resume(argThat(ok(other.getId())));
+            verify(counted, times(3)).revisionedByIds(any());
+            verify(counted, never()).revision(any());
+            verify(counted, never()).byId(any());
+        } finally {
+            batched.stop();
+            pgDao.deletePropertyGroup(other.getId());
+        }
+    }
+
+    private static ArgumentMatcher<Response> ok(Long id) {
+        return r -> null != r && 200 == r.getStatus() && id.equals(((PropertyGroup) r.getEntity()).getId())
+                && null != r.getEntityTag();
+    }
+}